@@ -1,33 +1,103 @@
 package org.com.apigateway.filter;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import lombok.RequiredArgsConstructor;
+import org.com.apigateway.logging.AccessLogWriter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.reactivestreams.Publisher;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
 @Component
+@RequiredArgsConstructor
 public class LoggingGlobalFilter implements GlobalFilter, Ordered {
 
-    private static final Logger log = LoggerFactory.getLogger(LoggingGlobalFilter.class);
+    private final AccessLogWriter accessLogWriter;
 
     @Override
-    public reactor.core.publisher.Mono<Void> filter(org.springframework.web.server.ServerWebExchange exchange,
-                                                    org.springframework.cloud.gateway.filter.GatewayFilterChain chain) {
-        log.info("➡️ Request: {} {}",
-                exchange.getRequest().getMethod(),
-                exchange.getRequest().getURI());
-
-        return chain.filter(exchange)
-                .then(Mono.fromRunnable(() -> {
-                    log.info("⬅️ Response status: {}",
-                            exchange.getResponse().getStatusCode());
-                }));
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        // Content-Length у chunked-запросов и ответов равен -1, поэтому байты считаем по самому телу
+        CountingRequest request = new CountingRequest(exchange.getRequest());
+        CountingResponse response = new CountingResponse(exchange.getResponse());
+
+        return chain.filter(exchange.mutate().request(request).response(response).build())
+                .doFinally(signal -> {
+                    HttpStatusCode status = response.getStatusCode();
+                    Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+                    URI upstream = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+
+                    accessLogWriter.record(
+                            request.getMethod(),
+                            request.getURI(),
+                            status != null ? status.value() : 0,
+                            System.nanoTime() - start,
+                            route != null ? route.getId() : null,
+                            upstream,
+                            request.bytes.get(),
+                            response.bytes.get());
+                });
     }
 
     @Override
     public int getOrder() {
         return -1; // фильтр с высоким приоритетом
     }
+
+    private static final class CountingRequest extends ServerHttpRequestDecorator {
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        CountingRequest(ServerHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody().doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()));
+        }
+    }
+
+    private static final class CountingResponse extends ServerHttpResponseDecorator {
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        CountingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // Mono оставляем Mono: по нему сервер сам выставляет Content-Length для одного буфера
+            if (body instanceof Mono<? extends DataBuffer> single) {
+                return super.writeWith(single.doOnNext(this::count));
+            }
+            return super.writeWith(Flux.from(body).doOnNext(this::count));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(this::count)));
+        }
+
+        private void count(DataBuffer buffer) {
+            bytes.addAndGet(buffer.readableByteCount());
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package org.com.apigateway.logging;
+
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+
+/**
+ * Слот кольцевого буфера access-лога. Объекты создаются один раз при старте
+ * и переиспользуются, поэтому на event loop ничего не аллоцируется.
+ */
+public final class AccessLogEntry {
+
+    long timestampMillis;
+    HttpMethod method;
+    URI requestUri;
+    int status;
+    long latencyNanos;
+    String routeId;
+    URI upstreamUri;
+    long requestBytes;
+    long responseBytes;
+
+    void clear() {
+        method = null;
+        requestUri = null;
+        routeId = null;
+        upstreamUri = null;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public URI getRequestUri() {
+        return requestUri;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public String getRouteId() {
+        return routeId;
+    }
+
+    public URI getUpstreamUri() {
+        return upstreamUri;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+}
@@ -0,0 +1,97 @@
+package org.com.apigateway.logging;
+
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный lock-free кольцевой буфер (много писателей, один читатель).
+ * Писатель никогда не ждет: если буфер заполнен, запись отбрасывается.
+ */
+public class AccessLogRingBuffer {
+
+    private final int mask;
+    private final AccessLogEntry[] entries;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public AccessLogRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.mask = capacity - 1;
+        this.entries = new AccessLogEntry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new AccessLogEntry();
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * @return {@code false}, если буфер заполнен и запись отброшена
+     */
+    public boolean offer(long timestampMillis, HttpMethod method, URI requestUri, int status, long latencyNanos,
+                         String routeId, URI upstreamUri, long requestBytes, long responseBytes) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+
+        AccessLogEntry entry = entries[index];
+        entry.timestampMillis = timestampMillis;
+        entry.method = method;
+        entry.requestUri = requestUri;
+        entry.status = status;
+        entry.latencyNanos = latencyNanos;
+        entry.routeId = routeId;
+        entry.upstreamUri = upstreamUri;
+        entry.requestBytes = requestBytes;
+        entry.responseBytes = responseBytes;
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Вычитывает до {@code maxEntries} записей. Вызывается только из потока writer'а.
+     */
+    public int drain(Consumer<AccessLogEntry> handler, int maxEntries) {
+        int drained = 0;
+        while (drained < maxEntries) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            AccessLogEntry entry = entries[index];
+            try {
+                handler.accept(entry);
+            } finally {
+                entry.clear();
+                sequences.set(index, head + mask + 1);
+                head++;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    public long size() {
+        return Math.max(0, tail.get() - head);
+    }
+}
@@ -0,0 +1,130 @@
+package org.com.apigateway.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронный access-лог gateway: event loop только кладет запись в кольцевой буфер,
+ * а фоновый поток пачками выгружает его в логгер {@code ACCESS_LOG}.
+ * Успешные ответы сэмплируются, ошибки (4xx/5xx) пишутся всегда. При переполнении буфера
+ * записи отбрасываются и учитываются в метрике {@code gateway.access_log.dropped}.
+ */
+@Component
+public class AccessLogWriter {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("ACCESS_LOG");
+    private static final Logger log = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private final AccessLogRingBuffer buffer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final double sampleRate;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final StringBuilder line = new StringBuilder(256);
+    private ScheduledExecutorService executor;
+
+    public AccessLogWriter(MeterRegistry meterRegistry,
+                           @Value("${gateway.access-log.buffer-size:8192}") int bufferSize,
+                           @Value("${gateway.access-log.batch-size:512}") int batchSize,
+                           @Value("${gateway.access-log.flush-interval-ms:50}") long flushIntervalMillis,
+                           @Value("${gateway.access-log.sample-rate:1.0}") double sampleRate) {
+        this.buffer = new AccessLogRingBuffer(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.sampleRate = sampleRate;
+        this.droppedCounter = Counter.builder("gateway.access_log.dropped")
+                .description("Access log records dropped because the ring buffer was full")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("gateway.access_log.written")
+                .description("Access log records written by the background writer")
+                .register(meterRegistry);
+        Gauge.builder("gateway.access_log.pending", buffer, AccessLogRingBuffer::size)
+                .description("Access log records waiting in the ring buffer")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "access-log-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Access log writer started: buffer={}, batch={}, interval={}ms, sampleRate={}",
+                buffer.capacity(), batchSize, flushIntervalMillis, sampleRate);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * Вызывается на event loop, никогда не блокируется.
+     */
+    public void record(HttpMethod method, URI requestUri, int status, long latencyNanos,
+                       String routeId, URI upstreamUri, long requestBytes, long responseBytes) {
+        if (!accessLog.isInfoEnabled()) {
+            return;
+        }
+        if (status < 400 && sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        boolean accepted = buffer.offer(System.currentTimeMillis(), method, requestUri, status, latencyNanos,
+                routeId, upstreamUri, requestBytes, responseBytes);
+        if (!accepted) {
+            droppedCounter.increment();
+        }
+    }
+
+    synchronized void flush() {
+        try {
+            int drained;
+            do {
+                drained = buffer.drain(this::write, batchSize);
+                writtenCounter.increment(drained);
+            } while (drained == batchSize);
+        } catch (Exception e) {
+            log.warn("Failed to flush access log batch: {}", e.getMessage());
+        }
+    }
+
+    private void write(AccessLogEntry entry) {
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(entry.getTimestampMillis()))
+                .append(' ').append(entry.getMethod())
+                .append(' ').append(entry.getRequestUri() != null ? entry.getRequestUri().getRawPath() : "-")
+                .append(" status=").append(entry.getStatus())
+                .append(" latencyMs=").append(TimeUnit.NANOSECONDS.toMillis(entry.getLatencyNanos()))
+                .append(" route=").append(entry.getRouteId() != null ? entry.getRouteId() : "-")
+                .append(" upstream=");
+        URI upstream = entry.getUpstreamUri();
+        if (upstream != null) {
+            line.append(upstream.getHost()).append(':').append(upstream.getPort());
+        } else {
+            line.append('-');
+        }
+        line.append(" reqBytes=").append(entry.getRequestBytes())
+                .append(" respBytes=").append(entry.getResponseBytes());
+        accessLog.info(line.toString());
+    }
+}
@@ -14,11 +14,11 @@ import reactor.core.publisher.Mono;
 @Component
 public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAuthenticationFilter.Config> {
 
-    private final JwtUtil jwtUtil;
+    private final JwtClaimsCache jwtClaimsCache;
     @Autowired
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtClaimsCache jwtClaimsCache) {
         super(Config.class);
-        this.jwtUtil = jwtUtil;
+        this.jwtClaimsCache = jwtClaimsCache;
     }
 
     @Override
@@ -36,17 +36,16 @@ public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAut
 
             String token = authHeader.substring(7);
 
-            if (!jwtUtil.validateJwtToken(token)) {
+            JwtClaims claims = jwtClaimsCache.getVerifiedClaims(token);
+            if (claims == null || claims.userId() == null) {
                 exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
                 return exchange.getResponse().setComplete();
             }
 
-            String userId = jwtUtil.getUserId(token).toString();
-            String username = jwtUtil.getUsername(token);
-
             ServerHttpRequest mutated = exchange.getRequest().mutate()
-                    .header("X-User-Id", userId)
-                    .header("X-User-Name", username)
+                    .header("X-User-Id", claims.userId().toString())
+                    .header("X-User-Name", claims.username())
+                    .header("X-User-Roles", String.join(",", claims.roles()))
                     .build();
 
             return chain.filter(exchange.mutate().request(mutated).build());
@@ -0,0 +1,18 @@
+package org.com.apigateway.security;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Неизменяемый результат одной проверки подписи JWT.
+ */
+public record JwtClaims(Long userId, String username, List<String> roles, Instant expiresAt) {
+
+    public JwtClaims {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,101 @@
+package org.com.apigateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Ограниченный кеш уже проверенных JWT claims.
+ * Ключ - SHA-256 от токена (сам токен в памяти не храним), запись живет до {@code exp} токена,
+ * поэтому HMAC проверяется один раз на токен, а не на каждый проксируемый запрос.
+ * Метрики hit/miss/eviction публикуются под именем {@code jwt.claims}.
+ */
+@Component
+public class JwtClaimsCache {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final JwtUtil jwtUtil;
+    private final Cache<String, JwtClaims> cache;
+
+    public JwtClaimsCache(JwtUtil jwtUtil,
+                          MeterRegistry meterRegistry,
+                          @Value("${gateway.jwt.claims-cache.max-size:100000}") long maxSize,
+                          @Value("${gateway.jwt.claims-cache.max-ttl:PT1H}") Duration maxTtl) {
+        this.jwtUtil = jwtUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(maxTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.claims");
+    }
+
+    /**
+     * @return проверенные claims или {@code null}, если токен невалиден или истек
+     */
+    public JwtClaims getVerifiedClaims(String token) {
+        String key = digest(token);
+        JwtClaims claims = cache.getIfPresent(key);
+        if (claims != null) {
+            if (!claims.isExpired(Instant.now())) {
+                return claims;
+            }
+            cache.invalidate(key);
+        }
+
+        claims = jwtUtil.parseVerifiedClaims(token);
+        if (claims != null) {
+            cache.put(key, claims);
+        }
+        return claims;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Запись истекает вместе с токеном, но не позже {@code maxTtl}.
+     */
+    private record TokenExpiry(Duration maxTtl) implements Expiry<String, JwtClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+            if (claims.expiresAt() == null) {
+                return maxTtl.toNanos();
+            }
+            Duration untilExpiry = Duration.between(Instant.now(), claims.expiresAt());
+            if (untilExpiry.isNegative()) {
+                return 0;
+            }
+            return Math.min(untilExpiry.toNanos(), maxTtl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -17,25 +17,54 @@ public class JwtUtil {
 
     private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
 
-    @Value("${JWT_SECRET_KEY:aXv7j3tR8kL9mQp2sV5y7x9A1zC4E7H0bW3cZ6u8oP1dF4rT5nJ9iK2lO0q}")
-    private String secretKey;
+    private final SecretKey key;
+    private final JwtParser jwtParser;
+    private final Long accessTokenExpiration;
+    private final String issuer;
 
-    @Value("${jwt.access-token-expiration:86400000}")
-    private Long accessTokenExpiration;
-
-    @Value("${jwt.issuer:auth-service}")
-    private String issuer;
+    public JwtUtil(
+            @Value("${JWT_SECRET_KEY:aXv7j3tR8kL9mQp2sV5y7x9A1zC4E7H0bW3cZ6u8oP1dF4rT5nJ9iK2lO0q}") String secretKey,
+            @Value("${jwt.access-token-expiration:86400000}") Long accessTokenExpiration,
+            @Value("${jwt.issuer:auth-service}") String issuer) {
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parser().verifyWith(key).build();
+        this.accessTokenExpiration = accessTokenExpiration;
+        this.issuer = issuer;
+    }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+    /**
+     * Проверяет подпись и срок действия токена один раз и возвращает все нужные gateway claims.
+     *
+     * @return claims или {@code null}, если токен невалиден
+     */
+    public JwtClaims parseVerifiedClaims(String token) {
+        try {
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            Date expiration = claims.getExpiration();
+            return new JwtClaims(
+                    claims.get("userId", Long.class),
+                    claims.getSubject(),
+                    claims.get("roles", List.class),
+                    expiration != null ? expiration.toInstant() : null);
+        } catch (SecurityException e) {
+            log.error("Invalid JWT signature: {}", e.getMessage());
+        } catch (MalformedJwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+        } catch (ExpiredJwtException e) {
+            log.error("JWT token is expired: {}", e.getMessage());
+        } catch (UnsupportedJwtException e) {
+            log.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+        }
+        return null;
     }
 
     public boolean validateJwtToken(String token) {
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
+            jwtParser.parseSignedClaims(token);
             return true;
         } catch (SecurityException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
@@ -52,39 +81,27 @@ public class JwtUtil {
     }
 
     public String getUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
+        return jwtParser.parseSignedClaims(token)
                 .getPayload()
                 .getSubject();
     }
 
     public Long getUserId(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
+        Claims claims = jwtParser.parseSignedClaims(token)
                 .getPayload();
         
         return claims.get("userId", Long.class);
     }
 
     public List<String> getRoles(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
+        Claims claims = jwtParser.parseSignedClaims(token)
                 .getPayload();
         
         return claims.get("roles", List.class);
     }
 
     public Date getExpirationDateFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
+        return jwtParser.parseSignedClaims(token)
                 .getPayload()
                 .getExpiration();
     }
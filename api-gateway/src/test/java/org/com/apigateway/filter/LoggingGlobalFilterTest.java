@@ -0,0 +1,67 @@
+package org.com.apigateway.filter;
+
+import org.com.apigateway.logging.AccessLogWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Размеры тела считаются по фактически переданным буферам, а не по Content-Length,
+ * которого у chunked-запросов и ответов нет.
+ */
+class LoggingGlobalFilterTest {
+
+    private final AccessLogWriter accessLogWriter = mock(AccessLogWriter.class);
+    private final LoggingGlobalFilter filter = new LoggingGlobalFilter(accessLogWriter);
+
+    @Test
+    void countsChunkedRequestAndResponseBodies() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .post("/api/orders")
+                .body(Flux.just(buffer("{\"items\":"), buffer("[1,2]}"))));
+
+        GatewayFilterChain chain = ex -> DataBufferUtils.join(ex.getRequest().getBody())
+                .doOnNext(DataBufferUtils::release)
+                .then(ex.getResponse().writeWith(Flux.just(buffer("chunk-1"), buffer("chunk-22"))));
+        exchange.getResponse().setStatusCode(HttpStatus.CREATED);
+
+        filter.filter(exchange, chain).block();
+
+        verify(accessLogWriter).record(eq(HttpMethod.POST), any(), eq(201), anyLong(),
+                isNull(), isNull(), eq(15L), eq(15L));
+    }
+
+    @Test
+    void emptyBodiesAreLoggedAsZeroBytes() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+        GatewayFilterChain chain = ex -> {
+            ex.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
+            return ex.getResponse().setComplete();
+        };
+
+        filter.filter(exchange, chain).block();
+
+        verify(accessLogWriter).record(eq(HttpMethod.GET), any(), eq(204), anyLong(),
+                isNull(), isNull(), eq(0L), eq(0L));
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package org.com.apigateway.logging;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Кольцевой буфер: при переполнении писатели не ждут, а отбрасывают записи;
+ * принятые записи вычитываются ровно по одному разу.
+ */
+class AccessLogRingBufferTest {
+
+    private static final URI PATH = URI.create("/api/products");
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertThat(new AccessLogRingBuffer(1000).capacity()).isEqualTo(1024);
+        assertThat(new AccessLogRingBuffer(1024).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void concurrentProducersDropOverflowWithoutLosingAcceptedEntries() throws Exception {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(64);
+        int producers = 8;
+        int perProducer = 100;
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        // latencyNanos - уникальный номер записи
+                        if (buffer.offer(0, HttpMethod.GET, PATH, 200, producer * perProducer + i, null, null, 0, 0)) {
+                            accepted.incrementAndGet();
+                        } else {
+                            dropped.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(accepted).hasValue(buffer.capacity());
+        assertThat(dropped).hasValue(producers * perProducer - buffer.capacity());
+        assertThat(buffer.size()).isEqualTo(buffer.capacity());
+
+        Set<Long> ids = new HashSet<>();
+        int drained = buffer.drain(entry -> ids.add(entry.getLatencyNanos()), Integer.MAX_VALUE);
+        assertThat(drained).isEqualTo(buffer.capacity());
+        assertThat(ids).hasSize(buffer.capacity());
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void drainFreesSlotsForNextOffers() {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(0, HttpMethod.GET, PATH, 200, i, null, null, 0, 0)).isTrue();
+        }
+        assertThat(buffer.offer(0, HttpMethod.GET, PATH, 200, 4, null, null, 0, 0)).isFalse();
+
+        List<Long> first = new ArrayList<>();
+        assertThat(buffer.drain(entry -> first.add(entry.getLatencyNanos()), 2)).isEqualTo(2);
+        assertThat(first).containsExactly(0L, 1L);
+
+        assertThat(buffer.offer(0, HttpMethod.GET, PATH, 200, 5, null, null, 0, 0)).isTrue();
+        assertThat(buffer.offer(0, HttpMethod.GET, PATH, 200, 6, null, null, 0, 0)).isTrue();
+
+        List<Long> rest = new ArrayList<>();
+        buffer.drain(entry -> rest.add(entry.getLatencyNanos()), Integer.MAX_VALUE);
+        assertThat(rest).containsExactly(2L, 3L, 5L, 6L);
+    }
+}
@@ -0,0 +1,82 @@
+package org.com.apigateway.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Фоновая выгрузка: один flush вычитывает буфер целиком пачками по batch-size,
+ * переполнение учитывается в метрике, ошибки не сэмплируются.
+ */
+class AccessLogWriterTest {
+
+    private static final URI PATH = URI.create("/api/products/1");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger accessLog = (Logger) LoggerFactory.getLogger("ACCESS_LOG");
+
+    @BeforeEach
+    void attachAppender() {
+        appender.start();
+        accessLog.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        accessLog.detachAppender(appender);
+    }
+
+    @Test
+    void flushDrainsAllPendingRecordsInBatches() {
+        AccessLogWriter writer = new AccessLogWriter(meterRegistry, 16, 4, 50, 1.0);
+        for (int i = 0; i < 10; i++) {
+            writer.record(HttpMethod.GET, PATH, 200, 1_000_000, "product-service", null, 0, 100 + i);
+        }
+
+        writer.flush();
+
+        assertThat(appender.list).hasSize(10);
+        assertThat(appender.list.get(0).getFormattedMessage())
+                .contains("GET /api/products/1 status=200 latencyMs=1 route=product-service upstream=-")
+                .endsWith("reqBytes=0 respBytes=100");
+        assertThat(appender.list.get(9).getFormattedMessage()).endsWith("respBytes=109");
+        assertThat(meterRegistry.counter("gateway.access_log.written").count()).isEqualTo(10);
+        assertThat(meterRegistry.get("gateway.access_log.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void overflowIsDroppedAndCounted() {
+        AccessLogWriter writer = new AccessLogWriter(meterRegistry, 8, 4, 50, 1.0);
+        for (int i = 0; i < 12; i++) {
+            writer.record(HttpMethod.GET, PATH, 200, 0, null, null, 0, 0);
+        }
+
+        assertThat(meterRegistry.counter("gateway.access_log.dropped").count()).isEqualTo(4);
+        writer.flush();
+        assertThat(appender.list).hasSize(8);
+    }
+
+    @Test
+    void errorsAreWrittenRegardlessOfSampling() {
+        AccessLogWriter writer = new AccessLogWriter(meterRegistry, 16, 4, 50, 0.0);
+        writer.record(HttpMethod.GET, PATH, 200, 0, null, null, 0, 0);
+        writer.record(HttpMethod.GET, PATH, 503, 0, null, null, 0, 0);
+
+        writer.flush();
+
+        assertThat(appender.list).singleElement()
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .asString().contains("status=503");
+    }
+}
@@ -1,15 +1,24 @@
 package org.com.cartservice.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.com.cartservice.kafka.event.ProductChangedEvent;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,6 +28,13 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    // Пусто - инстанс определяется по хосту и порту
+    @Value("${cart.product-cache.events-instance-id:}")
+    private String productEventsInstanceId;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -38,4 +54,54 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactory());
         return factory;
     }
-} 
\ No newline at end of file
+
+    @Bean
+    public ConsumerFactory<String, ProductChangedEvent> productEventConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        // Своя группа на инстанс: локальный кеш снимков должен видеть все события, а не часть партиций.
+        // Имя группы постоянное, поэтому перезапуск продолжает ту же группу, а не оставляет на брокере новую.
+        // Старые события не нужны - пустой кеш заполнится свежими данными по запросу
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "cart-service-products-" + productEventsInstanceId());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        return new DefaultKafkaConsumerFactory<>(
+                props,
+                new StringDeserializer(),
+                new JsonDeserializer<>(ProductChangedEvent.class, false)
+        );
+    }
+
+    private String productEventsInstanceId() {
+        if (!productEventsInstanceId.isBlank()) {
+            return productEventsInstanceId;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + serverPort;
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Cannot resolve host name, set cart.product-cache.events-instance-id", e);
+        }
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ProductChangedEvent> productEventKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ProductChangedEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(productEventConsumerFactory());
+        return factory;
+    }
+
+    @Bean
+    public ProducerFactory<String, Object> cartEventProducerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> cartEventKafkaTemplate() {
+        return new KafkaTemplate<>(cartEventProducerFactory());
+    }
+}
@@ -0,0 +1,11 @@
+package org.com.cartservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Фоновые задачи: CartWriteBehindFlusher (запись корзин в БД), AbandonedCartExpiryEngine (брошенные корзины),
+// CartKeySweeper (аренда и возобновление очисток ключей)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
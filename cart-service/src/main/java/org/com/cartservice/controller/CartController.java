@@ -4,6 +4,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.com.cartservice.dto.request.AddItemRequest;
 import org.com.cartservice.dto.response.CartResponse;
+import org.com.cartservice.dto.response.CartSummaryResponse;
 import org.com.cartservice.service.CartService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -48,7 +49,7 @@ public class CartController {
     }
 
     @GetMapping("/history")
-    public ResponseEntity<List<CartResponse>> getCartHistory(
+    public ResponseEntity<List<CartSummaryResponse>> getCartHistory(
             @RequestHeader("X-User-Id") Long userId) {
         return ResponseEntity.ok(cartService.getCartHistory(userId));
     }
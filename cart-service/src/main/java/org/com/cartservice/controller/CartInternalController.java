@@ -0,0 +1,24 @@
+package org.com.cartservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.com.cartservice.dto.response.CartResponse;
+import org.com.cartservice.service.CartService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Межсервисные endpoint'ы: шлюз маршрутизирует только /api/**, поэтому /internal/** снаружи недоступен
+@RestController
+@RequestMapping("/internal/carts")
+@RequiredArgsConstructor
+public class CartInternalController {
+    private final CartService cartService;
+
+    // Пакетное чтение корзин произвольных пользователей (сверки, фоновые задачи)
+    @PostMapping("/batch")
+    public ResponseEntity<Map<Long, CartResponse>> getCarts(@RequestBody List<Long> userIds) {
+        return ResponseEntity.ok(cartService.getCarts(userIds));
+    }
+}
@@ -0,0 +1,41 @@
+package org.com.cartservice.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.com.cartservice.dto.request.SweepRequest;
+import org.com.cartservice.dto.response.SweepProgressResponse;
+import org.com.cartservice.service.maintenance.CartKeySweeper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+// Служебные операции над ключами корзин в Redis: под /internal/**, который шлюз наружу не маршрутизирует
+@RestController
+@RequestMapping("/internal/carts/maintenance/sweeps")
+@RequiredArgsConstructor
+public class CartMaintenanceController {
+    private final CartKeySweeper cartKeySweeper;
+
+    @PostMapping
+    public ResponseEntity<SweepProgressResponse> startSweep(@RequestBody @Valid SweepRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(cartKeySweeper.start(request));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SweepProgressResponse>> getSweeps() {
+        return ResponseEntity.ok(cartKeySweeper.getAll());
+    }
+
+    @GetMapping("/{sweepId}")
+    public ResponseEntity<SweepProgressResponse> getSweep(@PathVariable UUID sweepId) {
+        return ResponseEntity.ok(cartKeySweeper.getProgress(sweepId));
+    }
+
+    @DeleteMapping("/{sweepId}")
+    public ResponseEntity<SweepProgressResponse> cancelSweep(@PathVariable UUID sweepId) {
+        return ResponseEntity.ok(cartKeySweeper.cancel(sweepId));
+    }
+}
@@ -4,11 +4,19 @@ import org.com.cartservice.dto.response.ProductDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @FeignClient(name = "product-service")  // ← Имя из spring.application.name
 public interface ProductServiceClient {
-    @GetMapping("/api/products//{productId}/forCart")
-    ProductDto getProduct(@PathVariable UUID productId);
+    @GetMapping("/api/products/{productId}/forCart")
+    ProductDto getProduct(@PathVariable("productId") UUID productId);
+
+    // Пачка снимков одним запросом; отсутствующих товаров в ответе нет
+    @PostMapping("/api/products/forCart/batch")
+    List<ProductDto> getProducts(@RequestBody Collection<UUID> productIds);
 }
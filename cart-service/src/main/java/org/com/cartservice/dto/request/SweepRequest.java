@@ -0,0 +1,15 @@
+package org.com.cartservice.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.com.cartservice.service.maintenance.SweepTarget;
+
+import java.time.Duration;
+
+// Параметры очистки ключей корзин; незаданные batchSize/maxKeysPerSecond берутся из cart.maintenance.sweep
+public record SweepRequest(
+        @NotNull SweepTarget target,
+        Duration idleFor,
+        @Min(1) Integer batchSize,
+        @Min(1) Integer maxKeysPerSecond
+) {}
@@ -0,0 +1,18 @@
+package org.com.cartservice.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.com.cartservice.model.CartStatus;
+
+// Строка истории корзин: без позиций, читается JPQL-проекцией
+public record CartSummaryResponse(
+        UUID id,
+        CartStatus status,
+        BigDecimal total,
+        int itemCount,
+        Long orderId,
+        Instant createdAt,
+        Instant updatedAt
+) {}
@@ -3,9 +3,11 @@ package org.com.cartservice.dto.response;
 import java.math.BigDecimal;
 import java.util.UUID;
 
+// Снимок товара из product-service: ответ /forCart и /forCart/batch (остаток - поле stock)
 public record ProductDto(
         UUID id,
         String name,
         BigDecimal price,
-        int quantity
+        Integer stock,
+        boolean active
 ) {}
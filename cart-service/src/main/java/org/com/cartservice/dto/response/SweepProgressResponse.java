@@ -0,0 +1,19 @@
+package org.com.cartservice.dto.response;
+
+import org.com.cartservice.service.maintenance.SweepState;
+import org.com.cartservice.service.maintenance.SweepTarget;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record SweepProgressResponse(
+        UUID id,
+        SweepTarget target,
+        String pattern,
+        SweepState state,
+        long scanned,
+        long deleted,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {}
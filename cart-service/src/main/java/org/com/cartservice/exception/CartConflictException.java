@@ -0,0 +1,7 @@
+package org.com.cartservice.exception;
+
+public class CartConflictException extends RuntimeException {
+    public CartConflictException(String message) {
+        super(message);
+    }
+}
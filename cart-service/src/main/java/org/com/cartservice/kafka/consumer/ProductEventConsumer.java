@@ -0,0 +1,26 @@
+package org.com.cartservice.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.kafka.event.ProductChangedEvent;
+import org.com.cartservice.service.ProductSnapshotCache;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductEventConsumer {
+
+    private final ProductSnapshotCache productSnapshotCache;
+
+    // Кеш локальный, поэтому каждый инстанс читает все события своей постоянной группой (см. KafkaConfig)
+    @KafkaListener(topics = "product-events", containerFactory = "productEventKafkaListenerContainerFactory")
+    public void handleProductChanged(ProductChangedEvent event) {
+        try {
+            productSnapshotCache.onProductChanged(event);
+        } catch (Exception e) {
+            log.error("Error applying product event {}: {}", event, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.com.cartservice.kafka.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.com.cartservice.dto.response.CartItemResponse;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Событие топика cart-abandoned: корзина с товарами не менялась дольше cart.expiry.idle-after
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartAbandonedEvent {
+    private UUID cartId;
+    private Long userId;
+    private List<CartItemResponse> items;
+    private BigDecimal total;
+    private Instant lastActivityAt;
+    private Instant abandonedAt;
+}
@@ -0,0 +1,26 @@
+package org.com.cartservice.kafka.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Событие из топика {@code product-events}: {@code UPDATED} - полный снимок,
+ * {@code STOCK_CHANGED} - только остаток, {@code DELETED} - только id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductChangedEvent {
+    private UUID productId;
+    private String type;
+    private String name;
+    private BigDecimal price;
+    private Integer stock;
+    private Boolean active;
+}
@@ -0,0 +1,28 @@
+package org.com.cartservice.kafka.producer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.kafka.event.CartAbandonedEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CartEventPublisher {
+
+    public static final String CART_ABANDONED_TOPIC = "cart-abandoned";
+
+    private final KafkaTemplate<String, Object> cartEventKafkaTemplate;
+
+    // Ключ - userId: события одного пользователя читаются по порядку
+    public void publishCartAbandoned(CartAbandonedEvent event) {
+        cartEventKafkaTemplate.send(CART_ABANDONED_TOPIC, String.valueOf(event.getUserId()), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to publish abandoned cart {} of user {}: {}",
+                                event.getCartId(), event.getUserId(), ex.getMessage());
+                    }
+                });
+    }
+}
@@ -10,21 +10,26 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        // Истечение корзин, выпавших из индекса активности в Redis (AbandonedCartExpiryEngine)
+        @Index(name = "idx_carts_status_last_activity", columnList = "status, last_activity_at")
+})
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Cart {
+    // id назначает приложение: активная корзина рождается в Redis раньше, чем строка в БД
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private UUID id;
+    @Builder.Default
+    private UUID id = UUID.randomUUID();
     
     @Column(name = "user_id", nullable = false)
     private Long userId;
     
-    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // LAZY: активная корзина грузится вместе с позициями через @EntityGraph, история - проекцией без позиций
+    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<CartItem> cartItems = new ArrayList<>();
     
     @Column(name = "total", nullable = false, precision = 10, scale = 2)
@@ -49,6 +54,11 @@ public class Cart {
     @Column(name = "order_id")
     private Long orderId; 
 
+    // Та же версия, что поле ver в хеше Redis: write-behind не перезапишет строку более старым снимком
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     
     public void addItem(CartItem item) {
         cartItems.add(item);
@@ -72,6 +82,7 @@ public class Cart {
     
     public Cart createNewCartAfterOrder(Long orderId) {
         return Cart.builder()
+                .id(UUID.randomUUID())
                 .userId(this.userId)
                 .cartItems(new ArrayList<>())
                 .total(BigDecimal.ZERO)
@@ -0,0 +1,148 @@
+package org.com.cartservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.com.cartservice.model.CartStatus;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Пакетная запись снимков активных корзин из Redis: несколько JDBC-batch на пачку вместо save() на корзину.
+ * <p>
+ * Upsert собран из UPDATE и INSERT отсутствующих строк, чтобы одинаково работать на Postgres и H2.
+ * UPDATE не трогает заархивированные корзины и не перетирает более свежий снимок
+ * ({@code version < ?} - версия из хеша Redis), если одну корзину одновременно сбрасывают два инстанса
+ * или повторно доставлена уже записанная отметка.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartBatchRepository {
+
+    private static final String ACTIVE = "'" + CartStatus.ACTIVE.name() + "'";
+
+    private static final String UPDATE_CART =
+            "UPDATE carts SET total = ?, updated_at = ?, last_activity_at = ?, version = ? " +
+            "WHERE id = ? AND status = " + ACTIVE + " AND version < ?";
+    private static final String INSERT_CART =
+            "INSERT INTO carts (id, user_id, total, status, created_at, updated_at, last_activity_at, version) " +
+            "VALUES (?, ?, ?, " + ACTIVE + ", ?, ?, ?, ?)";
+    private static final String SELECT_EXISTING = "SELECT id FROM carts WHERE id IN (:ids)";
+    private static final String DELETE_ITEMS = "DELETE FROM cart_items WHERE cart_id = ?";
+    private static final String INSERT_ITEM =
+            "INSERT INTO cart_items (id, cart_id, product_id, name, price, quantity) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Простаивающие ACTIVE-корзины по БД, самые старые первыми (индекс status, last_activity_at)
+    private static final String SELECT_IDLE_ACTIVE =
+            "SELECT id FROM carts WHERE status = " + ACTIVE + " AND (last_activity_at < ? " +
+            "OR (last_activity_at IS NULL AND updated_at < ?)) ORDER BY last_activity_at LIMIT ?";
+
+    private static final String MARK_ABANDONED =
+            "UPDATE carts SET status = '" + CartStatus.ABANDONED.name() + "', updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND status = " + ACTIVE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Вызывается в транзакции; возвращает число корзин, которые действительно записаны
+    public int upsertActive(List<RedisCart> carts) {
+        if (carts.isEmpty()) {
+            return 0;
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_CART, carts, carts.size(), (ps, cart) -> {
+            Timestamp updatedAt = Timestamp.from(cart.updatedAt());
+            ps.setBigDecimal(1, RedisCart.fromMinor(cart.totalMinor()));
+            ps.setTimestamp(2, updatedAt);
+            ps.setTimestamp(3, updatedAt);
+            ps.setLong(4, cart.version());
+            ps.setObject(5, cart.id());
+            ps.setLong(6, cart.version());
+        });
+
+        List<RedisCart> written = new ArrayList<>(carts.size());
+        List<RedisCart> notUpdated = new ArrayList<>();
+        for (int i = 0; i < carts.size(); i++) {
+            (counts[0][i] == 0 ? notUpdated : written).add(carts.get(i));
+        }
+
+        // Строки нет - корзина еще ни разу не писалась в БД; есть - она архивная или снимок устарел
+        if (!notUpdated.isEmpty()) {
+            Set<UUID> existing = new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_EXISTING,
+                    Map.of("ids", notUpdated.stream().map(RedisCart::id).toList()), UUID.class));
+            List<RedisCart> missing = notUpdated.stream().filter(cart -> !existing.contains(cart.id())).toList();
+            if (!missing.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_CART, missing, missing.size(), (ps, cart) -> {
+                    ps.setObject(1, cart.id());
+                    ps.setLong(2, cart.userId());
+                    ps.setBigDecimal(3, RedisCart.fromMinor(cart.totalMinor()));
+                    ps.setTimestamp(4, Timestamp.from(cart.createdAt()));
+                    ps.setTimestamp(5, Timestamp.from(cart.updatedAt()));
+                    ps.setTimestamp(6, Timestamp.from(cart.updatedAt()));
+                    ps.setLong(7, cart.version());
+                });
+                written.addAll(missing);
+            }
+        }
+
+        if (!written.isEmpty()) {
+            replaceItems(written);
+        }
+        return written.size();
+    }
+
+    public List<UUID> findIdleActive(Instant cutoff, int limit) {
+        Timestamp before = Timestamp.from(cutoff);
+        return jdbcTemplate.queryForList(SELECT_IDLE_ACTIVE, UUID.class, before, before, limit);
+    }
+
+    // Вызывается в транзакции; возвращает id корзин, которые переведены в ABANDONED именно этим вызовом
+    public List<UUID> markAbandoned(List<UUID> cartIds, Instant now) {
+        if (cartIds.isEmpty()) {
+            return List.of();
+        }
+        Timestamp updatedAt = Timestamp.from(now);
+        int[][] counts = jdbcTemplate.batchUpdate(MARK_ABANDONED, cartIds, cartIds.size(), (ps, id) -> {
+            ps.setTimestamp(1, updatedAt);
+            ps.setObject(2, id);
+        });
+        List<UUID> abandoned = new ArrayList<>(cartIds.size());
+        for (int i = 0; i < cartIds.size(); i++) {
+            if (counts[0][i] != 0) {
+                abandoned.add(cartIds.get(i));
+            }
+        }
+        return abandoned;
+    }
+
+    // Позиции корзины заменяются целиком: снимок из Redis - полное состояние, а не дельта
+    private void replaceItems(List<RedisCart> carts) {
+        jdbcTemplate.batchUpdate(DELETE_ITEMS, carts, carts.size(), (ps, cart) -> ps.setObject(1, cart.id()));
+
+        List<ItemRow> items = new ArrayList<>();
+        carts.forEach(cart -> cart.items().forEach(line -> items.add(new ItemRow(cart.id(), line))));
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM, items, items.size(), (ps, item) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, item.cartId());
+            ps.setObject(3, item.line().productId());
+            ps.setString(4, item.line().name());
+            ps.setBigDecimal(5, item.line().price());
+            ps.setInt(6, item.line().quantity());
+        });
+    }
+
+    private record ItemRow(UUID cartId, RedisCart.Line line) {
+    }
+}
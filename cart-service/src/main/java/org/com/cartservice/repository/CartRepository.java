@@ -1,12 +1,15 @@
 package org.com.cartservice.repository;
 
+import org.com.cartservice.dto.response.CartSummaryResponse;
 import org.com.cartservice.model.Cart;
 import org.com.cartservice.model.CartStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,11 +17,32 @@ import java.util.UUID;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, UUID> {
     
-    // Найти активную корзину пользователя
+    // Найти активную корзину пользователя (с позициями одним запросом)
+    @EntityGraph(attributePaths = "cartItems")
     Optional<Cart> findByUserIdAndStatus(Long userId, CartStatus status);
     
+    // Активные корзины пачки пользователей вместе с позициями - один SELECT с JOIN
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.cartItems " +
+            "WHERE c.userId IN :userIds AND c.status = :status")
+    List<Cart> findWithItemsByUserIdInAndStatus(@Param("userIds") Collection<Long> userIds,
+                                                @Param("status") CartStatus status);
+    
+    // Пачка корзин с позициями по id - для истечения корзин, которых нет в Redis
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.cartItems WHERE c.id IN :ids AND c.status = :status")
+    List<Cart> findWithItemsByIdInAndStatus(@Param("ids") Collection<UUID> ids, @Param("status") CartStatus status);
+
+    // Корзина с позициями по id - для записи снимка из Redis
+    @EntityGraph(attributePaths = "cartItems")
+    Optional<Cart> findWithItemsById(UUID id);
+    
     // Найти все корзины пользователя
     List<Cart> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    // История корзин - проекция без позиций: один SELECT вместо 1 + N
+    @Query("SELECT new org.com.cartservice.dto.response.CartSummaryResponse(" +
+            "c.id, c.status, c.total, SIZE(c.cartItems), c.orderId, c.createdAt, c.updatedAt) " +
+            "FROM Cart c WHERE c.userId = :userId ORDER BY c.createdAt DESC")
+    List<CartSummaryResponse> findSummariesByUserId(@Param("userId") Long userId);
     
     // Найти корзины по статусу
     List<Cart> findByUserIdAndStatusIn(Long userId, List<CartStatus> statuses);
@@ -0,0 +1,312 @@
+package org.com.cartservice.repository.redis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Активные корзины в Redis: хеш на корзину ({@code cart:active:{<shard>}:<userId>}), изменения - Lua-скриптами
+ * (EVALSHA), каждый - один round trip, который сразу возвращает состояние корзины после изменения.
+ * <p>
+ * Каждое изменение тем же скриптом добавляет отметку в стрим {@link #writeBehindStream} - по ней
+ * корзина позже записывается в БД, и обновляет ее score в {@link #activityIndex} - по нему находятся
+ * брошенные корзины.
+ * <p>
+ * Скрипт трогает хеш, стрим и индекс сразу, поэтому в Redis Cluster все три ключа должны быть в одном
+ * слоте. Стрим и индекс разбиты на {@link #SHARDS} шардов, номер шарда - hash tag во всех трех ключах:
+ * корзина пользователя и ее отметки всегда попадают в один слот, а шарды распределяются по узлам.
+ * На одиночном Redis шардирование ничего не стоит, кроме обхода {@link #SHARDS} стримов и индексов.
+ * <p>
+ * Методы изменения возвращают {@code null}, если корзины нет в Redis (истек TTL или первый запрос):
+ * вызывающий поднимает ее из Postgres через {@link #createIfAbsent} и повторяет операцию.
+ */
+@Repository
+public class CartRedisRepository {
+
+    public static final String KEY_PREFIX = "cart:active:";
+    // Число шардов входит в имена ключей: при изменении существующие корзины и отметки потеряются
+    public static final int SHARDS = 16;
+    // Отметки об изменениях для write-behind в БД, пишутся теми же скриптами, что и корзина
+    private static final String WRITE_BEHIND_STREAM_PREFIX = "stream:cart:write-behind:";
+    // Индекс последней активности: member - ключ корзины, score - updated (epoch ms)
+    private static final String ACTIVITY_INDEX_PREFIX = "zset:cart:activity:";
+
+    private static final RedisScript<List> ADD_ITEM = script("add_item");
+    private static final RedisScript<List> REMOVE_ITEM = script("remove_item");
+    private static final RedisScript<List> CLEAR_ITEMS = script("clear_items");
+    private static final RedisScript<Long> PUT_CART =
+            RedisScript.of(new ClassPathResource("scripts/cart/put_cart.lua"), Long.class);
+    private static final RedisScript<Long> UNLINK_IF_IDLE =
+            RedisScript.of(new ClassPathResource("scripts/cart/unlink_if_idle.lua"), Long.class);
+    private static final RedisScript<Long> EXPIRE_CART =
+            RedisScript.of(new ClassPathResource("scripts/cart/expire_cart.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public CartRedisRepository(StringRedisTemplate redisTemplate,
+                               @Value("${cart.redis.ttl:P30D}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    public Optional<RedisCart> find(Long userId) {
+        Map<String, String> hash = redisTemplate.<String, String>opsForHash().entries(key(userId));
+        return hash.isEmpty() ? Optional.empty() : Optional.of(RedisCart.fromHash(hash));
+    }
+
+    // HGETALL пачки корзин одним pipeline; корзин, которых нет в Redis, в результате нет
+    public Map<Long, RedisCart> findAll(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(userIds);
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : ids) {
+                connection.hashCommands().hGetAll(raw(key(userId)));
+            }
+            return null;
+        });
+
+        Map<Long, RedisCart> carts = new LinkedHashMap<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> hash = (Map<String, String>) hashes.get(i);
+            if (hash != null && !hash.isEmpty()) {
+                carts.put(ids.get(i), RedisCart.fromHash(hash));
+            }
+        }
+        return carts;
+    }
+
+    public RedisCart addItem(Long userId, UUID productId, int quantity, long priceMinor, String name) {
+        return toCart(redisTemplate.execute(ADD_ITEM, keys(userId),
+                productId.toString(), String.valueOf(quantity), RedisCart.itemValue(priceMinor, name), now(), ttlMillis()));
+    }
+
+    public RedisCart removeItem(Long userId, UUID productId) {
+        return toCart(redisTemplate.execute(REMOVE_ITEM, keys(userId), productId.toString(), now(), ttlMillis()));
+    }
+
+    public RedisCart clearItems(Long userId) {
+        return toCart(redisTemplate.execute(CLEAR_ITEMS, keys(userId), now(), ttlMillis()));
+    }
+
+    // true - корзина записана, false - ее уже создал параллельный запрос
+    public boolean createIfAbsent(RedisCart cart) {
+        return put(cart, "NX");
+    }
+
+    // Compare-and-set по версии: true - корзина заменена (версия стала cart.version() + 1),
+    // false - после чтения ее изменил другой запрос или она пропала из Redis
+    public boolean replace(RedisCart cart) {
+        return put(cart, "CAS");
+    }
+
+    public void delete(Long userId) {
+        String key = key(userId);
+        String index = activityIndex(shardOf(userId));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().unlink(raw(key));
+            connection.zSetCommands().zRem(raw(index), raw(key));
+            return null;
+        });
+    }
+
+    // Корзины без активности до cutoff, самые старые первыми: до limit из каждого шарда одним pipeline,
+    // затем общий порядок по score. O(SHARDS * (log N + limit)) независимо от числа корзин
+    public List<Long> findIdle(Instant cutoff, int limit) {
+        Range<Double> before = Range.closed(Double.NEGATIVE_INFINITY, (double) (cutoff.toEpochMilli() - 1));
+        List<Object> perShard = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int shard = 0; shard < SHARDS; shard++) {
+                connection.zSetCommands().zRangeByScoreWithScores(raw(activityIndex(shard)), before,
+                        Limit.limit().count(limit));
+            }
+            return null;
+        });
+        List<ZSetOperations.TypedTuple<String>> idle = new ArrayList<>();
+        for (Object tuples : perShard) {
+            if (tuples instanceof Collection<?> shardTuples) {
+                shardTuples.forEach(tuple -> idle.add(castTuple(tuple)));
+            }
+        }
+        return idle.stream()
+                .sorted(Comparator.comparing(ZSetOperations.TypedTuple::getScore))
+                .limit(limit)
+                .map(tuple -> userIdOf(tuple.getValue()))
+                .toList();
+    }
+
+    public void removeFromActivityIndex(Collection<Long> userIds) {
+        Map<Integer, List<Long>> byShard = userIds.stream()
+                .collect(Collectors.groupingBy(CartRedisRepository::shardOf));
+        byShard.forEach((shard, ids) -> redisTemplate.opsForZSet()
+                .remove(activityIndex(shard), ids.stream().map(CartRedisRepository::key).toArray()));
+    }
+
+    // Индекс разошелся с корзиной (например, ее восстановили вручную) - выравниваем score по updated
+    public void reindex(Collection<RedisCart> carts) {
+        carts.forEach(cart -> redisTemplate.opsForZSet()
+                .add(activityIndex(shardOf(cart.userId())), key(cart.userId()), cart.updatedAt().toEpochMilli()));
+    }
+
+    // Удаляет корзины, не менявшиеся с cutoff (проверка и удаление атомарны), один pipeline на пачку.
+    // Возвращает число удаленных
+    public long unlinkIfIdle(Collection<Long> userIds, Instant cutoff) {
+        byte[] cutoffMillis = raw(String.valueOf(cutoff.toEpochMilli()));
+        List<byte[][]> calls = userIds.stream()
+                .map(userId -> new byte[][]{raw(key(userId)), raw(activityIndex(shardOf(userId))), cutoffMillis})
+                .toList();
+        return evalPipelined(UNLINK_IF_IDLE, 2, calls).stream()
+                .filter(result -> Long.valueOf(1).equals(result))
+                .count();
+    }
+
+    /**
+     * Снимает корзины, уже переведенные в БД в ABANDONED: удаляет хеш, если с cutoff его не меняли,
+     * иначе оставляет под новым id (см. expire_cart.lua). Один pipeline на пачку.
+     *
+     * @return пользователи, чьи корзины пережили снятие под новым id
+     */
+    public List<Long> expire(Collection<Long> userIds, Instant cutoff) {
+        List<Long> ids = List.copyOf(userIds);
+        byte[] cutoffMillis = raw(String.valueOf(cutoff.toEpochMilli()));
+        List<Object> results = evalPipelined(EXPIRE_CART, 3, ids.stream()
+                .map(userId -> new byte[][]{raw(key(userId)), raw(activityIndex(shardOf(userId))),
+                        raw(writeBehindStream(shardOf(userId))), cutoffMillis, raw(UUID.randomUUID().toString())})
+                .toList());
+
+        List<Long> renamed = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (Long.valueOf(0).equals(results.get(i))) {
+                renamed.add(ids.get(i));
+            }
+        }
+        return renamed;
+    }
+
+    // Пачка корзин из БД в Redis одним pipeline (put_cart.lua в режиме NX - уже поднятые не трогаем)
+    public void createAllIfAbsent(Collection<RedisCart> carts) {
+        byte[] mode = raw("NX");
+        byte[] ttlMillis = raw(ttlMillis());
+        byte[] noVersion = raw("0");
+        evalPipelined(PUT_CART, 3, carts.stream()
+                .map(cart -> {
+                    List<String> fields = cart.toFields();
+                    byte[][] keysAndArgs = new byte[6 + fields.size()][];
+                    int shard = shardOf(cart.userId());
+                    keysAndArgs[0] = raw(key(cart.userId()));
+                    keysAndArgs[1] = raw(writeBehindStream(shard));
+                    keysAndArgs[2] = raw(activityIndex(shard));
+                    keysAndArgs[3] = mode;
+                    keysAndArgs[4] = ttlMillis;
+                    keysAndArgs[5] = noVersion;
+                    for (int i = 0; i < fields.size(); i++) {
+                        keysAndArgs[6 + i] = raw(fields.get(i));
+                    }
+                    return keysAndArgs;
+                })
+                .toList());
+    }
+
+    public static int shardOf(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), SHARDS);
+    }
+
+    public static String key(Long userId) {
+        return KEY_PREFIX + hashTag(shardOf(userId)) + ":" + userId;
+    }
+
+    public static Long userIdOf(String key) {
+        return Long.valueOf(key.substring(key.lastIndexOf(':') + 1));
+    }
+
+    public static String writeBehindStream(int shard) {
+        return WRITE_BEHIND_STREAM_PREFIX + hashTag(shard);
+    }
+
+    public static String activityIndex(int shard) {
+        return ACTIVITY_INDEX_PREFIX + hashTag(shard);
+    }
+
+    // Ключи скриптов корзины в порядке KEYS: хеш, стрим write-behind, индекс активности - один слот
+    static List<String> keys(Long userId) {
+        int shard = shardOf(userId);
+        return List.of(key(userId), writeBehindStream(shard), activityIndex(shard));
+    }
+
+    private static String hashTag(int shard) {
+        return "{" + shard + "}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ZSetOperations.TypedTuple<String> castTuple(Object tuple) {
+        return (ZSetOperations.TypedTuple<String>) tuple;
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean put(RedisCart cart, String mode) {
+        List<String> fields = cart.toFields();
+        Object[] args = new Object[fields.size() + 3];
+        args[0] = mode;
+        args[1] = ttlMillis();
+        args[2] = String.valueOf(cart.version());
+        for (int i = 0; i < fields.size(); i++) {
+            args[i + 3] = fields.get(i);
+        }
+        return Long.valueOf(1).equals(redisTemplate.execute(PUT_CART, keys(cart.userId()), args));
+    }
+
+    // SCRIPT LOAD первой командой того же pipeline: EVALSHA не получит NOSCRIPT даже после рестарта Redis.
+    // Результаты - по одному на вызов, в порядке calls
+    private List<Object> evalPipelined(RedisScript<?> script, int numKeys, List<byte[][]> calls) {
+        if (calls.isEmpty()) {
+            return List.of();
+        }
+        byte[] sha = raw(script.getSha1());
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptLoad(raw(script.getScriptAsString()));
+            for (byte[][] keysAndArgs : calls) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, numKeys, keysAndArgs);
+            }
+            return null;
+        });
+        return results.subList(1, results.size());
+    }
+
+    private RedisCart toCart(List<?> hash) {
+        return hash == null || hash.isEmpty() ? null : RedisCart.fromHash(hash);
+    }
+
+    private String ttlMillis() {
+        return String.valueOf(ttl.toMillis());
+    }
+
+    private static String now() {
+        return String.valueOf(Instant.now().toEpochMilli());
+    }
+
+    private static RedisScript<List> script(String name) {
+        return RedisScript.of(new ClassPathResource("scripts/cart/" + name + ".lua"), List.class);
+    }
+}
@@ -0,0 +1,145 @@
+package org.com.cartservice.repository.redis;
+
+import org.com.cartservice.dto.response.CartItemResponse;
+import org.com.cartservice.dto.response.CartResponse;
+import org.com.cartservice.model.Cart;
+import org.com.cartservice.model.CartStatus;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Активная корзина в том виде, как она лежит в хеше Redis.
+ * <p>
+ * Поля хеша: {@code id}, {@code user}, {@code created}, {@code updated} (epoch ms),
+ * {@code ver} - версия (каждый скрипт изменения увеличивает ее на 1, в БД пишется в {@code carts.version}),
+ * {@code q:<productId>} - количество (меняется HINCRBY), {@code i:<productId>} - "priceMinor|name".
+ * Цены - в минимальных единицах, итог считается при чтении.
+ */
+public record RedisCart(
+        UUID id,
+        Long userId,
+        List<Line> items,
+        Instant createdAt,
+        Instant updatedAt,
+        long version
+) {
+
+    static final String ID = "id";
+    static final String USER = "user";
+    static final String CREATED = "created";
+    static final String UPDATED = "updated";
+    static final String VERSION = "ver";
+    static final String QUANTITY_PREFIX = "q:";
+    static final String ITEM_PREFIX = "i:";
+
+    public record Line(
+            UUID productId,
+            String name,
+            long priceMinor,
+            int quantity
+    ) {
+        public BigDecimal price() {
+            return fromMinor(priceMinor);
+        }
+    }
+
+    public long totalMinor() {
+        long total = 0;
+        for (Line line : items) {
+            total = Math.addExact(total, Math.multiplyExact(line.priceMinor(), line.quantity()));
+        }
+        return total;
+    }
+
+    public CartResponse toResponse() {
+        List<CartItemResponse> responses = items.stream()
+                .map(line -> new CartItemResponse(line.productId(), line.name(), line.price(), line.quantity()))
+                .toList();
+        return new CartResponse(id, responses, fromMinor(totalMinor()), CartStatus.ACTIVE);
+    }
+
+    public static RedisCart fromEntity(Cart cart) {
+        List<Line> items = cart.getCartItems().stream()
+                .map(item -> new Line(item.getProductId(), item.getName(), toMinor(item.getPrice()), item.getQuantity()))
+                .toList();
+        long version = cart.getVersion() != null ? cart.getVersion() : 0;
+        return new RedisCart(cart.getId(), cart.getUserId(), items, cart.getCreatedAt(), cart.getUpdatedAt(), version);
+    }
+
+    public static RedisCart empty(UUID id, Long userId, Instant now) {
+        return new RedisCart(id, userId, List.of(), now, now, 0);
+    }
+
+    // Версия остается прежней - она ожидаемая для CAS в CartRedisRepository#replace
+    public RedisCart withItems(List<Line> items, Instant now) {
+        return new RedisCart(id, userId, items, createdAt, now, version);
+    }
+
+    // Плоский список поле/значение для put_cart.lua
+    List<String> toFields() {
+        List<String> fields = new ArrayList<>(10 + items.size() * 4);
+        fields.addAll(List.of(ID, id.toString(), USER, userId.toString(),
+                CREATED, String.valueOf(createdAt.toEpochMilli()), UPDATED, String.valueOf(updatedAt.toEpochMilli()),
+                VERSION, String.valueOf(version)));
+        for (Line line : items) {
+            fields.add(QUANTITY_PREFIX + line.productId());
+            fields.add(String.valueOf(line.quantity()));
+            fields.add(ITEM_PREFIX + line.productId());
+            fields.add(itemValue(line.priceMinor(), line.name()));
+        }
+        return fields;
+    }
+
+    static String itemValue(long priceMinor, String name) {
+        return priceMinor + "|" + name;
+    }
+
+    // Разбор ответа HGETALL: чередующиеся поле/значение
+    static RedisCart fromHash(List<?> flat) {
+        Map<String, String> hash = new LinkedHashMap<>(flat.size() / 2);
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            hash.put(String.valueOf(flat.get(i)), String.valueOf(flat.get(i + 1)));
+        }
+        return fromHash(hash);
+    }
+
+    static RedisCart fromHash(Map<String, String> hash) {
+        List<Line> items = new ArrayList<>();
+        hash.forEach((field, value) -> {
+            if (!field.startsWith(QUANTITY_PREFIX)) {
+                return;
+            }
+            String productId = field.substring(QUANTITY_PREFIX.length());
+            String item = hash.get(ITEM_PREFIX + productId);
+            int quantity = Integer.parseInt(value);
+            if (item == null || quantity <= 0) {
+                return;
+            }
+            int separator = item.indexOf('|');
+            items.add(new Line(UUID.fromString(productId), item.substring(separator + 1),
+                    Long.parseLong(item.substring(0, separator)), quantity));
+        });
+        return new RedisCart(
+                UUID.fromString(hash.get(ID)),
+                Long.valueOf(hash.get(USER)),
+                items,
+                Instant.ofEpochMilli(Long.parseLong(hash.get(CREATED))),
+                Instant.ofEpochMilli(Long.parseLong(hash.get(UPDATED))),
+                Long.parseLong(hash.getOrDefault(VERSION, "0")));
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+}
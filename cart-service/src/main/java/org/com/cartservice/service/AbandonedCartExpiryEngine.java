@@ -0,0 +1,213 @@
+package org.com.cartservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.dto.response.CartResponse;
+import org.com.cartservice.kafka.event.CartAbandonedEvent;
+import org.com.cartservice.kafka.producer.CartEventPublisher;
+import org.com.cartservice.model.CartStatus;
+import org.com.cartservice.repository.CartBatchRepository;
+import org.com.cartservice.repository.CartRepository;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Истечение брошенных корзин.
+ * <p>
+ * Кандидаты берутся из ZSET-индексов шардов {@link CartRedisRepository#activityIndex} (score - время последнего
+ * изменения, его обновляют те же Lua-скрипты, что меняют корзину): {@code ZRANGEBYSCORE -inf cutoff LIMIT 0 batch}
+ * по каждому шарду стоит O(log N + batch), поэтому тик не зависит от общего числа корзин и не сканирует таблицу.
+ * <p>
+ * Пачка за тик:
+ * <ol>
+ *     <li>снимки кандидатов одним pipeline; корзины, которых уже нет в Redis, убираются из индекса;</li>
+ *     <li>в одной транзакции снимки дописываются в БД и корзины переводятся в ABANDONED
+ *     ({@code WHERE status = 'ACTIVE'} - из нескольких инстансов корзину заберет один);</li>
+ *     <li>после коммита брошенные корзины снимаются из Redis ({@code expire_cart.lua});</li>
+ *     <li>на каждую брошенную корзину с товарами уходит {@code cart-abandoned}, пустые архивируются без события -
+ *     при следующем обращении пользователь получит новую корзину.</li>
+ * </ol>
+ * Корзины, которых нет в индексе, - выгруженные из Redis sweeper'ом ({@code unlink_if_idle.lua} удаляет
+ * и запись индекса) или созданные до появления индекса, - после пачек из Redis добираются по БД
+ * ({@code status, last_activity_at}): те, что лежат в Redis, возвращаются в индекс, остальные истекают так же.
+ */
+@Component
+@Slf4j
+public class AbandonedCartExpiryEngine {
+
+    private final CartRedisRepository cartRedisRepository;
+    private final CartBatchRepository cartBatchRepository;
+    private final CartRepository cartRepository;
+    private final CartEventPublisher cartEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration idleAfter;
+    private final int batchSize;
+    private final int maxBatchesPerTick;
+
+    private final Counter abandonedCounter;
+    private final Counter emptyExpiredCounter;
+
+    public AbandonedCartExpiryEngine(CartRedisRepository cartRedisRepository,
+                                     CartBatchRepository cartBatchRepository,
+                                     CartRepository cartRepository,
+                                     CartEventPublisher cartEventPublisher,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${cart.expiry.idle-after:P7D}") Duration idleAfter,
+                                     @Value("${cart.expiry.batch-size:500}") int batchSize,
+                                     @Value("${cart.expiry.max-batches-per-tick:10}") int maxBatchesPerTick) {
+        this.cartRedisRepository = cartRedisRepository;
+        this.cartBatchRepository = cartBatchRepository;
+        this.cartRepository = cartRepository;
+        this.cartEventPublisher = cartEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleAfter = idleAfter;
+        this.batchSize = batchSize;
+        this.maxBatchesPerTick = maxBatchesPerTick;
+        this.abandonedCounter = Counter.builder("cart.expiry.carts").tag("result", "abandoned").register(meterRegistry);
+        this.emptyExpiredCounter = Counter.builder("cart.expiry.carts").tag("result", "empty").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.expiry.tick-interval-ms:60000}")
+    public void tick() {
+        try {
+            Instant cutoff = Instant.now().minus(idleAfter);
+            // Верхняя граница работы за тик; остаток заберут следующие тики
+            int batches = 0;
+            while (batches < maxBatchesPerTick) {
+                batches++;
+                if (expireBatch(cutoff) < batchSize) {
+                    break;
+                }
+            }
+            while (batches < maxBatchesPerTick) {
+                batches++;
+                if (expireUnindexedBatch(cutoff) < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Abandoned cart expiry tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private int expireBatch(Instant cutoff) {
+        List<Long> candidates = cartRedisRepository.findIdle(cutoff, batchSize);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, RedisCart> snapshots = cartRedisRepository.findAll(candidates);
+        List<Long> gone = candidates.stream().filter(userId -> !snapshots.containsKey(userId)).toList();
+        cartRedisRepository.removeFromActivityIndex(gone);
+
+        List<RedisCart> idle = new ArrayList<>();
+        List<RedisCart> touched = new ArrayList<>();
+        snapshots.values().forEach(cart -> (cart.updatedAt().isBefore(cutoff) ? idle : touched).add(cart));
+        cartRedisRepository.reindex(touched);
+
+        // Снимок из Redis может быть новее строки в БД - дописываем его в той же транзакции
+        abandon(idle, idle, cutoff, Set.of());
+        log.debug("Expiry batch: {} idle, {} touched, {} already gone", idle.size(), touched.size(), gone.size());
+        return candidates.size();
+    }
+
+    // Корзины, которых нет в индексе активности: простаивающие ACTIVE-строки в БД
+    private int expireUnindexedBatch(Instant cutoff) {
+        List<UUID> candidates = cartBatchRepository.findIdleActive(cutoff, batchSize);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        List<RedisCart> stored = cartRepository.findWithItemsByIdInAndStatus(candidates, CartStatus.ACTIVE).stream()
+                .map(RedisCart::fromEntity)
+                .toList();
+        // Та же корзина лежит в Redis: возвращаем ее в индекс, дальше она истекает по Redis.
+        // Под ключом пользователя другая корзина - строка в БД устарела, истекает она, а ключ не трогаем
+        Map<Long, RedisCart> cached = cartRedisRepository.findAll(stored.stream().map(RedisCart::userId).toList());
+        List<RedisCart> live = new ArrayList<>();
+        List<RedisCart> idle = new ArrayList<>();
+        Set<Long> otherCartInRedis = new HashSet<>();
+        for (RedisCart cart : stored) {
+            RedisCart current = cached.get(cart.userId());
+            if (current != null && current.id().equals(cart.id())) {
+                live.add(current);
+                continue;
+            }
+            if (current != null) {
+                otherCartInRedis.add(cart.userId());
+            }
+            idle.add(cart);
+        }
+        cartRedisRepository.reindex(live);
+
+        abandon(idle, List.of(), cutoff, otherCartInRedis);
+        log.debug("Unindexed expiry batch: {} idle in DB, {} reindexed from Redis", idle.size(), live.size());
+        return candidates.size();
+    }
+
+    private void abandon(List<RedisCart> idle, List<RedisCart> snapshotsToPersist, Instant cutoff, Set<Long> keepInRedis) {
+        if (idle.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = idle.stream().map(RedisCart::id).toList();
+        Instant now = Instant.now();
+        Set<UUID> abandoned = new HashSet<>(transactionTemplate.execute(status -> {
+            cartBatchRepository.upsertActive(snapshotsToPersist);
+            return cartBatchRepository.markAbandoned(ids, now);
+        }));
+
+        List<Long> expired = new ArrayList<>();
+        List<Long> notAbandoned = new ArrayList<>();
+        idle.stream()
+                .filter(cart -> !keepInRedis.contains(cart.userId()))
+                .forEach(cart -> (abandoned.contains(cart.id()) ? expired : notAbandoned).add(cart.userId()));
+        // Корзину могли поднять в Redis и изменить после выборки - тогда она остается под новым id
+        List<Long> renamed = cartRedisRepository.expire(expired, cutoff);
+        // В БД корзина уже не ACTIVE (ее забрал другой инстанс или заказ) - только убираем из индекса,
+        // чтобы она не возвращалась в каждую пачку; следующее изменение корзины добавит ее снова
+        cartRedisRepository.removeFromActivityIndex(notAbandoned);
+
+        int empty = 0;
+        for (RedisCart cart : idle) {
+            if (!abandoned.contains(cart.id())) {
+                continue;
+            }
+            if (cart.items().isEmpty()) {
+                empty++;
+            } else {
+                cartEventPublisher.publishCartAbandoned(toEvent(cart, now));
+            }
+        }
+        abandonedCounter.increment(abandoned.size() - empty);
+        emptyExpiredCounter.increment(empty);
+        log.debug("Abandoned {} carts ({} empty, {} kept under a new id)", abandoned.size(), empty, renamed.size());
+    }
+
+    private static CartAbandonedEvent toEvent(RedisCart cart, Instant now) {
+        CartResponse response = cart.toResponse();
+        return CartAbandonedEvent.builder()
+                .cartId(cart.id())
+                .userId(cart.userId())
+                .items(response.cartItems())
+                .total(response.total())
+                .lastActivityAt(cart.updatedAt())
+                .abandonedAt(now)
+                .build();
+    }
+}
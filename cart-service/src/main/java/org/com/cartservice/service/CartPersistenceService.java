@@ -0,0 +1,61 @@
+package org.com.cartservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.model.Cart;
+import org.com.cartservice.model.CartItem;
+import org.com.cartservice.model.CartStatus;
+import org.com.cartservice.repository.CartRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+
+/**
+ * Синхронная запись снимка активной корзины из Redis в БД - перед архивацией, когда снимок обязан
+ * быть в БД прямо сейчас. Обычные изменения пишет пакетами {@link CartWriteBehindFlusher}.
+ */
+@Service
+@Slf4j
+public class CartPersistenceService {
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartPersistenceService(CartRepository cartRepository, PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Cart persist(RedisCart snapshot) {
+        return transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findWithItemsById(snapshot.id())
+                    .orElseGet(() -> Cart.builder()
+                            .id(snapshot.id())
+                            .userId(snapshot.userId())
+                            .cartItems(new ArrayList<>())
+                            .status(CartStatus.ACTIVE)
+                            .createdAt(snapshot.createdAt())
+                            .build());
+
+            // Корзина уже заархивирована (заказ оформлен) - запоздавший снимок не должен ее менять
+            if (cart.getStatus() != CartStatus.ACTIVE) {
+                log.debug("Skip stale snapshot of cart {} in status {}", cart.getId(), cart.getStatus());
+                return cart;
+            }
+
+            cart.getCartItems().clear();
+            snapshot.items().forEach(line -> cart.addItem(CartItem.builder()
+                    .productId(line.productId())
+                    .name(line.name())
+                    .price(line.price())
+                    .quantity(line.quantity())
+                    .build()));
+            cart.recalculateTotal();
+            cart.setUpdatedAt(snapshot.updatedAt());
+            cart.setLastActivityAt(snapshot.updatedAt());
+            return cartRepository.save(cart);
+        });
+    }
+}
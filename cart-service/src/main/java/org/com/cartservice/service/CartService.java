@@ -2,137 +2,131 @@ package org.com.cartservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.com.cartservice.controller.ProductServiceClient;
-
-import org.com.cartservice.dto.mapper.CartMapper;
 import org.com.cartservice.dto.request.AddItemRequest;
 import org.com.cartservice.dto.response.CartResponse;
+import org.com.cartservice.dto.response.CartSummaryResponse;
 import org.com.cartservice.dto.response.ProductDto;
+import org.com.cartservice.exception.CartConflictException;
 import org.com.cartservice.exception.ResourceNotFoundException;
 import org.com.cartservice.model.Cart;
-import org.com.cartservice.model.CartItem;
 import org.com.cartservice.model.CartStatus;
 import org.com.cartservice.repository.CartRepository;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
+/**
+ * Активная корзина живет в хеше Redis и меняется Lua-скриптами за один round trip,
+ * Postgres догоняет ее пакетами через {@link CartWriteBehindFlusher}.
+ * Если корзины нет в Redis (истек TTL), она поднимается из БД и операция повторяется.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CartService {
     private final CartRepository cartRepository;
-    private final CartMapper cartMapper;
-    private final ProductServiceClient productServiceClient;
-    private final CartCacheService cartCacheService;
+    private final ProductSnapshotCache productSnapshotCache;
+    private final CartRedisRepository cartRedisRepository;
+    private final CartPersistenceService cartPersistenceService;
 
-    @Transactional
-    public CartResponse addItem(Long userId, AddItemRequest request) {
-        // 1. Получаем активную корзину или создаем новую
-        Cart cart = getOrCreateActiveCart(userId);
+    @Value("${cart.batch.max-size:500}")
+    private int batchMaxSize;
 
-        // 2. Проверяем товар в ProductService
-        ProductDto product = productServiceClient.getProduct(request.productId());
-        if (product.quantity() < request.quantity()) {
-            throw new IllegalStateException("Not enough stock");
-        }
-
-        // 3. Проверяем, есть ли уже такой товар в корзине
-        boolean itemExists = cart.getCartItems().stream()
-                .anyMatch(item -> item.getProductId().equals(product.id()));
+    @Value("${cart.redis.max-cas-attempts:3}")
+    private int maxCasAttempts;
 
-        if (itemExists) {
-            // Обновляем количество существующего товара
-            cart.getCartItems().stream()
-                    .filter(item -> item.getProductId().equals(product.id()))
-                    .findFirst()
-                    .ifPresent(item -> item.setQuantity(item.getQuantity() + request.quantity()));
-        } else {
-            // Добавляем новый товар
-            CartItem newItem = CartItem.builder()
-                    .productId(product.id())
-                    .name(product.name())
-                    .price(product.price())
-                    .quantity(request.quantity())
-                    .build();
-            cart.addItem(newItem);
+    public CartResponse addItem(Long userId, AddItemRequest request) {
+        // 1. Проверяем товар по локальному снимку (промах - запрос в ProductService)
+        ProductDto product = productSnapshotCache.get(request.productId());
+        if (!product.active()) {
+            throw new IllegalStateException("Product is not available");
+        }
+        if (product.stock() == null || product.stock() < request.quantity()) {
+            throw new IllegalStateException("Not enough stock");
         }
 
-        // 4. Обновляем метаданные
-        cart.updateActivity();
-
-        // 5. Сохраняем в БД
-        Cart savedCart = cartRepository.save(cart);
-        
-        // 6. Обновляем кеш
-        CartResponse cartResponse = cartMapper.toCartResponse(savedCart);
-        cartCacheService.updateCachedCart(userId, cartResponse);
-        
-        return cartResponse;
+        // 2. Один скрипт: HINCRBY количества + цена/название + TTL, в ответ - вся корзина
+        long priceMinor = RedisCart.toMinor(product.price());
+        return mutate(userId, true, () -> cartRedisRepository.addItem(
+                userId, product.id(), request.quantity(), priceMinor, product.name()))
+                .toResponse();
     }
 
-    @Transactional
     public void removeItem(Long userId, UUID productId) {
-        Cart cart = getActiveCartOrThrow(userId);
-        cart.removeItem(productId);
-        cart.updateActivity();
-        
-        // Сохраняем в БД
-        cartRepository.save(cart);
-        
-        // Обновляем кеш
-        CartResponse cartResponse = cartMapper.toCartResponse(cart);
-        cartCacheService.updateCachedCart(userId, cartResponse);
+        mutate(userId, false, () -> cartRedisRepository.removeItem(userId, productId));
     }
 
-    @Transactional
     public void clearCart(Long userId) {
-        Cart cart = getActiveCartOrThrow(userId);
-        cart.getCartItems().clear();
-        cart.recalculateTotal();
-        cart.updateActivity();
-        
-        // Сохраняем в БД
-        cartRepository.save(cart);
-        
-        // Обновляем кеш
-        CartResponse cartResponse = cartMapper.toCartResponse(cart);
-        cartCacheService.updateCachedCart(userId, cartResponse);
+        mutate(userId, false, () -> cartRedisRepository.clearItems(userId));
     }
 
-    @Transactional(readOnly = true)
+    // Брошенную корзину (в т.ч. пустую) истечение архивирует - пользователь получает новую пустую
     public CartResponse getCart(Long userId) {
-        // 1. Пробуем получить из кеша
-        return cartCacheService.getCachedCart(userId)
-                .orElseGet(() -> {
-                    // 2. Если нет в кеше, получаем из БД
-                    Cart cart = getActiveCartOrThrow(userId);
-                    CartResponse cartResponse = cartMapper.toCartResponse(cart);
-                    
-                    // 3. Сохраняем в кеш
-                    cartCacheService.cacheCart(userId, cartResponse);
-                    
-                    return cartResponse;
-                });
+        return cartRedisRepository.find(userId)
+                .or(() -> load(userId, true))
+                .map(RedisCart::toResponse)
+                .orElseThrow(() -> activeCartNotFound(userId));
+    }
+
+    /**
+     * Активные корзины нескольких пользователей: один pipeline HGETALL в Redis, промахи -
+     * одним запросом {@code user_id IN (...)} с товарами через JOIN FETCH. Поднятые из БД
+     * корзины кладутся в Redis (NX). Пользователи без активной корзины в ответ не попадают.
+     */
+    public Map<Long, CartResponse> getCarts(List<Long> userIds) {
+        List<Long> distinct = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Too many users in one request: " + distinct.size() + " > " + batchMaxSize);
+        }
+
+        Map<Long, RedisCart> carts = new HashMap<>(cartRedisRepository.findAll(distinct));
+        List<Long> misses = distinct.stream().filter(userId -> !carts.containsKey(userId)).toList();
+        if (!misses.isEmpty()) {
+            List<RedisCart> stored = cartRepository.findWithItemsByUserIdInAndStatus(misses, CartStatus.ACTIVE).stream()
+                    .map(RedisCart::fromEntity)
+                    .toList();
+            cartRedisRepository.createAllIfAbsent(stored);
+            stored.forEach(cart -> carts.put(cart.userId(), cart));
+            log.debug("Batch cart lookup: {} from Redis, {} loaded from DB, {} without cart",
+                    distinct.size() - misses.size(), stored.size(), misses.size() - stored.size());
+        }
+
+        Map<Long, CartResponse> responses = new LinkedHashMap<>();
+        distinct.stream()
+                .filter(carts::containsKey)
+                .forEach(userId -> responses.put(userId, carts.get(userId).toResponse()));
+        return responses;
     }
 
     @Transactional(readOnly = true)
-    public List<CartResponse> getCartHistory(Long userId) {
-        List<Cart> carts = cartRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return carts.stream()
-                .map(cartMapper::toCartResponse)
-                .toList();
+    public List<CartSummaryResponse> getCartHistory(Long userId) {
+        return cartRepository.findSummariesByUserId(userId);
     }
 
     // Преобразовать корзину в заказ (вызывается из Order Service)
+    @Transactional
     public void convertCartToOrder(Long userId, Long orderId) {
-        Cart cart = getActiveCartOrThrow(userId);
-        
+        RedisCart snapshot = cartRedisRepository.find(userId)
+                .or(() -> cartRepository.findByUserIdAndStatus(userId, CartStatus.ACTIVE).map(RedisCart::fromEntity))
+                .orElseThrow(() -> activeCartNotFound(userId));
+
+        // Последнее состояние из Redis пишем синхронно - архив должен совпасть с тем, что видел пользователь
+        Cart cart = cartPersistenceService.persist(snapshot);
+
         // Архивируем текущую корзину
         cart.archive(orderId);
         cartRepository.save(cart);
@@ -141,11 +135,12 @@ public class CartService {
         Cart newCart = cart.createNewCartAfterOrder(orderId);
         cartRepository.save(newCart);
         
-        // Очищаем кеш
-        cartCacheService.evictCart(userId);
+        // Ключ удаляем после коммита: следующий запрос поднимет из БД уже новую корзину
+        afterCommit(() -> cartRedisRepository.delete(userId));
     }
 
     // Восстановить последнюю корзину
+    @Transactional(readOnly = true)
     public CartResponse restoreLastCart(Long userId) {
         List<Cart> archivedCarts = cartRepository.findByUserIdAndStatusIn(
                 userId, List.of(CartStatus.ARCHIVED, CartStatus.CONVERTED_TO_ORDER));
@@ -155,50 +150,94 @@ public class CartService {
         }
         
         Cart lastCart = archivedCarts.get(0); // Самая последняя
-        
-        // Создаем новую корзину с товарами из последней
-        Cart newCart = Cart.builder()
-                .userId(userId)
-                .cartItems(new ArrayList<>(lastCart.getCartItems()))
-                .total(lastCart.getTotal())
-                .status(CartStatus.ACTIVE)
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now())
-                .lastActivityAt(Instant.now())
-                .build();
-        
-        // Обновляем связи для новых CartItems
-        newCart.getCartItems().forEach(item -> item.setCart(newCart));
-        
-        Cart savedCart = cartRepository.save(newCart);
-        
-        // Обновляем кеш
-        CartResponse cartResponse = cartMapper.toCartResponse(savedCart);
-        cartCacheService.updateCachedCart(userId, cartResponse);
-        
-        return cartResponse;
+
+        List<RedisCart.Line> lines = refreshPrices(RedisCart.fromEntity(lastCart).items());
+
+        // Товары из последней корзины переносим в текущую активную (ее id сохраняется).
+        // Замена - CAS по версии: если с другого устройства успели изменить корзину, перечитываем
+        // ее и накладываем восстановленные позиции на свежее состояние, без блокировки строки
+        for (int attempt = 1; attempt <= maxCasAttempts; attempt++) {
+            RedisCart active = cartRedisRepository.find(userId)
+                    .or(() -> load(userId, true))
+                    .orElseThrow(() -> activeCartNotFound(userId));
+            RedisCart restored = active.withItems(merge(active.items(), lines), Instant.now());
+            if (cartRedisRepository.replace(restored)) {
+                return restored.toResponse();
+            }
+            log.debug("Cart {} of user {} changed concurrently (version {}), attempt {} of {}",
+                    active.id(), userId, active.version(), attempt, maxCasAttempts);
+        }
+        throw new CartConflictException("Cart of user " + userId + " is being modified concurrently, try again");
     }
 
     // --- Вспомогательные методы ---
-    private Cart getOrCreateActiveCart(Long userId) {
-        return cartRepository.findByUserIdAndStatus(userId, CartStatus.ACTIVE)
-                .orElseGet(() -> createNewCart(userId));
+
+    // Актуальные цены и названия одной пачкой; снятые с продажи и удаленные товары выпадают
+    private List<RedisCart.Line> refreshPrices(List<RedisCart.Line> lines) {
+        Map<UUID, ProductDto> products = productSnapshotCache.getAll(
+                lines.stream().map(RedisCart.Line::productId).toList());
+        return lines.stream()
+                .filter(line -> products.containsKey(line.productId()) && products.get(line.productId()).active())
+                .map(line -> {
+                    ProductDto product = products.get(line.productId());
+                    return new RedisCart.Line(line.productId(), product.name(),
+                            RedisCart.toMinor(product.price()), line.quantity());
+                })
+                .toList();
+    }
+
+    // Восстановленные позиции заменяют такие же товары в корзине, остальные товары корзины остаются
+    private List<RedisCart.Line> merge(List<RedisCart.Line> current, List<RedisCart.Line> restored) {
+        Map<UUID, RedisCart.Line> merged = new LinkedHashMap<>();
+        current.forEach(line -> merged.put(line.productId(), line));
+        restored.forEach(line -> merged.put(line.productId(), line));
+        return List.copyOf(merged.values());
+    }
+
+    // Скрипт вернул null - корзины нет в Redis: поднимаем ее из БД (или создаем) и повторяем один раз
+    private RedisCart mutate(Long userId, boolean createIfMissing, Supplier<RedisCart> operation) {
+        RedisCart cart = operation.get();
+        if (cart != null) {
+            return cart;
+        }
+        load(userId, createIfMissing).orElseThrow(() -> activeCartNotFound(userId));
+        cart = operation.get();
+        if (cart == null) {
+            throw new IllegalStateException("Cart of user " + userId + " disappeared during update");
+        }
+        return cart;
     }
 
-    private Cart createNewCart(Long userId) {
-        return Cart.builder()
-                .userId(userId)
-                .cartItems(new ArrayList<>())
-                .total(BigDecimal.ZERO)
-                .status(CartStatus.ACTIVE)
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now())
-                .lastActivityAt(Instant.now())
-                .build();
+    // Поднимает активную корзину из БД в Redis. NX: если параллельный запрос успел раньше, берем его версию
+    private Optional<RedisCart> load(Long userId, boolean createIfMissing) {
+        Optional<RedisCart> stored = cartRepository.findByUserIdAndStatus(userId, CartStatus.ACTIVE)
+                .map(RedisCart::fromEntity);
+        if (stored.isEmpty() && !createIfMissing) {
+            return Optional.empty();
+        }
+
+        RedisCart cart = stored.orElseGet(() -> RedisCart.empty(UUID.randomUUID(), userId, Instant.now()));
+        if (cartRedisRepository.createIfAbsent(cart)) {
+            log.debug("Loaded cart {} of user {} into Redis", cart.id(), userId);
+            return Optional.of(cart);
+        }
+        return cartRedisRepository.find(userId);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
-    private Cart getActiveCartOrThrow(Long userId) {
-        return cartRepository.findByUserIdAndStatus(userId, CartStatus.ACTIVE)
-                .orElseThrow(() -> new ResourceNotFoundException("Active cart not found for user: " + userId));
+    private ResourceNotFoundException activeCartNotFound(Long userId) {
+        return new ResourceNotFoundException("Active cart not found for user: " + userId);
     }
 }
@@ -0,0 +1,191 @@
+package org.com.cartservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.repository.CartBatchRepository;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Write-behind активных корзин из Redis в Postgres.
+ * <p>
+ * Lua-скрипты корзины вместе с изменением добавляют отметку в стрим шарда корзины
+ * ({@link CartRedisRepository#writeBehindStream}), поэтому подтвержденное пользователю изменение переживает
+ * падение инстанса (при включенном AOF в Redis). Шарды обходятся по очереди, у каждого своя группа.
+ * Раз в {@code flush-interval} сборщик читает отметки группой консьюмеров, схлопывает их по корзине
+ * (десять кликов по одной корзине - одна запись), читает текущие снимки одним pipeline и пишет их
+ * пакетом в одной транзакции. XACK - только после коммита: при сбое отметки останутся в pending
+ * и их заберет этот же или другой инстанс через XCLAIM.
+ * <p>
+ * Метрики: {@code cart.write_behind.mutations} / {@code cart.write_behind.carts} и их отношение
+ * {@code cart.write_behind.coalescing_ratio} на каждый сброс, время сброса - {@code cart.write_behind.flush}.
+ */
+@Component
+@Slf4j
+public class CartWriteBehindFlusher {
+
+    private static final String GROUP = "cart-persist";
+    private static final String CART_FIELD = "cart";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CartRedisRepository cartRedisRepository;
+    private final CartBatchRepository cartBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration claimIdle;
+    private final Consumer consumer = Consumer.from(GROUP, "cart-service-" + UUID.randomUUID());
+
+    private final Counter mutationsCounter;
+    private final Counter cartsCounter;
+    private final DistributionSummary coalescingRatio;
+    private final Timer flushTimer;
+
+    // Группа создана в стриме шарда; гонка безопасна - повторное создание получит BUSYGROUP
+    private final boolean[] groupReady = new boolean[CartRedisRepository.SHARDS];
+
+    public CartWriteBehindFlusher(StringRedisTemplate redisTemplate,
+                                  CartRedisRepository cartRedisRepository,
+                                  CartBatchRepository cartBatchRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${cart.write-behind.batch-size:500}") int batchSize,
+                                  @Value("${cart.write-behind.claim-idle:PT30S}") Duration claimIdle) {
+        this.redisTemplate = redisTemplate;
+        this.cartRedisRepository = cartRedisRepository;
+        this.cartBatchRepository = cartBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.claimIdle = claimIdle;
+        this.mutationsCounter = Counter.builder("cart.write_behind.mutations").register(meterRegistry);
+        this.cartsCounter = Counter.builder("cart.write_behind.carts").register(meterRegistry);
+        this.coalescingRatio = DistributionSummary.builder("cart.write_behind.coalescing_ratio").register(meterRegistry);
+        this.flushTimer = Timer.builder("cart.write_behind.flush").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:500}")
+    public void flush() {
+        for (int shard = 0; shard < CartRedisRepository.SHARDS; shard++) {
+            String stream = CartRedisRepository.writeBehindStream(shard);
+            try {
+                ensureGroup(shard, stream);
+                flushBatch(stream, claimStalled(stream));
+                // Пока стрим отдает полные пачки, дочитываем отставание в этом же тике
+                List<MapRecord<String, Object, Object>> records;
+                do {
+                    records = readNew(stream);
+                    flushBatch(stream, records);
+                } while (records.size() >= batchSize);
+            } catch (Exception e) {
+                // Отметки остаются в стриме/pending - попробуем на следующем тике
+                log.error("Cart write-behind flush of {} failed: {}", stream, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void flushBatch(String stream, List<MapRecord<String, Object, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            userIds.add(CartRedisRepository.userIdOf(String.valueOf(record.getValue().get(CART_FIELD))));
+        }
+
+        Timer.Sample sample = Timer.start();
+        // Корзины, которых уже нет в Redis (оформлены в заказ), пропускаем: их снимок записан синхронно
+        List<RedisCart> snapshots = new ArrayList<>(cartRedisRepository.findAll(userIds).values());
+        Integer written = transactionTemplate.execute(status -> cartBatchRepository.upsertActive(snapshots));
+        acknowledge(stream, records);
+        sample.stop(flushTimer);
+
+        mutationsCounter.increment(records.size());
+        cartsCounter.increment(userIds.size());
+        coalescingRatio.record((double) records.size() / userIds.size());
+        log.debug("Write-behind: {} mutations coalesced into {} carts, {} written",
+                records.size(), userIds.size(), written);
+    }
+
+    private List<MapRecord<String, Object, Object>> readNew(String stream) {
+        List<MapRecord<String, Object, Object>> records = streamOps().read(consumer,
+                StreamReadOptions.empty().count(batchSize),
+                StreamOffset.create(stream, ReadOffset.lastConsumed()));
+        return records != null ? records : List.of();
+    }
+
+    // Отметки, которые другой (упавший) консьюмер прочитал, но не подтвердил
+    private List<MapRecord<String, Object, Object>> claimStalled(String stream) {
+        RecordId[] stalled = streamOps().pending(stream, GROUP, Range.unbounded(), batchSize)
+                .stream()
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (stalled.length == 0) {
+            return List.of();
+        }
+        log.info("Claiming {} stalled write-behind entries from {}", stalled.length, stream);
+        return streamOps().claim(stream, GROUP, consumer.getName(), claimIdle, stalled);
+    }
+
+    private void acknowledge(String stream, List<MapRecord<String, Object, Object>> records) {
+        String[] ids = records.stream().map(record -> record.getId().getValue()).toArray(String[]::new);
+        StreamOperations<String, Object, Object> ops = streamOps();
+        ops.acknowledge(stream, GROUP, ids);
+        // Подтвержденные отметки больше не нужны - стрим не растет
+        ops.delete(stream, ids);
+    }
+
+    private void ensureGroup(int shard, String stream) {
+        if (groupReady[shard]) {
+            return;
+        }
+        try {
+            // MKSTREAM: на пустом Redis стрима еще нет
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands().xGroupCreate(
+                    stream.getBytes(StandardCharsets.UTF_8), GROUP, ReadOffset.from("0"), true));
+        } catch (RedisSystemException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+        groupReady[shard] = true;
+    }
+
+    private StreamOperations<String, Object, Object> streamOps() {
+        return redisTemplate.opsForStream();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,90 @@
+package org.com.cartservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.controller.ProductServiceClient;
+import org.com.cartservice.dto.response.ProductDto;
+import org.com.cartservice.kafka.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Локальные снимки товаров (цена, название, остаток) для корзины: горячие SKU добавляются без
+ * сетевого запроса в product-service.
+ * <p>
+ * Кеш ограничен по размеру; свежесть держат события {@code product-events} (обновляются только уже
+ * закешированные товары), TTL - страховка на случай потерянного события.
+ * Промахи грузятся через Feign: одиночный - {@code /forCart}, пачка - одним {@code /forCart/batch}.
+ * Одновременные промахи по одному товару ждут одну загрузку.
+ */
+@Component
+@Slf4j
+public class ProductSnapshotCache {
+
+    // Ограничение product-service на размер пачки
+    private static final int MAX_BATCH = 100;
+
+    private final ProductServiceClient productServiceClient;
+    private final Cache<UUID, ProductDto> cache;
+
+    public ProductSnapshotCache(ProductServiceClient productServiceClient,
+                                MeterRegistry meterRegistry,
+                                @Value("${cart.product-cache.max-size:50000}") long maxSize,
+                                @Value("${cart.product-cache.ttl:PT10M}") Duration ttl) {
+        this.productServiceClient = productServiceClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product_snapshots");
+    }
+
+    public ProductDto get(UUID productId) {
+        return cache.get(productId, productServiceClient::getProduct);
+    }
+
+    // Отсутствующих в product-service товаров в результате нет
+    public Map<UUID, ProductDto> getAll(Collection<UUID> productIds) {
+        return cache.getAll(productIds, this::loadAll);
+    }
+
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductId() == null || event.getType() == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case "UPDATED" -> cache.asMap().computeIfPresent(event.getProductId(), (id, cached) ->
+                    new ProductDto(id, event.getName(), event.getPrice(), event.getStock(), Boolean.TRUE.equals(event.getActive())));
+            case "STOCK_CHANGED" -> cache.asMap().computeIfPresent(event.getProductId(), (id, cached) ->
+                    new ProductDto(id, cached.name(), cached.price(), event.getStock(), cached.active()));
+            case "DELETED" -> cache.invalidate(event.getProductId());
+            default -> log.debug("Ignoring product event type {}", event.getType());
+        }
+    }
+
+    private Map<UUID, ProductDto> loadAll(Set<? extends UUID> productIds) {
+        List<UUID> ids = new ArrayList<>(productIds);
+        Map<UUID, ProductDto> loaded = new HashMap<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_BATCH) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + MAX_BATCH, ids.size()));
+            loaded.putAll(productServiceClient.getProducts(chunk).stream()
+                    .collect(Collectors.toMap(ProductDto::id, Function.identity())));
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,277 @@
+package org.com.cartservice.service.maintenance;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.com.cartservice.dto.request.SweepRequest;
+import org.com.cartservice.dto.response.SweepProgressResponse;
+import org.com.cartservice.exception.ResourceNotFoundException;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ConvertingCursor;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Массовая очистка ключей корзин в Redis без блокировки сервера (замена {@code KEYS} + {@code DEL}).
+ * <p>
+ * Ключи обходятся курсором {@code SCAN MATCH ... COUNT batchSize}, каждая пачка удаляется одним pipeline
+ * {@code UNLINK} (память освобождается в фоне), для {@link SweepTarget#IDLE_CARTS} - pipeline
+ * скрипта {@code unlink_if_idle.lua} ({@link CartRedisRepository#unlinkIfIdle}), который атомарно
+ * проверяет поле {@code updated}.
+ * Темп ограничен {@code maxKeysPerSecond} просмотренных ключей, чтобы общий Redis не проседал.
+ * В Redis Cluster {@code SCAN} видит ключи только одного узла, поэтому обходятся все master-узлы по очереди.
+ * <p>
+ * Очистки выполняются по одной в фоновом потоке. Параметры, счетчики и статус после каждой пачки
+ * сохраняются в Redis ({@link SweepJobStore}): прогресс и отмена доступны с любого инстанса, в том числе
+ * после перезапуска. Пока очистка не завершена, выполняющий инстанс держит аренду; очистку без аренды
+ * (инстанс упал или остановлен) подхватывает {@link #resumeOrphaned()} любого инстанса.
+ * Курсор {@code SCAN} не сохраняется - он не переживает смену узлов кластера и решардинг - и подхваченная
+ * очистка обходит ключи заново с нуля. Это безопасно: повторный {@code UNLINK} удаленного ключа ничего
+ * не делает, а {@code IDLE_CARTS} сверяется с тем же {@code cutoffMillis}; счетчики продолжают копиться,
+ * поэтому {@code scanned} после возобновления может превышать число ключей.
+ */
+@Service
+@Slf4j
+public class CartKeySweeper {
+
+    // Сколько последних очисток помнить для API прогресса
+    private static final int HISTORY_SIZE = 50;
+
+    private final StringRedisTemplate redisTemplate;
+    private final CartRedisRepository cartRedisRepository;
+    private final SweepJobStore store;
+    private final int defaultBatchSize;
+    private final int defaultMaxKeysPerSecond;
+    private final Duration minIdle;
+    private final Duration leaseTtl;
+    private final String instanceId = UUID.randomUUID().toString();
+    // Очистки, которые выполняет (или ждет в очереди) этот инстанс
+    private final Map<UUID, SweepJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("cart-sweeper").daemon().factory());
+    private volatile boolean stopping;
+
+    public CartKeySweeper(StringRedisTemplate redisTemplate,
+                          CartRedisRepository cartRedisRepository,
+                          @Value("${cart.maintenance.sweep.batch-size:500}") int defaultBatchSize,
+                          @Value("${cart.maintenance.sweep.max-keys-per-second:5000}") int defaultMaxKeysPerSecond,
+                          @Value("${cart.maintenance.sweep.min-idle:PT1H}") Duration minIdle,
+                          @Value("${cart.maintenance.sweep.lease-ttl:PT1M}") Duration leaseTtl,
+                          @Value("${cart.maintenance.sweep.retention:P7D}") Duration retention) {
+        this.redisTemplate = redisTemplate;
+        this.cartRedisRepository = cartRedisRepository;
+        this.store = new SweepJobStore(redisTemplate, retention, HISTORY_SIZE);
+        this.defaultBatchSize = defaultBatchSize;
+        this.defaultMaxKeysPerSecond = defaultMaxKeysPerSecond;
+        this.minIdle = minIdle;
+        this.leaseTtl = leaseTtl;
+    }
+
+    public SweepProgressResponse start(SweepRequest request) {
+        Long cutoffMillis = null;
+        if (request.target() == SweepTarget.IDLE_CARTS) {
+            if (request.idleFor() == null || request.idleFor().compareTo(minIdle) < 0) {
+                // Свежие корзины могут быть еще не записаны в БД - их удалять нельзя
+                throw new IllegalArgumentException("idleFor must be at least " + minIdle);
+            }
+            cutoffMillis = Instant.now().minus(request.idleFor()).toEpochMilli();
+        }
+
+        SweepJob job = new SweepJob(request.target(), cutoffMillis,
+                request.batchSize() != null ? request.batchSize() : defaultBatchSize,
+                request.maxKeysPerSecond() != null ? request.maxKeysPerSecond() : defaultMaxKeysPerSecond);
+        store.acquireLease(job.id, instanceId, leaseTtl);
+        store.save(job);
+        submit(job);
+        log.info("Cart sweep {} queued: target={}, batchSize={}, maxKeysPerSecond={}",
+                job.id, job.target, job.batchSize, job.maxKeysPerSecond);
+        return job.toResponse();
+    }
+
+    public SweepProgressResponse getProgress(UUID id) {
+        return job(id).toResponse();
+    }
+
+    public List<SweepProgressResponse> getAll() {
+        return store.findRecent().stream()
+                .map(stored -> jobs.getOrDefault(stored.id, stored))
+                .map(SweepJob::toResponse)
+                .toList();
+    }
+
+    public SweepProgressResponse cancel(UUID id) {
+        SweepJob job = job(id);
+        if (job.isFinished()) {
+            return job.toResponse();
+        }
+        // Очистку другого инстанса останавливает флаг в Redis, он проверяется перед каждой пачкой
+        store.requestCancel(id);
+        job.cancelRequested = true;
+        return job.toResponse();
+    }
+
+    // Продлевает аренду своих очисток и подхватывает очистки, чья аренда истекла
+    @Scheduled(fixedDelayString = "${cart.maintenance.sweep.heartbeat-ms:20000}")
+    public void resumeOrphaned() {
+        try {
+            jobs.keySet().forEach(id -> store.renewLease(id, leaseTtl));
+            for (SweepJob job : store.findRecent()) {
+                if (!job.isFinished() && !jobs.containsKey(job.id) && store.acquireLease(job.id, instanceId, leaseTtl)) {
+                    log.info("Cart sweep {} resumed after {} scanned keys, SCAN restarts from the beginning",
+                            job.id, job.scanned.get());
+                    submit(job);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check cart sweeps for resume: {}", e.getMessage());
+        }
+    }
+
+    private void submit(SweepJob job) {
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+    }
+
+    private void run(SweepJob job) {
+        try {
+            if (job.cancelRequested || store.isCancelRequested(job.id)) {
+                job.finish(SweepState.CANCELLED, null);
+                return;
+            }
+            if (job.startedAt == null) {
+                job.startedAt = Instant.now();
+            }
+            job.state = SweepState.RUNNING;
+            store.save(job);
+
+            ScanOptions options = ScanOptions.scanOptions().match(job.target.pattern()).count(job.batchSize).build();
+            long startNanos = System.nanoTime();
+            long scannedBefore = job.scanned.get();
+            if (redisTemplate.getConnectionFactory() instanceof LettuceConnectionFactory factory && factory.isClusterAware()) {
+                try (RedisClusterConnection connection = factory.getClusterConnection()) {
+                    for (RedisClusterNode node : connection.clusterGetNodes()) {
+                        if (node.isMaster() && !sweep(job, new ConvertingCursor<>(connection.scan(node, options),
+                                key -> new String(key, StandardCharsets.UTF_8)), startNanos, scannedBefore)) {
+                            break;
+                        }
+                    }
+                }
+            } else {
+                sweep(job, redisTemplate.scan(options), startNanos, scannedBefore);
+            }
+            if (stopping) {
+                // Статус остается RUNNING, а снятая аренда позволит другому инстансу подхватить очистку
+                log.info("Cart sweep {} interrupted by shutdown after {} keys", job.id, job.scanned.get());
+                return;
+            }
+            job.finish(job.cancelRequested ? SweepState.CANCELLED : SweepState.COMPLETED, null);
+            log.info("Cart sweep {} {}: scanned {}, deleted {}", job.id, job.state, job.scanned.get(), job.deleted.get());
+        } catch (Exception e) {
+            // Ошибка из-за остановки инстанса (прерванный поток, закрытое соединение) - не провал очистки
+            if (!stopping) {
+                job.finish(SweepState.FAILED, e.getMessage());
+                log.error("Cart sweep {} failed after {} keys: {}", job.id, job.scanned.get(), e.getMessage(), e);
+            }
+        } finally {
+            jobs.remove(job.id);
+            release(job);
+        }
+    }
+
+    // Обходит один курсор; false - очистку нужно остановить (отмена или остановка инстанса)
+    private boolean sweep(SweepJob job, Cursor<String> cursor, long startNanos, long scannedBefore) {
+        try (cursor) {
+            List<String> batch = new ArrayList<>(job.batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= job.batchSize) {
+                    if (!deleteBatch(job, batch)) {
+                        return false;
+                    }
+                    batch.clear();
+                    throttle(job, startNanos, scannedBefore);
+                }
+            }
+            return batch.isEmpty() || deleteBatch(job, batch);
+        }
+    }
+
+    private boolean deleteBatch(SweepJob job, List<String> keys) {
+        if (stopping) {
+            return false;
+        }
+        if (job.cancelRequested || store.isCancelRequested(job.id)) {
+            job.cancelRequested = true;
+            return false;
+        }
+        long deleted;
+        if (job.cutoffMillis != null) {
+            deleted = cartRedisRepository.unlinkIfIdle(
+                    keys.stream().map(CartRedisRepository::userIdOf).toList(), Instant.ofEpochMilli(job.cutoffMillis));
+        } else {
+            // По одной команде на ключ, а не UNLINK k1 k2 ...: так pipeline работает и в Redis Cluster
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                keys.forEach(key -> connection.keyCommands().unlink(key.getBytes(StandardCharsets.UTF_8)));
+                return null;
+            });
+            deleted = results.stream().filter(result -> result instanceof Long count && count > 0).count();
+        }
+        job.scanned.addAndGet(keys.size());
+        job.deleted.addAndGet(deleted);
+        store.save(job);
+        return true;
+    }
+
+    // Выдерживаем средний темп maxKeysPerSecond с начала (или возобновления) очистки
+    private void throttle(SweepJob job, long startNanos, long scannedBefore) {
+        long expectedNanos = TimeUnit.SECONDS.toNanos(job.scanned.get() - scannedBefore) / job.maxKeysPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            LockSupport.parkNanos(aheadNanos);
+        }
+    }
+
+    // При сбое Redis аренда истечет сама, а прогресс будет не дальше последней сохраненной пачки
+    private void release(SweepJob job) {
+        try {
+            store.save(job);
+            store.releaseLease(job.id);
+        } catch (Exception e) {
+            log.warn("Failed to save cart sweep {} state: {}", job.id, e.getMessage());
+        }
+    }
+
+    private SweepJob job(UUID id) {
+        SweepJob job = jobs.get(id);
+        if (job != null) {
+            return job;
+        }
+        return store.find(id).orElseThrow(() -> new ResourceNotFoundException("Sweep not found: " + id));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stopping = true;
+        executor.shutdownNow();
+    }
+}
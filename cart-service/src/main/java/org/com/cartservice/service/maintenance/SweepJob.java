@@ -0,0 +1,98 @@
+package org.com.cartservice.service.maintenance;
+
+import org.com.cartservice.dto.response.SweepProgressResponse;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Состояние одной очистки: пишет поток sweeper'а, читает API прогресса; копия - в Redis (SweepJobStore)
+class SweepJob {
+
+    final UUID id;
+    final Instant createdAt;
+    final SweepTarget target;
+    final Long cutoffMillis;
+    final int batchSize;
+    final int maxKeysPerSecond;
+
+    final AtomicLong scanned = new AtomicLong();
+    final AtomicLong deleted = new AtomicLong();
+    volatile SweepState state = SweepState.QUEUED;
+    volatile boolean cancelRequested;
+    volatile Instant startedAt;
+    volatile Instant finishedAt;
+    volatile String error;
+
+    SweepJob(SweepTarget target, Long cutoffMillis, int batchSize, int maxKeysPerSecond) {
+        this(UUID.randomUUID(), Instant.now(), target, cutoffMillis, batchSize, maxKeysPerSecond);
+    }
+
+    private SweepJob(UUID id, Instant createdAt, SweepTarget target, Long cutoffMillis, int batchSize, int maxKeysPerSecond) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.target = target;
+        this.cutoffMillis = cutoffMillis;
+        this.batchSize = batchSize;
+        this.maxKeysPerSecond = maxKeysPerSecond;
+    }
+
+    void finish(SweepState finalState, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = finalState;
+    }
+
+    boolean isFinished() {
+        return state == SweepState.COMPLETED || state == SweepState.CANCELLED || state == SweepState.FAILED;
+    }
+
+    SweepProgressResponse toResponse() {
+        return new SweepProgressResponse(id, target, target.pattern(), state, scanned.get(), deleted.get(),
+                startedAt, finishedAt, error);
+    }
+
+    Map<String, String> toHash() {
+        Map<String, String> hash = new HashMap<>();
+        hash.put("createdAt", String.valueOf(createdAt.toEpochMilli()));
+        hash.put("target", target.name());
+        hash.put("batchSize", String.valueOf(batchSize));
+        hash.put("maxKeysPerSecond", String.valueOf(maxKeysPerSecond));
+        hash.put("state", state.name());
+        hash.put("scanned", String.valueOf(scanned.get()));
+        hash.put("deleted", String.valueOf(deleted.get()));
+        if (cutoffMillis != null) {
+            hash.put("cutoffMillis", String.valueOf(cutoffMillis));
+        }
+        if (startedAt != null) {
+            hash.put("startedAt", String.valueOf(startedAt.toEpochMilli()));
+        }
+        if (finishedAt != null) {
+            hash.put("finishedAt", String.valueOf(finishedAt.toEpochMilli()));
+        }
+        if (error != null) {
+            hash.put("error", error);
+        }
+        return hash;
+    }
+
+    static SweepJob fromHash(UUID id, Map<String, String> hash) {
+        SweepJob job = new SweepJob(id, instant(hash.get("createdAt")), SweepTarget.valueOf(hash.get("target")),
+                hash.containsKey("cutoffMillis") ? Long.valueOf(hash.get("cutoffMillis")) : null,
+                Integer.parseInt(hash.get("batchSize")), Integer.parseInt(hash.get("maxKeysPerSecond")));
+        job.state = SweepState.valueOf(hash.get("state"));
+        job.scanned.set(Long.parseLong(hash.getOrDefault("scanned", "0")));
+        job.deleted.set(Long.parseLong(hash.getOrDefault("deleted", "0")));
+        job.startedAt = instant(hash.get("startedAt"));
+        job.finishedAt = instant(hash.get("finishedAt"));
+        job.error = hash.get("error");
+        job.cancelRequested = "1".equals(hash.get(SweepJobStore.CANCEL_FIELD));
+        return job;
+    }
+
+    private static Instant instant(String epochMillis) {
+        return epochMillis != null ? Instant.ofEpochMilli(Long.parseLong(epochMillis)) : null;
+    }
+}
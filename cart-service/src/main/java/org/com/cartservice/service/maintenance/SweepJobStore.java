@@ -0,0 +1,89 @@
+package org.com.cartservice.service.maintenance;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Очистки в Redis, чтобы прогресс и отмена работали с любого инстанса и переживали перезапуск:
+ * <ul>
+ *     <li>{@code sweep:cart:job:<id>} - хеш с параметрами и счетчиками, живет {@code retention};</li>
+ *     <li>{@code sweep:cart:jobs} - ZSET id по времени создания, последние {@code historySize};</li>
+ *     <li>{@code sweep:cart:job:<id>:lease} - аренда инстанса, который выполняет очистку. Очистку
+ *     без живой аренды подхватывает другой инстанс.</li>
+ * </ul>
+ */
+class SweepJobStore {
+
+    static final String CANCEL_FIELD = "cancel";
+
+    private static final String JOBS = "sweep:cart:jobs";
+    private static final String JOB_PREFIX = "sweep:cart:job:";
+    private static final String LEASE_SUFFIX = ":lease";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration retention;
+    private final int historySize;
+
+    SweepJobStore(StringRedisTemplate redisTemplate, Duration retention, int historySize) {
+        this.redisTemplate = redisTemplate;
+        this.retention = retention;
+        this.historySize = historySize;
+    }
+
+    void save(SweepJob job) {
+        String key = JOB_PREFIX + job.id;
+        Map<String, String> hash = job.toHash();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.hMSet(key, hash);
+            stringConnection.expire(key, retention.toSeconds());
+            stringConnection.zAdd(JOBS, job.createdAt.toEpochMilli(), job.id.toString());
+            stringConnection.zRemRange(JOBS, 0, -historySize - 1);
+            return null;
+        });
+    }
+
+    Optional<SweepJob> find(UUID id) {
+        Map<String, String> hash = redisTemplate.<String, String>opsForHash().entries(JOB_PREFIX + id);
+        return hash.isEmpty() ? Optional.empty() : Optional.of(SweepJob.fromHash(id, hash));
+    }
+
+    // Новые первыми; очистки с истекшим хешем пропускаются
+    List<SweepJob> findRecent() {
+        Set<String> ids = redisTemplate.opsForZSet().reverseRange(JOBS, 0, historySize - 1);
+        List<SweepJob> jobs = new ArrayList<>();
+        if (ids != null) {
+            ids.forEach(id -> find(UUID.fromString(id)).ifPresent(jobs::add));
+        }
+        return jobs;
+    }
+
+    void requestCancel(UUID id) {
+        redisTemplate.opsForHash().put(JOB_PREFIX + id, CANCEL_FIELD, "1");
+    }
+
+    boolean isCancelRequested(UUID id) {
+        return "1".equals(redisTemplate.opsForHash().get(JOB_PREFIX + id, CANCEL_FIELD));
+    }
+
+    boolean acquireLease(UUID id, String owner, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(JOB_PREFIX + id + LEASE_SUFFIX, owner, ttl));
+    }
+
+    void renewLease(UUID id, Duration ttl) {
+        redisTemplate.expire(JOB_PREFIX + id + LEASE_SUFFIX, ttl);
+    }
+
+    void releaseLease(UUID id) {
+        redisTemplate.delete(JOB_PREFIX + id + LEASE_SUFFIX);
+    }
+}
@@ -0,0 +1,9 @@
+package org.com.cartservice.service.maintenance;
+
+public enum SweepState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,24 @@
+package org.com.cartservice.service.maintenance;
+
+/**
+ * Что чистит sweeper.
+ * <ul>
+ *     <li>{@code LEGACY_CACHE} - JSON-кеш корзин {@code cart:<userId>}, оставшийся от прежней схемы;</li>
+ *     <li>{@code IDLE_CARTS} - активные корзины {@code cart:active:*}, не менявшиеся дольше {@code idleFor}.
+ *     Они уже записаны в БД (write-behind сбрасывает изменения за секунды) и поднимутся оттуда при обращении.</li>
+ * </ul>
+ */
+public enum SweepTarget {
+    LEGACY_CACHE("cart:[0-9]*"),
+    IDLE_CARTS("cart:active:*");
+
+    private final String pattern;
+
+    SweepTarget(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+}
@@ -0,0 +1,20 @@
+-- Очистка корзины-хеша: удаляются поля позиций (q:*, i:*), метаданные корзины остаются.
+-- KEYS[1] - хеш корзины, KEYS[2] - стрим write-behind, KEYS[3] - индекс активности (ZSET); ARGV: nowMillis, ttlMillis
+-- Возвращает HGETALL после изменения или nil, если корзины нет в Redis
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return false
+end
+local fields = redis.call('HKEYS', KEYS[1])
+for _, field in ipairs(fields) do
+    local prefix = string.sub(field, 1, 2)
+    if prefix == 'q:' or prefix == 'i:' then
+        redis.call('HDEL', KEYS[1], field)
+    end
+end
+redis.call('HSET', KEYS[1], 'updated', ARGV[1])
+redis.call('HINCRBY', KEYS[1], 'ver', 1)
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+-- Отметка для записи в БД - в том же скрипте, что и изменение: подтвержденное изменение не теряется
+redis.call('XADD', KEYS[2], '*', 'cart', KEYS[1])
+redis.call('ZADD', KEYS[3], ARGV[1], KEYS[1])
+return redis.call('HGETALL', KEYS[1])
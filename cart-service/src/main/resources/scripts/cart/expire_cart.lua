@@ -0,0 +1,17 @@
+-- Снятие брошенной корзины из Redis после того, как в БД она переведена в ABANDONED.
+-- KEYS[1] - хеш корзины, KEYS[2] - индекс активности (ZSET), KEYS[3] - стрим write-behind;
+-- ARGV: cutoffMillis, newCartId
+-- Если пользователь успел изменить корзину после выборки, ее нельзя удалять, но и старый id уже
+-- в архиве: корзина продолжает жить под новым id, write-behind запишет ее в БД новой строкой.
+-- Возвращает 1, если корзина удалена, 0 - если переименована
+local updated = tonumber(redis.call('HGET', KEYS[1], 'updated'))
+if updated == nil or updated < tonumber(ARGV[1]) then
+    redis.call('UNLINK', KEYS[1])
+    redis.call('ZREM', KEYS[2], KEYS[1])
+    return 1
+end
+redis.call('HSET', KEYS[1], 'id', ARGV[2])
+-- Новая версия: снимок, прочитанный до переименования, не должен вернуть старый id через CAS
+redis.call('HINCRBY', KEYS[1], 'ver', 1)
+redis.call('XADD', KEYS[3], '*', 'cart', KEYS[1])
+return 0
@@ -0,0 +1,27 @@
+-- Запись корзины-хеша целиком.
+-- KEYS[1] - хеш корзины, KEYS[2] - стрим write-behind, KEYS[3] - индекс активности (ZSET);
+-- ARGV: mode ('NX' - только если корзины нет, 'CAS' - заменить, если версия не менялась), ttlMillis,
+-- expectedVersion (для CAS), затем пары поле/значение
+-- Возвращает 1, если корзина записана, 0 - если в режиме NX она уже существовала,
+-- а в режиме CAS ее успели изменить (или удалить) после чтения
+if ARGV[1] == 'NX' then
+    if redis.call('EXISTS', KEYS[1]) == 1 then
+        return 0
+    end
+else
+    -- Хеши, записанные до появления версии, считаются версией 0
+    local current = redis.call('HGET', KEYS[1], 'ver')
+    if redis.call('EXISTS', KEYS[1]) == 0 or tonumber(current or '0') ~= tonumber(ARGV[3]) then
+        return 0
+    end
+    redis.call('DEL', KEYS[1])
+end
+redis.call('HSET', KEYS[1], unpack(ARGV, 4))
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+redis.call('ZADD', KEYS[3], redis.call('HGET', KEYS[1], 'updated'), KEYS[1])
+-- Корзина, поднятая из БД (NX), уже там есть с этой версией; замененную нужно записать
+if ARGV[1] ~= 'NX' then
+    redis.call('HINCRBY', KEYS[1], 'ver', 1)
+    redis.call('XADD', KEYS[2], '*', 'cart', KEYS[1])
+end
+return 1
@@ -0,0 +1,14 @@
+-- Удаление товара из корзины-хеша.
+-- KEYS[1] - хеш корзины, KEYS[2] - стрим write-behind, KEYS[3] - индекс активности (ZSET); ARGV: productId, nowMillis, ttlMillis
+-- Возвращает HGETALL после изменения или nil, если корзины нет в Redis
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return false
+end
+redis.call('HDEL', KEYS[1], 'q:' .. ARGV[1], 'i:' .. ARGV[1])
+redis.call('HSET', KEYS[1], 'updated', ARGV[2])
+redis.call('HINCRBY', KEYS[1], 'ver', 1)
+redis.call('PEXPIRE', KEYS[1], ARGV[3])
+-- Отметка для записи в БД - в том же скрипте, что и изменение: подтвержденное изменение не теряется
+redis.call('XADD', KEYS[2], '*', 'cart', KEYS[1])
+redis.call('ZADD', KEYS[3], ARGV[2], KEYS[1])
+return redis.call('HGETALL', KEYS[1])
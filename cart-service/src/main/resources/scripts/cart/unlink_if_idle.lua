@@ -0,0 +1,15 @@
+-- Удаление корзины-хеша, если она не менялась с cutoff (проверка и удаление атомарны:
+-- корзина, которую успели изменить между SCAN и удалением, останется).
+-- KEYS[1] - хеш корзины, KEYS[2] - индекс активности (ZSET); ARGV: cutoffMillis
+-- Возвращает 1, если ключ удален
+local updated = tonumber(redis.call('HGET', KEYS[1], 'updated'))
+if updated == nil then
+    redis.call('ZREM', KEYS[2], KEYS[1])
+    return 0
+end
+if updated >= tonumber(ARGV[1]) then
+    return 0
+end
+redis.call('UNLINK', KEYS[1])
+redis.call('ZREM', KEYS[2], KEYS[1])
+return 1
@@ -0,0 +1,130 @@
+package org.com.cartservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.com.cartservice.dto.response.CartSummaryResponse;
+import org.com.cartservice.model.Cart;
+import org.com.cartservice.model.CartItem;
+import org.com.cartservice.model.CartStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов на сценарий: регрессия к N+1 (EAGER, обход ленивых коллекций в цикле) ломает эти тесты.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=50"
+})
+class CartRepositoryFetchTest {
+
+    private static final long USER_ID = 7L;
+    private static final int ARCHIVED_CARTS = 10;
+    private static final int ITEMS_PER_CART = 3;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        Instant createdAt = Instant.parse("2025-01-01T00:00:00Z");
+        for (int i = 0; i < ARCHIVED_CARTS; i++) {
+            cartRepository.save(cart(CartStatus.ARCHIVED, createdAt.plusSeconds(i)));
+        }
+        cartRepository.save(cart(CartStatus.ACTIVE, createdAt.plusSeconds(ARCHIVED_CARTS)));
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+    }
+
+    @Test
+    void cartHistoryIsSingleQueryWithoutItems() {
+        List<CartSummaryResponse> history = cartRepository.findSummariesByUserId(USER_ID);
+
+        assertThat(history).hasSize(ARCHIVED_CARTS + 1);
+        assertThat(history).allSatisfy(summary -> assertThat(summary.itemCount()).isEqualTo(ITEMS_PER_CART));
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void activeCartLoadsItemsWithSingleQuery() {
+        Cart cart = cartRepository.findByUserIdAndStatus(USER_ID, CartStatus.ACTIVE).orElseThrow();
+
+        assertThat(cart.getCartItems()).hasSize(ITEMS_PER_CART);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void activeCartsOfManyUsersLoadWithSingleJoin() {
+        List<Long> otherUsers = List.of(100L, 101L, 102L, 103L, 104L);
+        otherUsers.forEach(userId -> cartRepository.save(cart(userId, CartStatus.ACTIVE, Instant.now())));
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+
+        List<Long> userIds = new ArrayList<>(otherUsers);
+        userIds.add(USER_ID);
+        userIds.add(999L);
+        List<Cart> carts = cartRepository.findWithItemsByUserIdInAndStatus(userIds, CartStatus.ACTIVE);
+
+        assertThat(carts).hasSize(otherUsers.size() + 1);
+        assertThat(carts).allSatisfy(cart -> assertThat(cart.getCartItems()).hasSize(ITEMS_PER_CART));
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void lazyItemsOfManyCartsAreBatchFetched() {
+        List<Cart> carts = cartRepository.findByUserIdOrderByCreatedAtDesc(USER_ID);
+        carts.forEach(cart -> cart.getCartItems().size());
+
+        assertThat(carts).hasSize(ARCHIVED_CARTS + 1);
+        // Один запрос корзин + один IN-запрос позиций на пачку из default_batch_fetch_size
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private Cart cart(CartStatus status, Instant createdAt) {
+        return cart(USER_ID, status, createdAt);
+    }
+
+    private Cart cart(Long userId, CartStatus status, Instant createdAt) {
+        Cart cart = Cart.builder()
+                .userId(userId)
+                .cartItems(new ArrayList<>())
+                .total(BigDecimal.ZERO)
+                .status(status)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+        for (int i = 0; i < ITEMS_PER_CART; i++) {
+            cart.addItem(CartItem.builder()
+                    .productId(UUID.randomUUID())
+                    .name("Product " + i)
+                    .price(BigDecimal.TEN)
+                    .quantity(1)
+                    .build());
+        }
+        return cart;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
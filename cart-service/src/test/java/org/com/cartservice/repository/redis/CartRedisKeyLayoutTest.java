@@ -0,0 +1,94 @@
+package org.com.cartservice.repository.redis;
+
+import io.lettuce.core.cluster.SlotHash;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Раскладка ключей корзины для Redis Cluster: все ключи одного вызова скрипта - в одном слоте,
+ * скрипты обращаются только к переданным KEYS. Сами скрипты без Redis здесь не выполняются.
+ */
+class CartRedisKeyLayoutTest {
+
+    private static final Pattern REDIS_CALL = Pattern.compile("redis\\.call\\('(\\w+)',\\s*([^,)]+)");
+
+    @Test
+    void scriptKeysOfOneCartShareClusterSlot() {
+        for (long userId = 1; userId <= 1_000; userId++) {
+            Set<Integer> slots = CartRedisRepository.keys(userId).stream()
+                    .map(SlotHash::getSlot)
+                    .collect(Collectors.toSet());
+            assertThat(slots).as("slots of user %d", userId).hasSize(1);
+        }
+    }
+
+    @Test
+    void shardsUseDistinctSlotsAndKeysKeepUserId() {
+        Set<Integer> slots = new HashSet<>();
+        for (int shard = 0; shard < CartRedisRepository.SHARDS; shard++) {
+            slots.add(SlotHash.getSlot(CartRedisRepository.activityIndex(shard)));
+        }
+        assertThat(slots).hasSize(CartRedisRepository.SHARDS);
+
+        String key = CartRedisRepository.key(123_456L);
+        assertThat(key).startsWith(CartRedisRepository.KEY_PREFIX);
+        assertThat(CartRedisRepository.userIdOf(key)).isEqualTo(123_456L);
+    }
+
+    @Test
+    void scriptsTouchOnlyKeysPassedInKeys() throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:scripts/cart/*.lua");
+        assertThat(scripts).isNotEmpty();
+        for (Resource script : scripts) {
+            String source = script.getContentAsString(StandardCharsets.UTF_8);
+            Matcher call = REDIS_CALL.matcher(source);
+            while (call.find()) {
+                assertThat(call.group(2).trim()).as("%s: %s", script.getFilename(), call.group())
+                        .startsWith("KEYS[");
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void findIdleMergesShardsOldestFirst() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        List<Object> perShard = new ArrayList<>();
+        for (int shard = 0; shard < CartRedisRepository.SHARDS; shard++) {
+            perShard.add(Set.of());
+        }
+        perShard.set(0, Set.of(tuple(16L, 300), tuple(32L, 500)));
+        perShard.set(1, Set.of(tuple(1L, 100), tuple(17L, 400)));
+        perShard.set(2, Set.of(tuple(2L, 200)));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(perShard);
+
+        CartRedisRepository repository = new CartRedisRepository(redisTemplate, Duration.ofDays(30));
+
+        assertThat(repository.findIdle(Instant.ofEpochMilli(1_000), 3)).containsExactly(1L, 2L, 16L);
+    }
+
+    private static DefaultTypedTuple<String> tuple(Long userId, double score) {
+        return new DefaultTypedTuple<>(CartRedisRepository.key(userId), score);
+    }
+}
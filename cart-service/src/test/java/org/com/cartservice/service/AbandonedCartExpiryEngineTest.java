@@ -0,0 +1,154 @@
+package org.com.cartservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.com.cartservice.kafka.event.CartAbandonedEvent;
+import org.com.cartservice.kafka.producer.CartEventPublisher;
+import org.com.cartservice.model.Cart;
+import org.com.cartservice.model.CartItem;
+import org.com.cartservice.model.CartStatus;
+import org.com.cartservice.repository.CartBatchRepository;
+import org.com.cartservice.repository.CartRepository;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Корзины, которых нет в индексе активности Redis (выгружены sweeper'ом или созданы до индекса),
+ * истекают по БД; пустые брошенные корзины тоже архивируются, но без события.
+ */
+@DataJpaTest
+@Import(CartBatchRepository.class)
+class AbandonedCartExpiryEngineTest {
+
+    private static final Instant LONG_AGO = Instant.now().minus(Duration.ofDays(30));
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartBatchRepository cartBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final Map<Long, RedisCart> redis = new HashMap<>();
+    private CartRedisRepository cartRedisRepository;
+    private CartEventPublisher cartEventPublisher;
+    private AbandonedCartExpiryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        cartRedisRepository = mock(CartRedisRepository.class);
+        cartEventPublisher = mock(CartEventPublisher.class);
+        // Индекс активности пуст - как после sweeper'а или до появления индекса
+        when(cartRedisRepository.findIdle(any(), anyInt())).thenReturn(List.of());
+        when(cartRedisRepository.findAll(any())).thenAnswer(call -> {
+            Map<Long, RedisCart> found = new HashMap<>();
+            call.<List<Long>>getArgument(0).forEach(userId -> {
+                if (redis.containsKey(userId)) {
+                    found.put(userId, redis.get(userId));
+                }
+            });
+            return found;
+        });
+        when(cartRedisRepository.expire(any(), any())).thenReturn(List.of());
+
+        engine = new AbandonedCartExpiryEngine(cartRedisRepository, cartBatchRepository, cartRepository,
+                cartEventPublisher, transactionManager, new SimpleMeterRegistry(), Duration.ofDays(7), 100, 10);
+    }
+
+    @Test
+    void sweptCartWithItemsIsAbandonedFromDatabase() {
+        Cart swept = save(1L, 2, LONG_AGO);
+
+        engine.tick();
+
+        assertThat(status(swept)).isEqualTo(CartStatus.ABANDONED);
+        ArgumentCaptor<CartAbandonedEvent> event = ArgumentCaptor.forClass(CartAbandonedEvent.class);
+        verify(cartEventPublisher).publishCartAbandoned(event.capture());
+        assertThat(event.getValue().getCartId()).isEqualTo(swept.getId());
+        assertThat(event.getValue().getItems()).hasSize(2);
+        // Корзину могли поднять в Redis после выборки - ее снимает тот же expire_cart.lua
+        verify(cartRedisRepository).expire(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void emptyIdleCartIsArchivedWithoutEvent() {
+        Cart empty = save(2L, 0, LONG_AGO);
+
+        engine.tick();
+
+        assertThat(status(empty)).isEqualTo(CartStatus.ABANDONED);
+        verify(cartEventPublisher, never()).publishCartAbandoned(any());
+    }
+
+    @Test
+    void cartStillInRedisIsReindexedInsteadOfExpired() {
+        Cart cached = save(3L, 1, LONG_AGO);
+        Cart fresh = save(4L, 1, Instant.now());
+        redis.put(3L, RedisCart.fromEntity(cached));
+
+        engine.tick();
+
+        assertThat(status(cached)).isEqualTo(CartStatus.ACTIVE);
+        assertThat(status(fresh)).isEqualTo(CartStatus.ACTIVE);
+        verify(cartRedisRepository).reindex(List.of(RedisCart.fromEntity(cached)));
+        verify(cartEventPublisher, never()).publishCartAbandoned(any());
+    }
+
+    private Cart save(Long userId, int items, Instant lastActivityAt) {
+        Cart cart = Cart.builder()
+                .userId(userId)
+                .cartItems(new ArrayList<>())
+                .total(BigDecimal.ZERO)
+                .status(CartStatus.ACTIVE)
+                .createdAt(lastActivityAt)
+                .updatedAt(lastActivityAt)
+                .lastActivityAt(lastActivityAt)
+                .build();
+        for (int i = 0; i < items; i++) {
+            cart.addItem(CartItem.builder()
+                    .productId(UUID.randomUUID())
+                    .name("Product " + i)
+                    .price(BigDecimal.TEN)
+                    .quantity(1)
+                    .build());
+        }
+        Cart saved = cartRepository.saveAndFlush(cart);
+        entityManager.clear();
+        return saved;
+    }
+
+    private CartStatus status(Cart cart) {
+        entityManager.clear();
+        return cartRepository.findById(cart.getId()).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,130 @@
+package org.com.cartservice.service;
+
+import org.com.cartservice.dto.response.CartItemResponse;
+import org.com.cartservice.dto.response.CartResponse;
+import org.com.cartservice.dto.response.ProductDto;
+import org.com.cartservice.exception.CartConflictException;
+import org.com.cartservice.model.Cart;
+import org.com.cartservice.model.CartItem;
+import org.com.cartservice.model.CartStatus;
+import org.com.cartservice.repository.CartRepository;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Восстановление корзины заменяет хеш через CAS по версии (put_cart.lua): при параллельном изменении
+ * с другого устройства корзина перечитывается и восстановленные позиции накладываются на свежее состояние.
+ * Сам скрипт без Redis не выполняется - проверяется контракт аргументов и поведение сервиса на его ответ.
+ */
+class CartServiceCasTest {
+
+    private static final Long USER_ID = 11L;
+    private static final UUID CART_ID = UUID.randomUUID();
+    private static final UUID RESTORED_PRODUCT = UUID.randomUUID();
+    private static final UUID ADDED_ELSEWHERE = UUID.randomUUID();
+    private static final Instant NOW = Instant.now();
+
+    private CartRedisRepository cartRedisRepository;
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        CartRepository cartRepository = mock(CartRepository.class);
+        ProductSnapshotCache productSnapshotCache = mock(ProductSnapshotCache.class);
+        cartRedisRepository = mock(CartRedisRepository.class);
+        when(cartRepository.findByUserIdAndStatusIn(any(), anyList())).thenReturn(List.of(archivedCart()));
+        when(productSnapshotCache.getAll(any())).thenReturn(Map.of(RESTORED_PRODUCT,
+                new ProductDto(RESTORED_PRODUCT, "Restored", new BigDecimal("2.50"), 10, true)));
+
+        cartService = new CartService(cartRepository, productSnapshotCache, cartRedisRepository,
+                mock(CartPersistenceService.class));
+        ReflectionTestUtils.setField(cartService, "maxCasAttempts", 3);
+    }
+
+    @Test
+    void concurrentChangeIsRereadAndMergedOnRetry() {
+        RedisCart read = new RedisCart(CART_ID, USER_ID, List.of(), NOW, NOW, 4);
+        RedisCart changedElsewhere = new RedisCart(CART_ID, USER_ID,
+                List.of(new RedisCart.Line(ADDED_ELSEWHERE, "Added elsewhere", 100, 1)), NOW, NOW, 5);
+        when(cartRedisRepository.find(USER_ID)).thenReturn(Optional.of(read), Optional.of(changedElsewhere));
+        when(cartRedisRepository.replace(any())).thenReturn(false, true);
+
+        CartResponse response = cartService.restoreLastCart(USER_ID);
+
+        ArgumentCaptor<RedisCart> replaced = ArgumentCaptor.forClass(RedisCart.class);
+        verify(cartRedisRepository, times(2)).replace(replaced.capture());
+        // Второй CAS ждет версию, прочитанную после конфликта
+        assertThat(replaced.getAllValues()).extracting(RedisCart::version).containsExactly(4L, 5L);
+        assertThat(response.cartItems()).extracting(CartItemResponse::productId)
+                .containsExactly(ADDED_ELSEWHERE, RESTORED_PRODUCT);
+    }
+
+    @Test
+    void persistentConflictFailsAfterMaxAttempts() {
+        when(cartRedisRepository.find(USER_ID))
+                .thenReturn(Optional.of(new RedisCart(CART_ID, USER_ID, List.of(), NOW, NOW, 1)));
+        when(cartRedisRepository.replace(any())).thenReturn(false);
+
+        assertThatThrownBy(() -> cartService.restoreLastCart(USER_ID)).isInstanceOf(CartConflictException.class);
+        verify(cartRedisRepository, times(3)).replace(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replacePassesExpectedVersionToScript() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+        CartRedisRepository repository = new CartRedisRepository(redisTemplate, Duration.ofDays(30));
+
+        boolean replaced = repository.replace(new RedisCart(CART_ID, USER_ID, List.of(), NOW, NOW, 7));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), args.capture());
+        // ARGV: mode, ttlMillis, expectedVersion, поля хеша
+        assertThat(args.getValue()[0]).isEqualTo("CAS");
+        assertThat(args.getValue()[2]).isEqualTo("7");
+        assertThat(replaced).isFalse();
+    }
+
+    private static Cart archivedCart() {
+        Cart cart = Cart.builder()
+                .userId(USER_ID)
+                .cartItems(new ArrayList<>())
+                .total(BigDecimal.ZERO)
+                .status(CartStatus.ARCHIVED)
+                .createdAt(NOW)
+                .updatedAt(NOW)
+                .build();
+        cart.addItem(CartItem.builder()
+                .productId(RESTORED_PRODUCT)
+                .name("Restored")
+                .price(BigDecimal.TEN)
+                .quantity(2)
+                .build());
+        return cart;
+    }
+}
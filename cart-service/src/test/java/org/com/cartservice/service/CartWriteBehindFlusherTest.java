@@ -0,0 +1,186 @@
+package org.com.cartservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.com.cartservice.model.Cart;
+import org.com.cartservice.model.CartStatus;
+import org.com.cartservice.repository.CartBatchRepository;
+import org.com.cartservice.repository.CartRepository;
+import org.com.cartservice.repository.redis.CartRedisRepository;
+import org.com.cartservice.repository.redis.RedisCart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Отметки одной корзины схлопываются в одну запись снимка; XACK - только после записи в БД,
+ * устаревший снимок не перетирает более свежую версию.
+ */
+@DataJpaTest
+@Import(CartBatchRepository.class)
+class CartWriteBehindFlusherTest {
+
+    private static final Long USER_ID = 7L;
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartBatchRepository cartBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final Map<Long, RedisCart> redis = new HashMap<>();
+    private final List<MapRecord<String, Object, Object>> stream = new ArrayList<>();
+    private StreamOperations<String, Object, Object> streamOps;
+    private CartRedisRepository cartRedisRepository;
+    private CartWriteBehindFlusher flusher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        streamOps = mock(StreamOperations.class);
+        when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        when(streamOps.pending(anyString(), anyString(), any(Range.class), anyLong()))
+                .thenReturn(new PendingMessages("cart-persist", List.of()));
+        // Стрим шарда корзины отдает накопленные отметки один раз, остальные шарды пусты
+        when(streamOps.read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset[].class)))
+                .thenAnswer(call -> {
+                    StreamOffset<String> offset = call.getArgument(2);
+                    if (!offset.getKey().equals(shardStream())) {
+                        return List.of();
+                    }
+                    List<MapRecord<String, Object, Object>> read = List.copyOf(stream);
+                    stream.clear();
+                    return read;
+                });
+
+        cartRedisRepository = mock(CartRedisRepository.class);
+        when(cartRedisRepository.findAll(any())).thenAnswer(call -> {
+            Map<Long, RedisCart> found = new HashMap<>();
+            call.<Collection<Long>>getArgument(0).forEach(userId -> {
+                if (redis.containsKey(userId)) {
+                    found.put(userId, redis.get(userId));
+                }
+            });
+            return found;
+        });
+
+        flusher = new CartWriteBehindFlusher(redisTemplate, cartRedisRepository, cartBatchRepository,
+                transactionManager, new SimpleMeterRegistry(), 100, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void mutationsOfOneCartAreCoalescedIntoOneWrite() {
+        UUID cartId = UUID.randomUUID();
+        redis.put(USER_ID, snapshot(cartId, 3, 2));
+        mark("1-0");
+        mark("2-0");
+        mark("3-0");
+
+        flusher.flush();
+
+        verify(cartRedisRepository).findAll(Set.of(USER_ID));
+        Cart cart = load(cartId);
+        assertThat(cart.getStatus()).isEqualTo(CartStatus.ACTIVE);
+        assertThat(cart.getVersion()).isEqualTo(3);
+        assertThat(cart.getCartItems()).hasSize(2);
+        verify(streamOps).acknowledge(shardStream(), "cart-persist", "1-0", "2-0", "3-0");
+        verify(streamOps).delete(shardStream(), "1-0", "2-0", "3-0");
+    }
+
+    @Test
+    void staleSnapshotDoesNotOverwriteNewerVersion() {
+        UUID cartId = UUID.randomUUID();
+        redis.put(USER_ID, snapshot(cartId, 5, 3));
+        mark("1-0");
+        flusher.flush();
+
+        // Повторная доставка старой отметки после того, как записана версия 5
+        redis.put(USER_ID, snapshot(cartId, 4, 1));
+        mark("2-0");
+        flusher.flush();
+
+        Cart cart = load(cartId);
+        assertThat(cart.getVersion()).isEqualTo(5);
+        assertThat(cart.getCartItems()).hasSize(3);
+    }
+
+    @Test
+    void failedWriteLeavesMarksPending() {
+        // Снимок без user_id не записать в БД - транзакция откатывается
+        redis.put(USER_ID, new RedisCart(UUID.randomUUID(), null, List.of(), NOW, NOW, 1));
+        mark("1-0");
+
+        flusher.flush();
+
+        verify(streamOps, never()).acknowledge(anyString(), anyString(), any(String[].class));
+        verify(streamOps, never()).delete(eq(shardStream()), any(String[].class));
+    }
+
+    private void mark(String id) {
+        stream.add(StreamRecords.newRecord()
+                .in(shardStream())
+                .withId(RecordId.of(id))
+                .ofMap(Map.<Object, Object>of("cart", CartRedisRepository.key(USER_ID))));
+    }
+
+    private static String shardStream() {
+        return CartRedisRepository.writeBehindStream(CartRedisRepository.shardOf(USER_ID));
+    }
+
+    private static RedisCart snapshot(UUID cartId, long version, int items) {
+        List<RedisCart.Line> lines = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            lines.add(new RedisCart.Line(UUID.randomUUID(), "Product " + i, 1000, 1));
+        }
+        return new RedisCart(cartId, USER_ID, lines, NOW, NOW, version);
+    }
+
+    private Cart load(UUID cartId) {
+        entityManager.clear();
+        Cart cart = cartRepository.findById(cartId).orElseThrow();
+        cart.getCartItems().size();
+        return cart;
+    }
+}
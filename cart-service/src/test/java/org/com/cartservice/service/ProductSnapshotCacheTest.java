@@ -0,0 +1,115 @@
+package org.com.cartservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.com.cartservice.controller.ProductServiceClient;
+import org.com.cartservice.dto.response.ProductDto;
+import org.com.cartservice.kafka.event.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Промахи грузятся одним запросом на товар или одной пачкой, события обновляют только закешированные товары.
+ */
+class ProductSnapshotCacheTest {
+
+    private ProductServiceClient productServiceClient;
+    private ProductSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        productServiceClient = mock(ProductServiceClient.class);
+        when(productServiceClient.getProduct(any())).thenAnswer(call -> product(call.getArgument(0), 5));
+        when(productServiceClient.getProducts(any())).thenAnswer(call -> call.<Collection<UUID>>getArgument(0).stream()
+                .map(id -> product(id, 5))
+                .toList());
+        cache = new ProductSnapshotCache(productServiceClient, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        UUID productId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        when(productServiceClient.getProduct(productId)).thenAnswer(call -> {
+            loads.incrementAndGet();
+            loading.await();
+            return product(productId, 5);
+        });
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ProductDto>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cache.get(productId)));
+            }
+            Thread.sleep(100);
+            loading.countDown();
+            for (Future<ProductDto> result : results) {
+                assertThat(result.get().id()).isEqualTo(productId);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void batchLoadsOnlyMissesInChunksOfHundred() {
+        UUID cached = UUID.randomUUID();
+        cache.get(cached);
+        List<UUID> ids = new ArrayList<>(IntStream.range(0, 150).mapToObj(i -> UUID.randomUUID()).toList());
+        ids.add(cached);
+
+        Map<UUID, ProductDto> snapshots = cache.getAll(ids);
+
+        assertThat(snapshots).hasSize(151);
+        verify(productServiceClient, times(2)).getProducts(any());
+        cache.getAll(ids);
+        verify(productServiceClient, times(2)).getProducts(any());
+    }
+
+    @Test
+    void eventsRefreshOnlyCachedProducts() {
+        UUID cachedId = UUID.randomUUID();
+        UUID otherId = UUID.randomUUID();
+        cache.get(cachedId);
+
+        cache.onProductChanged(new ProductChangedEvent(cachedId, "STOCK_CHANGED", null, null, 0, null));
+        cache.onProductChanged(new ProductChangedEvent(otherId, "UPDATED", "Other", BigDecimal.ONE, 3, true));
+
+        assertThat(cache.get(cachedId).stock()).isZero();
+        assertThat(cache.get(cachedId).name()).isEqualTo("Product");
+        verify(productServiceClient, times(1)).getProduct(cachedId);
+        // Событие по незакешированному товару не кладет его в кеш - значение берется из product-service
+        assertThat(cache.get(otherId).name()).isEqualTo("Product");
+
+        cache.onProductChanged(new ProductChangedEvent(cachedId, "DELETED", null, null, null, null));
+        cache.get(cachedId);
+        verify(productServiceClient, times(2)).getProduct(cachedId);
+    }
+
+    private static ProductDto product(UUID id, int stock) {
+        return new ProductDto(id, "Product", BigDecimal.TEN, stock, true);
+    }
+}
@@ -0,0 +1,46 @@
+package org.com.cartservice.service.maintenance;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Очистка, сохраненная в Redis, восстанавливается другим инстансом с теми же параметрами и счетчиками.
+ */
+class SweepJobTest {
+
+    @Test
+    void hashRoundTripKeepsParametersAndProgress() {
+        SweepJob job = new SweepJob(SweepTarget.IDLE_CARTS, 1_700_000_000_000L, 200, 1000);
+        job.state = SweepState.RUNNING;
+        job.startedAt = Instant.ofEpochMilli(1_700_000_100_000L);
+        job.scanned.set(1200);
+        job.deleted.set(300);
+
+        SweepJob restored = SweepJob.fromHash(job.id, job.toHash());
+
+        assertThat(restored.toResponse()).isEqualTo(job.toResponse());
+        assertThat(restored.createdAt).isEqualTo(Instant.ofEpochMilli(job.createdAt.toEpochMilli()));
+        assertThat(restored.cutoffMillis).isEqualTo(job.cutoffMillis);
+        assertThat(restored.batchSize).isEqualTo(200);
+        assertThat(restored.maxKeysPerSecond).isEqualTo(1000);
+        assertThat(restored.cancelRequested).isFalse();
+    }
+
+    @Test
+    void cancelFlagSetByAnotherInstanceIsRestored() {
+        SweepJob job = new SweepJob(SweepTarget.LEGACY_CACHE, null, 500, 5000);
+        Map<String, String> hash = new HashMap<>(job.toHash());
+        hash.put(SweepJobStore.CANCEL_FIELD, "1");
+
+        SweepJob restored = SweepJob.fromHash(job.id, hash);
+
+        assertThat(restored.cutoffMillis).isNull();
+        assertThat(restored.cancelRequested).isTrue();
+        assertThat(restored.isFinished()).isFalse();
+    }
+}
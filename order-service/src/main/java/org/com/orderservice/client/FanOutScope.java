@@ -0,0 +1,103 @@
+package org.com.orderservice.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Параллельный вызов независимых downstream-запросов с общим дедлайном.
+ * <p>
+ * Семантика как у {@code StructuredTaskScope.ShutdownOnFailure}: подзадачи живут не дольше scope,
+ * первая ошибка или истечение дедлайна прерывает остальные, {@link #join()} бросает эту ошибку.
+ * Сам StructuredTaskScope в JDK 21 - preview API, поэтому здесь его аналог на {@link ExecutorCompletionService}.
+ * Задачи выполняются на виртуальных потоках, так что блокирующий Feign-вызов не занимает платформенный поток.
+ * <pre>{@code
+ * try (FanOutScope scope = new FanOutScope(executor, deadline)) {
+ *     Supplier<A> a = scope.fork(() -> clientA.call());
+ *     Supplier<B> b = scope.fork(() -> clientB.call());
+ *     scope.join();
+ *     use(a.get(), b.get());
+ * }
+ * }</pre>
+ */
+public class FanOutScope implements AutoCloseable {
+
+    private final ExecutorCompletionService<Object> completionService;
+    private final List<Future<?>> forked = new ArrayList<>();
+    private final long deadlineNanos;
+    private boolean joined;
+
+    public FanOutScope(ExecutorService executor, Duration deadline) {
+        this.completionService = new ExecutorCompletionService<>(executor);
+        this.deadlineNanos = System.nanoTime() + deadline.toNanos();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Supplier<T> fork(Callable<? extends T> task) {
+        if (joined) {
+            throw new IllegalStateException("Scope already joined");
+        }
+        Future<Object> future = completionService.submit((Callable<Object>) task);
+        forked.add(future);
+        return () -> {
+            if (!joined) {
+                throw new IllegalStateException("Result is not available before join()");
+            }
+            return (T) future.resultNow();
+        };
+    }
+
+    /**
+     * Ждет все подзадачи до дедлайна. При первой ошибке отменяет остальные и бросает ее
+     * (RuntimeException - как есть, прочие - в обертке); по дедлайну - {@link FanOutTimeoutException}.
+     */
+    public void join() {
+        joined = true;
+        try {
+            for (int remaining = forked.size(); remaining > 0; remaining--) {
+                long waitNanos = deadlineNanos - System.nanoTime();
+                Future<Object> done = completionService.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new FanOutTimeoutException("Downstream calls did not complete before the deadline");
+                }
+                done.get();
+            }
+        } catch (ExecutionException e) {
+            cancelAll();
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Downstream call failed", e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for downstream calls", e);
+        } catch (RuntimeException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    private void cancelAll() {
+        forked.forEach(future -> future.cancel(true));
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    public static class FanOutTimeoutException extends RuntimeException {
+        public FanOutTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
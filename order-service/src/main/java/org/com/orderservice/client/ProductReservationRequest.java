@@ -0,0 +1,12 @@
+package org.com.orderservice.client;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ProductReservationRequest(
+    UUID orderId,
+    List<ProductStockUpdateRequest> items,
+    Long ttlSeconds
+) {
+
+}
@@ -1,10 +1,12 @@
 package org.com.orderservice.client;
 
 import io.swagger.v3.oas.annotations.Operation;
+import org.com.orderservice.dto.external.product_service.ProductResponseDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.UUID;
 
 @FeignClient(name = "product-service")
 public interface ProductServiceClient {
@@ -25,10 +27,27 @@ public interface ProductServiceClient {
     @PostMapping("/api/products/stock")
     void updateStock(@RequestBody ProductStockUpdateRequest request);
 
+    @Operation(summary = "Get products for cart (current prices), missing ids are omitted")
+    @PostMapping("/api/products/forCart/batch")
+    List<ProductResponseDto> getProductsForCart(@RequestBody List<UUID> ids);
+
 	@Operation(summary = "Check product availability")
 	@PostMapping("/api/products/availability")
 	ProductAvailabilityResponse checkAvailability(@RequestBody ProductAvailabilityRequest request);
 
+    @Operation(summary = "Reserve stock for order (idempotent by orderId)")
+    @PostMapping("/api/products/reservations")
+    void reserveStock(@RequestBody ProductReservationRequest request);
+
+    @Operation(summary = "Confirm order reservation")
+    @PostMapping("/api/products/reservations/orders/{orderId}/confirm")
+    void confirmOrderReservation(@PathVariable("orderId") UUID orderId,
+                                 @RequestBody List<ProductStockUpdateRequest> items);
+
+    @Operation(summary = "Cancel order reservation or return confirmed stock")
+    @DeleteMapping("/api/products/reservations/orders/{orderId}")
+    void cancelOrderReservation(@PathVariable("orderId") UUID orderId);
+
 
 
 
@@ -34,9 +34,30 @@ public class ProductServiceClientFallback implements ProductServiceClient {
         log.info("update stock exception");
     }
 
+    @Override
+    public List<ProductResponseDto> getProductsForCart(List<UUID> ids) {
+        log.info("get products for cart exception");
+        return null;
+    }
+
     @Override
     public ProductAvailabilityResponse checkAvailability(ProductAvailabilityRequest request) {
         log.info("check availability exception");
         return null;
     }
+
+    @Override
+    public void reserveStock(ProductReservationRequest request) {
+        log.info("reserve stock exception");
+    }
+
+    @Override
+    public void confirmOrderReservation(UUID orderId, List<ProductStockUpdateRequest> items) {
+        log.info("confirm order reservation exception");
+    }
+
+    @Override
+    public void cancelOrderReservation(UUID orderId) {
+        log.info("cancel order reservation exception");
+    }
 }
@@ -0,0 +1,10 @@
+package org.com.orderservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Фоновые задачи: OutboxRelay (отправка событий из outbox в Kafka) и OrderSagaOrchestrator (возобновление зависших саг)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
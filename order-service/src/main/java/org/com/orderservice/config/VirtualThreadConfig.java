@@ -0,0 +1,21 @@
+package org.com.orderservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Исполнитель для параллельных downstream-вызовов (см. FanOutScope): поток на задачу,
+ * виртуальный - блокирующие Feign-вызовы не ограничены размером пула.
+ * Обработку HTTP-запросов Tomcat на виртуальных потоках включает {@code spring.threads.virtual.enabled}.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService downstreamExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("downstream-", 0).factory());
+    }
+}
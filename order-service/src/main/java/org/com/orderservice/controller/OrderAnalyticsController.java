@@ -0,0 +1,96 @@
+package org.com.orderservice.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.orderservice.dto.response.AnalyticsResponse;
+import org.com.orderservice.service.analytics.OrderAnalyticsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/orders/analytics")
+@Tag(name = "Order Analytics", description = "Pre-aggregated order dashboards")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderAnalyticsController {
+
+    private final OrderAnalyticsService orderAnalyticsService;
+
+
+
+    @Operation(summary = "Orders and revenue per day")
+    @GetMapping("/days")
+    public ResponseEntity<List<AnalyticsResponse.ByDay>> byDay(
+            @RequestParam @Parameter(description = "First day, inclusive") LocalDate from,
+            @RequestParam @Parameter(description = "Last day, inclusive") LocalDate to
+    ){
+        try {
+            return ResponseEntity.ok(orderAnalyticsService.byDay(from, to));
+        } catch (Exception e) {
+            log.error("Error fetching daily analytics from {} to {}", from, to, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+    @Operation(summary = "Orders and amount per status")
+    @GetMapping("/statuses")
+    public ResponseEntity<List<AnalyticsResponse.ByStatus>> byStatus(
+            @RequestParam LocalDate from,
+            @RequestParam LocalDate to
+    ){
+        try {
+            return ResponseEntity.ok(orderAnalyticsService.byStatus(from, to));
+        } catch (Exception e) {
+            log.error("Error fetching status analytics from {} to {}", from, to, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+    @Operation(summary = "Orders and revenue per payment method")
+    @GetMapping("/payment-methods")
+    public ResponseEntity<List<AnalyticsResponse.ByPaymentMethod>> byPaymentMethod(
+            @RequestParam LocalDate from,
+            @RequestParam LocalDate to
+    ){
+        try {
+            return ResponseEntity.ok(orderAnalyticsService.byPaymentMethod(from, to));
+        } catch (Exception e) {
+            log.error("Error fetching payment method analytics from {} to {}", from, to, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+    @Operation(summary = "Top products by sales")
+    @GetMapping("/products")
+    public ResponseEntity<List<AnalyticsResponse.ByProduct>> topProducts(
+            @RequestParam LocalDate from,
+            @RequestParam LocalDate to,
+            @RequestParam(defaultValue = "20") int limit
+    ){
+        try {
+            return ResponseEntity.ok(orderAnalyticsService.topProducts(from, to, limit));
+        } catch (Exception e) {
+            log.error("Error fetching product analytics from {} to {}", from, to, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -8,13 +8,28 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.com.orderservice.dto.request.CreateOrderRequest;
 import org.com.orderservice.dto.request.UpdateOrderRequest;
+import org.com.orderservice.dto.response.CursorPage;
+import org.com.orderservice.dto.response.OrderAcceptedResponse;
 import org.com.orderservice.dto.response.OrderResponse;
+import org.com.orderservice.dto.response.OrderStatusResponse;
+import org.com.orderservice.dto.response.OrderSummaryResponse;
+import org.com.orderservice.dto.response.RevenueResponse;
+import org.com.orderservice.exception.OrderNotFoundException;
+import org.com.orderservice.idempotency.IdempotencyConflictException;
+import org.com.orderservice.idempotency.IdempotencyKeyReusedException;
+import org.com.orderservice.idempotency.IdempotencyStore;
+import org.com.orderservice.idempotency.IdempotentResult;
 import org.com.orderservice.model.OrderStatus;
 import org.com.orderservice.service.OrderService;
+import org.com.orderservice.service.OrderStatusStreamer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,20 +40,43 @@ import java.util.UUID;
 @Slf4j
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
+    private final IdempotencyStore idempotencyStore;
+    private final OrderStatusStreamer orderStatusStreamer;
 
 
 
-    @Operation(summary = "Create new order")
+    @Operation(summary = "Create new order (accepted asynchronously, poll status URL)")
     @PostMapping
-    public ResponseEntity<OrderResponse> createOrder(
+    public ResponseEntity<OrderAcceptedResponse> createOrder(
             @RequestHeader(name = "userId") @Parameter(description = "User ID") Long userId,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+            @Parameter(description = "Client-generated key; retries with the same key return the original response") String idempotencyKey,
             @Valid @RequestBody CreateOrderRequest request
     ){
         try {
             log.info("Creating order for user: {}", userId);
-            OrderResponse response = orderService.createOrder(userId, request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                OrderAcceptedResponse response = orderService.createOrder(userId, request);
+                return ResponseEntity.accepted().location(URI.create(response.statusUrl())).body(response);
+            }
+            // Ключ действует в пределах пользователя: чужой ключ не вернет чужой заказ
+            IdempotentResult<OrderAcceptedResponse> result = idempotencyStore.execute("order-create",
+                    userId + ":" + idempotencyKey, request, OrderAcceptedResponse.class,
+                    () -> orderService.createOrder(userId, request));
+            return ResponseEntity.accepted()
+                    .location(URI.create(result.body().statusUrl()))
+                    .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                    .body(result.body());
+        } catch (IdempotencyConflictException e) {
+            log.warn("Duplicate in-flight order request for user {}: {}", userId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IdempotencyKeyReusedException e) {
+            log.warn("Idempotency key of user {} reused with another request: {}", userId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
         } catch (Exception e) {
             log.error("Error creating order for user: {}", userId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -68,6 +106,40 @@ public class OrderController {
 
 
 
+    @Operation(summary = "Get order processing status")
+    @GetMapping("/{orderId}/status")
+    public ResponseEntity<OrderStatusResponse> getOrderStatus(
+            @PathVariable @Parameter(description = "Order ID") UUID orderId,
+            @RequestHeader("userId") Long userId
+    ){
+        try {
+            return ResponseEntity.ok(orderService.getOrderStatus(orderId, userId));
+        } catch (OrderNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error fetching status of order {} for user {}", orderId, userId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+
+    @Operation(summary = "Stream order processing status (SSE)")
+    @GetMapping(value = "/{orderId}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStatus(
+            @PathVariable @Parameter(description = "Order ID") UUID orderId,
+            @RequestHeader("userId") Long userId
+    ){
+        log.debug("Streaming status of order {} for user {}", orderId, userId);
+        return orderStatusStreamer.stream(orderId, userId);
+    }
+
+
+
+
+
     @Operation(summary = "List all orders")
     @GetMapping("/all")
     public ResponseEntity<List<OrderResponse>> getAllOrders(
@@ -86,15 +158,74 @@ public class OrderController {
 
 
 
+    @Operation(summary = "List all orders (keyset pagination, newest first)")
+    @GetMapping("/all/cursor")
+    public ResponseEntity<CursorPage<OrderSummaryResponse>> getAllOrdersPage(
+            @RequestParam(required = false) @Parameter(description = "Opaque cursor from the previous page") String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ){
+        try {
+            log.debug("Fetching orders page, cursor {}", cursor);
+            CursorPage<OrderSummaryResponse> orders = orderService.getAllOrders(cursor, limit);
+            return ResponseEntity.ok(orders);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid orders page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching all orders", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+
+    @Operation(summary = "Revenue per user for a period (paid, shipped and delivered orders)")
+    @GetMapping("/revenue/users")
+    public ResponseEntity<List<RevenueResponse.ByUser>> getRevenueByUser(
+            @RequestParam @Parameter(description = "Period start, inclusive (ISO-8601)") Instant from,
+            @RequestParam @Parameter(description = "Period end, exclusive (ISO-8601)") Instant to
+    ){
+        try {
+            return ResponseEntity.ok(orderService.getRevenueByUser(from, to));
+        } catch (Exception e) {
+            log.error("Error calculating revenue per user from {} to {}", from, to, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+
+    @Operation(summary = "Revenue per day for a period (paid, shipped and delivered orders)")
+    @GetMapping("/revenue/days")
+    public ResponseEntity<List<RevenueResponse.ByDay>> getRevenueByDay(
+            @RequestParam @Parameter(description = "Period start, inclusive (ISO-8601)") Instant from,
+            @RequestParam @Parameter(description = "Period end, exclusive (ISO-8601)") Instant to
+    ){
+        try {
+            return ResponseEntity.ok(orderService.getRevenueByDay(from, to));
+        } catch (Exception e) {
+            log.error("Error calculating revenue per day from {} to {}", from, to, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+
+
     @Operation(summary = "List user orders by status")
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getUserOrdersByStatus(
+    public ResponseEntity<List<OrderSummaryResponse>> getUserOrdersByStatus(
             @RequestHeader("userId") Long userId,
             @RequestParam(required = false) OrderStatus status
     ){
         try {
             log.debug("Fetching orders for user {} with status {}", userId, status);
-            List<OrderResponse> orders = orderService.getUserOrdersByStatus(userId, status);
+            List<OrderSummaryResponse> orders = orderService.getUserOrdersByStatus(userId, status);
             return ResponseEntity.ok(orders);
         } catch (Exception e) {
             log.error("Error fetching orders for user {}", userId, e);
@@ -108,12 +239,12 @@ public class OrderController {
 
     @Operation(summary = "List all user orders")
     @GetMapping("/allUserOrders")
-    public ResponseEntity<List<OrderResponse>> getAllUserOrders(
+    public ResponseEntity<List<OrderSummaryResponse>> getAllUserOrders(
             @RequestHeader("userId") Long userId
     ){
         try {
             log.debug("Fetching all orders for user {}", userId);
-            List<OrderResponse> orders = orderService.getUserOrders(userId);
+            List<OrderSummaryResponse> orders = orderService.getUserOrders(userId);
             return ResponseEntity.ok(orders);
         } catch (Exception e) {
             log.error("Error fetching orders for user {}", userId, e);
@@ -67,7 +67,8 @@ public interface OrderMapper {
 
     @Mappings({
             @Mapping(target="status",expression = "java(OrderStatus.CREATED)"),
-            @Mapping(target = "userId",expression = "java(userId)")})
+            @Mapping(target = "userId",expression = "java(userId)"),
+            @Mapping(target = "createdAt", expression = "java(java.time.Instant.now())")})
     Order toOrder(CreateOrderRequest createOrderRequest, @Context Long userId);
 
     @Mappings({
@@ -0,0 +1,44 @@
+package org.com.orderservice.dto.response;
+
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Строки дашбордов витрины аналитики заказов
+public final class AnalyticsResponse {
+
+    private AnalyticsResponse() {
+    }
+
+    public record ByDay(
+            LocalDate day,
+            long orders,
+            BigDecimal revenue
+    ) {
+    }
+
+    public record ByStatus(
+            OrderStatus status,
+            long orders,
+            BigDecimal amount
+    ) {
+    }
+
+    public record ByPaymentMethod(
+            PaymentMethod paymentMethod,
+            long orders,
+            BigDecimal revenue
+    ) {
+    }
+
+    public record ByProduct(
+            UUID productId,
+            long orders,
+            long quantity,
+            BigDecimal revenue
+    ) {
+    }
+}
@@ -0,0 +1,10 @@
+package org.com.orderservice.dto.response;
+
+import java.util.UUID;
+
+public record OrderAcceptedResponse(
+        UUID orderId,
+        String status,
+        String statusUrl
+) {
+}
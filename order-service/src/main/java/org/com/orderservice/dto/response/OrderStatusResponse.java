@@ -0,0 +1,13 @@
+package org.com.orderservice.dto.response;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record OrderStatusResponse(
+        UUID orderId,
+        String status,
+        String sagaStep,
+        String failureReason,
+        Instant updatedAt
+) {
+}
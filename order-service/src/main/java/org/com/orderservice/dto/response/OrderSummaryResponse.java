@@ -0,0 +1,23 @@
+package org.com.orderservice.dto.response;
+
+import org.com.orderservice.model.DeliveryType;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// Строка списка заказов: без позиций, читается JPQL-проекцией (см. OrderRepository.SUMMARY_SELECT)
+public record OrderSummaryResponse(
+        UUID id,
+        Long userId,
+        OrderStatus status,
+        BigDecimal total,
+        PaymentMethod paymentMethod,
+        DeliveryType deliveryType,
+        int itemCount,
+        Instant createdAt,
+        Instant updatedAt
+) {
+}
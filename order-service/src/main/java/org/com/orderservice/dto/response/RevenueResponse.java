@@ -0,0 +1,25 @@
+package org.com.orderservice.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Строки отчетов по выручке; суммы считаются в минимальных единицах и переводятся в BigDecimal только здесь
+public final class RevenueResponse {
+
+    private RevenueResponse() {
+    }
+
+    public record ByUser(
+            Long userId,
+            long orders,
+            BigDecimal revenue
+    ) {
+    }
+
+    public record ByDay(
+            LocalDate day,
+            long orders,
+            BigDecimal revenue
+    ) {
+    }
+}
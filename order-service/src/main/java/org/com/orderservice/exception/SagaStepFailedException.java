@@ -0,0 +1,10 @@
+package org.com.orderservice.exception;
+
+/**
+ * Шаг saga не может быть выполнен (пустая корзина, нет остатков) - повтор не поможет, нужна компенсация.
+ */
+public class SagaStepFailedException extends RuntimeException {
+    public SagaStepFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package org.com.orderservice.idempotency;
+
+/**
+ * Запрос с этим ключом идемпотентности еще выполняется - клиенту стоит повторить позже.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
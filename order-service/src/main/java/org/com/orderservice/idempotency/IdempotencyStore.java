@@ -0,0 +1,155 @@
+package org.com.orderservice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище ключей идемпотентности: {@code idempotency:<scope>:<key>} в Redis хранит
+ * {@code <sha256 запроса>|<ответ первого выполнения в JSON>} ({@code ttl}), пока операция выполняется -
+ * маркер {@code IN_PROGRESS|<sha256 запроса>} с коротким TTL, чтобы упавший узел не заблокировал ключ навсегда.
+ * Повтор ключа с другим телом запроса - ошибка клиента ({@link IdempotencyKeyReusedException}),
+ * а не повтор: сохраненный ответ ему не отдается.
+ * <p>
+ * Дубль определяется атомарным {@code SET NX}; {@link RecentKeysFilter} перед ним позволяет сразу читать
+ * ответ для ключей, которые этот узел уже видел, и не делать лишний запрос для новых ключей.
+ * Повтор возвращает сохраненный ответ, не обращаясь к Postgres.
+ * <p>
+ * Такой же пакет есть в order-service и payment-service: сервисы собираются и выкатываются отдельно
+ * и не делят общих артефактов (как и DTO Feign-клиентов), поэтому изменения вносятся в обе копии.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final char SEPARATOR = '|';
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RecentKeysFilter recentKeys;
+    private final Duration ttl;
+    private final Duration inProgressTtl;
+
+    public IdempotencyStore(StringRedisTemplate redisTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${idempotency.in-progress-ttl:PT30S}") Duration inProgressTtl,
+                            @Value("${idempotency.filter.expected-keys:1000000}") int expectedKeys,
+                            @Value("${idempotency.filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.inProgressTtl = inProgressTtl;
+        this.recentKeys = new RecentKeysFilter(expectedKeys, falsePositiveRate);
+    }
+
+    /**
+     * Выполняет {@code action} один раз на ключ. Повтор с тем же ключом и тем же {@code request}
+     * получает сохраненный ответ; если первый вызов еще не завершился - {@link IdempotencyConflictException};
+     * если {@code request} другой - {@link IdempotencyKeyReusedException}.
+     * Если {@code action} упал, ключ освобождается и запрос можно повторить; если не удалось сохранить
+     * ответ - результат все равно возвращается, а повтор получает {@link IdempotencyConflictException}.
+     */
+    public <T> IdempotentResult<T> execute(String scope, String key, Object request, Class<T> type, Supplier<T> action) {
+        String redisKey = KEY_PREFIX + scope + ":" + key;
+        String requestHash = fingerprint(request);
+
+        if (recentKeys.mightContain(redisKey)) {
+            String stored = redisTemplate.opsForValue().get(redisKey);
+            if (stored != null) {
+                return replay(redisKey, stored, requestHash, type);
+            }
+        }
+
+        Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(redisKey, IN_PROGRESS + SEPARATOR + requestHash, inProgressTtl);
+        if (!Boolean.TRUE.equals(acquired)) {
+            String stored = redisTemplate.opsForValue().get(redisKey);
+            if (stored != null) {
+                recentKeys.put(redisKey);
+                return replay(redisKey, stored, requestHash, type);
+            }
+            // Маркер истек между SET NX и GET - считаем, что первый вызов еще идет
+            throw new IdempotencyConflictException("Request with idempotency key " + key + " is in progress");
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            redisTemplate.delete(redisKey);
+            throw e;
+        }
+        saveResult(redisKey, requestHash, result);
+        return new IdempotentResult<>(result, false);
+    }
+
+    // Операция уже закоммичена: сбой записи ответа не должен превращать успех в 500. Маркер продлевается
+    // на полный ttl, чтобы повтор с этим ключом получил конфликт, а не выполнил операцию второй раз
+    private void saveResult(String redisKey, String requestHash, Object result) {
+        try {
+            redisTemplate.opsForValue().set(redisKey, requestHash + SEPARATOR + toJson(result), ttl);
+            recentKeys.put(redisKey);
+        } catch (RuntimeException e) {
+            log.error("Failed to store idempotent response for {}: {}", redisKey, e.getMessage(), e);
+            try {
+                redisTemplate.expire(redisKey, ttl);
+            } catch (RuntimeException expireFailure) {
+                log.warn("Failed to extend idempotency marker {}: {}", redisKey, expireFailure.getMessage());
+            }
+        }
+    }
+
+    private <T> IdempotentResult<T> replay(String redisKey, String stored, String requestHash, Class<T> type) {
+        int separator = stored.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalStateException("Corrupted idempotent response for " + redisKey);
+        }
+        String head = stored.substring(0, separator);
+        String tail = stored.substring(separator + 1);
+        if (IN_PROGRESS.equals(head)) {
+            if (!tail.equals(requestHash)) {
+                throw new IdempotencyKeyReusedException("Idempotency key " + redisKey + " is used by another request");
+            }
+            throw new IdempotencyConflictException("Request with idempotency key " + redisKey + " is in progress");
+        }
+        if (!head.equals(requestHash)) {
+            throw new IdempotencyKeyReusedException("Idempotency key " + redisKey + " is used by another request");
+        }
+        log.debug("Replaying stored response for {}", redisKey);
+        try {
+            return new IdempotentResult<>(objectMapper.readValue(tail, type), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupted idempotent response for " + redisKey, e);
+        }
+    }
+
+    // Отпечаток тела запроса: тот же JSON, что уходит в сервис, поэтому порядок полей стабилен
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint idempotent request " + request.getClass().getSimpleName(), e);
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent response " + result.getClass().getSimpleName(), e);
+        }
+    }
+}
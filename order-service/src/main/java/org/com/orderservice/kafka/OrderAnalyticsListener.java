@@ -0,0 +1,44 @@
+package org.com.orderservice.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.com.orderservice.kafka.outbox.OrderEventOutbox;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.service.analytics.OrderAnalyticsProjector;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+// Питает витрину аналитики событиями смены статуса из order-events (отдельная группа потребителей)
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderAnalyticsListener {
+
+    private static final String STATUS_CHANGED = "OrderStatusChanged";
+
+    private final OrderAnalyticsProjector orderAnalyticsProjector;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = OrderEventOutbox.ORDER_EVENTS_TOPIC, groupId = "order-service-analytics",
+            containerFactory = "orderEventsKafkaListenerContainerFactory")
+    public void onOrderEvent(ConsumerRecord<String, String> record) {
+        Header eventType = record.headers().lastHeader("eventType");
+        if (eventType == null || !STATUS_CHANGED.equals(new String(eventType.value(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        OrderStatusChangedEvent event;
+        try {
+            event = objectMapper.readValue(record.value(), OrderStatusChangedEvent.class);
+        } catch (JsonProcessingException e) {
+            log.error("Skipping malformed order event: {}", record.value(), e);
+            return;
+        }
+        orderAnalyticsProjector.onStatusChanged(event.orderId(), OrderStatus.valueOf(event.status()));
+    }
+}
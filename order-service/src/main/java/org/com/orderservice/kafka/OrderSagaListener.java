@@ -0,0 +1,33 @@
+package org.com.orderservice.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.orderservice.kafka.outbox.OrderEventOutbox;
+import org.com.orderservice.service.saga.OrderSagaOrchestrator;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderSagaListener {
+
+    private final OrderSagaOrchestrator orderSagaOrchestrator;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = OrderEventOutbox.ORDER_SAGA_TOPIC, groupId = "order-service-saga",
+            containerFactory = "orderEventsKafkaListenerContainerFactory")
+    public void onSagaStep(String payload) {
+        SagaStepEvent event;
+        try {
+            event = objectMapper.readValue(payload, SagaStepEvent.class);
+        } catch (JsonProcessingException e) {
+            log.error("Skipping malformed saga event: {}", payload, e);
+            return;
+        }
+        // Ошибки шага обрабатывает оркестратор; упавший шаг подхватит resumeStalledSagas
+        orderSagaOrchestrator.advance(event.orderId());
+    }
+}
@@ -0,0 +1,12 @@
+package org.com.orderservice.kafka;
+
+import java.util.UUID;
+
+public record OrderStatusChangedEvent(
+    UUID orderId,
+    Long userId,
+    String status,
+    String reason
+) {
+
+}
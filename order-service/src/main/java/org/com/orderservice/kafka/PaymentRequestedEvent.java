@@ -0,0 +1,16 @@
+package org.com.orderservice.kafka;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.com.orderservice.model.PaymentMethod;
+
+// Формат совпадает с OrderPaymentEvent в payment-service (поле amount)
+public record PaymentRequestedEvent(
+    UUID orderId,
+    Long userId,
+    BigDecimal amount,
+    PaymentMethod paymentMethod
+) {
+
+}
@@ -0,0 +1,13 @@
+package org.com.orderservice.kafka;
+
+import java.util.UUID;
+
+import org.com.orderservice.model.SagaStep;
+
+// Команда самому order-service: продолжить saga заказа после шага step
+public record SagaStepEvent(
+    UUID orderId,
+    SagaStep step
+) {
+
+}
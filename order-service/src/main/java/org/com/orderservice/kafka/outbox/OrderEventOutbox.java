@@ -0,0 +1,71 @@
+package org.com.orderservice.kafka.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.com.orderservice.kafka.OrderPaymentEvent;
+import org.com.orderservice.kafka.OrderStatusChangedEvent;
+import org.com.orderservice.kafka.PaymentRequestedEvent;
+import org.com.orderservice.kafka.SagaStepEvent;
+import org.com.orderservice.model.OutboxEvent;
+import org.com.orderservice.repository.OutboxEventRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Запись событий заказа в outbox. Вызывается только внутри транзакции заказа:
+ * откат заказа откатывает и событие, а запрос не ждет Kafka.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEventOutbox {
+
+    public static final String ORDER_EVENTS_TOPIC = "order-events";
+    public static final String ORDER_PAYMENT_TOPIC = "order-payment";
+    public static final String ORDER_SAGA_TOPIC = "order-saga";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCreated(OrderPaymentEvent event) {
+        append(ORDER_EVENTS_TOPIC, "OrderCreated", event.orderId().toString(), event);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderStatusChanged(OrderStatusChangedEvent event) {
+        append(ORDER_EVENTS_TOPIC, "OrderStatusChanged", event.orderId().toString(), event);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentRequested(PaymentRequestedEvent event) {
+        append(ORDER_PAYMENT_TOPIC, "PaymentRequested", event.orderId().toString(), event);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sagaStepCompleted(SagaStepEvent event) {
+        append(ORDER_SAGA_TOPIC, "SagaStepCompleted", event.orderId().toString(), event);
+    }
+
+    private void append(String topic, String eventType, String key, Object payload) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setAggregateId(key);
+        outboxEvent.setEventType(eventType);
+        outboxEvent.setTopic(topic);
+        outboxEvent.setMessageKey(key);
+        outboxEvent.setPayload(toJson(payload));
+        outboxEvent.setCreatedAt(Instant.now());
+        outboxEventRepository.save(outboxEvent);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox payload " + payload.getClass().getSimpleName(), e);
+        }
+    }
+}
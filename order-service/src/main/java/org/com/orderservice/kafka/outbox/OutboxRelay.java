@@ -0,0 +1,117 @@
+package org.com.orderservice.kafka.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.com.orderservice.model.OutboxEvent;
+import org.com.orderservice.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Переносит события из outbox в Kafka пачками.
+ * <p>
+ * Пачка отправляется целиком (send без ожидания каждой записи + один flush), затем ждем все подтверждения
+ * и удаляем из outbox только подтвержденные строки. Неподтвержденные остаются и уйдут в следующем цикле,
+ * то есть доставка at-least-once; потребители должны быть идемпотентны по orderId.
+ * Relay на кластере один (advisory lock), поэтому порядок событий сохраняется.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final long RELAY_LOCK_KEY = 0x6F7574626F78L; // "outbox"
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> outboxKafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, String> outboxKafkaTemplate,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.send-timeout:PT10S}") Duration sendTimeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            // Пока пачки полные - outbox отстает, забираем следующую без паузы
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay failed: {}", e.getMessage());
+        }
+    }
+
+    private int publishBatch() {
+        if (!outboxEventRepository.tryAcquireRelayLock(RELAY_LOCK_KEY)) {
+            return 0;
+        }
+        List<OutboxEvent> batch = outboxEventRepository.findNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            ProducerRecord<String, String> record =
+                    new ProducerRecord<>(event.getTopic(), event.getMessageKey(), event.getPayload());
+            record.headers().add("eventType", event.getEventType().getBytes(StandardCharsets.UTF_8));
+            futures.add(outboxKafkaTemplate.send(record));
+        }
+        outboxKafkaTemplate.flush();
+
+        List<Long> published = new ArrayList<>(batch.size());
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (int i = 0; i < batch.size(); i++) {
+            if (awaitSent(futures.get(i), deadline, batch.get(i))) {
+                published.add(batch.get(i).getId());
+            }
+        }
+        outboxEventRepository.deleteAllByIdInBatch(published);
+
+        if (published.size() < batch.size()) {
+            log.warn("Outbox relay published {} of {} events, the rest will be retried", published.size(), batch.size());
+        } else {
+            log.debug("Outbox relay published {} events", published.size());
+        }
+        return published.size();
+    }
+
+    private boolean awaitSent(CompletableFuture<SendResult<String, String>> future, long deadline, OutboxEvent event) {
+        try {
+            future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Failed to publish outbox event {} ({}) to {}: {}",
+                    event.getId(), event.getEventType(), event.getTopic(), e.getMessage());
+            return false;
+        }
+    }
+}
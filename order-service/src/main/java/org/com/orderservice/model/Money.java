@@ -0,0 +1,29 @@
+package org.com.orderservice.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежные суммы в минимальных единицах (копейки/центы) в {@code long}.
+ * На горячем пути (итог заказа, отчеты по выручке) считаем в long без создания BigDecimal;
+ * BigDecimal - только на границе API, с той же шкалой, что у колонок {@code precision = 10, scale = 2}.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long lineTotal(long unitPriceMinor, int quantity) {
+        return Math.multiplyExact(unitPriceMinor, quantity);
+    }
+}
@@ -2,10 +2,12 @@ package org.com.orderservice.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
@@ -15,7 +17,10 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_user_id_created_at", columnList = "user_id, created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,10 +38,19 @@ public class Order {
     @Column(name = "status", nullable = false)
     private OrderStatus status;
 
+    // Итог считается один раз при записи позиций (recalculateTotal) и хранится;
+    // total_minor - та же сумма в минимальных единицах для агрегатов в SQL. Сеттеров нет:
+    // пишет оба поля только recalculateTotal, строки до появления колонки дозаполняет OrderTotalsBackfill
     @NotNull
+    @Setter(AccessLevel.NONE)
     @Column(name = "total", nullable = false, precision = 10, scale = 2)
     private BigDecimal total;
 
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0")
+    @Column(name = "total_minor", nullable = false)
+    private long totalMinor;
+
     @NotNull
     @Column(name = "shipping_address", nullable = false)
     private String shippingAddress;
@@ -54,7 +68,9 @@ public class Order {
     @Column(name = "delivery_type", nullable = false)
     private DeliveryType deliveryType;
 
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+    // LAZY: позиции нужны только карточке заказа и saga - они грузят их через @EntityGraph,
+    // списки читают OrderSummaryResponse без позиций
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     private List<OrderItem> orderItems = new ArrayList<>();
 
     @NotNull
@@ -64,17 +80,33 @@ public class Order {
     @Column(name = "updated_at")
     private Instant updatedAt;
 
+    // Состояние saga создания заказа (см. OrderSagaOrchestrator)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "saga_step")
+    private SagaStep sagaStep;
+
+    // DEFAULT 0: ddl-auto добавляет колонку NOT NULL в таблицу, где уже есть заказы
+    @ColumnDefault("0")
+    @Column(name = "saga_attempts", nullable = false)
+    private int sagaAttempts;
+
+    // Аренда шага: пока не истекла, шаг выполняет другой обработчик
+    @Column(name = "saga_lease_until")
+    private Instant sagaLeaseUntil;
+
+    @Column(name = "failure_reason")
+    private String failureReason;
+
     public void addItem(OrderItem item) {
         orderItems.add(item);
         item.setOrder(this);
     }
-    @Transient
-    public BigDecimal getTotal() {
-        if (orderItems == null || orderItems.isEmpty()) {
-            return BigDecimal.ZERO;
+    public void recalculateTotal() {
+        long sum = 0;
+        for (OrderItem item : orderItems) {
+            sum = Math.addExact(sum, Money.lineTotal(Money.toMinor(item.getPrice()), item.getQuantity()));
         }
-        return orderItems.stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.totalMinor = sum;
+        this.total = Money.fromMinor(sum);
     }
 }
\ No newline at end of file
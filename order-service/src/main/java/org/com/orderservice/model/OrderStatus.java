@@ -1,5 +1,6 @@
 package org.com.orderservice.model;
 
 public enum OrderStatus {
-    CREATED, PAID, SHIPPED, DELIVERED, CANCELLED, PENDING_PAYMENT
+    // PENDING - заказ принят, saga еще выполняется; FAILED - saga не прошла, резервы возвращены
+    PENDING, CREATED, PAID, SHIPPED, DELIVERED, CANCELLED, PENDING_PAYMENT, FAILED
 }
@@ -0,0 +1,14 @@
+package org.com.orderservice.model;
+
+/**
+ * Шаг saga создания заказа: последний успешно завершенный этап.
+ * STARTED -> CART_LOADED -> STOCK_RESERVED -> CART_CLEARED -> COMPLETED;
+ * при ошибке начиная с шага резерва - COMPENSATING (снятие резерва заказа) -> FAILED.
+ */
+public enum SagaStep {
+    STARTED, CART_LOADED, STOCK_RESERVED, CART_CLEARED, COMPLETED, COMPENSATING, FAILED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
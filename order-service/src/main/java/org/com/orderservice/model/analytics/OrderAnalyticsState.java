@@ -0,0 +1,40 @@
+package org.com.orderservice.model.analytics;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Последнее учтенное витриной состояние заказа. По нему проектор знает, из какой корзины агрегатов
+ * вычесть заказ при смене статуса, и отбрасывает повторно доставленные события.
+ */
+@Entity
+@Table(name = "order_analytics_state")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderAnalyticsState {
+    @Id
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OrderStatus status;
+
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Column(name = "total_minor", nullable = false)
+    private long totalMinor;
+}
@@ -0,0 +1,55 @@
+package org.com.orderservice.model.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Предагрегированная строка витрины: заказы и выручка за день в разрезе статуса и способа оплаты.
+ * Обновляется инкрементально проектором событий (upsert в OrderStatsRepository), orders не читается.
+ * Срезы по дню, статусу и способу оплаты - GROUP BY по этой маленькой таблице.
+ */
+@Entity
+@Table(name = "order_stats_daily")
+@IdClass(OrderDailyStats.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderDailyStats {
+    @Id
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OrderStatus status;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Column(name = "orders", nullable = false)
+    private long orders;
+
+    @Column(name = "revenue_minor", nullable = false)
+    private long revenueMinor;
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private OrderStatus status;
+        private PaymentMethod paymentMethod;
+    }
+}
@@ -0,0 +1,48 @@
+package org.com.orderservice.model.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Продажи товара за день по оформленным заказам (CREATED и дальше); отмена или сбой заказа вычитает его позиции.
+ */
+@Entity
+@Table(name = "order_stats_product")
+@IdClass(ProductDailyStats.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductDailyStats {
+    @Id
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private UUID productId;
+
+    @Column(name = "orders", nullable = false)
+    private long orders;
+
+    @Column(name = "quantity", nullable = false)
+    private long quantity;
+
+    @Column(name = "revenue_minor", nullable = false)
+    private long revenueMinor;
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private UUID productId;
+    }
+}
@@ -0,0 +1,9 @@
+package org.com.orderservice.repository;
+
+import org.com.orderservice.model.analytics.OrderAnalyticsState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface OrderAnalyticsStateRepository extends JpaRepository<OrderAnalyticsState, UUID> {
+}
@@ -1,19 +1,117 @@
 package org.com.orderservice.repository;
 
+import org.com.orderservice.dto.response.OrderSummaryResponse;
 import org.com.orderservice.model.Order;
 import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.SagaStep;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
-    List<Order> findByUserId(Long userId);
-
-    List<Order> findByUserIdAndStatus(Long userId, OrderStatus status);
+    String SUMMARY_SELECT = "SELECT new org.com.orderservice.dto.response.OrderSummaryResponse(" +
+            "o.id, o.userId, o.status, o.total, o.paymentMethod, o.deliveryType, SIZE(o.orderItems), o.createdAt, o.updatedAt) " +
+            "FROM Order o ";
 
     // Найти заказы по статусу
     List<Order> findByStatus(OrderStatus status);
+
+    // Только строка заказа, без позиций (статус, отмена без возврата товаров)
     Optional<Order> findByIdAndUserId(UUID id, Long userId);
+
+    // Заказ с позициями одним запросом (LEFT JOIN) - карточка заказа, отмена, saga
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsByIdAndUserId(UUID id, Long userId);
+
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsById(UUID id);
+
+    // Все заказы с позициями одним запросом - для старого /orders/all
+    @EntityGraph(attributePaths = "orderItems")
+    @Query("SELECT o FROM Order o")
+    List<Order> findAllWithItems();
+
+    // Списки заказов - проекция без позиций: один SELECT вместо 1 + N
+    @Query(SUMMARY_SELECT + "WHERE o.userId = :userId AND (:status IS NULL OR o.status = :status) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> findSummariesByUserId(@Param("userId") Long userId,
+                                                     @Param("status") OrderStatus status);
+
+    // Захват шага saga: успешен, только если шаг не сменился и аренда свободна
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.sagaLeaseUntil = :leaseUntil, o.sagaAttempts = o.sagaAttempts + 1 " +
+            "WHERE o.id = :id AND o.sagaStep = :step " +
+            "AND (o.sagaLeaseUntil IS NULL OR o.sagaLeaseUntil < :now)")
+    int claimSagaStep(@Param("id") UUID id,
+                      @Param("step") SagaStep step,
+                      @Param("now") Instant now,
+                      @Param("leaseUntil") Instant leaseUntil);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status = org.com.orderservice.model.OrderStatus.PENDING " +
+            "AND o.updatedAt < :stalledBefore " +
+            "AND (o.sagaLeaseUntil IS NULL OR o.sagaLeaseUntil < :now) " +
+            "ORDER BY o.updatedAt")
+    List<UUID> findStalledSagas(@Param("stalledBefore") Instant stalledBefore,
+                                @Param("now") Instant now,
+                                Limit limit);
+
+    // Keyset-пагинация по (created_at, id). Условие createdAt <= :createdAt дает границу для индекса,
+    // поэтому глубокая страница читает столько же строк, сколько первая
+    @Query(SUMMARY_SELECT + "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> findFirstPage(Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE o.createdAt <= :createdAt " +
+            "AND (o.createdAt < :createdAt OR o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> findPageAfter(@Param("createdAt") Instant createdAt,
+                              @Param("id") UUID id,
+                              Limit limit);
+
+    // Строки, записанные до появления total_minor, получили DEFAULT 0 - пересчитываем из total.
+    // Повторный запуск ничего не меняет: условие отбирает только не заполненные строки
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE orders SET total_minor = ROUND(total * 100) WHERE total_minor = 0 AND total <> 0",
+            nativeQuery = true)
+    int backfillTotalMinor();
+
+    // Агрегаты выручки по хранимому total_minor (bigint): SUM в БД, без чтения позиций.
+    // По пользователю - индекс (user_id, created_at), по дням - (created_at, id)
+    @Query("SELECT o.userId AS userId, COUNT(o) AS orders, SUM(o.totalMinor) AS revenueMinor FROM Order o " +
+            "WHERE o.status IN :statuses AND o.createdAt >= :from AND o.createdAt < :to " +
+            "GROUP BY o.userId ORDER BY SUM(o.totalMinor) DESC")
+    List<UserRevenueView> sumRevenueByUser(@Param("statuses") Collection<OrderStatus> statuses,
+                                           @Param("from") Instant from,
+                                           @Param("to") Instant to);
+
+    @Query("SELECT cast(o.createdAt AS LocalDate) AS day, COUNT(o) AS orders, SUM(o.totalMinor) AS revenueMinor FROM Order o " +
+            "WHERE o.status IN :statuses AND o.createdAt >= :from AND o.createdAt < :to " +
+            "GROUP BY cast(o.createdAt AS LocalDate) ORDER BY cast(o.createdAt AS LocalDate)")
+    List<DailyRevenueView> sumRevenueByDay(@Param("statuses") Collection<OrderStatus> statuses,
+                                           @Param("from") Instant from,
+                                           @Param("to") Instant to);
+
+    interface UserRevenueView {
+        Long getUserId();
+        long getOrders();
+        long getRevenueMinor();
+    }
+
+    interface DailyRevenueView {
+        LocalDate getDay();
+        long getOrders();
+        long getRevenueMinor();
+    }
 }
@@ -0,0 +1,53 @@
+package org.com.orderservice.repository;
+
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+import org.com.orderservice.model.analytics.OrderDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderStatsRepository extends JpaRepository<OrderDailyStats, OrderDailyStats.Key>, OrderStatsRepositoryCustom {
+
+    // Выручка учитывается только по статусам из :revenueStatuses, количество - по всем
+    @Query("SELECT s.day AS day, SUM(s.orders) AS orders, " +
+            "SUM(CASE WHEN s.status IN :revenueStatuses THEN s.revenueMinor ELSE 0 END) AS revenueMinor " +
+            "FROM OrderDailyStats s WHERE s.day BETWEEN :from AND :to GROUP BY s.day ORDER BY s.day")
+    List<DayView> sumByDay(@Param("from") LocalDate from,
+                           @Param("to") LocalDate to,
+                           @Param("revenueStatuses") Collection<OrderStatus> revenueStatuses);
+
+    @Query("SELECT s.status AS status, SUM(s.orders) AS orders, SUM(s.revenueMinor) AS revenueMinor " +
+            "FROM OrderDailyStats s WHERE s.day BETWEEN :from AND :to GROUP BY s.status")
+    List<StatusView> sumByStatus(@Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
+
+    @Query("SELECT s.paymentMethod AS paymentMethod, SUM(s.orders) AS orders, " +
+            "SUM(CASE WHEN s.status IN :revenueStatuses THEN s.revenueMinor ELSE 0 END) AS revenueMinor " +
+            "FROM OrderDailyStats s WHERE s.day BETWEEN :from AND :to GROUP BY s.paymentMethod")
+    List<PaymentMethodView> sumByPaymentMethod(@Param("from") LocalDate from,
+                                               @Param("to") LocalDate to,
+                                               @Param("revenueStatuses") Collection<OrderStatus> revenueStatuses);
+
+    interface DayView {
+        LocalDate getDay();
+        long getOrders();
+        long getRevenueMinor();
+    }
+
+    interface StatusView {
+        OrderStatus getStatus();
+        long getOrders();
+        long getRevenueMinor();
+    }
+
+    interface PaymentMethodView {
+        PaymentMethod getPaymentMethod();
+        long getOrders();
+        long getRevenueMinor();
+    }
+}
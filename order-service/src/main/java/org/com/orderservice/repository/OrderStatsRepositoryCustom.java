@@ -0,0 +1,9 @@
+package org.com.orderservice.repository;
+
+import java.time.LocalDate;
+
+public interface OrderStatsRepositoryCustom {
+
+    // Атомарный инкремент ячейки (день, статус, способ оплаты); отрицательные delta вычитают заказ из старой ячейки
+    void increment(LocalDate day, String status, String paymentMethod, long orders, long revenueMinor);
+}
@@ -0,0 +1,42 @@
+package org.com.orderservice.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Upsert ячейки витрины: {@code ON CONFLICT DO UPDATE} на Postgres, {@code MERGE} на остальных БД (H2 в тестах).
+ * На Postgres остается ON CONFLICT: в отличие от MERGE он атомарен при одновременной вставке одной ячейки.
+ */
+class OrderStatsRepositoryCustomImpl implements OrderStatsRepositoryCustom {
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO order_stats_daily (stat_day, status, payment_method, orders, revenue_minor) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (stat_day, status, payment_method) DO UPDATE SET " +
+            "orders = order_stats_daily.orders + EXCLUDED.orders, " +
+            "revenue_minor = order_stats_daily.revenue_minor + EXCLUDED.revenue_minor";
+    private static final String UPSERT_MERGE =
+            "MERGE INTO order_stats_daily t USING (VALUES (CAST(? AS DATE), CAST(? AS VARCHAR), CAST(? AS VARCHAR), " +
+            "CAST(? AS BIGINT), CAST(? AS BIGINT))) AS s(stat_day, status, payment_method, orders, revenue_minor) " +
+            "ON t.stat_day = s.stat_day AND t.status = s.status AND t.payment_method = s.payment_method " +
+            "WHEN MATCHED THEN UPDATE SET orders = t.orders + s.orders, revenue_minor = t.revenue_minor + s.revenue_minor " +
+            "WHEN NOT MATCHED THEN INSERT (stat_day, status, payment_method, orders, revenue_minor) " +
+            "VALUES (s.stat_day, s.status, s.payment_method, s.orders, s.revenue_minor)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsert;
+
+    OrderStatsRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.upsert = "PostgreSQL".equalsIgnoreCase(database) ? UPSERT_POSTGRES : UPSERT_MERGE;
+    }
+
+    @Override
+    public void increment(LocalDate day, String status, String paymentMethod, long orders, long revenueMinor) {
+        jdbcTemplate.update(upsert, day, status, paymentMethod, orders, revenueMinor);
+    }
+}
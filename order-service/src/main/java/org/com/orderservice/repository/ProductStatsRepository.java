@@ -0,0 +1,29 @@
+package org.com.orderservice.repository;
+
+import org.com.orderservice.model.analytics.ProductDailyStats;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProductStatsRepository extends JpaRepository<ProductDailyStats, ProductDailyStats.Key>, ProductStatsRepositoryCustom {
+
+    @Query("SELECT s.productId AS productId, SUM(s.orders) AS orders, SUM(s.quantity) AS quantity, " +
+            "SUM(s.revenueMinor) AS revenueMinor " +
+            "FROM ProductDailyStats s WHERE s.day BETWEEN :from AND :to " +
+            "GROUP BY s.productId ORDER BY SUM(s.revenueMinor) DESC")
+    List<ProductView> topProducts(@Param("from") LocalDate from,
+                                  @Param("to") LocalDate to,
+                                  Limit limit);
+
+    interface ProductView {
+        UUID getProductId();
+        long getOrders();
+        long getQuantity();
+        long getRevenueMinor();
+    }
+}
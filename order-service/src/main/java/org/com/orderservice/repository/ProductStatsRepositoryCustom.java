@@ -0,0 +1,10 @@
+package org.com.orderservice.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface ProductStatsRepositoryCustom {
+
+    // Атомарный инкремент продаж товара за день; отрицательные delta вычитают позиции отмененного заказа
+    void increment(LocalDate day, UUID productId, long orders, long quantity, long revenueMinor);
+}
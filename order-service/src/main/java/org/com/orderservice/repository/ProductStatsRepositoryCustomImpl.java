@@ -0,0 +1,43 @@
+package org.com.orderservice.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Upsert как в OrderStatsRepositoryCustomImpl: ON CONFLICT на Postgres, MERGE на H2
+class ProductStatsRepositoryCustomImpl implements ProductStatsRepositoryCustom {
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO order_stats_product (stat_day, product_id, orders, quantity, revenue_minor) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (stat_day, product_id) DO UPDATE SET " +
+            "orders = order_stats_product.orders + EXCLUDED.orders, " +
+            "quantity = order_stats_product.quantity + EXCLUDED.quantity, " +
+            "revenue_minor = order_stats_product.revenue_minor + EXCLUDED.revenue_minor";
+    private static final String UPSERT_MERGE =
+            "MERGE INTO order_stats_product t USING (VALUES (CAST(? AS DATE), CAST(? AS UUID), " +
+            "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+            "AS s(stat_day, product_id, orders, quantity, revenue_minor) " +
+            "ON t.stat_day = s.stat_day AND t.product_id = s.product_id " +
+            "WHEN MATCHED THEN UPDATE SET orders = t.orders + s.orders, quantity = t.quantity + s.quantity, " +
+            "revenue_minor = t.revenue_minor + s.revenue_minor " +
+            "WHEN NOT MATCHED THEN INSERT (stat_day, product_id, orders, quantity, revenue_minor) " +
+            "VALUES (s.stat_day, s.product_id, s.orders, s.quantity, s.revenue_minor)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsert;
+
+    ProductStatsRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.upsert = "PostgreSQL".equalsIgnoreCase(database) ? UPSERT_POSTGRES : UPSERT_MERGE;
+    }
+
+    @Override
+    public void increment(LocalDate day, UUID productId, long orders, long quantity, long revenueMinor) {
+        jdbcTemplate.update(upsert, day, productId, orders, quantity, revenueMinor);
+    }
+}
@@ -1,48 +1,58 @@
 package org.com.orderservice.service;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.com.orderservice.client.CartServiceClient;
 import org.com.orderservice.client.ProductServiceClient;
-import org.com.orderservice.dto.external.cart_service.CartResponse;
 import org.com.orderservice.dto.mapper.OrderMapper;
 import org.com.orderservice.dto.request.CreateOrderRequest;
+import org.com.orderservice.dto.request.OrderCursor;
 import org.com.orderservice.dto.request.UpdateOrderRequest;
+import org.com.orderservice.dto.response.CursorPage;
+import org.com.orderservice.dto.response.OrderAcceptedResponse;
 import org.com.orderservice.dto.response.OrderResponse;
+import org.com.orderservice.dto.response.OrderStatusResponse;
+import org.com.orderservice.dto.response.OrderSummaryResponse;
+import org.com.orderservice.dto.response.RevenueResponse;
 import org.com.orderservice.exception.OrderCancellationException;
 import org.com.orderservice.exception.OrderNotFoundException;
-import org.com.orderservice.kafka.KafkaProducerService;
+import org.com.orderservice.kafka.OrderStatusChangedEvent;
+import org.com.orderservice.kafka.SagaStepEvent;
+import org.com.orderservice.kafka.outbox.OrderEventOutbox;
+import org.com.orderservice.model.Money;
 import org.com.orderservice.model.Order;
-import org.com.orderservice.model.OrderItem;
 import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.SagaStep;
 import org.com.orderservice.repository.OrderItemRepository;
 import org.com.orderservice.repository.OrderRepository;
+import org.com.orderservice.service.saga.OrderSagaOrchestrator;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
+    public static final int MAX_PAGE_SIZE = 100;
+    // Заказы, деньги по которым получены
+    public static final List<OrderStatus> REVENUE_STATUSES = List.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
-    private final CartServiceClient cartServiceClient;
     private final ProductServiceClient productServiceClient;
     private final OrderMapper orderMapper;
-    private final KafkaProducerService kafkaProducerService;
+    private final OrderEventOutbox orderEventOutbox;
 
 
 
     @Transactional(readOnly = true)
     public OrderResponse getOrder(UUID orderId, Long userId
     ){
-        Order order = orderRepository.findByIdAndUserId(orderId, userId)
+        Order order = orderRepository.findWithItemsByIdAndUserId(orderId, userId)
                 .orElseThrow(() -> new OrderNotFoundException("Order with id " + orderId + " not found"));
         return orderMapper.toOrderResponse(order);
     }
@@ -50,63 +60,107 @@ public class OrderService {
 
 
 
+    @Transactional(readOnly = true)
     public List<OrderResponse> getAllOrders(
     ){
-        return orderMapper.toOrderResponseList(orderRepository.findAll());
+        return orderMapper.toOrderResponseList(orderRepository.findAllWithItems());
     }
 
 
 
 
+    // Keyset-пагинация вместо выгрузки всей таблицы: без OFFSET и COUNT(*)
     @Transactional(readOnly = true)
-    public List<OrderResponse> getUserOrders(Long userId
+    public CursorPage<OrderSummaryResponse> getAllOrders(String cursor, int limit
     ){
-        return orderRepository.findByUserId(userId).stream()
-                .map(orderMapper::toOrderResponse)
-                .toList();
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        List<OrderSummaryResponse> orders = cursor == null || cursor.isBlank()
+                ? orderRepository.findFirstPage(Limit.of(pageSize + 1))
+                : findPageAfter(OrderCursor.decode(cursor), pageSize + 1);
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            OrderSummaryResponse last = orders.get(pageSize - 1);
+            nextCursor = new OrderCursor(last.createdAt(), last.id()).encode();
+        }
+        return new CursorPage<>(orders, nextCursor);
+    }
+
+    private List<OrderSummaryResponse> findPageAfter(OrderCursor cursor, int limit) {
+        return orderRepository.findPageAfter(cursor.createdAt(), cursor.id(), Limit.of(limit));
     }
 
 
 
 
     @Transactional(readOnly = true)
-    public List<OrderResponse> getUserOrdersByStatus(Long userId, OrderStatus status
+    public List<OrderSummaryResponse> getUserOrders(Long userId
     ){
-        return orderMapper.toOrderResponseList(orderRepository.findByUserIdAndStatus(userId,status));
+        return orderRepository.findSummariesByUserId(userId, null);
     }
 
 
 
 
-    @Transactional
-    @Retry(name = "cartService", fallbackMethod = "createOrderFallback")
-    @CircuitBreaker(name = "cartService", fallbackMethod = "createOrderFallback")
-    public OrderResponse createOrder(Long userId, CreateOrderRequest request) {
-        // 1. Получаем корзину из cart-service
-        CartResponse cart = cartServiceClient.getCart(userId);
+    // status == null - все заказы пользователя
+    @Transactional(readOnly = true)
+    public List<OrderSummaryResponse> getUserOrdersByStatus(Long userId, OrderStatus status
+    ){
+        return orderRepository.findSummariesByUserId(userId, status);
+    }
+
 
-        // 2. Создаем новый заказ
-        Order order = orderMapper.toOrder(request, userId);
-        order.setOrderItems(orderMapper.toOrderItemList(cart.cartItems(), order));
 
-        // 3. Сохраняем заказ (каскадно сохранит OrderItem)
+
+    /**
+     * Принимает заказ без удаленных вызовов: сохраняет PENDING-заказ и ставит первый шаг saga в outbox.
+     * Корзину, остатки и оплату обрабатывает {@link OrderSagaOrchestrator}, клиент следит за статусом.
+     */
+    @Transactional
+    public OrderAcceptedResponse createOrder(Long userId, CreateOrderRequest request) {
+        Order order = orderMapper.toOrder(request, userId);
+        order.setStatus(OrderStatus.PENDING);
+        order.recalculateTotal();
+        order.setSagaStep(SagaStep.STARTED);
+        order.setUpdatedAt(order.getCreatedAt());
         Order savedOrder = orderRepository.save(order);
 
-        kafkaProducerService.sendOrderCreatedEvent(orderMapper.tOrderPaymentEvent(order));
-        // 4. Очищаем корзину
-        cartServiceClient.clearCart(userId);
+        orderEventOutbox.sagaStepCompleted(new SagaStepEvent(savedOrder.getId(), SagaStep.STARTED));
 
-        // 5. Обновляем остатки товаров
-        updateProductStocks(savedOrder.getOrderItems());
+        return new OrderAcceptedResponse(savedOrder.getId(), savedOrder.getStatus().name(),
+                "/api/v1/orders/" + savedOrder.getId() + "/status");
+    }
 
-        return orderMapper.toOrderResponse(order);
+    @Transactional(readOnly = true)
+    public OrderStatusResponse getOrderStatus(UUID orderId, Long userId) {
+        Order order = orderRepository.findByIdAndUserId(orderId, userId)
+                .orElseThrow(() -> new OrderNotFoundException("Order with id " + orderId + " not found"));
+        return new OrderStatusResponse(order.getId(), order.getStatus().name(),
+                order.getSagaStep() == null ? null : order.getSagaStep().name(),
+                order.getFailureReason(), order.getUpdatedAt());
     }
 
-    // Fallback-метод для createOrder
-    public OrderResponse createOrderFallback(Long userId, CreateOrderRequest request, Throwable t) {
-        // Логируем ошибку и возвращаем дефолтный ответ или кидаем кастомное исключение
-        // Можно также поставить заказ в очередь на повторную обработку
-        throw new RuntimeException("Cart service is unavailable. Order creation failed.", t);
+    // Заказы, созданные до saga, не имеют шага и считаются завершенными
+    public static boolean isSagaFinished(OrderStatusResponse status) {
+        return status.sagaStep() == null || SagaStep.valueOf(status.sagaStep()).isTerminal();
+    }
+
+
+
+
+    // Выручка считается в SQL по хранимому total_minor, без загрузки заказов и позиций
+    @Transactional(readOnly = true)
+    public List<RevenueResponse.ByUser> getRevenueByUser(Instant from, Instant to) {
+        return orderRepository.sumRevenueByUser(REVENUE_STATUSES, from, to).stream()
+                .map(row -> new RevenueResponse.ByUser(row.getUserId(), row.getOrders(), Money.fromMinor(row.getRevenueMinor())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<RevenueResponse.ByDay> getRevenueByDay(Instant from, Instant to) {
+        return orderRepository.sumRevenueByDay(REVENUE_STATUSES, from, to).stream()
+                .map(row -> new RevenueResponse.ByDay(row.getDay(), row.getOrders(), Money.fromMinor(row.getRevenueMinor())))
+                .toList();
     }
 
 
@@ -118,7 +172,9 @@ public class OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Order with id " + orderId + " not found"));
         order.setStatus(status);
+        order.setUpdatedAt(Instant.now());
         orderRepository.save(order);
+        orderEventOutbox.orderStatusChanged(new OrderStatusChangedEvent(orderId, order.getUserId(), status.name(), null));
     }
 
 
@@ -132,7 +188,7 @@ public class OrderService {
     @Transactional
     public void cancelOrder(UUID orderId, Long userId
     ){
-        Order order = orderRepository.findByIdAndUserId(orderId, userId)
+        Order order = orderRepository.findWithItemsByIdAndUserId(orderId, userId)
                 .orElseThrow(() -> new OrderNotFoundException("Order with id " + orderId + " not found"));
 
         if (order.getStatus() != OrderStatus.CREATED) {
@@ -141,34 +197,10 @@ public class OrderService {
 
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        orderEventOutbox.orderStatusChanged(new OrderStatusChangedEvent(orderId, userId, OrderStatus.CANCELLED.name(), null));
 
-        // Возвращаем товары на склад
-        returnProductStocks(order.getOrderItems());
-    }
-
-
-
-
-        private BigDecimal calculateTotal(List<OrderItem> items
-        ){
-            return items.stream()
-                    .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-        }
-
-
-
-
-        private void updateProductStocks(List<OrderItem> items
-        ){
-            productServiceClient.updateStockBatch(items.stream().map(orderMapper::toProductStockUpdateRequest).toList());
-        }
-
-
-
-
-    private void returnProductStocks(List<OrderItem> items) {
-        productServiceClient.returnStockBatch(items.stream().map(orderMapper::toProductStockUpdateRequest).toList());
+        // Возвращаем товары на склад: повтор по тому же orderId остатки не задваивает
+        productServiceClient.cancelOrderReservation(orderId);
     }
 
 
@@ -176,7 +208,7 @@ public class OrderService {
     @Transactional
     public OrderResponse updateOrder(UUID orderId, @Valid UpdateOrderRequest request
     ){
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Order with id " + orderId + " not found"));
         orderMapper.updateOrderFromUpdateOrderRequest(request, order);
         return orderMapper.toOrderResponse(orderRepository.save(order));
@@ -0,0 +1,107 @@
+package org.com.orderservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.com.orderservice.dto.response.OrderStatusResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SSE-поток статуса заказа: клиент получает событие при каждой смене шага saga
+ * и поток закрывается, когда saga завершилась. Статус опрашивается из БД по таймеру,
+ * один общий планировщик на все подписки - потоки запросов не держатся.
+ */
+@Component
+@Slf4j
+public class OrderStatusStreamer {
+
+    private final OrderService orderService;
+    private final Duration pollInterval;
+    private final Duration timeout;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-status-sse");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderStatusStreamer(OrderService orderService,
+                               @Value("${order.status-stream.poll-interval:PT0.5S}") Duration pollInterval,
+                               @Value("${order.status-stream.timeout:PT60S}") Duration timeout) {
+        this.orderService = orderService;
+        this.pollInterval = pollInterval;
+        this.timeout = timeout;
+    }
+
+    public SseEmitter stream(UUID orderId, Long userId) {
+        // Проверка владельца до открытия потока: чужой или несуществующий заказ - обычный 404
+        OrderStatusResponse initial = orderService.getOrderStatus(orderId, userId);
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        AtomicReference<OrderStatusResponse> lastSent = new AtomicReference<>();
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Runnable poll = () -> {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                OrderStatusResponse current = lastSent.get() == null ? initial : orderService.getOrderStatus(orderId, userId);
+                OrderStatusResponse previous = lastSent.get();
+                if (previous == null || !Objects.equals(previous.sagaStep(), current.sagaStep())
+                        || !Objects.equals(previous.status(), current.status())) {
+                    emitter.send(SseEmitter.event().name("status").data(current));
+                    lastSent.set(current);
+                }
+                if (OrderService.isSagaFinished(current)) {
+                    emitter.complete();
+                    cancel(task, closed);
+                }
+            } catch (IOException e) {
+                // Клиент отключился
+                cancel(task, closed);
+            } catch (RuntimeException e) {
+                log.warn("Order {} status stream failed: {}", orderId, e.getMessage());
+                emitter.completeWithError(e);
+                cancel(task, closed);
+            }
+        };
+
+        emitter.onCompletion(() -> cancel(task, closed));
+        emitter.onTimeout(() -> {
+            emitter.complete();
+            cancel(task, closed);
+        });
+        emitter.onError(e -> cancel(task, closed));
+        task.set(scheduler.scheduleWithFixedDelay(poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS));
+        if (closed.get()) {
+            task.get().cancel(false);
+        }
+        return emitter;
+    }
+
+    private void cancel(AtomicReference<ScheduledFuture<?>> task, AtomicBoolean closed) {
+        closed.set(true);
+        ScheduledFuture<?> future = task.get();
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
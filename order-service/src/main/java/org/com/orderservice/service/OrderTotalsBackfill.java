@@ -0,0 +1,33 @@
+package org.com.orderservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.orderservice.repository.OrderRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Колонка total_minor добавлена к существующей таблице с DEFAULT 0: отчеты по выручке суммируют ее,
+ * поэтому старые заказы при старте пересчитываются из total. Запуск на уже заполненной таблице ничего не меняет.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderTotalsBackfill {
+
+    private final OrderRepository orderRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            int updated = orderRepository.backfillTotalMinor();
+            if (updated > 0) {
+                log.info("Backfilled total_minor for {} orders", updated);
+            }
+        } catch (Exception e) {
+            // Отчеты по старым заказам занижены до следующего старта, но сервис работает
+            log.error("Failed to backfill order total_minor: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.com.orderservice.service.analytics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.com.orderservice.model.Money;
+import org.com.orderservice.model.Order;
+import org.com.orderservice.model.OrderItem;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.analytics.OrderAnalyticsState;
+import org.com.orderservice.repository.OrderAnalyticsStateRepository;
+import org.com.orderservice.repository.OrderRepository;
+import org.com.orderservice.repository.OrderStatsRepository;
+import org.com.orderservice.repository.ProductStatsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Проектор витрины аналитики: по событию смены статуса переносит заказ из старой ячейки агрегатов в новую.
+ * <p>
+ * Неизменяемые атрибуты заказа (день, способ оплаты, сумма) читаются из orders один раз по первичному ключу
+ * при первом событии и запоминаются в {@link OrderAnalyticsState}; позиции - только когда заказ входит
+ * в продажи товаров или выходит из них. Повторная доставка события с тем же статусом ничего не меняет.
+ * События одного заказа приходят по порядку (ключ Kafka - id заказа).
+ */
+@Service
+@Slf4j
+public class OrderAnalyticsProjector {
+
+    // Оформленные заказы: их позиции входят в продажи товаров
+    static final Set<OrderStatus> PLACED_STATUSES = EnumSet.of(
+            OrderStatus.CREATED, OrderStatus.PENDING_PAYMENT, OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
+    private final OrderRepository orderRepository;
+    private final OrderAnalyticsStateRepository stateRepository;
+    private final OrderStatsRepository orderStatsRepository;
+    private final ProductStatsRepository productStatsRepository;
+    private final ZoneId zone;
+
+    public OrderAnalyticsProjector(OrderRepository orderRepository,
+                                   OrderAnalyticsStateRepository stateRepository,
+                                   OrderStatsRepository orderStatsRepository,
+                                   ProductStatsRepository productStatsRepository,
+                                   @Value("${order.analytics.zone:UTC}") ZoneId zone) {
+        this.orderRepository = orderRepository;
+        this.stateRepository = stateRepository;
+        this.orderStatsRepository = orderStatsRepository;
+        this.productStatsRepository = productStatsRepository;
+        this.zone = zone;
+    }
+
+    @Transactional
+    public void onStatusChanged(UUID orderId, OrderStatus status) {
+        Optional<OrderAnalyticsState> existing = stateRepository.findById(orderId);
+        if (existing.isPresent() && existing.get().getStatus() == status) {
+            return;
+        }
+
+        OrderAnalyticsState state;
+        boolean wasPlaced;
+        if (existing.isPresent()) {
+            state = existing.get();
+            wasPlaced = PLACED_STATUSES.contains(state.getStatus());
+            orderStatsRepository.increment(state.getDay(), state.getStatus().name(), state.getPaymentMethod().name(),
+                    -1, -state.getTotalMinor());
+        } else {
+            Optional<Order> order = orderRepository.findById(orderId);
+            if (order.isEmpty()) {
+                log.warn("Analytics: order {} not found, event skipped", orderId);
+                return;
+            }
+            state = new OrderAnalyticsState();
+            state.setOrderId(orderId);
+            state.setDay(LocalDate.ofInstant(order.get().getCreatedAt(), zone));
+            state.setPaymentMethod(order.get().getPaymentMethod());
+            state.setTotalMinor(order.get().getTotalMinor());
+            wasPlaced = false;
+        }
+
+        orderStatsRepository.increment(state.getDay(), status.name(), state.getPaymentMethod().name(),
+                1, state.getTotalMinor());
+
+        boolean nowPlaced = PLACED_STATUSES.contains(status);
+        if (wasPlaced != nowPlaced) {
+            applyProductSales(orderId, state.getDay(), nowPlaced ? 1 : -1);
+        }
+
+        state.setStatus(status);
+        stateRepository.save(state);
+    }
+
+    private void applyProductSales(UUID orderId, LocalDate day, int sign) {
+        Order order = orderRepository.findWithItemsById(orderId).orElseThrow();
+        for (OrderItem item : order.getOrderItems()) {
+            long lineMinor = Money.lineTotal(Money.toMinor(item.getPrice()), item.getQuantity());
+            productStatsRepository.increment(day, item.getProductId(), sign, (long) sign * item.getQuantity(), sign * lineMinor);
+        }
+    }
+}
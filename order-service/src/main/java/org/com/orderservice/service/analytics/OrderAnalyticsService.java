@@ -0,0 +1,58 @@
+package org.com.orderservice.service.analytics;
+
+import lombok.RequiredArgsConstructor;
+import org.com.orderservice.dto.response.AnalyticsResponse;
+import org.com.orderservice.model.Money;
+import org.com.orderservice.repository.OrderStatsRepository;
+import org.com.orderservice.repository.ProductStatsRepository;
+import org.com.orderservice.service.OrderService;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Запросы дашбордов: читают только предагрегированные таблицы витрины (строк - дни x измерения),
+ * таблица orders не сканируется.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderAnalyticsService {
+
+    public static final int MAX_TOP_PRODUCTS = 100;
+
+    private final OrderStatsRepository orderStatsRepository;
+    private final ProductStatsRepository productStatsRepository;
+
+    @Transactional(readOnly = true)
+    public List<AnalyticsResponse.ByDay> byDay(LocalDate from, LocalDate to) {
+        return orderStatsRepository.sumByDay(from, to, OrderService.REVENUE_STATUSES).stream()
+                .map(row -> new AnalyticsResponse.ByDay(row.getDay(), row.getOrders(), Money.fromMinor(row.getRevenueMinor())))
+                .toList();
+    }
+
+    // Для статуса выручка - сумма заказов в этом статусе
+    @Transactional(readOnly = true)
+    public List<AnalyticsResponse.ByStatus> byStatus(LocalDate from, LocalDate to) {
+        return orderStatsRepository.sumByStatus(from, to).stream()
+                .map(row -> new AnalyticsResponse.ByStatus(row.getStatus(), row.getOrders(), Money.fromMinor(row.getRevenueMinor())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<AnalyticsResponse.ByPaymentMethod> byPaymentMethod(LocalDate from, LocalDate to) {
+        return orderStatsRepository.sumByPaymentMethod(from, to, OrderService.REVENUE_STATUSES).stream()
+                .map(row -> new AnalyticsResponse.ByPaymentMethod(row.getPaymentMethod(), row.getOrders(), Money.fromMinor(row.getRevenueMinor())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<AnalyticsResponse.ByProduct> topProducts(LocalDate from, LocalDate to, int limit) {
+        return productStatsRepository.topProducts(from, to, Limit.of(Math.clamp(limit, 1, MAX_TOP_PRODUCTS))).stream()
+                .map(row -> new AnalyticsResponse.ByProduct(row.getProductId(), row.getOrders(), row.getQuantity(),
+                        Money.fromMinor(row.getRevenueMinor())))
+                .toList();
+    }
+}
@@ -0,0 +1,310 @@
+package org.com.orderservice.service.saga;
+
+import feign.FeignException;
+import lombok.extern.slf4j.Slf4j;
+import org.com.orderservice.client.CartServiceClient;
+import org.com.orderservice.client.FanOutScope;
+import org.com.orderservice.client.ProductAvailabilityRequest;
+import org.com.orderservice.client.ProductAvailabilityResponse;
+import org.com.orderservice.client.ProductReservationRequest;
+import org.com.orderservice.client.ProductServiceClient;
+import org.com.orderservice.client.ProductStockUpdateRequest;
+import org.com.orderservice.dto.external.cart_service.CartItemResponse;
+import org.com.orderservice.dto.external.cart_service.CartResponse;
+import org.com.orderservice.dto.external.product_service.ProductResponseDto;
+import org.com.orderservice.dto.mapper.OrderMapper;
+import org.com.orderservice.exception.SagaStepFailedException;
+import org.com.orderservice.kafka.OrderStatusChangedEvent;
+import org.com.orderservice.kafka.PaymentRequestedEvent;
+import org.com.orderservice.kafka.SagaStepEvent;
+import org.com.orderservice.kafka.outbox.OrderEventOutbox;
+import org.com.orderservice.model.Order;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.SagaStep;
+import org.com.orderservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Saga создания заказа: загрузка корзины -> резерв остатков -> очистка корзины -> запрос оплаты.
+ * <p>
+ * Каждый шаг - удаленный вызов вне транзакции и короткая локальная транзакция с переходом на следующий шаг
+ * и событием {@code order-saga} в outbox; потребитель этого топика запускает следующий шаг.
+ * Шаг захватывается арендой в БД, поэтому один заказ не обрабатывается параллельно на разных узлах.
+ * Временные ошибки повторяются (событием или {@link #resumeStalledSagas}); после {@code max-attempts}
+ * или при бизнес-ошибке резерв снимается по orderId и заказ переходит в FAILED.
+ * Удаленные шаги выполняются at-least-once, поэтому остатки резервируются, подтверждаются и возвращаются
+ * через резервы product-service, ключом которых служит orderId: повтор шага не списывает остатки дважды.
+ */
+@Service
+@Slf4j
+public class OrderSagaOrchestrator {
+
+    // Не больше, чем product-service отдает за один /forCart/batch (ProductService.MAX_PAGE_SIZE)
+    static final int PRODUCT_BATCH_SIZE = 100;
+
+    private final OrderRepository orderRepository;
+    private final CartServiceClient cartServiceClient;
+    private final ProductServiceClient productServiceClient;
+    private final OrderMapper orderMapper;
+    private final OrderEventOutbox orderEventOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService downstreamExecutor;
+    private final Duration fanOutDeadline;
+    private final Duration stepLease;
+    private final Duration stallThreshold;
+    private final int maxAttempts;
+
+    public OrderSagaOrchestrator(OrderRepository orderRepository,
+                                 CartServiceClient cartServiceClient,
+                                 ProductServiceClient productServiceClient,
+                                 OrderMapper orderMapper,
+                                 OrderEventOutbox orderEventOutbox,
+                                 PlatformTransactionManager transactionManager,
+                                 ExecutorService downstreamExecutor,
+                                 @Value("${order.saga.fan-out-deadline:PT3S}") Duration fanOutDeadline,
+                                 @Value("${order.saga.step-lease:PT30S}") Duration stepLease,
+                                 @Value("${order.saga.stall-threshold:PT10S}") Duration stallThreshold,
+                                 @Value("${order.saga.max-attempts:5}") int maxAttempts) {
+        this.orderRepository = orderRepository;
+        this.cartServiceClient = cartServiceClient;
+        this.productServiceClient = productServiceClient;
+        this.orderMapper = orderMapper;
+        this.orderEventOutbox = orderEventOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.downstreamExecutor = downstreamExecutor;
+        this.fanOutDeadline = fanOutDeadline;
+        this.stepLease = stepLease;
+        this.stallThreshold = stallThreshold;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Выполняет текущий шаг saga заказа, если он не завершен и не захвачен другим обработчиком.
+     */
+    public void advance(UUID orderId) {
+        // Позиции нужны шагам резерва и возврата остатков уже вне транзакции
+        Order order = transactionTemplate.execute(status -> orderRepository.findWithItemsById(orderId).orElse(null));
+        if (order == null || order.getStatus() != OrderStatus.PENDING || order.getSagaStep().isTerminal()) {
+            return;
+        }
+        SagaStep step = order.getSagaStep();
+        Instant now = Instant.now();
+        if (orderRepository.claimSagaStep(orderId, step, now, now.plus(stepLease)) == 0) {
+            return;
+        }
+        int attempt = order.getSagaAttempts() + 1;
+
+        try {
+            switch (step) {
+                case STARTED -> loadCart(order);
+                case CART_LOADED -> reserveStock(order);
+                case STOCK_RESERVED -> clearCart(order);
+                case CART_CLEARED -> requestPayment(order);
+                case COMPENSATING -> returnStock(order);
+                default -> log.warn("Order {} saga is in unexpected step {}", orderId, step);
+            }
+        } catch (SagaStepFailedException e) {
+            log.warn("Order {} saga failed at {}: {}", orderId, step, e.getMessage());
+            compensate(order, e.getMessage());
+        } catch (RuntimeException e) {
+            if (step != SagaStep.COMPENSATING && attempt >= maxAttempts) {
+                log.error("Order {} saga gave up at {} after {} attempts: {}", orderId, step, attempt, e.getMessage());
+                compensate(order, "Step " + step + " failed: " + e.getMessage());
+            } else {
+                // Аренда истечет, и шаг повторит resumeStalledSagas
+                log.warn("Order {} saga step {} failed (attempt {}), will retry: {}", orderId, step, attempt, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.saga.sweep-interval-ms:5000}")
+    public void resumeStalledSagas() {
+        Instant now = Instant.now();
+        List<UUID> stalled = orderRepository.findStalledSagas(now.minus(stallThreshold), now, Limit.of(100));
+        if (!stalled.isEmpty()) {
+            log.info("Resuming {} stalled order sagas", stalled.size());
+        }
+        stalled.forEach(this::advance);
+    }
+
+    private void loadCart(Order order) {
+        CartResponse cart = cartServiceClient.getCart(order.getUserId());
+        // Fallback клиента возвращает пустую корзину без id - это недоступность, а не пустая корзина
+        if (cart == null || cart.cartId() == null) {
+            throw new IllegalStateException("Cart service is unavailable");
+        }
+        if (cart.cartItems() == null || cart.cartItems().isEmpty()) {
+            throw new SagaStepFailedException("Cart is empty");
+        }
+        List<CartItemResponse> items = pricedItems(cart.cartItems());
+        completeStep(order.getId(), SagaStep.CART_LOADED,
+                saved -> {
+                    saved.getOrderItems().clear();
+                    saved.getOrderItems().addAll(orderMapper.toOrderItemList(items, saved));
+                    saved.recalculateTotal();
+                });
+    }
+
+    /**
+     * Проверка остатков и актуальные цены по позициям корзины - независимые вызовы, поэтому идут параллельно:
+     * шаг занимает время самого долгого вызова, а не их сумму. Нехватка товара отсекается до резерва,
+     * без списания и компенсации; цена берется из product-service, а не из снимка в корзине.
+     * Цены читаются пачками по {@link #PRODUCT_BATCH_SIZE} id, так что число параллельных вызовов
+     * не растет с числом позиций.
+     */
+    private List<CartItemResponse> pricedItems(List<CartItemResponse> cartItems) {
+        List<ProductAvailabilityRequest> availabilityRequests = cartItems.stream()
+                .map(item -> new ProductAvailabilityRequest(item.productId(), item.quantity()))
+                .toList();
+        List<UUID> productIds = cartItems.stream().map(CartItemResponse::productId).distinct().toList();
+
+        try (FanOutScope scope = new FanOutScope(downstreamExecutor, fanOutDeadline)) {
+            Supplier<List<ProductAvailabilityResponse>> availability =
+                    scope.fork(() -> productServiceClient.checkAvailabilityBatch(availabilityRequests));
+            List<Supplier<List<ProductResponseDto>>> batches = new ArrayList<>();
+            for (int from = 0; from < productIds.size(); from += PRODUCT_BATCH_SIZE) {
+                List<UUID> batch = productIds.subList(from, Math.min(from + PRODUCT_BATCH_SIZE, productIds.size()));
+                batches.add(scope.fork(() -> productServiceClient.getProductsForCart(batch)));
+            }
+            scope.join();
+
+            if (availability.get().stream().anyMatch(response -> !response.isAvailable())) {
+                throw new SagaStepFailedException("Insufficient stock");
+            }
+            Map<UUID, ProductResponseDto> products = new HashMap<>();
+            for (Supplier<List<ProductResponseDto>> batch : batches) {
+                // Fallback клиента возвращает null - это недоступность, шаг повторится
+                List<ProductResponseDto> found = batch.get();
+                if (found == null) {
+                    throw new IllegalStateException("Product service is unavailable");
+                }
+                found.forEach(product -> products.put(product.id(), product));
+            }
+            List<CartItemResponse> priced = new ArrayList<>(cartItems.size());
+            for (CartItemResponse item : cartItems) {
+                ProductResponseDto product = products.get(item.productId());
+                if (product == null) {
+                    throw new SagaStepFailedException("Product no longer exists");
+                }
+                priced.add(new CartItemResponse(item.productId(), product.name(), product.price(), item.quantity()));
+            }
+            return priced;
+        }
+    }
+
+    private void reserveStock(Order order) {
+        try {
+            // Повтор после потерянного ответа вернет уже созданный hold этого заказа
+            productServiceClient.reserveStock(new ProductReservationRequest(order.getId(), stockRequests(order), null));
+        } catch (FeignException e) {
+            // 409 - не хватает остатков, прочие 4xx - некорректный заказ; повтор не поможет
+            if (e.status() >= 400 && e.status() < 500) {
+                throw new SagaStepFailedException(e.status() == 409 ? "Insufficient stock" : "Stock reservation rejected");
+            }
+            throw e;
+        }
+        completeStep(order.getId(), SagaStep.STOCK_RESERVED, saved -> { });
+    }
+
+    private void clearCart(Order order) {
+        cartServiceClient.clearCart(order.getUserId());
+        completeStep(order.getId(), SagaStep.CART_CLEARED, saved -> { });
+    }
+
+    private void requestPayment(Order order) {
+        // Списание пишется в БД product-service до ответа; если hold истек, спишутся переданные позиции
+        try {
+            productServiceClient.confirmOrderReservation(order.getId(), stockRequests(order));
+        } catch (FeignException e) {
+            if (e.status() >= 400 && e.status() < 500) {
+                throw new SagaStepFailedException(e.status() == 409 ? "Insufficient stock" : "Stock confirmation rejected");
+            }
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Order saved = orderRepository.findById(order.getId()).orElseThrow();
+            saved.setStatus(OrderStatus.CREATED);
+            moveTo(saved, SagaStep.COMPLETED);
+            orderEventOutbox.orderCreated(orderMapper.tOrderPaymentEvent(saved));
+            orderEventOutbox.orderStatusChanged(new OrderStatusChangedEvent(
+                    saved.getId(), saved.getUserId(), OrderStatus.CREATED.name(), null));
+            orderEventOutbox.paymentRequested(new PaymentRequestedEvent(
+                    saved.getId(), saved.getUserId(), saved.getTotal(), saved.getPaymentMethod()));
+        });
+        log.info("Order {} saga completed, payment requested", order.getId());
+    }
+
+    private void returnStock(Order order) {
+        productServiceClient.cancelOrderReservation(order.getId());
+        fail(order.getId(), order.getFailureReason());
+    }
+
+    /**
+     * Если резерв мог быть создан - переходим в COMPENSATING (снятие выполнит следующий шаг), иначе сразу FAILED.
+     * На шаге CART_LOADED hold мог создаться при потерянном ответе; снятие несуществующего резерва ничего не делает.
+     */
+    private void compensate(Order order, String reason) {
+        boolean stockReserved = order.getSagaStep() == SagaStep.CART_LOADED
+                || order.getSagaStep() == SagaStep.STOCK_RESERVED
+                || order.getSagaStep() == SagaStep.CART_CLEARED;
+        if (!stockReserved) {
+            fail(order.getId(), reason);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Order saved = orderRepository.findById(order.getId()).orElseThrow();
+            saved.setFailureReason(reason);
+            moveTo(saved, SagaStep.COMPENSATING);
+            orderEventOutbox.sagaStepCompleted(new SagaStepEvent(saved.getId(), SagaStep.COMPENSATING));
+        });
+    }
+
+    private void fail(UUID orderId, String reason) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order saved = orderRepository.findById(orderId).orElseThrow();
+            saved.setStatus(OrderStatus.FAILED);
+            saved.setFailureReason(reason);
+            moveTo(saved, SagaStep.FAILED);
+            orderEventOutbox.orderStatusChanged(new OrderStatusChangedEvent(
+                    orderId, saved.getUserId(), OrderStatus.FAILED.name(), reason));
+        });
+        log.info("Order {} failed: {}", orderId, reason);
+    }
+
+    private void completeStep(UUID orderId, SagaStep next, Consumer<Order> changes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order saved = orderRepository.findById(orderId).orElseThrow();
+            changes.accept(saved);
+            moveTo(saved, next);
+            orderEventOutbox.sagaStepCompleted(new SagaStepEvent(orderId, next));
+        });
+    }
+
+    private void moveTo(Order order, SagaStep step) {
+        order.setSagaStep(step);
+        order.setSagaAttempts(0);
+        order.setSagaLeaseUntil(null);
+        order.setUpdatedAt(Instant.now());
+        orderRepository.save(order);
+    }
+
+    private List<ProductStockUpdateRequest> stockRequests(Order order) {
+        return order.getOrderItems().stream().map(orderMapper::toProductStockUpdateRequest).toList();
+    }
+}
@@ -0,0 +1,124 @@
+package org.com.orderservice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Повтор с тем же телом отдает сохраненный ответ, с другим телом - отказ,
+ * упавшая операция освобождает ключ, сбой записи ответа не ломает выполненную операцию.
+ */
+class IdempotencyStoreTest {
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private ValueOperations<String, String> values;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.get(anyString())).thenAnswer(call -> redis.get(call.<String>getArgument(0)));
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(call -> redis.putIfAbsent(call.getArgument(0), call.getArgument(1)) == null);
+        doAnswer(call -> redis.put(call.getArgument(0), call.getArgument(1)))
+                .when(values).set(anyString(), anyString(), any(Duration.class));
+        when(redisTemplate.delete(anyString())).thenAnswer(call -> redis.remove(call.<String>getArgument(0)) != null);
+
+        store = new IdempotencyStore(redisTemplate, new ObjectMapper(), Duration.ofHours(24), Duration.ofSeconds(30),
+                1_000, 0.01);
+    }
+
+    @Test
+    void retryWithSameBodyReplaysStoredResponse() {
+        AtomicInteger calls = new AtomicInteger();
+
+        IdempotentResult<Response> first = store.execute("order-create", "1:key", new Request("a", 1),
+                Response.class, () -> new Response("order-" + calls.incrementAndGet()));
+        IdempotentResult<Response> second = store.execute("order-create", "1:key", new Request("a", 1),
+                Response.class, () -> new Response("order-" + calls.incrementAndGet()));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(second.replayed()).isTrue();
+        assertThat(second.body()).isEqualTo(first.body());
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void sameKeyWithAnotherBodyIsRejected() {
+        store.execute("order-create", "1:key", new Request("a", 1), Response.class, () -> new Response("order-1"));
+
+        assertThatThrownBy(() -> store.execute("order-create", "1:key", new Request("a", 2), Response.class,
+                () -> new Response("order-2")))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    void inProgressKeyConflictsOrIsRejectedDependingOnBody() {
+        store.execute("order-create", "1:key", new Request("a", 1), Response.class, () -> {
+            assertThatThrownBy(() -> store.execute("order-create", "1:key", new Request("a", 1), Response.class,
+                    () -> new Response("dup")))
+                    .isInstanceOf(IdempotencyConflictException.class);
+            assertThatThrownBy(() -> store.execute("order-create", "1:key", new Request("b", 1), Response.class,
+                    () -> new Response("other")))
+                    .isInstanceOf(IdempotencyKeyReusedException.class);
+            return new Response("order-1");
+        });
+    }
+
+    @Test
+    void failedActionReleasesKey() {
+        assertThatThrownBy(() -> store.execute("order-create", "1:key", new Request("a", 1), Response.class, () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        IdempotentResult<Response> retry = store.execute("order-create", "1:key", new Request("b", 1),
+                Response.class, () -> new Response("order-2"));
+        assertThat(retry.replayed()).isFalse();
+        assertThat(retry.body().id()).isEqualTo("order-2");
+    }
+
+    @Test
+    void failedResponseWriteKeepsResultAndBlocksRetry() {
+        doThrow(new RedisConnectionFailureException("redis is down"))
+                .when(values).set(anyString(), anyString(), any(Duration.class));
+        AtomicInteger calls = new AtomicInteger();
+
+        IdempotentResult<Response> first = store.execute("order-create", "1:key", new Request("a", 1),
+                Response.class, () -> new Response("order-" + calls.incrementAndGet()));
+
+        // Операция выполнена - клиент получает ее результат, а не 500
+        assertThat(first.replayed()).isFalse();
+        assertThat(first.body().id()).isEqualTo("order-1");
+        // Маркер остался: повтор не выполняет операцию второй раз
+        assertThatThrownBy(() -> store.execute("order-create", "1:key", new Request("a", 1), Response.class,
+                () -> new Response("order-" + calls.incrementAndGet())))
+                .isInstanceOf(IdempotencyConflictException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    record Request(String item, int quantity) {
+    }
+
+    record Response(String id) {
+    }
+}
@@ -0,0 +1,112 @@
+package org.com.orderservice.kafka.outbox;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.com.orderservice.model.OutboxEvent;
+import org.com.orderservice.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Relay удаляет из outbox только события, которые Kafka подтвердила; остальные остаются на следующий цикл.
+ */
+class OutboxRelayTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private OutboxEventRepository outboxEventRepository;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(outboxEventRepository.tryAcquireRelayLock(anyLong())).thenReturn(true);
+        relay = new OutboxRelay(outboxEventRepository, kafkaTemplate, mock(PlatformTransactionManager.class),
+                BATCH_SIZE, Duration.ofSeconds(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deletesOnlyAcknowledgedEvents() {
+        when(outboxEventRepository.findNextBatch(BATCH_SIZE)).thenReturn(List.of(event(1), event(2)));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(sent())
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is down")));
+
+        relay.relay();
+
+        ArgumentCaptor<ProducerRecord<String, String>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(records.capture());
+        verify(kafkaTemplate).flush();
+        ProducerRecord<String, String> first = records.getAllValues().get(0);
+        assertThat(first.topic()).isEqualTo(OrderEventOutbox.ORDER_EVENTS_TOPIC);
+        assertThat(first.key()).isEqualTo("order-1");
+        assertThat(new String(first.headers().lastHeader("eventType").value(), StandardCharsets.UTF_8))
+                .isEqualTo("OrderCreated");
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fullBatchIsFollowedByNextBatchWithoutPause() {
+        when(outboxEventRepository.findNextBatch(BATCH_SIZE))
+                .thenReturn(List.of(event(1), event(2), event(3)))
+                .thenReturn(List.of(event(4)));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(call -> sent());
+
+        relay.relay();
+
+        verify(outboxEventRepository, times(2)).findNextBatch(BATCH_SIZE);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(4L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skipsCycleWhenAnotherRelayHoldsLock() {
+        when(outboxEventRepository.tryAcquireRelayLock(anyLong())).thenReturn(false);
+
+        relay.relay();
+
+        verify(outboxEventRepository, never()).findNextBatch(anyInt());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    private static CompletableFuture<SendResult<String, String>> sent() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static OutboxEvent event(long id) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setAggregateId("order-" + id);
+        event.setEventType("OrderCreated");
+        event.setTopic(OrderEventOutbox.ORDER_EVENTS_TOPIC);
+        event.setMessageKey("order-" + id);
+        event.setPayload("{}");
+        event.setCreatedAt(Instant.now());
+        return event;
+    }
+}
@@ -0,0 +1,93 @@
+package org.com.orderservice.repository;
+
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+import org.com.orderservice.model.analytics.OrderAnalyticsState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Таблицы витрины создаются в H2, а upsert накапливает delta в одной строке на ячейку
+ * и вычитает отрицательные delta.
+ */
+@DataJpaTest
+class AnalyticsStatsRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 1);
+
+    @Autowired
+    private OrderStatsRepository orderStatsRepository;
+
+    @Autowired
+    private ProductStatsRepository productStatsRepository;
+
+    @Autowired
+    private OrderAnalyticsStateRepository stateRepository;
+
+    @Test
+    void orderIncrementsAccumulateInOneCell() {
+        orderStatsRepository.increment(DAY, "CREATED", "CREDIT_CARD", 1, 1_000);
+        orderStatsRepository.increment(DAY, "CREATED", "CREDIT_CARD", 1, 2_500);
+        orderStatsRepository.increment(DAY, "PAID", "CREDIT_CARD", 1, 700);
+        orderStatsRepository.increment(DAY, "CREATED", "CREDIT_CARD", -1, -1_000);
+        orderStatsRepository.increment(DAY.plusDays(1), "CREATED", "PAYPAL", 1, 300);
+
+        assertThat(orderStatsRepository.count()).isEqualTo(3);
+        assertThat(orderStatsRepository.sumByStatus(DAY, DAY))
+                .extracting(OrderStatsRepository.StatusView::getStatus,
+                        OrderStatsRepository.StatusView::getOrders,
+                        OrderStatsRepository.StatusView::getRevenueMinor)
+                .containsExactlyInAnyOrder(
+                        tuple(OrderStatus.CREATED, 1L, 2_500L),
+                        tuple(OrderStatus.PAID, 1L, 700L));
+        assertThat(orderStatsRepository.sumByDay(DAY, DAY.plusDays(1), List.of(OrderStatus.PAID)))
+                .extracting(OrderStatsRepository.DayView::getDay,
+                        OrderStatsRepository.DayView::getOrders,
+                        OrderStatsRepository.DayView::getRevenueMinor)
+                .containsExactly(
+                        tuple(DAY, 2L, 700L),
+                        tuple(DAY.plusDays(1), 1L, 0L));
+    }
+
+    @Test
+    void productIncrementsAccumulateAndSubtract() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        productStatsRepository.increment(DAY, first, 1, 2, 2_000);
+        productStatsRepository.increment(DAY, first, 1, 3, 3_000);
+        productStatsRepository.increment(DAY, second, 1, 1, 4_000);
+        productStatsRepository.increment(DAY, second, -1, -1, -4_000);
+
+        assertThat(productStatsRepository.topProducts(DAY, DAY, Limit.of(10)))
+                .extracting(ProductStatsRepository.ProductView::getProductId,
+                        ProductStatsRepository.ProductView::getOrders,
+                        ProductStatsRepository.ProductView::getQuantity,
+                        ProductStatsRepository.ProductView::getRevenueMinor)
+                .containsExactly(
+                        tuple(first, 2L, 5L, 5_000L),
+                        tuple(second, 0L, 0L, 0L));
+    }
+
+    @Test
+    void analyticsStateIsPersisted() {
+        OrderAnalyticsState state = new OrderAnalyticsState();
+        state.setOrderId(UUID.randomUUID());
+        state.setStatus(OrderStatus.CREATED);
+        state.setDay(DAY);
+        state.setPaymentMethod(PaymentMethod.PAYPAL);
+        state.setTotalMinor(1_999);
+        stateRepository.saveAndFlush(state);
+
+        assertThat(stateRepository.findById(state.getOrderId()))
+                .hasValueSatisfying(saved -> assertThat(saved.getDay()).isEqualTo(DAY));
+    }
+}
@@ -0,0 +1,144 @@
+package org.com.orderservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.com.orderservice.dto.response.OrderSummaryResponse;
+import org.com.orderservice.model.DeliveryType;
+import org.com.orderservice.model.Order;
+import org.com.orderservice.model.OrderItem;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов на сценарий: регрессия к N+1 (EAGER, обход ленивых коллекций в цикле) ломает эти тесты.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=50"
+})
+class OrderRepositoryFetchTest {
+
+    private static final long USER_ID = 42L;
+    private static final int ORDERS = 10;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UUID firstOrderId;
+
+    @BeforeEach
+    void setUp() {
+        Instant createdAt = Instant.parse("2025-01-01T00:00:00Z");
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = order(createdAt.plusSeconds(i));
+            orderRepository.save(order);
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+    }
+
+    @Test
+    void orderHistoryIsSingleQueryWithoutItems() {
+        List<OrderSummaryResponse> history = orderRepository.findSummariesByUserId(USER_ID, null);
+
+        assertThat(history).hasSize(ORDERS);
+        assertThat(history).allSatisfy(summary -> assertThat(summary.itemCount()).isEqualTo(ITEMS_PER_ORDER));
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cursorPageIsSingleQuery() {
+        List<OrderSummaryResponse> page = orderRepository.findFirstPage(Limit.of(5));
+        OrderSummaryResponse last = page.get(page.size() - 1);
+        List<OrderSummaryResponse> next = orderRepository.findPageAfter(last.createdAt(), last.id(), Limit.of(5));
+
+        assertThat(page).hasSize(5);
+        assertThat(next).hasSize(5);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void allOrdersLoadItemsWithSingleQuery() {
+        List<Order> orders = orderRepository.findAllWithItems();
+
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(ITEMS_PER_ORDER));
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void orderDetailsLoadItemsWithSingleQuery() {
+        Order order = orderRepository.findWithItemsByIdAndUserId(firstOrderId, USER_ID).orElseThrow();
+
+        assertThat(order.getOrderItems()).hasSize(ITEMS_PER_ORDER);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void orderStatusDoesNotLoadItems() {
+        orderRepository.findByIdAndUserId(firstOrderId, USER_ID).orElseThrow();
+
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics().getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void lazyItemsOfManyOrdersAreBatchFetched() {
+        List<Order> orders = orderRepository.findByStatus(OrderStatus.CREATED);
+        orders.forEach(order -> order.getOrderItems().size());
+
+        assertThat(orders).hasSize(ORDERS);
+        // Один запрос заказов + один IN-запрос позиций на пачку из default_batch_fetch_size
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private Order order(Instant createdAt) {
+        Order order = new Order();
+        order.setUserId(USER_ID);
+        order.setStatus(OrderStatus.CREATED);
+        order.setShippingAddress("Main st. 1");
+        order.setPaymentMethod(PaymentMethod.values()[0]);
+        order.setDeliveryType(DeliveryType.values()[0]);
+        order.setCreatedAt(createdAt);
+        order.setUpdatedAt(createdAt);
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            OrderItem item = new OrderItem();
+            item.setProductId(UUID.randomUUID());
+            item.setName("Product " + i);
+            item.setPrice(BigDecimal.TEN);
+            item.setQuantity(1);
+            order.addItem(item);
+        }
+        order.recalculateTotal();
+        return order;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,82 @@
+package org.com.orderservice.repository;
+
+import jakarta.persistence.EntityManager;
+import org.com.orderservice.model.DeliveryType;
+import org.com.orderservice.model.Order;
+import org.com.orderservice.model.OrderItem;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * total и total_minor пишет только recalculateTotal; заказы, сохраненные до появления total_minor,
+ * дозаполняются из total, и отчеты по выручке их учитывают.
+ */
+@DataJpaTest
+class OrderTotalsTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void recalculateTotalWritesDecimalAndMinorUnits() {
+        Order order = order(new BigDecimal("19.99"), 3);
+
+        assertThat(order.getTotal()).isEqualByComparingTo("59.97");
+        assertThat(order.getTotalMinor()).isEqualTo(5997);
+    }
+
+    @Test
+    void legacyOrdersAreBackfilledOnceAndCountedInRevenue() {
+        Order legacy = orderRepository.saveAndFlush(order(new BigDecimal("19.99"), 3));
+        Order current = orderRepository.saveAndFlush(order(new BigDecimal("5.00"), 1));
+        // Строка, записанная до колонки total_minor, получила DEFAULT 0
+        entityManager.createNativeQuery("UPDATE orders SET total_minor = 0 WHERE id = :id")
+                .setParameter("id", legacy.getId())
+                .executeUpdate();
+
+        assertThat(orderRepository.backfillTotalMinor()).isEqualTo(1);
+        assertThat(orderRepository.backfillTotalMinor()).isZero();
+
+        entityManager.clear();
+        assertThat(orderRepository.findById(legacy.getId()).orElseThrow().getTotalMinor()).isEqualTo(5997);
+        assertThat(orderRepository.findById(current.getId()).orElseThrow().getTotalMinor()).isEqualTo(500);
+        List<OrderRepository.UserRevenueView> revenue = orderRepository.sumRevenueByUser(
+                List.of(OrderStatus.CREATED), CREATED_AT, CREATED_AT.plusSeconds(1));
+        assertThat(revenue).singleElement()
+                .satisfies(row -> assertThat(row.getRevenueMinor()).isEqualTo(6497));
+    }
+
+    private static Order order(BigDecimal price, int quantity) {
+        Order order = new Order();
+        order.setUserId(1L);
+        order.setStatus(OrderStatus.CREATED);
+        order.setShippingAddress("Main st. 1");
+        order.setPaymentMethod(PaymentMethod.values()[0]);
+        order.setDeliveryType(DeliveryType.values()[0]);
+        order.setCreatedAt(CREATED_AT);
+        order.setUpdatedAt(CREATED_AT);
+        OrderItem item = new OrderItem();
+        item.setProductId(UUID.randomUUID());
+        item.setName("Product");
+        item.setPrice(price);
+        item.setQuantity(quantity);
+        order.addItem(item);
+        order.recalculateTotal();
+        return order;
+    }
+}
@@ -0,0 +1,140 @@
+package org.com.orderservice.service.analytics;
+
+import org.com.orderservice.model.Order;
+import org.com.orderservice.model.OrderItem;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.PaymentMethod;
+import org.com.orderservice.model.analytics.OrderAnalyticsState;
+import org.com.orderservice.repository.OrderAnalyticsStateRepository;
+import org.com.orderservice.repository.OrderRepository;
+import org.com.orderservice.repository.OrderStatsRepository;
+import org.com.orderservice.repository.ProductStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Смена статуса переносит заказ между ячейками витрины, повторная доставка ничего не меняет.
+ * Upsert'ы (INSERT .. ON CONFLICT DO UPDATE) заменены суммированием в памяти: H2 такой синтаксис не поддерживает.
+ */
+class OrderAnalyticsProjectorTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 1);
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+
+    // (день|статус|способ оплаты) -> [orders, revenue_minor]; (день|товар) -> [orders, quantity, revenue_minor]
+    private final Map<String, long[]> orderCells = new HashMap<>();
+    private final Map<String, long[]> productCells = new HashMap<>();
+    private final Map<UUID, OrderAnalyticsState> states = new HashMap<>();
+    private OrderRepository orderRepository;
+    private OrderAnalyticsProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        OrderAnalyticsStateRepository stateRepository = mock(OrderAnalyticsStateRepository.class);
+        OrderStatsRepository orderStatsRepository = mock(OrderStatsRepository.class);
+        ProductStatsRepository productStatsRepository = mock(ProductStatsRepository.class);
+
+        when(stateRepository.findById(any())).thenAnswer(call -> Optional.ofNullable(states.get(call.<UUID>getArgument(0))));
+        when(stateRepository.save(any())).thenAnswer(call -> {
+            OrderAnalyticsState state = call.getArgument(0);
+            states.put(state.getOrderId(), state);
+            return state;
+        });
+        doAnswer(call -> add(orderCells, call.getArgument(0) + "|" + call.getArgument(1) + "|" + call.getArgument(2),
+                call.getArgument(3), call.getArgument(4)))
+                .when(orderStatsRepository).increment(any(), anyString(), anyString(), anyLong(), anyLong());
+        doAnswer(call -> add(productCells, call.getArgument(0) + "|" + call.getArgument(1),
+                call.getArgument(2), call.getArgument(3), call.getArgument(4)))
+                .when(productStatsRepository).increment(any(), any(), anyLong(), anyLong(), anyLong());
+
+        projector = new OrderAnalyticsProjector(orderRepository, stateRepository, orderStatsRepository,
+                productStatsRepository, ZoneId.of("UTC"));
+    }
+
+    @Test
+    void statusChangeMovesOrderBetweenCells() {
+        UUID orderId = order(new BigDecimal("10.50"), 2);
+
+        projector.onStatusChanged(orderId, OrderStatus.CREATED);
+        projector.onStatusChanged(orderId, OrderStatus.PAID);
+
+        assertThat(orderCell(OrderStatus.CREATED)).containsExactly(0, 0);
+        assertThat(orderCell(OrderStatus.PAID)).containsExactly(1, 2100);
+        // Оба статуса - оформленный заказ: продажи товара учтены один раз
+        assertThat(productCells.get(DAY + "|" + PRODUCT_ID)).containsExactly(1, 2, 2100);
+    }
+
+    @Test
+    void redeliveredEventIsNoOp() {
+        UUID orderId = order(new BigDecimal("3.00"), 1);
+
+        projector.onStatusChanged(orderId, OrderStatus.CREATED);
+        projector.onStatusChanged(orderId, OrderStatus.CREATED);
+
+        assertThat(orderCell(OrderStatus.CREATED)).containsExactly(1, 300);
+        assertThat(productCells.get(DAY + "|" + PRODUCT_ID)).containsExactly(1, 1, 300);
+    }
+
+    @Test
+    void cancellationSubtractsProductSales() {
+        UUID orderId = order(new BigDecimal("4.00"), 3);
+
+        projector.onStatusChanged(orderId, OrderStatus.CREATED);
+        projector.onStatusChanged(orderId, OrderStatus.CANCELLED);
+
+        assertThat(orderCell(OrderStatus.CREATED)).containsExactly(0, 0);
+        assertThat(orderCell(OrderStatus.CANCELLED)).containsExactly(1, 1200);
+        assertThat(productCells.get(DAY + "|" + PRODUCT_ID)).containsExactly(0, 0, 0);
+    }
+
+    private long[] orderCell(OrderStatus status) {
+        return orderCells.get(DAY + "|" + status + "|" + PaymentMethod.CREDIT_CARD);
+    }
+
+    private static Object add(Map<String, long[]> cells, String key, long... deltas) {
+        long[] cell = cells.computeIfAbsent(key, k -> new long[deltas.length]);
+        for (int i = 0; i < deltas.length; i++) {
+            cell[i] += deltas[i];
+        }
+        return null;
+    }
+
+    private UUID order(BigDecimal price, int quantity) {
+        UUID orderId = UUID.randomUUID();
+        Order order = new Order();
+        order.setId(orderId);
+        order.setUserId(42L);
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+        order.setCreatedAt(Instant.parse("2025-01-01T12:00:00Z"));
+        OrderItem item = new OrderItem();
+        item.setProductId(PRODUCT_ID);
+        item.setName("Product");
+        item.setPrice(price);
+        item.setQuantity(quantity);
+        order.addItem(item);
+        order.recalculateTotal();
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(orderId)).thenReturn(Optional.of(order));
+        return orderId;
+    }
+}
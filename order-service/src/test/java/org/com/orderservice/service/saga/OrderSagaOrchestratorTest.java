@@ -0,0 +1,189 @@
+package org.com.orderservice.service.saga;
+
+import feign.FeignException;
+import feign.Request;
+import org.com.orderservice.client.CartServiceClient;
+import org.com.orderservice.client.ProductAvailabilityRequest;
+import org.com.orderservice.client.ProductAvailabilityResponse;
+import org.com.orderservice.client.ProductReservationRequest;
+import org.com.orderservice.client.ProductServiceClient;
+import org.com.orderservice.client.ProductStockUpdateRequest;
+import org.com.orderservice.dto.external.cart_service.CartItemResponse;
+import org.com.orderservice.dto.external.cart_service.CartResponse;
+import org.com.orderservice.dto.external.cart_service.CartStatus;
+import org.com.orderservice.dto.external.product_service.ProductResponseDto;
+import org.com.orderservice.dto.mapper.OrderMapper;
+import org.com.orderservice.kafka.outbox.OrderEventOutbox;
+import org.com.orderservice.model.Order;
+import org.com.orderservice.model.OrderItem;
+import org.com.orderservice.model.OrderStatus;
+import org.com.orderservice.model.SagaStep;
+import org.com.orderservice.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Шаги saga, работающие с остатками, идут через резервы product-service по orderId:
+ * повтор шага не списывает остатки второй раз, компенсация снимает резерв, а не возвращает остатки вслепую.
+ * Цены позиций читаются пачками, а не отдельным вызовом на каждую позицию.
+ */
+class OrderSagaOrchestratorTest {
+
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+
+    private final Order order = new Order();
+    private OrderRepository orderRepository;
+    private ProductServiceClient productServiceClient;
+    private CartServiceClient cartServiceClient;
+    private OrderMapper orderMapper;
+    private OrderSagaOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        order.setId(UUID.randomUUID());
+        order.setUserId(1L);
+        order.setStatus(OrderStatus.PENDING);
+        OrderItem item = new OrderItem();
+        item.setProductId(PRODUCT_ID);
+        item.setQuantity(2);
+        order.getOrderItems().add(item);
+
+        orderRepository = mock(OrderRepository.class);
+        productServiceClient = mock(ProductServiceClient.class);
+        cartServiceClient = mock(CartServiceClient.class);
+        orderMapper = mock(OrderMapper.class);
+        when(orderRepository.findWithItemsById(order.getId())).thenReturn(Optional.of(order));
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderRepository.claimSagaStep(eq(order.getId()), any(), any(), any())).thenReturn(1);
+        when(orderMapper.toProductStockUpdateRequest(any()))
+                .thenAnswer(call -> new ProductStockUpdateRequest(PRODUCT_ID, call.<OrderItem>getArgument(0).getQuantity()));
+
+        orchestrator = new OrderSagaOrchestrator(orderRepository, cartServiceClient, productServiceClient,
+                orderMapper, mock(OrderEventOutbox.class), mock(PlatformTransactionManager.class),
+                Executors.newVirtualThreadPerTaskExecutor(), Duration.ofSeconds(3), Duration.ofSeconds(30),
+                Duration.ofSeconds(10), 5);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cartPricesAreLoadedInBoundedBatches() {
+        order.setSagaStep(SagaStep.STARTED);
+        int size = OrderSagaOrchestrator.PRODUCT_BATCH_SIZE + 50;
+        List<CartItemResponse> items = IntStream.range(0, size)
+                .mapToObj(i -> new CartItemResponse(UUID.randomUUID(), "cart name", BigDecimal.ONE, 1))
+                .toList();
+        givenCart(items);
+        when(productServiceClient.getProductsForCart(any())).thenAnswer(call -> call.<List<UUID>>getArgument(0).stream()
+                .map(id -> new ProductResponseDto(id, "current name", BigDecimal.TEN, 5))
+                .toList());
+
+        orchestrator.advance(order.getId());
+
+        ArgumentCaptor<List<UUID>> batches = ArgumentCaptor.forClass(List.class);
+        verify(productServiceClient, times(2)).getProductsForCart(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size)
+                .containsExactlyInAnyOrder(OrderSagaOrchestrator.PRODUCT_BATCH_SIZE, 50);
+        ArgumentCaptor<List<CartItemResponse>> priced = ArgumentCaptor.forClass(List.class);
+        verify(orderMapper).toOrderItemList(priced.capture(), eq(order));
+        assertThat(priced.getValue()).hasSize(size).allSatisfy(item -> {
+            assertThat(item.name()).isEqualTo("current name");
+            assertThat(item.price()).isEqualTo(BigDecimal.TEN);
+        });
+        assertThat(order.getSagaStep()).isEqualTo(SagaStep.CART_LOADED);
+    }
+
+    @Test
+    void productMissingFromBatchFailsOrder() {
+        order.setSagaStep(SagaStep.STARTED);
+        givenCart(List.of(new CartItemResponse(PRODUCT_ID, "cart name", BigDecimal.ONE, 2)));
+        when(productServiceClient.getProductsForCart(any())).thenReturn(List.of());
+
+        orchestrator.advance(order.getId());
+
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(order.getFailureReason()).isEqualTo("Product no longer exists");
+    }
+
+    @Test
+    void retriedReserveStepReservesByOrderId() {
+        order.setSagaStep(SagaStep.CART_LOADED);
+        doThrow(new IllegalStateException("read timed out")).doNothing()
+                .when(productServiceClient).reserveStock(any());
+
+        orchestrator.advance(order.getId());
+        assertThat(order.getSagaStep()).isEqualTo(SagaStep.CART_LOADED);
+        orchestrator.advance(order.getId());
+
+        ArgumentCaptor<ProductReservationRequest> requests = ArgumentCaptor.forClass(ProductReservationRequest.class);
+        verify(productServiceClient, times(2)).reserveStock(requests.capture());
+        assertThat(requests.getAllValues()).allSatisfy(request -> {
+            assertThat(request.orderId()).isEqualTo(order.getId());
+            assertThat(request.items()).containsExactly(new ProductStockUpdateRequest(PRODUCT_ID, 2));
+        });
+        verify(productServiceClient, never()).updateStockBatch(any());
+        assertThat(order.getSagaStep()).isEqualTo(SagaStep.STOCK_RESERVED);
+    }
+
+    @Test
+    void paymentStepConfirmsReservationBeforeCompleting() {
+        order.setSagaStep(SagaStep.CART_CLEARED);
+
+        orchestrator.advance(order.getId());
+
+        verify(productServiceClient).confirmOrderReservation(order.getId(), List.of(new ProductStockUpdateRequest(PRODUCT_ID, 2)));
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.CREATED);
+        assertThat(order.getSagaStep()).isEqualTo(SagaStep.COMPLETED);
+    }
+
+    @Test
+    void rejectedConfirmCompensatesByCancellingReservation() {
+        order.setSagaStep(SagaStep.CART_CLEARED);
+        doThrow(conflict()).when(productServiceClient).confirmOrderReservation(any(), any());
+
+        orchestrator.advance(order.getId());
+        assertThat(order.getSagaStep()).isEqualTo(SagaStep.COMPENSATING);
+        orchestrator.advance(order.getId());
+
+        verify(productServiceClient).cancelOrderReservation(order.getId());
+        verify(productServiceClient, never()).returnStockBatch(any());
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(order.getFailureReason()).isEqualTo("Insufficient stock");
+    }
+
+    private void givenCart(List<CartItemResponse> items) {
+        when(cartServiceClient.getCart(order.getUserId()))
+                .thenReturn(new CartResponse(UUID.randomUUID(), items, BigDecimal.ONE, CartStatus.ACTIVE));
+        when(productServiceClient.checkAvailabilityBatch(any())).thenAnswer(call -> call
+                .<List<ProductAvailabilityRequest>>getArgument(0).stream()
+                .map(request -> new ProductAvailabilityResponse(request.productId(), true, 10))
+                .toList());
+    }
+
+    private static FeignException conflict() {
+        Request request = Request.create(Request.HttpMethod.POST, "/api/products/reservations", Map.of(),
+                null, StandardCharsets.UTF_8, null);
+        return new FeignException.Conflict("conflict", request, null, null);
+    }
+}
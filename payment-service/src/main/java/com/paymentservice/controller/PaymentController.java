@@ -2,12 +2,18 @@ package com.paymentservice.controller;
 
 
 import com.paymentservice.dto.CreatePaymentRequest;
+import com.paymentservice.dto.CursorPage;
 import com.paymentservice.dto.PaymentResponse;
 import com.paymentservice.exception.PaymentNotFoundException;
+import com.paymentservice.idempotency.IdempotencyConflictException;
+import com.paymentservice.idempotency.IdempotencyKeyReusedException;
+import com.paymentservice.idempotency.IdempotencyStore;
+import com.paymentservice.idempotency.IdempotentResult;
 import com.paymentservice.service.PaymentService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -23,6 +29,7 @@ import java.util.UUID;
 @AllArgsConstructor
 public class PaymentController {
     private final PaymentService paymentService;
+    private final IdempotencyStore idempotencyStore;
 
     @GetMapping("/{id}")
     public ResponseEntity<PaymentResponse> getPaymentById(@PathVariable UUID id) {
@@ -46,12 +53,45 @@ public class PaymentController {
         }
     }
 
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<PaymentResponse>> getAllPaymentsPage(@RequestParam(required = false) String cursor,
+                                                                          @RequestParam(defaultValue = "20") int limit) {
+        try {
+            CursorPage<PaymentResponse> responses = paymentService.getAllPayments(cursor, limit);
+            return new ResponseEntity<>(responses, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @PostMapping
-    public ResponseEntity<PaymentResponse> createPayment(@Valid @RequestBody CreatePaymentRequest request) {
+    public ResponseEntity<PaymentResponse> createPayment(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                         @RequestHeader(name = "X-User-Id", required = false) Long callerId,
+                                                         @Valid @RequestBody CreatePaymentRequest request) {
         try {
-            PaymentResponse response = paymentService.createPayment(request);
-            log.info("Payment created successfully for orderId: {}", request.orderId());
-            return new ResponseEntity<>(response, HttpStatus.CREATED);
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                PaymentResponse response = paymentService.createPayment(request);
+                log.info("Payment created successfully for orderId: {}", request.orderId());
+                return new ResponseEntity<>(response, HttpStatus.CREATED);
+            }
+            // Ключ действует в пределах пользователя (из шлюза, иначе из запроса): чужой ключ не вернет чужой платеж
+            Long owner = callerId != null ? callerId : request.userId();
+            IdempotentResult<PaymentResponse> result = idempotencyStore.execute("payment-create",
+                    owner + ":" + idempotencyKey, request, PaymentResponse.class,
+                    () -> paymentService.createPayment(request));
+            log.info("Payment {} for orderId: {}", result.replayed() ? "replayed" : "created successfully", request.orderId());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                    .body(result.body());
+        } catch (IdempotencyConflictException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (IdempotencyKeyReusedException e) {
+            return new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+        } catch (DataIntegrityViolationException e) {
+            // Платеж по этому заказу уже есть (уникальный индекс по orderid)
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         } catch (Exception e) {
             log.error("Internal server error while creating payment for orderId {}: {}", request.orderId(), e.getMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -5,11 +5,13 @@ import com.paymentservice.model.PaymentStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
+@Data
 public class PaymentResponse {
     UUID id;
     UUID orderId;
@@ -1,7 +1,7 @@
 package com.paymentservice.event;
 
 import lombok.Getter;
-import org.com.orderservice.model.PaymentMethod;
+import com.paymentservice.model.PaymentMethod;
 
 import java.math.BigDecimal;
 import java.util.UUID;
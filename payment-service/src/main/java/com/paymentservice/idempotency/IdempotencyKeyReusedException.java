@@ -0,0 +1,10 @@
+package com.paymentservice.idempotency;
+
+/**
+ * Ключ идемпотентности уже использован запросом с другим телом - это ошибка клиента, а не повтор.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.paymentservice.idempotency;
+
+/**
+ * Результат идемпотентного вызова; {@code replayed} - ответ взят из хранилища, операция не выполнялась.
+ */
+public record IdempotentResult<T>(
+        T body,
+        boolean replayed
+) {
+}
@@ -0,0 +1,106 @@
+package com.paymentservice.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bloom-фильтр недавних ключей идемпотентности в памяти процесса.
+ * <p>
+ * Два поколения: когда в текущем набирается {@code expectedKeys} ключей, оно становится предыдущим,
+ * а самое старое сбрасывается - так фильтр не переполняется и забывает ключи примерно со скоростью TTL в Redis.
+ * Ответ "нет" точен только для ключей этого узла, поэтому фильтр лишь экономит запросы к Redis,
+ * а решение о дубле всегда принимает Redis.
+ */
+class RecentKeysFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final int expectedKeys;
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    RecentKeysFilter(int expectedKeys, double falsePositiveRate) {
+        this.expectedKeys = expectedKeys;
+        // Стандартные формулы: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * Math.log(2)));
+        this.current = new Generation(bits);
+        this.previous = new Generation(bits);
+    }
+
+    boolean mightContain(String key) {
+        long hash1 = fnv1a(key);
+        long hash2 = mix(hash1);
+        return current.contains(hash1, hash2) || previous.contains(hash1, hash2);
+    }
+
+    void put(String key) {
+        long hash1 = fnv1a(key);
+        long hash2 = mix(hash1);
+        Generation generation = current;
+        generation.add(hash1, hash2);
+        if (generation.count.incrementAndGet() == expectedKeys) {
+            rotate(generation);
+        }
+    }
+
+    private synchronized void rotate(Generation full) {
+        if (current == full) {
+            previous = full;
+            current = new Generation(bits);
+        }
+    }
+
+    private final class Generation {
+        private final AtomicLongArray words;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Generation(int bits) {
+            this.words = new AtomicLongArray((bits + 63) >>> 6);
+        }
+
+        void add(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(hash1 + i * hash2);
+                int word = bit >>> 6;
+                long mask = 1L << bit;
+                long value;
+                do {
+                    value = words.get(word);
+                } while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask));
+            }
+        }
+
+        boolean contains(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(hash1 + i * hash2);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private int index(long combined) {
+        return (int) ((combined & Long.MAX_VALUE) % bits);
+    }
+
+    private static long fnv1a(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // splitmix64 - вторая независимая хеш-функция для двойного хеширования
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return (z ^ (z >>> 31)) | 1L;
+    }
+}
@@ -9,7 +9,7 @@ import org.mapstruct.Mapping;
 
 import java.util.List;
 
-@Mapper(componentModel = "spring",uses = {PaymentStatus.class})
+@Mapper(componentModel = "spring", imports = {PaymentStatus.class})
 public interface PaymentMapper {
 
     @Mapping(target = "status",expression = "java(PaymentStatus.CREATED)")
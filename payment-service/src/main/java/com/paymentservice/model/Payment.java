@@ -11,12 +11,16 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_created_at_id", columnList = "createdAt, id"),
+        // Один платеж на заказ: повторно доставленное событие order-payment не создаст второй
+        @Index(name = "uk_payments_order_id", columnList = "orderID", unique = true)
+})
 @Data
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.UUID)
     UUID id;
 
     @NotNull(message = "order id must be present")
@@ -0,0 +1,74 @@
+package com.paymentservice.repository;
+
+import com.paymentservice.model.Payment;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетная вставка платежей одним JDBC batch вместо save() на платеж.
+ * На Postgres с {@code reWriteBatchedInserts=true} в URL драйвер склеивает пакет в многострочные INSERT.
+ * <p>
+ * Платеж по заказу один (уникальный индекс по {@code orderid}): строка, чей заказ уже оплачен, не вставляется -
+ * {@code ON CONFLICT DO NOTHING} на Postgres, {@code MERGE ... WHEN NOT MATCHED} на остальных БД (H2 в тестах).
+ * Дубли видны по счетчикам batch: 0 - строка пропущена.
+ */
+@Repository
+public class PaymentBatchRepository {
+
+    private static final String COLUMNS = "id, orderid, user_id, amount, status, payment_method, created_at";
+
+    private static final String INSERT_PAYMENT_POSTGRES =
+            "INSERT INTO payments (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (orderid) DO NOTHING";
+    private static final String INSERT_PAYMENT_MERGE =
+            "MERGE INTO payments p USING (VALUES (CAST(? AS UUID), CAST(? AS UUID), CAST(? AS BIGINT), " +
+            "CAST(? AS NUMERIC(38, 2)), ?, ?, CAST(? AS TIMESTAMP WITH TIME ZONE))) " +
+            "AS s(" + COLUMNS + ") ON p.orderid = s.orderid " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (s.id, s.orderid, s.user_id, s.amount, s.status, " +
+            "s.payment_method, s.created_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertPayment;
+
+    public PaymentBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.insertPayment = "PostgreSQL".equalsIgnoreCase(database) ? INSERT_PAYMENT_POSTGRES : INSERT_PAYMENT_MERGE;
+    }
+
+    /**
+     * Вызывается в транзакции; id платежей назначает вызывающий код.
+     *
+     * @return вставленные платежи - без тех, чей заказ уже оплачен. Если драйвер не сообщает число строк
+     * ({@link Statement#SUCCESS_NO_INFO}, например при {@code reWriteBatchedInserts}), платеж считается вставленным
+     */
+    public List<Payment> insertAll(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(insertPayment, payments, payments.size(), (ps, payment) -> {
+            ps.setObject(1, payment.getId());
+            ps.setObject(2, payment.getOrderId());
+            ps.setLong(3, payment.getUserId());
+            ps.setBigDecimal(4, payment.getAmount());
+            ps.setString(5, payment.getStatus().name());
+            ps.setString(6, payment.getPaymentMethod().name());
+            ps.setTimestamp(7, Timestamp.from(payment.getCreatedAt()));
+        });
+
+        List<Payment> inserted = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            int count = counts[0][i];
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                inserted.add(payments.get(i));
+            }
+        }
+        return inserted;
+    }
+}
@@ -2,10 +2,14 @@ package com.paymentservice.repository;
 
 
 import com.paymentservice.model.Payment;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,4 +20,18 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
 
     List<Payment> findAllByUserId(Long userId);
+
+    Optional<Payment> findFirstByOrderIdOrderByCreatedAtAsc(UUID orderId);
+
+    // Keyset-пагинация по (createdAt, id). Условие createdAt <= :createdAt дает границу для индекса,
+    // поэтому глубокая страница читает столько же строк, сколько первая
+    @Query("SELECT p FROM Payment p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Payment> findFirstPage(Limit limit);
+
+    @Query("SELECT p FROM Payment p WHERE p.createdAt <= :createdAt " +
+            "AND (p.createdAt < :createdAt OR p.id < :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Payment> findPageAfter(@Param("createdAt") Instant createdAt,
+                                @Param("id") UUID id,
+                                Limit limit);
 }
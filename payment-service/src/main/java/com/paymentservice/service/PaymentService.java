@@ -2,6 +2,8 @@ package com.paymentservice.service;
 
 
 import com.paymentservice.dto.CreatePaymentRequest;
+import com.paymentservice.dto.CursorPage;
+import com.paymentservice.dto.PaymentCursor;
 import com.paymentservice.dto.PaymentResponse;
 
 import com.paymentservice.event.OrderPaymentEvent;
@@ -9,25 +11,70 @@ import com.paymentservice.exception.PaymentNotFoundException;
 import com.paymentservice.mapper.PaymentMapper;
 import com.paymentservice.model.Payment;
 import com.paymentservice.model.PaymentStatus;
+import com.paymentservice.repository.PaymentBatchRepository;
 import com.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
-@AllArgsConstructor
 public class PaymentService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final PaymentRepository paymentRepository;
     private final PaymentMapper paymentMapper;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSize;
+    private final Timer eventLag;
+    private final Counter createdPayments;
+    private final Counter duplicateEvents;
+
+    public PaymentService(PaymentRepository paymentRepository,
+                          PaymentMapper paymentMapper,
+                          PaymentBatchRepository paymentBatchRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.paymentMapper = paymentMapper;
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Лаг в записях по партициям (kafka.consumer.fetch.manager.records.lag*) публикует сам клиент Kafka
+        // через actuator; здесь - задержка от публикации события до его обработки и размер пакетов
+        this.batchSize = DistributionSummary.builder("payment.order_events.batch.size")
+                .description("Order payment events per consumed batch")
+                .register(meterRegistry);
+        this.eventLag = Timer.builder("payment.order_events.lag")
+                .description("Age of the oldest event in a batch when it is processed")
+                .register(meterRegistry);
+        this.createdPayments = Counter.builder("payment.order_events")
+                .tag("result", "created")
+                .register(meterRegistry);
+        this.duplicateEvents = Counter.builder("payment.order_events")
+                .tag("result", "duplicate")
+                .register(meterRegistry);
+    }
 
 
 
@@ -46,6 +93,27 @@ public class PaymentService {
 
 
 
+    // Keyset-пагинация вместо выгрузки всей таблицы: без OFFSET и COUNT(*)
+    public CursorPage<PaymentResponse> getAllPayments(String cursor, int limit){
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        List<Payment> payments = cursor == null || cursor.isBlank()
+                ? paymentRepository.findFirstPage(Limit.of(pageSize + 1))
+                : findPageAfter(PaymentCursor.decode(cursor), pageSize + 1);
+        String nextCursor = null;
+        if (payments.size() > pageSize) {
+            payments = payments.subList(0, pageSize);
+            Payment last = payments.get(pageSize - 1);
+            nextCursor = new PaymentCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(paymentMapper.toPaymentResponseList(payments), nextCursor);
+    }
+
+    private List<Payment> findPageAfter(PaymentCursor cursor, int limit) {
+        return paymentRepository.findPageAfter(cursor.createdAt(), cursor.id(), Limit.of(limit));
+    }
+
+
+
     @Transactional
     public  PaymentResponse createPayment(CreatePaymentRequest request){
         Payment payment= paymentMapper.toPayment(request);
@@ -62,26 +130,77 @@ public class PaymentService {
 
 
 
-    @KafkaListener(topics = "order-payment", groupId = "payment-group")
-    @Transactional
-    public void processOrderCreatedEvent(OrderPaymentEvent event) {
-        log.info("Processing OrderCreatedEvent for orderId: {}", event.orderId());
+    // Пакетный режим: за один poll приходит до max-batch-size событий (брокер копит их до max-wait),
+    // платежи вставляются одним JDBC batch в одной транзакции, offset коммитится после возврата из метода.
+    // Kafka доставляет at-least-once: повторы внутри пакета схлопываются по orderId, а уже оплаченные заказы
+    // пропускает сама вставка (уникальный индекс по orderid). Запись, которую нельзя обработать, не роняет
+    // весь пакет: записи до нее сохраняются, BatchListenerFailedException с ее индексом отдает обработчику
+    // ошибок контейнера только ее и следующие за ней
+    @KafkaListener(topics = "order-payment", groupId = "payment-group", batch = "true",
+            properties = {
+                    "max.poll.records=${payment.order-events.max-batch-size:500}",
+                    "fetch.max.wait.ms=${payment.order-events.max-wait-ms:200}",
+                    "fetch.min.bytes=${payment.order-events.min-batch-bytes:65536}"
+            })
+    public void processOrderPaymentEvents(List<OrderPaymentEvent> events,
+                                          @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> timestamps) {
+        timestamps.stream().mapToLong(Long::longValue).min()
+                .ifPresent(oldest -> eventLag.record(Math.max(0, System.currentTimeMillis() - oldest), TimeUnit.MILLISECONDS));
+        batchSize.record(events.size());
+
+        // ErrorHandlingDeserializer отдает вместо нечитаемой записи null
+        int failedIndex = -1;
+        for (int i = 0; i < events.size() && failedIndex < 0; i++) {
+            if (!isValid(events.get(i))) {
+                failedIndex = i;
+            }
+        }
+        List<OrderPaymentEvent> valid = failedIndex < 0 ? events : events.subList(0, failedIndex);
+
+        Map<UUID, OrderPaymentEvent> unique = new LinkedHashMap<>();
+        valid.forEach(event -> unique.putIfAbsent(event.orderId(), event));
         try {
-            Payment payment = new Payment();
-            payment.setUserId(event.userId());
-            payment.setOrderId(event.orderId());
-            payment.setAmount(event.amount());
-            payment.setStatus(PaymentStatus.PENDING);
-            payment.setCreatedAt(Instant.now());
-
-            Payment savedPayment = paymentRepository.save(payment);
-            log.info("Payment created for orderId: {}, paymentId: {}", event.orderId(), savedPayment.getId());
+            List<Payment> created = unique.isEmpty()
+                    ? List.of()
+                    : transactionTemplate.execute(status -> createPaymentsForOrders(unique));
+            createdPayments.increment(created.size());
+            duplicateEvents.increment(valid.size() - created.size());
+            log.info("Processed {} OrderCreatedEvents: {} payments created, {} duplicates skipped",
+                    valid.size(), created.size(), valid.size() - created.size());
         } catch (Exception e) {
-            log.error("Failed to process OrderCreatedEvent for orderId: {}, error: {}", event.orderId(), e.getMessage());
-            throw e; // Или обработайте иначе, например, отправьте событие об ошибке
+            log.error("Failed to process batch of {} OrderCreatedEvents, error: {}", valid.size(), e.getMessage());
+            throw e; // Контейнер повторит пакет, offset не закоммичен
+        }
+
+        if (failedIndex >= 0) {
+            throw new BatchListenerFailedException("Unreadable or incomplete order-payment event", failedIndex);
         }
     }
 
+    private static boolean isValid(OrderPaymentEvent event) {
+        return event != null && event.orderId() != null && event.userId() != null
+                && event.amount() != null && event.paymentMethod() != null;
+    }
+
+    // Возвращает только вставленные платежи: заказы, по которым платеж уже есть, вставка пропускает
+    private List<Payment> createPaymentsForOrders(Map<UUID, OrderPaymentEvent> events) {
+        Instant now = Instant.now();
+        List<Payment> payments = events.values().stream()
+                .map(event -> {
+                    Payment payment = new Payment();
+                    payment.setId(UUID.randomUUID());
+                    payment.setUserId(event.userId());
+                    payment.setOrderId(event.orderId());
+                    payment.setAmount(event.amount());
+                    payment.setPaymentMethod(event.paymentMethod());
+                    payment.setStatus(PaymentStatus.PENDING);
+                    payment.setCreatedAt(now);
+                    return payment;
+                })
+                .toList();
+        return paymentBatchRepository.insertAll(payments);
+    }
+
 
     @Transactional
     public PaymentResponse cancelPayment(UUID paymentId){
@@ -105,18 +224,10 @@ public class PaymentService {
             throw new IllegalStateException("Only failed payments can be retried.");
         }
 
-        // Создание новой записи для повтора оплаты
-        Payment retryPayment = new Payment();
-        retryPayment.setUserId(existingPayment.getUserId());
-        retryPayment.setOrderId(existingPayment.getOrderId());
-        retryPayment.setAmount(existingPayment.getAmount());
-        retryPayment.setStatus(PaymentStatus.COMPLETED); // Имітація успішної оплати
-        retryPayment.setCreatedAt(Instant.now());
-       // Додайте, якщо поле існує
-
-        // Сохранение новой записи
-        Payment savedPayment = paymentRepository.save(retryPayment);
-        log.info("Retried payment for paymentId: {}, new paymentId: {}", paymentId, savedPayment.getId());
+        // Платеж по заказу один (уникальный индекс по orderid): повтор завершает тот же платеж
+        existingPayment.setStatus(PaymentStatus.COMPLETED); // Имітація успішної оплати
+        Payment savedPayment = paymentRepository.save(existingPayment);
+        log.info("Retried payment {}", paymentId);
 
         // Возвращаем ответ с использованием маппера
         return paymentMapper.toPaymentResponse(savedPayment);
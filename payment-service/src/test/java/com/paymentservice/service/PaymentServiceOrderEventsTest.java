@@ -0,0 +1,126 @@
+package com.paymentservice.service;
+
+import com.paymentservice.event.OrderPaymentEvent;
+import com.paymentservice.mapper.PaymentMapper;
+import com.paymentservice.model.Payment;
+import com.paymentservice.model.PaymentMethod;
+import com.paymentservice.model.PaymentStatus;
+import com.paymentservice.repository.PaymentBatchRepository;
+import com.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Пакет order-payment: один платеж на заказ при повторной доставке, дубли считаются по счетчикам batch,
+ * нечитаемая запись отдается обработчику ошибок по индексу, записи до нее сохраняются.
+ */
+@DataJpaTest
+@Import(PaymentBatchRepository.class)
+class PaymentServiceOrderEventsTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentBatchRepository paymentBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        paymentService = new PaymentService(paymentRepository, mock(PaymentMapper.class), paymentBatchRepository,
+                transactionManager, meterRegistry);
+    }
+
+    @Test
+    void redeliveredBatchCreatesOnePaymentPerOrder() {
+        OrderPaymentEvent first = event();
+        OrderPaymentEvent second = event();
+        OrderPaymentEvent third = event();
+
+        process(first, second, first);
+        process(first, second, third);
+
+        assertThat(paymentRepository.findAll()).extracting(Payment::getOrderId)
+                .containsExactlyInAnyOrder(first.orderId(), second.orderId(), third.orderId());
+        assertThat(counter("created")).isEqualTo(3);
+        // Повтор внутри пакета и два уже оплаченных заказа во втором пакете
+        assertThat(counter("duplicate")).isEqualTo(3);
+    }
+
+    @Test
+    void batchInsertSkipsOnlyExistingOrders() {
+        OrderPaymentEvent existing = event();
+        process(existing);
+
+        List<Payment> inserted = paymentBatchRepository.insertAll(List.of(payment(existing), payment(event())));
+
+        assertThat(inserted).hasSize(1);
+        assertThat(inserted.getFirst().getOrderId()).isNotEqualTo(existing.orderId());
+        assertThat(paymentRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void unreadableRecordIsReportedByIndexAfterEarlierRecordsAreSaved() {
+        OrderPaymentEvent before = event();
+        OrderPaymentEvent after = event();
+        List<OrderPaymentEvent> batch = Arrays.asList(before, null, after);
+
+        assertThatThrownBy(() -> paymentService.processOrderPaymentEvents(batch, timestamps(batch.size())))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class,
+                        e -> assertThat(e.getIndex()).isEqualTo(1));
+
+        assertThat(paymentRepository.findAll()).extracting(Payment::getOrderId).containsExactly(before.orderId());
+    }
+
+    private void process(OrderPaymentEvent... events) {
+        paymentService.processOrderPaymentEvents(List.of(events), timestamps(events.length));
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("payment.order_events").tag("result", result).counter().count();
+    }
+
+    private static List<Long> timestamps(int count) {
+        return new ArrayList<>(Collections.nCopies(count, System.currentTimeMillis()));
+    }
+
+    private static OrderPaymentEvent event() {
+        return new OrderPaymentEvent(UUID.randomUUID(), 1L, new BigDecimal("10.50"), PaymentMethod.CREDIT_CARD);
+    }
+
+    private static Payment payment(OrderPaymentEvent event) {
+        Payment payment = new Payment();
+        payment.setId(UUID.randomUUID());
+        payment.setOrderId(event.orderId());
+        payment.setUserId(event.userId());
+        payment.setAmount(event.amount());
+        payment.setPaymentMethod(event.paymentMethod());
+        payment.setStatus(PaymentStatus.PENDING);
+        payment.setCreatedAt(Instant.now());
+        return payment;
+    }
+}
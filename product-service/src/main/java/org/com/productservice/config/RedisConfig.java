@@ -6,6 +6,17 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.com.productservice.config.cache.CacheInvalidationPublisher;
+import org.com.productservice.config.cache.CacheTagIndex;
+import org.com.productservice.config.cache.JitteredTtl;
+import org.com.productservice.config.cache.CacheTierProperties;
+import org.com.productservice.config.cache.TwoTierCacheManager;
+import org.com.productservice.config.cache.serializer.CategoryResponseCodec;
+import org.com.productservice.config.cache.serializer.CompactCacheSerializer;
+import org.com.productservice.config.cache.serializer.ProductResponseCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -15,16 +26,24 @@ import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheTierProperties.class)
 public class RedisConfig {
 
 
@@ -44,7 +63,44 @@ public class RedisConfig {
 
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate stringRedisTemplate,
+                                                                 CacheTierProperties cacheTierProperties) {
+        return new CacheInvalidationPublisher(stringRedisTemplate, cacheTierProperties.getInvalidationChannel());
+    }
+
+    // Теги живут не меньше самой долгой записи в Redis
+    @Bean
+    public CacheTagIndex cacheTagIndex(StringRedisTemplate stringRedisTemplate,
+                                       CacheTierProperties cacheTierProperties) {
+        Duration maxTtl = cacheTierProperties.getDefaults().getRedisTtl();
+        for (String name : cacheTierProperties.getCaches().keySet()) {
+            Duration ttl = cacheTierProperties.forCache(name).getRedisTtl();
+            if (ttl.compareTo(maxTtl) > 0) {
+                maxTtl = ttl;
+            }
+        }
+        return new CacheTagIndex(stringRedisTemplate, maxTtl);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                           TwoTierCacheManager cacheManager,
+                                                                           CacheTierProperties cacheTierProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheTierProperties.getInvalidationChannel()));
+        return container;
+    }
+
+    // L1 (Caffeine) на каждом узле перед общим L2 (Redis)
+    @Bean
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                            CacheTierProperties cacheTierProperties,
+                                            CacheInvalidationPublisher cacheInvalidationPublisher,
+                                            CacheTagIndex cacheTagIndex,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${cache.serializer.format:binary}") String serializerFormat,
+                                            @Value("${cache.serializer.compression-threshold:1024}") int compressionThreshold) {
         // Создаём кастомный ObjectMapper
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule()); // Поддержка LocalDateTime
@@ -60,28 +116,48 @@ public class RedisConfig {
         // Увеличиваем максимальную глубину вложенности для коллекций
         //objectMapper.configure(com.fasterxml.jackson.core.StreamReadConstraints.Builder::withMaxNestingDepth(2000), true);
 
+        RedisSerializer<Object> jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper) {
+            @Override
+            public byte[] serialize(Object object) {
+                if (object instanceof Collection) {
+                    // Обработка коллекций для корректной сериализации
+                    return super.serialize(new ArrayList<>((Collection<?>) object));
+                }
+                return super.serialize(object);
+            }
+        };
+
+        // Горячие DTO пишем компактным бинарным форматом, остальное - JSON
+        RedisSerializer<Object> valueSerializer = "json".equalsIgnoreCase(serializerFormat)
+                ? jsonSerializer
+                : new CompactCacheSerializer(
+                        List.of(new ProductResponseCodec(), new CategoryResponseCodec()),
+                        jsonSerializer,
+                        compressionThreshold);
+
         // Настраиваем конфигурацию кэша
         RedisCacheConfiguration cacheConfiguration = RedisCacheConfiguration
                 .defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(30)) // Время жизни кэша
+                .entryTtl(new JitteredTtl(cacheTierProperties.getDefaults().getRedisTtl(),
+                        cacheTierProperties.getTtlJitter())) // Время жизни кэша, с разбросом
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
-                        new GenericJackson2JsonRedisSerializer(objectMapper) {
-                            @Override
-                            public byte[] serialize(Object object) {
-                                if (object instanceof Collection) {
-                                    // Обработка коллекций для корректной сериализации
-                                    return super.serialize(new ArrayList<>((Collection<?>) object));
-                                }
-                                return super.serialize(object);
-                            }
-                        }
-                ));
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer));
+
+        // TTL в Redis задается по имени кеша
+        Map<String, RedisCacheConfiguration> perCacheConfigurations = new HashMap<>();
+        cacheTierProperties.getCaches().keySet().forEach(name -> perCacheConfigurations.put(name,
+                cacheConfiguration.entryTtl(new JitteredTtl(cacheTierProperties.forCache(name).getRedisTtl(),
+                        cacheTierProperties.getTtlJitter()))));
 
         // Создаём менеджер кэша
-        return RedisCacheManager.builder(redisConnectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(cacheConfiguration)
+                .withInitialCacheConfigurations(perCacheConfigurations)
                 .build();
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoTierCacheManager(redisCacheManager, cacheTierProperties, cacheInvalidationPublisher,
+                cacheTagIndex, meterRegistry);
     }
 
 
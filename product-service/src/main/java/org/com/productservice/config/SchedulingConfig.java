@@ -0,0 +1,10 @@
+package org.com.productservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Фоновые задачи: InventoryLedger.expireHolds (снятие просроченных резервов)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
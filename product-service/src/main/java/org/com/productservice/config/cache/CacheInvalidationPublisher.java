@@ -0,0 +1,51 @@
+package org.com.productservice.config.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+
+/**
+ * Рассылает инвалидацию L1 остальным узлам через Redis pub/sub.
+ * Формат сообщения: {@code E|node|cache|key} или {@code C|node|cache}.
+ */
+@Slf4j
+public class CacheInvalidationPublisher {
+
+    static final String EVICT = "E";
+    static final String CLEAR = "C";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheInvalidationPublisher(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public void publishEvict(String cacheName, String key) {
+        send(EVICT + "|" + nodeId + "|" + cacheName + "|" + key);
+    }
+
+    public void publishClear(String cacheName) {
+        send(CLEAR + "|" + nodeId + "|" + cacheName);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    private void send(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            // L1 на других узлах доживет до своего TTL
+            log.warn("Failed to publish cache invalidation '{}': {}", message, e.getMessage());
+        }
+    }
+}
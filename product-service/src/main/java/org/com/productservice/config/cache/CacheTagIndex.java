@@ -0,0 +1,155 @@
+package org.com.productservice.config.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Индекс тегов для записей кеша: какие записи содержат данный товар/категорию.
+ * <p>
+ * Для кешей с зарегистрированным extractor'ом при каждом put ключ записи добавляется
+ * в Redis sorted set {@code cache-ztags:<tag>} (член - {@code cache|key}, score - время записи
+ * в мс). Запись затем сбрасывается точечно через {@link #evictTagged} вместо {@code allEntries = true}.
+ * <p>
+ * TTL самого ключа продлевается каждым put, поэтому у часто пополняемых тегов (например,
+ * общего тега всех поисковых запросов) он не истекает никогда. Чтобы такие теги не росли
+ * бесконечно, при каждой записи из них вырезаются члены старше {@code tagTtl} - самого
+ * долгого TTL записей в Redis: их записи к этому моменту уже истекли. Размер тега ограничен
+ * числом записей за одно окно TTL; чтение идет по score, так что отстающие члены не отдаются.
+ */
+@Slf4j
+public class CacheTagIndex {
+
+    // Раньше теги были обычными множествами под "cache-tags:" - новый префикс, чтобы не ловить WRONGTYPE
+    private static final String TAG_PREFIX = "cache-ztags:";
+    private static final String MEMBER_SEPARATOR = "|";
+    private static final int SCAN_BATCH = 500;
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration tagTtl;
+    private final Map<String, Function<Object, Collection<String>>> extractors = new ConcurrentHashMap<>();
+
+    public CacheTagIndex(StringRedisTemplate redisTemplate, Duration tagTtl) {
+        this.redisTemplate = redisTemplate;
+        this.tagTtl = tagTtl;
+    }
+
+    public void registerExtractor(String cacheName, Function<Object, Collection<String>> extractor) {
+        extractors.put(cacheName, extractor);
+    }
+
+    public boolean isTagged(String cacheName) {
+        return extractors.containsKey(cacheName);
+    }
+
+    /**
+     * Ставит теги для одной записи и вырезает из этих тегов протухшие члены. Ошибки Redis
+     * не ломают чтение - запись просто не будет сброшена точечно и доживет до TTL.
+     */
+    void record(String cacheName, String key, Object value) {
+        Function<Object, Collection<String>> extractor = extractors.get(cacheName);
+        if (extractor == null || value == null) {
+            return;
+        }
+        Collection<String> tags = extractor.apply(value);
+        if (tags.isEmpty()) {
+            return;
+        }
+        String member = cacheName + MEMBER_SEPARATOR + key;
+        long now = System.currentTimeMillis();
+        double cutoff = cutoff(now);
+        long ttlSeconds = tagTtl.toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String tag : tags) {
+                    stringConnection.zAdd(TAG_PREFIX + tag, now, member);
+                    stringConnection.zRemRangeByScore(TAG_PREFIX + tag, Double.NEGATIVE_INFINITY, cutoff);
+                    stringConnection.expire(TAG_PREFIX + tag, ttlSeconds);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to record cache tags for {}:{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    /**
+     * Живые члены тега. Для тегов товаров и категорий - их немного, читаем одним запросом.
+     */
+    public Set<String> members(String tag) {
+        Set<String> members = redisTemplate.opsForZSet()
+                .rangeByScore(TAG_PREFIX + tag, cutoff(System.currentTimeMillis()), Double.POSITIVE_INFINITY);
+        return members != null ? members : Set.of();
+    }
+
+    /**
+     * Обходит живые члены тега через ZSCAN порциями, не загружая весь тег в память.
+     * Члены, удаленные во время обхода, могут как попасть, так и не попасть в выборку.
+     */
+    public void forEachMember(String tag, Consumer<String> action) {
+        double cutoff = cutoff(System.currentTimeMillis());
+        ScanOptions options = ScanOptions.scanOptions().count(SCAN_BATCH).build();
+        try (Cursor<ZSetOperations.TypedTuple<String>> cursor =
+                     redisTemplate.opsForZSet().scan(TAG_PREFIX + tag, options)) {
+            while (cursor.hasNext()) {
+                ZSetOperations.TypedTuple<String> tuple = cursor.next();
+                if (tuple.getValue() != null && tuple.getScore() != null && tuple.getScore() > cutoff) {
+                    action.accept(tuple.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает все записи, помеченные любым из тегов, и сами теги.
+     *
+     * @return количество сброшенных записей
+     */
+    public int evictTagged(CacheManager cacheManager, Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return 0;
+        }
+        Set<String> members = new HashSet<>();
+        for (String tag : tags) {
+            members.addAll(members(tag));
+        }
+        members.forEach(member -> evictMember(cacheManager, member));
+        redisTemplate.delete(tags.stream().map(tag -> TAG_PREFIX + tag).toList());
+        return members.size();
+    }
+
+    public void evictMember(CacheManager cacheManager, String member) {
+        int separator = member.indexOf(MEMBER_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(member.substring(0, separator));
+        if (cache != null) {
+            cache.evict(member.substring(separator + 1));
+        }
+    }
+
+    public void removeMember(String tag, String member) {
+        redisTemplate.opsForZSet().remove(TAG_PREFIX + tag, member);
+    }
+
+    private double cutoff(long nowMillis) {
+        return nowMillis - tagTtl.toMillis();
+    }
+}
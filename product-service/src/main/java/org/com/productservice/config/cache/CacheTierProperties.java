@@ -0,0 +1,59 @@
+package org.com.productservice.config.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Размеры и TTL уровней кеша по имени кеша ({@code cache.tiers.caches.<name>}).
+ * Незаданные значения берутся из {@code cache.tiers.defaults}.
+ * <p>
+ * {@code ttlJitter} - доля, на которую случайно укорачивается TTL в Redis;
+ * {@code earlyRefreshBeta} - агрессивность вероятностного раннего обновления (0 - выключено).
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.tiers")
+public class CacheTierProperties {
+
+    private String invalidationChannel = "cache:invalidation";
+
+    private double ttlJitter = 0.1;
+
+    private double earlyRefreshBeta = 1.0;
+
+    private int refreshThreads = 2;
+
+    private Tier defaults = new Tier(1_000L, Duration.ofMinutes(1), Duration.ofMinutes(30));
+
+    private Map<String, Tier> caches = new HashMap<>();
+
+    public Tier forCache(String name) {
+        Tier tier = caches.get(name);
+        if (tier == null) {
+            return defaults;
+        }
+        return new Tier(
+                tier.getL1MaxSize() != null ? tier.getL1MaxSize() : defaults.getL1MaxSize(),
+                tier.getL1Ttl() != null ? tier.getL1Ttl() : defaults.getL1Ttl(),
+                tier.getRedisTtl() != null ? tier.getRedisTtl() : defaults.getRedisTtl());
+    }
+
+    @Data
+    public static class Tier {
+        private Long l1MaxSize;
+        private Duration l1Ttl;
+        private Duration redisTtl;
+
+        public Tier() {
+        }
+
+        public Tier(Long l1MaxSize, Duration l1Ttl, Duration redisTtl) {
+            this.l1MaxSize = l1MaxSize;
+            this.l1Ttl = l1Ttl;
+            this.redisTtl = redisTtl;
+        }
+    }
+}
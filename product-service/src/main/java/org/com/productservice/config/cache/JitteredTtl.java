@@ -0,0 +1,42 @@
+package org.com.productservice.config.cache;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * TTL записи в Redis со случайным сдвигом вниз: {@code base * (1 - random * jitter)}.
+ * Записи, положенные одновременно (прогрев, массовый сброс), истекают вразнобой,
+ * а не все в одну секунду.
+ */
+public class JitteredTtl implements RedisCacheWriter.TtlFunction {
+
+    private final Duration base;
+    private final double jitter;
+
+    public JitteredTtl(Duration base, double jitter) {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("TTL jitter must be in [0, 1): " + jitter);
+        }
+        this.base = base;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public Duration getTimeToLive(Object key, Object value) {
+        if (jitter == 0) {
+            return base;
+        }
+        long baseMillis = base.toMillis();
+        long shift = (long) (baseMillis * jitter * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(baseMillis - shift);
+    }
+
+    /**
+     * Нижняя граница TTL - по ней узел оценивает, когда запись истечет в Redis.
+     */
+    public Duration minimum() {
+        return Duration.ofMillis((long) (base.toMillis() * (1 - jitter)));
+    }
+}
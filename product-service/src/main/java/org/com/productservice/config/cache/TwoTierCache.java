@@ -0,0 +1,333 @@
+package org.com.productservice.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * L1 (Caffeine, в памяти узла) перед L2 (Redis).
+ * Чтение: L1 -> L2 -> источник. Eviction/clear идут в оба уровня и рассылаются
+ * остальным узлам, чтобы они сбросили свой L1. При записи значения ставятся теги
+ * ({@link CacheTagIndex}), если для кеша они настроены.
+ * <p>
+ * Значения из L1 отдаются без копирования - кешируемые DTO нельзя менять после выдачи.
+ * <p>
+ * {@link #get(Object, Callable)} ({@code @Cacheable(sync = true)}):
+ * <ul>
+ *     <li>single-flight - одновременные промахи по одному ключу на узле ждут одну загрузку (лидера);</li>
+ *     <li>раннее обновление (XFetch) - если узел сам загружал запись, то при чтении незадолго до
+ *     истечения TTL он с вероятностью, растущей к концу TTL, перезагружает ее в фоне.</li>
+ * </ul>
+ * Фоновое обновление идет только через загрузчик, зарегистрированный для кеша
+ * ({@link TwoTierCacheManager#registerRefreshLoader}). Загрузчик от Spring вызывает
+ * аннотированный метод в контексте вызывающего (транзакция, security, request scope),
+ * и звать его из пула после возврата вызова нельзя. Без загрузчика раннего обновления нет.
+ * <p>
+ * Загруженное значение записывается, только если загрузка все еще числится в {@code inFlight}:
+ * evict/clear (в том числе с другого узла) снимают ее оттуда, и загрузка, начатая до сброса,
+ * не вернет в кеш старые данные. Запись в Redis идет вне блокировок {@code inFlight}; если сброс
+ * пришел во время записи, она откатывается.
+ */
+@Slf4j
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> l1;
+    private final Cache l2;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final CacheTagIndex tagIndex;
+
+    // Загрузки, которые сейчас выполняются на этом узле (ключ - как в L1)
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    // Когда запись, загруженная этим узлом, истечет в Redis и сколько стоила загрузка
+    private final com.github.benmanes.caffeine.cache.Cache<String, LoadStamp> loadStamps;
+    private final long redisTtlNanos;
+    private final double earlyRefreshBeta;
+    private final Executor refreshExecutor;
+    private volatile Function<Object, ?> refreshLoader;
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter leaderLoads;
+    private final Counter coalescedLoads;
+    private final Counter earlyRefreshes;
+
+    public TwoTierCache(String name,
+                        com.github.benmanes.caffeine.cache.Cache<String, Object> l1,
+                        Cache l2,
+                        CacheInvalidationPublisher invalidationPublisher,
+                        CacheTagIndex tagIndex,
+                        Duration minRedisTtl,
+                        double earlyRefreshBeta,
+                        Executor refreshExecutor,
+                        MeterRegistry meterRegistry) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.invalidationPublisher = invalidationPublisher;
+        this.tagIndex = tagIndex;
+        this.redisTtlNanos = minRedisTtl.toNanos();
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.refreshExecutor = refreshExecutor;
+        this.loadStamps = Caffeine.newBuilder()
+                .maximumSize(l1.policy().eviction().map(e -> e.getMaximum()).orElse(10_000L))
+                .expireAfterWrite(minRedisTtl)
+                .build();
+        this.l1Hits = tierCounter(meterRegistry, "l1", "hit");
+        this.l1Misses = tierCounter(meterRegistry, "l1", "miss");
+        this.l2Hits = tierCounter(meterRegistry, "l2", "hit");
+        this.l2Misses = tierCounter(meterRegistry, "l2", "miss");
+        this.leaderLoads = loadCounter(meterRegistry, "leader");
+        this.coalescedLoads = loadCounter(meterRegistry, "coalesced");
+        this.earlyRefreshes = loadCounter(meterRegistry, "early_refresh");
+    }
+
+    private Counter loadCounter(MeterRegistry meterRegistry, String role) {
+        return Counter.builder("cache.loads")
+                .tag("cache", name)
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    private Counter tierCounter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.tier.gets")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String l1Key = l1Key(key);
+        Object local = l1.getIfPresent(l1Key);
+        if (local != null) {
+            l1Hits.increment();
+            return new SimpleValueWrapper(local);
+        }
+        l1Misses.increment();
+
+        ValueWrapper remote = l2.get(key);
+        if (remote == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        if (remote.get() != null) {
+            l1.put(l1Key, remote.get());
+        }
+        return remote;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            maybeRefreshEarly(key);
+            return (T) wrapper.get();
+        }
+
+        String l1Key = l1Key(key);
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(l1Key, own);
+        if (leader != null) {
+            coalescedLoads.increment();
+            return (T) await(key, leader);
+        }
+        leaderLoads.increment();
+        try {
+            Object value = load(key, valueLoader, own);
+            own.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(l1Key, own);
+        }
+    }
+
+    private Object await(Object key, CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ValueRetrievalException retrievalException) {
+                throw retrievalException;
+            }
+            throw new ValueRetrievalException(key, null, e.getCause());
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader, CompletableFuture<Object> own) {
+        long startedAt = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Throwable e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        long loadNanos = System.nanoTime() - startedAt;
+        String l1Key = l1Key(key);
+        if (value != null && inFlight.get(l1Key) == own) {
+            // Redis и теги пишем без блокировок, затем сверяемся с inFlight еще раз: evict снимает
+            // загрузку оттуда до сброса уровней, поэтому если она все еще наша - сброс (если будет)
+            // пройдет после записи; если уже нет - сброс мог пройти до нее, и запись откатываем
+            put(key, value);
+            if (inFlight.get(l1Key) == own) {
+                loadStamps.put(l1Key, new LoadStamp(startedAt + redisTtlNanos, loadNanos));
+            } else {
+                rollbackStaleWrite(key, l1Key);
+            }
+        }
+        return value;
+    }
+
+    private void rollbackStaleWrite(Object key, String l1Key) {
+        log.debug("Load of {}:{} raced with eviction, dropping written value", name, l1Key);
+        l2.evict(key);
+        l1.invalidate(l1Key);
+        loadStamps.invalidate(l1Key);
+        // Другой узел мог успеть прочитать значение из Redis в свой L1
+        invalidationPublisher.publishEvict(name, l1Key);
+    }
+
+    /**
+     * XFetch: обновляем, если {@code now - loadTime * beta * ln(rand) >= expiresAt}.
+     * Чем дороже загрузка и ближе истечение, тем раньше один из читателей запустит обновление,
+     * и запись не истечет под нагрузкой. Читатель при этом получает текущее значение сразу.
+     */
+    private void maybeRefreshEarly(Object key) {
+        Function<Object, ?> loader = refreshLoader;
+        if (earlyRefreshBeta <= 0 || loader == null) {
+            return;
+        }
+        String l1Key = l1Key(key);
+        LoadStamp stamp = loadStamps.getIfPresent(l1Key);
+        if (stamp == null) {
+            return;
+        }
+        double gap = stamp.loadNanos() * earlyRefreshBeta * -Math.log(ThreadLocalRandom.current().nextDouble());
+        if (System.nanoTime() + (long) gap < stamp.expiresAtNanos() || inFlight.containsKey(l1Key)) {
+            return;
+        }
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(l1Key, own) != null) {
+            return;
+        }
+        // Повторно не обновляем, пока идет загрузка или если пул занят
+        loadStamps.invalidate(l1Key);
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    own.complete(load(key, () -> loader.apply(key), own));
+                    earlyRefreshes.increment();
+                } catch (RuntimeException e) {
+                    own.completeExceptionally(e);
+                    log.debug("Early refresh of {}:{} failed: {}", name, l1Key, e.getMessage());
+                } finally {
+                    inFlight.remove(l1Key, own);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(l1Key, own);
+            own.complete(null);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        if (value != null) {
+            l1.put(l1Key(key), value);
+            tagIndex.record(name, l1Key(key), value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        String l1Key = l1Key(key);
+        inFlight.remove(l1Key);
+        l2.evict(key);
+        l1.invalidate(l1Key);
+        loadStamps.invalidate(l1Key);
+        invalidationPublisher.publishEvict(name, l1Key);
+    }
+
+    @Override
+    public void clear() {
+        inFlight.clear();
+        l2.clear();
+        l1.invalidateAll();
+        loadStamps.invalidateAll();
+        invalidationPublisher.publishClear(name);
+    }
+
+    /**
+     * Сброс только L1 по сообщению от другого узла (без повторной рассылки).
+     */
+    void evictLocal(String l1Key) {
+        inFlight.remove(l1Key);
+        l1.invalidate(l1Key);
+        loadStamps.invalidate(l1Key);
+    }
+
+    void clearLocal() {
+        inFlight.clear();
+        l1.invalidateAll();
+        loadStamps.invalidateAll();
+    }
+
+    void setRefreshLoader(Function<Object, ?> refreshLoader) {
+        this.refreshLoader = refreshLoader;
+    }
+
+    com.github.benmanes.caffeine.cache.Cache<String, Object> getLocalCache() {
+        return l1;
+    }
+
+    // Ключи в Redis и так строковые; в L1 храним так же, чтобы инвалидация с другого узла совпадала
+    static String l1Key(Object key) {
+        return String.valueOf(key);
+    }
+
+    private record LoadStamp(long expiresAtNanos, long loadNanos) {
+    }
+}
@@ -0,0 +1,132 @@
+package org.com.productservice.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * {@link CacheManager}, который оборачивает каждый Redis-кеш в {@link TwoTierCache}
+ * и принимает сообщения об инвалидации L1 от других узлов.
+ * Раннее обновление записей выполняется на небольшом общем пуле загрузчиками
+ * из {@link #registerRefreshLoader}; при переполнении очереди обновление просто
+ * пропускается - запись истечет и загрузится через single-flight.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener, DisposableBean {
+
+    private static final int REFRESH_QUEUE_CAPACITY = 1_000;
+
+
+    private final RedisCacheManager redisCacheManager;
+    private final CacheTierProperties properties;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final CacheTagIndex tagIndex;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor;
+
+    public TwoTierCacheManager(RedisCacheManager redisCacheManager,
+                               CacheTierProperties properties,
+                               CacheInvalidationPublisher invalidationPublisher,
+                               CacheTagIndex tagIndex,
+                               MeterRegistry meterRegistry) {
+        this.redisCacheManager = redisCacheManager;
+        this.properties = properties;
+        this.invalidationPublisher = invalidationPublisher;
+        this.tagIndex = tagIndex;
+        this.meterRegistry = meterRegistry;
+        this.refreshExecutor = createRefreshExecutor(properties.getRefreshThreads());
+    }
+
+    private static ExecutorService createRefreshExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    /**
+     * Загрузчик для раннего обновления записей кеша по ключу (тот же ключ, что в {@code @Cacheable}).
+     * Вызывается в пуле обновления, поэтому не должен зависеть от контекста вызывающего потока;
+     * {@code null} в ответе - значение не записывается.
+     */
+    public void registerRefreshLoader(String cacheName, Function<Object, ?> loader) {
+        caches.computeIfAbsent(cacheName, this::createCache).setRefreshLoader(loader);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache createCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (redisCache == null) {
+            throw new IllegalStateException("Redis cache '" + name + "' could not be created");
+        }
+        CacheTierProperties.Tier tier = properties.forCache(name);
+        com.github.benmanes.caffeine.cache.Cache<String, Object> l1 = Caffeine.newBuilder()
+                .maximumSize(tier.getL1MaxSize())
+                .expireAfterWrite(tier.getL1Ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, name + ".l1");
+        Duration minRedisTtl = new JitteredTtl(tier.getRedisTtl(), properties.getTtlJitter()).minimum();
+        return new TwoTierCache(name, l1, redisCache, invalidationPublisher, tagIndex,
+                minRedisTtl, properties.getEarlyRefreshBeta(), refreshExecutor, meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 3 || invalidationPublisher.getNodeId().equals(parts[1])) {
+            return;
+        }
+        TwoTierCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (CacheInvalidationPublisher.CLEAR.equals(parts[0])) {
+            cache.clearLocal();
+        } else if (CacheInvalidationPublisher.EVICT.equals(parts[0]) && parts.length == 4) {
+            cache.evictLocal(parts[3]);
+        } else {
+            log.warn("Unknown cache invalidation message: {}", String.join("|", parts));
+        }
+    }
+}
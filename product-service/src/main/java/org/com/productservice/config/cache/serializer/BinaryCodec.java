@@ -0,0 +1,21 @@
+package org.com.productservice.config.cache.serializer;
+
+/**
+ * Схема бинарной сериализации одного типа DTO для {@link CompactCacheSerializer}.
+ * <p>
+ * {@code typeId} пишется в заголовок и не должен меняться. При изменении полей
+ * увеличивается {@code schemaVersion}, а {@link #read} продолжает понимать старые версии,
+ * пока записи с ними могут жить в Redis.
+ */
+public interface BinaryCodec<T> {
+
+    int typeId();
+
+    int schemaVersion();
+
+    Class<T> type();
+
+    void write(T value, BinaryOutput out);
+
+    T read(BinaryInput in, int schemaVersion);
+}
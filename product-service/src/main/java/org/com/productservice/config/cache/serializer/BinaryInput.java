@@ -0,0 +1,148 @@
+package org.com.productservice.config.cache.serializer;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Чтение формата {@link BinaryOutput}.
+ */
+public final class BinaryInput {
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+
+    public BinaryInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int readByte() {
+        if (position >= limit) {
+            throw new SerializationException("Unexpected end of cached value");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varint");
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varlong");
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public long readLong() {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | readByte();
+        }
+        return result;
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        checkRemaining(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public Integer readNullableInt() {
+        return readByte() == 0 ? null : (int) readSignedVarLong();
+    }
+
+    public Long readNullableLong() {
+        return readByte() == 0 ? null : readSignedVarLong();
+    }
+
+    public UUID readUuid() {
+        if (readByte() == 0) {
+            return null;
+        }
+        return new UUID(readLong(), readLong());
+    }
+
+    public BigDecimal readBigDecimal() {
+        int kind = readByte();
+        if (kind == 0) {
+            return null;
+        }
+        int scale = (int) readSignedVarLong();
+        if (kind == 1) {
+            return BigDecimal.valueOf(readSignedVarLong(), scale);
+        }
+        int length = readVarInt();
+        checkRemaining(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    public LocalDateTime readLocalDateTime() {
+        if (readByte() == 0) {
+            return null;
+        }
+        long epochSecond = readSignedVarLong();
+        int nano = readVarInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    public List<String> readStringList() {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        size--;
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    private void checkRemaining(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new SerializationException("Unexpected end of cached value");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.com.productservice.config.cache.serializer;
+
+import org.com.productservice.dto.category.CategoryResponse;
+
+public class CategoryResponseCodec implements BinaryCodec<CategoryResponse> {
+
+    @Override
+    public int typeId() {
+        return 2;
+    }
+
+    @Override
+    public int schemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public Class<CategoryResponse> type() {
+        return CategoryResponse.class;
+    }
+
+    @Override
+    public void write(CategoryResponse value, BinaryOutput out) {
+        out.writeNullableLong(value.getId());
+        out.writeString(value.getName());
+    }
+
+    @Override
+    public CategoryResponse read(BinaryInput in, int schemaVersion) {
+        return new CategoryResponse(in.readNullableLong(), in.readString());
+    }
+}
@@ -0,0 +1,176 @@
+package org.com.productservice.config.cache.serializer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Бинарный {@link RedisSerializer} для DTO, у которых есть {@link BinaryCodec}.
+ * <p>
+ * Формат: {@code MAGIC | FORMAT_VERSION | flags | typeId | schemaVersion | [rawLength] | payload}.
+ * Списки одного типа пишутся как счетчик + элементы. Payload больше {@code compressionThreshold}
+ * сжимается LZ4. Все остальные значения уходят в JSON-сериализатор; при чтении JSON отличается
+ * по первому байту, поэтому старые записи в Redis продолжают читаться.
+ */
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xB1;
+    static final int FORMAT_VERSION = 1;
+
+    private static final int FLAG_LIST = 1;
+    private static final int FLAG_LZ4 = 1 << 1;
+    private static final int EMPTY_LIST_TYPE = 0;
+
+    private final Map<Class<?>, BinaryCodec<?>> codecsByType = new HashMap<>();
+    private final Map<Integer, BinaryCodec<?>> codecsById = new HashMap<>();
+    private final RedisSerializer<Object> fallback;
+    private final int compressionThreshold;
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    /**
+     * @param compressionThreshold размер payload в байтах, начиная с которого включается LZ4; {@code <= 0} - без сжатия
+     */
+    public CompactCacheSerializer(List<BinaryCodec<?>> codecs, RedisSerializer<Object> fallback, int compressionThreshold) {
+        for (BinaryCodec<?> codec : codecs) {
+            if (codec.typeId() <= EMPTY_LIST_TYPE || codec.typeId() > 255) {
+                throw new IllegalArgumentException("Codec typeId must be in 1..255: " + codec.type());
+            }
+            if (codecsById.putIfAbsent(codec.typeId(), codec) != null) {
+                throw new IllegalArgumentException("Duplicate codec typeId " + codec.typeId());
+            }
+            codecsByType.put(codec.type(), codec);
+        }
+        this.fallback = fallback;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (value instanceof List<?> list) {
+            return serializeList(list);
+        }
+        BinaryCodec<?> codec = codecsByType.get(value.getClass());
+        if (codec == null) {
+            return fallback.serialize(value);
+        }
+        BinaryOutput payload = new BinaryOutput(256);
+        writeValue(codec, value, payload);
+        return frame(0, codec, payload);
+    }
+
+    private byte[] serializeList(List<?> list) {
+        if (list.isEmpty()) {
+            return frame(FLAG_LIST, null, new BinaryOutput(16));
+        }
+        Object first = list.get(0);
+        BinaryCodec<?> codec = first != null ? codecsByType.get(first.getClass()) : null;
+        if (codec == null) {
+            return fallback.serialize(list);
+        }
+        for (Object element : list) {
+            if (element == null || element.getClass() != codec.type()) {
+                return fallback.serialize(list);
+            }
+        }
+        BinaryOutput payload = new BinaryOutput(64 * list.size());
+        payload.writeVarInt(list.size());
+        for (Object element : list) {
+            writeValue(codec, element, payload);
+        }
+        return frame(FLAG_LIST, codec, payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void writeValue(BinaryCodec<T> codec, Object value, BinaryOutput out) {
+        codec.write((T) value, out);
+    }
+
+    private byte[] frame(int flags, BinaryCodec<?> codec, BinaryOutput payload) {
+        int rawLength = payload.size();
+        boolean compress = compressionThreshold > 0 && rawLength >= compressionThreshold;
+
+        BinaryOutput out = new BinaryOutput(rawLength + 16);
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(flags | (compress ? FLAG_LZ4 : 0));
+        out.writeByte(codec != null ? codec.typeId() : EMPTY_LIST_TYPE);
+        out.writeByte(codec != null ? codec.schemaVersion() : 0);
+        if (compress) {
+            byte[] compressed = new byte[compressor.maxCompressedLength(rawLength)];
+            int compressedLength = compressor.compress(payload.buffer(), 0, rawLength, compressed, 0, compressed.length);
+            out.writeVarInt(rawLength);
+            out.writeBytes(compressed, 0, compressedLength);
+        } else {
+            out.writeBytes(payload.buffer(), 0, rawLength);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+
+        BinaryInput header = new BinaryInput(bytes, 1, bytes.length - 1);
+        int formatVersion = header.readByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new SerializationException("Unsupported cache format version " + formatVersion);
+        }
+        int flags = header.readByte();
+        int typeId = header.readByte();
+        int schemaVersion = header.readByte();
+
+        if ((flags & FLAG_LIST) != 0 && typeId == EMPTY_LIST_TYPE) {
+            return new ArrayList<>();
+        }
+        BinaryCodec<?> codec = codecsById.get(typeId);
+        if (codec == null) {
+            throw new SerializationException("No codec registered for cached typeId " + typeId);
+        }
+
+        BinaryInput in;
+        if ((flags & FLAG_LZ4) != 0) {
+            int rawLength = header.readVarInt();
+            int headerLength = 5 + varIntLength(rawLength);
+            byte[] raw = new byte[rawLength];
+            decompressor.decompress(bytes, headerLength, raw, 0, rawLength);
+            in = new BinaryInput(raw, 0, rawLength);
+        } else {
+            in = new BinaryInput(bytes, 5, bytes.length - 5);
+        }
+
+        if ((flags & FLAG_LIST) != 0) {
+            int size = in.readVarInt();
+            List<Object> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(codec.read(in, schemaVersion));
+            }
+            return values;
+        }
+        return codec.read(in, schemaVersion);
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
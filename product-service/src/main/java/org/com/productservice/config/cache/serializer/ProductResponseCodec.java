@@ -0,0 +1,53 @@
+package org.com.productservice.config.cache.serializer;
+
+import org.com.productservice.dto.product.ProductResponse;
+
+public class ProductResponseCodec implements BinaryCodec<ProductResponse> {
+
+    @Override
+    public int typeId() {
+        return 1;
+    }
+
+    @Override
+    public int schemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public Class<ProductResponse> type() {
+        return ProductResponse.class;
+    }
+
+    @Override
+    public void write(ProductResponse value, BinaryOutput out) {
+        out.writeUuid(value.getId());
+        out.writeString(value.getName());
+        out.writeString(value.getDescription());
+        out.writeBigDecimal(value.getPrice());
+        out.writeString(value.getMainImage());
+        out.writeNullableLong(value.getCategoryId());
+        out.writeNullableInt(value.getStock());
+        out.writeStringList(value.getImages());
+        out.writeBoolean(value.isActive());
+        out.writeLocalDateTime(value.getCreatedAt());
+        out.writeLocalDateTime(value.getUpdatedAt());
+    }
+
+    @Override
+    public ProductResponse read(BinaryInput in, int schemaVersion) {
+        return ProductResponse.builder()
+                .id(in.readUuid())
+                .name(in.readString())
+                .description(in.readString())
+                .price(in.readBigDecimal())
+                .mainImage(in.readString())
+                .categoryId(in.readNullableLong())
+                .stock(in.readNullableInt())
+                .images(in.readStringList())
+                .active(in.readBoolean())
+                .createdAt(in.readLocalDateTime())
+                .updatedAt(in.readLocalDateTime())
+                .build();
+    }
+}
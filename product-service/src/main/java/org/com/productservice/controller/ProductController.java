@@ -1,18 +1,33 @@
 package org.com.productservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.dto.page.CursorPage;
 import org.com.productservice.dto.product.ProductDto;
 import org.com.productservice.dto.product.ProductRequest;
 import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.dto.product.ProductSnapshot;
+import org.com.productservice.dto.search.ProductSearchResponse;
+import org.com.productservice.dto.stock.AvailabilityRequest;
+import org.com.productservice.dto.stock.AvailabilityResponse;
+import org.com.productservice.dto.stock.StockBatchResponse;
+import org.com.productservice.dto.stock.StockUpdateRequest;
 import org.com.productservice.service.ProductService;
+import org.com.productservice.service.StockService;
+import org.com.productservice.service.search.ProductSearchIndex;
+import org.com.productservice.service.search.ProductSearchQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
@@ -25,6 +40,9 @@ import java.util.UUID;
 public class ProductController {
 
     private final ProductService productService;
+    private final StockService stockService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ObjectMapper objectMapper;
 
 
     @PostMapping
@@ -50,12 +68,41 @@ public class ProductController {
     }
 
 
+    // Снимки товаров для корзины пачкой (до ProductService.MAX_PAGE_SIZE id за запрос)
+    @PostMapping("/forCart/batch")
+    public ResponseEntity<List<ProductSnapshot>> getProductsForCart(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok(productService.getProductSnapshots(ids));
+    }
+
+
     @GetMapping("/all")
     public ResponseEntity<Page<ProductResponse>> getAllProducts(Pageable pageable) {
         return ResponseEntity.ok(productService.getAllProducts(pageable));
     }
 
 
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<ProductResponse>> getProductsPage(@RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.getProductsPage(cursor, limit));
+    }
+
+
+    // Весь каталог построчно (NDJSON), без загрузки в память
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = output -> productService.streamAllProducts(product -> {
+            try {
+                output.write(objectMapper.writeValueAsBytes(product));
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+
     @PutMapping("{productId}/stock")
     public void updateProductStock(@PathVariable UUID productId,
                                    @RequestParam int quantity){
@@ -63,6 +110,24 @@ public class ProductController {
     }
 
 
+    @PostMapping("/stock/batch")
+    public ResponseEntity<StockBatchResponse> reserveStockBatch(@RequestBody @Valid List<StockUpdateRequest> updates) {
+        return ResponseEntity.ok(stockService.reserveStockBatch(updates));
+    }
+
+
+    @PostMapping("/stock/batch/return")
+    public ResponseEntity<StockBatchResponse> returnStockBatch(@RequestBody @Valid List<StockUpdateRequest> updates) {
+        return ResponseEntity.ok(stockService.returnStockBatch(updates));
+    }
+
+
+    @PostMapping("/availability/batch")
+    public ResponseEntity<List<AvailabilityResponse>> checkAvailabilityBatch(@RequestBody List<AvailabilityRequest> requests) {
+        return ResponseEntity.ok(stockService.checkAvailabilityBatch(requests));
+    }
+
+
     @PutMapping("/{id}")
     public ResponseEntity<ProductResponse> updateProduct(@PathVariable UUID id, @RequestBody @Valid ProductRequest request) {
         return ResponseEntity.ok(productService.updateProduct(id, request));
@@ -85,6 +150,20 @@ public class ProductController {
 
 
 
+    // Полнотекстовый поиск: ранжирование, опечатки, фасеты, курсорная пагинация
+    @GetMapping("/search/full-text")
+    public ResponseEntity<ProductSearchResponse> fullTextSearch(@RequestParam String q,
+                                                                @RequestParam(required = false) Long categoryId,
+                                                                @RequestParam(required = false) BigDecimal minPrice,
+                                                                @RequestParam(required = false) BigDecimal maxPrice,
+                                                                @RequestParam(defaultValue = "20") int limit,
+                                                                @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(productSearchIndex.search(
+                new ProductSearchQuery(q, categoryId, minPrice, maxPrice, limit, cursor)));
+    }
+
+
+
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<List<ProductResponse>> getProductsByCategoryId(@PathVariable Long categoryId) {
         return ResponseEntity.ok(productService.getProductsByCategoryId(categoryId));
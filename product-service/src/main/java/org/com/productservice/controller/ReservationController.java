@@ -0,0 +1,56 @@
+package org.com.productservice.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.com.productservice.dto.reservation.ReservationRequest;
+import org.com.productservice.dto.reservation.ReservationResponse;
+import org.com.productservice.dto.stock.StockUpdateRequest;
+import org.com.productservice.exception.ReservationNotFoundException;
+import org.com.productservice.service.reservation.InventoryLedger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/products/reservations")
+@RequiredArgsConstructor
+public class ReservationController {
+
+    private final InventoryLedger inventoryLedger;
+
+    @PostMapping
+    public ResponseEntity<ReservationResponse> reserve(@RequestBody @Valid ReservationRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(inventoryLedger.reserve(request));
+    }
+
+    @PostMapping("/{reservationId}/confirm")
+    public ResponseEntity<ReservationResponse> confirm(@PathVariable UUID reservationId) {
+        return ResponseEntity.ok(inventoryLedger.confirm(reservationId));
+    }
+
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<Void> release(@PathVariable UUID reservationId) {
+        inventoryLedger.release(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Для saga заказа: идемпотентно по orderId. Позиции в теле списываются, только если hold уже нет
+    @PostMapping("/orders/{orderId}/confirm")
+    public ResponseEntity<Void> confirmOrder(@PathVariable UUID orderId,
+                                             @RequestBody @Valid List<StockUpdateRequest> items) {
+        if (!inventoryLedger.confirmByOrder(orderId, items)) {
+            throw new ReservationNotFoundException("Nothing to confirm for order: " + orderId);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    // Компенсация saga: снимает hold или возвращает уже списанные остатки, повтор ничего не меняет
+    @DeleteMapping("/orders/{orderId}")
+    public ResponseEntity<Void> cancelOrder(@PathVariable UUID orderId) {
+        inventoryLedger.cancelByOrder(orderId);
+        return ResponseEntity.noContent().build();
+    }
+}
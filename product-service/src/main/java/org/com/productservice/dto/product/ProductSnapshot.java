@@ -0,0 +1,13 @@
+package org.com.productservice.dto.product;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Минимум о товаре для корзины: без описания, картинок и категории, читается проекцией одним запросом
+public record ProductSnapshot(
+        UUID id,
+        String name,
+        BigDecimal price,
+        Integer stock,
+        boolean active
+) {}
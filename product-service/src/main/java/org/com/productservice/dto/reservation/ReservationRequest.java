@@ -0,0 +1,19 @@
+package org.com.productservice.dto.reservation;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import org.com.productservice.dto.stock.StockUpdateRequest;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @param orderId    необязательная привязка к заказу: по ней hold подтверждается/снимается из order-events
+ * @param ttlSeconds время жизни hold, по умолчанию {@code inventory.reservation.default-ttl}
+ */
+public record ReservationRequest(
+        UUID orderId,
+        @NotEmpty @Valid List<StockUpdateRequest> items,
+        Long ttlSeconds
+) {
+}
@@ -0,0 +1,13 @@
+package org.com.productservice.dto.reservation;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+public record ReservationResponse(
+        UUID reservationId,
+        UUID orderId,
+        Map<UUID, Integer> items,
+        Instant expiresAt
+) {
+}
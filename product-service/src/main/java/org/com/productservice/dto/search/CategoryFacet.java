@@ -0,0 +1,8 @@
+package org.com.productservice.dto.search;
+
+public record CategoryFacet(
+        Long categoryId,
+        String categoryName,
+        int count
+) {
+}
@@ -0,0 +1,13 @@
+package org.com.productservice.dto.search;
+
+import java.math.BigDecimal;
+
+/**
+ * Ценовой диапазон [from, to); {@code to == null} - без верхней границы.
+ */
+public record PriceFacet(
+        BigDecimal from,
+        BigDecimal to,
+        int count
+) {
+}
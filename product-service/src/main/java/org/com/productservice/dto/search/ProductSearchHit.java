@@ -0,0 +1,9 @@
+package org.com.productservice.dto.search;
+
+import org.com.productservice.dto.product.ProductResponse;
+
+public record ProductSearchHit(
+        ProductResponse product,
+        double score
+) {
+}
@@ -0,0 +1,15 @@
+package org.com.productservice.dto.search;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска. {@code nextCursor == null} - страниц больше нет.
+ */
+public record ProductSearchResponse(
+        List<ProductSearchHit> items,
+        int totalMatches,
+        List<CategoryFacet> categories,
+        List<PriceFacet> prices,
+        String nextCursor
+) {
+}
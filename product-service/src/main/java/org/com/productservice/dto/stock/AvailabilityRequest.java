@@ -0,0 +1,9 @@
+package org.com.productservice.dto.stock;
+
+import java.util.UUID;
+
+public record AvailabilityRequest(
+        UUID productId,
+        int requiredQuantity
+) {
+}
@@ -0,0 +1,10 @@
+package org.com.productservice.dto.stock;
+
+import java.util.UUID;
+
+public record AvailabilityResponse(
+        UUID productId,
+        boolean isAvailable,
+        int availableQuantity
+) {
+}
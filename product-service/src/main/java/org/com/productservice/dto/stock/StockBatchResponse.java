@@ -0,0 +1,9 @@
+package org.com.productservice.dto.stock;
+
+import java.util.List;
+
+public record StockBatchResponse(
+        boolean success,
+        List<StockItemResult> items
+) {
+}
@@ -0,0 +1,15 @@
+package org.com.productservice.dto.stock;
+
+import java.util.UUID;
+
+/**
+ * Результат по одной позиции пакетного изменения остатков.
+ * {@code availableQuantity} - остаток после операции для UPDATED и текущий остаток для остальных статусов.
+ */
+public record StockItemResult(
+        UUID productId,
+        int requestedQuantity,
+        int availableQuantity,
+        StockItemStatus status
+) {
+}
@@ -0,0 +1,9 @@
+package org.com.productservice.dto.stock;
+
+public enum StockItemStatus {
+    UPDATED,
+    // остатка хватало, но пакет целиком отклонен из-за других позиций
+    AVAILABLE,
+    INSUFFICIENT_STOCK,
+    NOT_FOUND
+}
@@ -0,0 +1,12 @@
+package org.com.productservice.dto.stock;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+public record StockUpdateRequest(
+        @NotNull UUID productId,
+        @Min(1) int quantity
+) {
+}
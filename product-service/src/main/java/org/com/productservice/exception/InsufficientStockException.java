@@ -0,0 +1,17 @@
+package org.com.productservice.exception;
+
+import lombok.Getter;
+import org.com.productservice.dto.stock.StockItemResult;
+
+import java.util.List;
+
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<StockItemResult> items;
+
+    public InsufficientStockException(String message, List<StockItemResult> items) {
+        super(message);
+        this.items = items;
+    }
+}
@@ -0,0 +1,34 @@
+package org.com.productservice.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.kafka.event.OrderLifecycleEvent;
+import org.com.productservice.service.reservation.InventoryLedger;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderEventConsumer {
+
+    private static final Set<String> RELEASE_STATUSES = Set.of("CANCELLED", "FAILED", "EXPIRED");
+
+    private final InventoryLedger inventoryLedger;
+
+    @KafkaListener(topics = "order-events", containerFactory = "orderEventKafkaListenerContainerFactory")
+    public void handleOrderEvent(OrderLifecycleEvent event) {
+        if (event == null || event.getOrderId() == null) {
+            return;
+        }
+        // Подтверждение пишется в БД до возврата: ошибка не глотается, и контейнер не закоммитит offset
+        if (event.getStatus() != null && RELEASE_STATUSES.contains(event.getStatus())) {
+            inventoryLedger.releaseByOrder(event.getOrderId());
+        } else if (inventoryLedger.confirmByOrder(event.getOrderId(), List.of())) {
+            log.debug("Stock of order {} confirmed by order event", event.getOrderId());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.com.productservice.kafka.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Событие из топика {@code order-events}. Нужны только id заказа и статус;
+ * событие создания заказа приходит без статуса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderLifecycleEvent {
+    private UUID orderId;
+    private String status;
+}
@@ -0,0 +1,31 @@
+package org.com.productservice.kafka.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Событие топика {@code product-events} для локальных копий товаров в других сервисах (снимки в cart-service).
+ * <p>
+ * {@code UPDATED} несет полный снимок, {@code STOCK_CHANGED} - только новый остаток,
+ * {@code DELETED} - только id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type { UPDATED, STOCK_CHANGED, DELETED }
+
+    private UUID productId;
+    private Type type;
+    private String name;
+    private BigDecimal price;
+    private Integer stock;
+    private Boolean active;
+}
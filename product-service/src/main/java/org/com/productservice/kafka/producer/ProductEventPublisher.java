@@ -0,0 +1,74 @@
+package org.com.productservice.kafka.producer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.kafka.event.ProductChangedEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Публикует изменения товаров в {@code product-events} после коммита, ключ - productId
+ * (события одного товара идут в одну партицию и читаются по порядку).
+ * Потеря события не критична: копии у потребителей ограничены TTL.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProductEventPublisher {
+
+    public static final String TOPIC = "product-events";
+
+    private final KafkaTemplate<String, ProductChangedEvent> productEventKafkaTemplate;
+
+    public void onProductSaved(ProductResponse product) {
+        publish(ProductChangedEvent.builder()
+                .productId(product.getId())
+                .type(ProductChangedEvent.Type.UPDATED)
+                .name(product.getName())
+                .price(product.getPrice())
+                .stock(product.getStock())
+                .active(product.isActive())
+                .build());
+    }
+
+    public void onStockChanged(Map<UUID, Integer> stock) {
+        stock.forEach((productId, quantity) -> publish(ProductChangedEvent.builder()
+                .productId(productId)
+                .type(ProductChangedEvent.Type.STOCK_CHANGED)
+                .stock(quantity)
+                .build()));
+    }
+
+    public void onProductDeleted(UUID productId) {
+        publish(ProductChangedEvent.builder()
+                .productId(productId)
+                .type(ProductChangedEvent.Type.DELETED)
+                .build());
+    }
+
+    private void publish(ProductChangedEvent event) {
+        Runnable send = () -> productEventKafkaTemplate.send(TOPIC, event.getProductId().toString(), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to publish {} for product {}: {}", event.getType(), event.getProductId(), ex.getMessage());
+                    }
+                });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send.run();
+                }
+            });
+        } else {
+            send.run();
+        }
+    }
+}
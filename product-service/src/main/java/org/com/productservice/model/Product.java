@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.redis.core.RedisHash;
@@ -17,7 +18,7 @@ import java.util.UUID;
 
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = @Index(name = "idx_products_created_at_id", columnList = "created_at, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -56,6 +57,11 @@ public class Product implements Serializable {
     @Column(nullable = false)
     private Integer stock;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @ElementCollection(fetch = FetchType.EAGER)
     private List<String> images = new ArrayList<>();
 
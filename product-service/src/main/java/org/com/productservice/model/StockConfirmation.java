@@ -0,0 +1,58 @@
+package org.com.productservice.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Списание остатков по заказу. Первичный ключ - orderId: строка вставляется в той же транзакции,
+ * что и UPDATE остатков, поэтому повторное подтверждение или возврат того же заказа ничего не меняет.
+ */
+@Entity
+@Table(name = "stock_confirmations")
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockConfirmation {
+
+    public enum Status {
+        CONFIRMED,
+        RETURNED
+    }
+
+    @Id
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "stock_confirmation_items", joinColumns = @JoinColumn(name = "order_id"))
+    @MapKeyColumn(name = "product_id")
+    @Column(name = "quantity", nullable = false)
+    private Map<UUID, Integer> items = new HashMap<>();
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // null у новой записи: save() делает INSERT, и параллельная вставка того же заказа падает на PK
+    @Version
+    private Long version;
+
+    public static StockConfirmation confirmed(UUID orderId, Map<UUID, Integer> items, Instant now) {
+        StockConfirmation confirmation = new StockConfirmation();
+        confirmation.setOrderId(orderId);
+        confirmation.setItems(new HashMap<>(items));
+        confirmation.setStatus(Status.CONFIRMED);
+        confirmation.setUpdatedAt(now);
+        return confirmation;
+    }
+}
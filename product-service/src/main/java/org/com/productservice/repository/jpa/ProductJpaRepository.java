@@ -1,16 +1,22 @@
 package org.com.productservice.repository.jpa;
 
+import org.com.productservice.dto.product.ProductSnapshot;
 import org.com.productservice.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 
 @Repository
@@ -32,7 +38,65 @@ public interface ProductJpaRepository extends JpaRepository<Product, UUID> {
 
     boolean existsByCategoryId(Long id);
 
+    // Обход каталога пачками по id (построение поискового индекса)
+    List<Product> findAllByOrderByIdAsc(Limit limit);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+
+    // Keyset-пагинация по (created_at, id). Условие createdAt <= :createdAt дает границу для индекса,
+    // поэтому глубокая страница читает столько же строк, сколько первая
+    @Query("SELECT p FROM Product p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findFirstPage(Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.createdAt <= :createdAt " +
+            "AND (p.createdAt < :createdAt OR p.id < :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") UUID id,
+                                Limit limit);
+
     int countByCategoryId(Long id);
 
+    @Query("SELECT new org.com.productservice.dto.product.ProductSnapshot(p.id, p.name, p.price, p.stock, p.active) " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<ProductSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Product p WHERE p.id IN :ids")
+    List<ProductStockView> findStockByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = :stock, p.version = p.version + 1 WHERE p.id = :id")
+    int setStock(@Param("id") UUID id, @Param("stock") int stock);
+
+    // Условное списание одним UPDATE по всем позициям. Массивы передаются литералом вида {a,b,c}.
+    // Возвращает только строки, где остатка хватило.
+    @Transactional
+    @Query(value = """
+            UPDATE products p
+            SET stock = p.stock - v.qty, version = p.version + 1
+            FROM unnest(CAST(:ids AS uuid[]), CAST(:quantities AS int[])) AS v(id, qty)
+            WHERE p.id = v.id AND p.stock >= v.qty
+            RETURNING p.id AS id, p.stock AS stock
+            """, nativeQuery = true)
+    List<ProductStockView> decrementStockIfAvailable(@Param("ids") String ids,
+                                                     @Param("quantities") String quantities);
+
+    @Transactional
+    @Query(value = """
+            UPDATE products p
+            SET stock = p.stock + v.qty, version = p.version + 1
+            FROM unnest(CAST(:ids AS uuid[]), CAST(:quantities AS int[])) AS v(id, qty)
+            WHERE p.id = v.id
+            RETURNING p.id AS id, p.stock AS stock
+            """, nativeQuery = true)
+    List<ProductStockView> incrementStock(@Param("ids") String ids,
+                                          @Param("quantities") String quantities);
+
+    // Литерал массива Postgres для unnest(CAST(... AS uuid[])): {a,b,c}
+    static String toArrayLiteral(Collection<?> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
 
 }
@@ -0,0 +1,13 @@
+package org.com.productservice.repository.jpa;
+
+import java.util.UUID;
+
+/**
+ * Проекция только с остатком, чтобы не тянуть images (EAGER) при работе со складом.
+ */
+public interface ProductStockView {
+
+    UUID getId();
+
+    Integer getStock();
+}
@@ -0,0 +1,21 @@
+package org.com.productservice.repository.jpa;
+
+import org.com.productservice.model.StockConfirmation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockConfirmationRepository extends JpaRepository<StockConfirmation, UUID> {
+
+    // Возврат списания: строка блокируется, чтобы два параллельных возврата не вернули остаток дважды
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM StockConfirmation c WHERE c.orderId = :orderId")
+    Optional<StockConfirmation> findForUpdate(@Param("orderId") UUID orderId);
+}
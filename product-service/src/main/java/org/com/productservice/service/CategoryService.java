@@ -10,6 +10,7 @@ import org.com.productservice.exception.CategoryNotFoundException;
 import org.com.productservice.model.Category;
 import org.com.productservice.repository.jpa.CategoryJpaRepository;
 import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.com.productservice.service.search.ProductSearchIndexer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
@@ -31,18 +32,21 @@ public class CategoryService{
     private final ProductJpaRepository productJpaRepository;
     private final CategoryMapper categoryMapper;
     private final CacheManager cacheManager;
+    private final ProductSearchIndexer productSearchIndexer;
 
 
     @Autowired
     public CategoryService(CategoryJpaRepository categoryJpaRepository,
                            ProductJpaRepository productJpaRepository,
                            CategoryMapper categoryMapper,
-                           CacheManager cacheManager)
+                           CacheManager cacheManager,
+                           ProductSearchIndexer productSearchIndexer)
     {
         this.categoryJpaRepository = categoryJpaRepository;
         this.productJpaRepository = productJpaRepository;
         this.categoryMapper = categoryMapper;
         this.cacheManager = cacheManager;
+        this.productSearchIndexer = productSearchIndexer;
     }
 
     //--- Основные CRUD операции ---//
@@ -80,7 +84,9 @@ public class CategoryService{
         Category category = categoryJpaRepository.getCategoryById(id);
         validateCategoryUniqueness(request.getName(), id);
         category.setName(request.getName());
-        return categoryMapper.toCategoryResponse(categoryJpaRepository.save(category));
+        CategoryResponse response = categoryMapper.toCategoryResponse(categoryJpaRepository.save(category));
+        productSearchIndexer.onCategoryRenamed(id, request.getName());
+        return response;
     }
 
 
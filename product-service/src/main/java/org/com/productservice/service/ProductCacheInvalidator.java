@@ -0,0 +1,156 @@
+package org.com.productservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.config.cache.CacheTagIndex;
+import org.com.productservice.dto.product.ProductResponse;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Точечная инвалидация списковых кешей товаров (search, category_products,
+ * category_name_products) по тегам вместо {@code allEntries = true}.
+ * <p>
+ * Теги записей:
+ * <ul>
+ *     <li>{@code p:<productId>} - запись содержит товар;</li>
+ *     <li>{@code c:<categoryId>} - запись является списком категории;</li>
+ *     <li>{@code search-query} - все закешированные поисковые запросы, чтобы новый товар
+ *     сбрасывал только те запросы, под которые попадает его название.
+ *     Тег обходится через ZSCAN и держит только запросы за последнее окно TTL
+ *     (см. {@link CacheTagIndex}).</li>
+ * </ul>
+ * Сброс выполняется после коммита, иначе параллельное чтение успеет положить в кеш старые данные.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProductCacheInvalidator {
+
+    private static final String SEARCH_CACHE = "search";
+    private static final String CATEGORY_CACHE = "category_products";
+    private static final String CATEGORY_NAME_CACHE = "category_name_products";
+
+    private static final String SEARCH_QUERY_TAG = "search-query";
+    // Ключ поиска: "<name>:page0", см. ProductService.searchProductsByName
+    private static final String SEARCH_KEY_SUFFIX = ":page0";
+
+    private final CacheTagIndex cacheTagIndex;
+    private final CacheManager cacheManager;
+
+    @PostConstruct
+    void registerTags() {
+        cacheTagIndex.registerExtractor(SEARCH_CACHE, value -> {
+            Set<String> tags = productTags(value, false);
+            tags.add(SEARCH_QUERY_TAG);
+            return tags;
+        });
+        cacheTagIndex.registerExtractor(CATEGORY_CACHE, value -> productTags(value, true));
+        cacheTagIndex.registerExtractor(CATEGORY_NAME_CACHE, value -> productTags(value, true));
+    }
+
+    public void onProductCreated(ProductResponse created) {
+        afterCommit(() -> {
+            int evicted = cacheTagIndex.evictTagged(cacheManager, categoryTags(created.getCategoryId()));
+            evicted += evictMatchingSearches(created.getName());
+            log.debug("Product {} created, evicted {} list cache entries", created.getId(), evicted);
+        });
+    }
+
+    public void onProductUpdated(UUID productId, Long previousCategoryId, String previousName,
+                                 ProductResponse updated) {
+        afterCommit(() -> {
+            Set<String> tags = new LinkedHashSet<>();
+            tags.add(productTag(productId));
+            tags.addAll(categoryTags(previousCategoryId));
+            tags.addAll(categoryTags(updated.getCategoryId()));
+            int evicted = cacheTagIndex.evictTagged(cacheManager, tags);
+            // Запросы, где товар уже был, сброшены по тегу p:; новое название может попасть в другие
+            if (!Objects.equals(previousName, updated.getName())) {
+                evicted += evictMatchingSearches(updated.getName());
+            }
+            log.debug("Product {} updated, evicted {} list cache entries", productId, evicted);
+        });
+    }
+
+    public void onProductDeleted(UUID productId) {
+        afterCommit(() -> {
+            int evicted = cacheTagIndex.evictTagged(cacheManager, List.of(productTag(productId)));
+            log.debug("Product {} deleted, evicted {} list cache entries", productId, evicted);
+        });
+    }
+
+    private int evictMatchingSearches(String productName) {
+        if (productName == null) {
+            return 0;
+        }
+        String name = productName.toLowerCase(Locale.ROOT);
+        List<String> matching = new ArrayList<>();
+        cacheTagIndex.forEachMember(SEARCH_QUERY_TAG, member -> {
+            String key = member.substring(member.indexOf('|') + 1);
+            String query = key.endsWith(SEARCH_KEY_SUFFIX)
+                    ? key.substring(0, key.length() - SEARCH_KEY_SUFFIX.length())
+                    : key;
+            if (name.contains(query.toLowerCase(Locale.ROOT))) {
+                matching.add(member);
+            }
+        });
+        for (String member : matching) {
+            cacheTagIndex.evictMember(cacheManager, member);
+            cacheTagIndex.removeMember(SEARCH_QUERY_TAG, member);
+        }
+        return matching.size();
+    }
+
+    private static Set<String> productTags(Object value, boolean withCategories) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (value instanceof Collection<?> products) {
+            for (Object item : products) {
+                if (item instanceof ProductResponse product) {
+                    tags.add(productTag(product.getId()));
+                    if (withCategories && product.getCategoryId() != null) {
+                        tags.add(categoryTag(product.getCategoryId()));
+                    }
+                }
+            }
+        }
+        return tags;
+    }
+
+    private static String productTag(UUID productId) {
+        return "p:" + productId;
+    }
+
+    private static String categoryTag(Long categoryId) {
+        return "c:" + categoryId;
+    }
+
+    private static List<String> categoryTags(Long categoryId) {
+        return categoryId != null ? List.of(categoryTag(categoryId)) : List.of();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.com.productservice.service;
+
+import jakarta.annotation.PostConstruct;
+import org.com.productservice.config.cache.TwoTierCacheManager;
+import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.mapper.ProductMapper;
+import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Загрузчики раннего обновления для кешей с {@code @Cacheable(sync = true)} из {@link ProductService}.
+ * Повторяют запросы аннотированных методов, но в собственной read-only транзакции пула обновления,
+ * а не в контексте читателя, который запустил обновление.
+ */
+@Component
+public class ProductCacheRefreshLoaders {
+
+    // Ключ поиска: "<name>:page0", см. ProductService.searchProductsByName
+    private static final String SEARCH_KEY_SUFFIX = ":page0";
+
+    private final TwoTierCacheManager cacheManager;
+    private final ProductJpaRepository productJpaRepository;
+    private final ProductMapper productMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ProductCacheRefreshLoaders(TwoTierCacheManager cacheManager,
+                                      ProductJpaRepository productJpaRepository,
+                                      ProductMapper productMapper,
+                                      PlatformTransactionManager transactionManager) {
+        this.cacheManager = cacheManager;
+        this.productJpaRepository = productJpaRepository;
+        this.productMapper = productMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void register() {
+        cacheManager.registerRefreshLoader("products", this::loadProduct);
+        cacheManager.registerRefreshLoader("products_cart", this::loadProduct);
+        cacheManager.registerRefreshLoader("search", this::loadSearch);
+    }
+
+    // Товар успели удалить - null, запись просто доживет до TTL или будет сброшена удалением
+    private ProductResponse loadProduct(Object key) {
+        UUID id = key instanceof UUID uuid ? uuid : UUID.fromString(key.toString());
+        return readOnlyTransaction.execute(status -> productJpaRepository.findById(id)
+                .map(productMapper::toProductResponse)
+                .orElse(null));
+    }
+
+    private List<ProductResponse> loadSearch(Object key) {
+        String query = key.toString();
+        if (!query.endsWith(SEARCH_KEY_SUFFIX)) {
+            return null;
+        }
+        String name = query.substring(0, query.length() - SEARCH_KEY_SUFFIX.length());
+        return readOnlyTransaction.execute(status -> productJpaRepository.findByNameContainingIgnoreCase(name)
+                .stream().map(productMapper::toProductResponse).toList());
+    }
+}
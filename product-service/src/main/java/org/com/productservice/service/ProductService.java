@@ -1,62 +1,92 @@
 package org.com.productservice.service;
 
 import org.com.productservice.mapper.ProductMapper;
+import org.com.productservice.dto.page.CursorPage;
+import org.com.productservice.dto.page.ProductCursor;
 import org.com.productservice.dto.product.ProductDto;
 import org.com.productservice.dto.product.ProductRequest;
 import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.dto.product.ProductSnapshot;
 import org.com.productservice.exception.ProductNotFoundException;
 import org.com.productservice.model.Product;
 import org.com.productservice.repository.jpa.CategoryJpaRepository;
+import org.com.productservice.kafka.producer.ProductEventPublisher;
 import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.com.productservice.service.reservation.InventoryLedger;
+import org.com.productservice.service.search.ProductSearchIndexer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 
 @Service
 
 public class ProductService{
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     private final ProductJpaRepository productJpaRepository;
     private final CategoryJpaRepository categoryJpaRepository;
     private final ProductMapper productMapper;
     private final CategoryService categoryService;
+    private final InventoryLedger inventoryLedger;
+    private final ProductCacheInvalidator productCacheInvalidator;
+    private final ProductSearchIndexer productSearchIndexer;
+    private final ProductEventPublisher productEventPublisher;
 
 
     @Autowired
     public ProductService(ProductJpaRepository productJpaRepository,
                           CategoryJpaRepository categoryJpaRepository,
                           ProductMapper productMapper,
-                          CategoryService categoryService)
+                          CategoryService categoryService,
+                          InventoryLedger inventoryLedger,
+                          ProductCacheInvalidator productCacheInvalidator,
+                          ProductSearchIndexer productSearchIndexer,
+                          ProductEventPublisher productEventPublisher)
     {
         this.productJpaRepository = productJpaRepository;
         this.categoryJpaRepository = categoryJpaRepository;
         this.productMapper = productMapper;
         this.categoryService = categoryService;
+        this.inventoryLedger = inventoryLedger;
+        this.productCacheInvalidator = productCacheInvalidator;
+        this.productSearchIndexer = productSearchIndexer;
+        this.productEventPublisher = productEventPublisher;
     }
 
-    // ✅ ИНВАЛИДАЦИЯ КЭША: При создании нового товара
-    @Caching(evict = {
-            @CacheEvict(value = "search", allEntries = true),
-            @CacheEvict(value = {"category_products", "category_name_products"}, allEntries = true)
-    })
+    // ✅ ИНВАЛИДАЦИЯ КЭША: При создании нового товара - только списки его категории и подходящие поиски
     @Transactional
     public ProductResponse createProduct(ProductRequest request) {
         Product product = productMapper.toProduct(request);
         Product savedProduct = productJpaRepository.save(product);
-        return productMapper.toProductResponse(savedProduct);
+        ProductResponse response = productMapper.toProductResponse(savedProduct);
+        productCacheInvalidator.onProductCreated(response);
+        productSearchIndexer.onProductSaved(response);
+        productEventPublisher.onProductSaved(response);
+        return response;
     }
 
     // ✅ ГОРЯЧИЕ ДАННЫЕ: Детали товаров (чаще всего просматривают)
-    @Cacheable(value = "products", key = "#id", unless = "#result == null")
+    // sync: одновременные промахи по одному товару ждут одну загрузку из БД (null не бывает - 404)
+    @Cacheable(value = "products", key = "#id", sync = true)
     @Transactional(readOnly = true)
     public ProductResponse getProductById(UUID id) {
         Product product = productJpaRepository.findById(id)
@@ -78,7 +108,7 @@ public class ProductService{
 
 
     // ✅ ГОРЯЧИЕ ДАННЫЕ: Для корзины (быстрый доступ)
-    @Cacheable(value = "products_cart", key = "#id", unless = "#result == null")
+    @Cacheable(value = "products_cart", key = "#id", sync = true)
     @Transactional(readOnly = true)
     public ProductResponse getProductByIdForCart(UUID id) {
         Product product = productJpaRepository.findById(id)
@@ -87,26 +117,83 @@ public class ProductService{
     }
 
 
+    // Снимки для корзины пачкой: один SELECT по списку id; отсутствующих товаров в ответе нет
+    @Transactional(readOnly = true)
+    public List<ProductSnapshot> getProductSnapshots(Collection<UUID> ids) {
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Too many product ids: " + ids.size() + ", max " + MAX_PAGE_SIZE);
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return productJpaRepository.findSnapshotsByIdIn(Set.copyOf(ids));
+    }
+
+
     public Page<ProductResponse> getAllProducts(Pageable pageable) {
         return productJpaRepository.findAll(pageable).map(productMapper::toProductResponse);
     }
 
 
+    // Keyset-пагинация: без OFFSET и COUNT(*), глубокие страницы так же быстры, как первая
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> getProductsPage(String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        List<Product> products = fetchPage(cursor != null && !cursor.isBlank() ? ProductCursor.decode(cursor) : null,
+                pageSize + 1);
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            Product last = products.get(pageSize - 1);
+            nextCursor = new ProductCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(products.stream().map(productMapper::toProductResponse).toList(), nextCursor);
+    }
 
 
-    // ✅ ИНВАЛИДАЦИЯ КЭША: При обновлении товара
+    // Выгрузка всего каталога потоком: страницами по (created_at, id), в памяти только одна страница
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<ProductResponse> sink) {
+        ProductCursor cursor = null;
+        while (true) {
+            List<Product> products = fetchPage(cursor, MAX_PAGE_SIZE);
+            products.forEach(product -> sink.accept(productMapper.toProductResponse(product)));
+            if (products.size() < MAX_PAGE_SIZE) {
+                return;
+            }
+            Product last = products.get(products.size() - 1);
+            cursor = new ProductCursor(last.getCreatedAt(), last.getId());
+            entityManager.clear();
+        }
+    }
+
+
+    private List<Product> fetchPage(ProductCursor cursor, int limit) {
+        return cursor == null
+                ? productJpaRepository.findFirstPage(Limit.of(limit))
+                : productJpaRepository.findPageAfter(cursor.createdAt(), cursor.id(), Limit.of(limit));
+    }
+
+
+
+
+    // ✅ ИНВАЛИДАЦИЯ КЭША: При обновлении товара - списки, где он есть, и его старая/новая категория
     @Caching(evict = {
             @CacheEvict(value = "products", key = "#id"),
-            @CacheEvict(value = "products_cart", key = "#id"),
-            @CacheEvict(value = "search", allEntries = true), // Очищаем поиск
-            @CacheEvict(value = {"category_products", "category_name_products"}, allEntries = true)
+            @CacheEvict(value = "products_cart", key = "#id")
     })
     @Transactional
     public ProductResponse updateProduct(UUID id, ProductRequest request) {
         Product product = productJpaRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + id));
+        Long previousCategoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        String previousName = product.getName();
         productMapper.updateProductFromProductRequest(request, product);
-        return productMapper.toProductResponse(productJpaRepository.save(product));
+        ProductResponse response = productMapper.toProductResponse(productJpaRepository.save(product));
+        productCacheInvalidator.onProductUpdated(id, previousCategoryId, previousName, response);
+        productSearchIndexer.onProductSaved(response);
+        productEventPublisher.onProductSaved(response);
+        return response;
     }
 
 
@@ -114,24 +201,22 @@ public class ProductService{
     @CacheEvict(value = {"products", "products_cart"}, key = "#productId")
     @Transactional
     public void updateProductStock(UUID productId, int quantity) {
-        Product product = productJpaRepository.findById(productId)
-                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + productId));
-
-       /* if (product.getStock() < quantity) {
-            throw new IllegalArgumentException("Insufficient stock. Available: " + product.getStock() + ", Requested: " + quantity);
-        }*/
-
-        product.setStock(quantity);
-        productJpaRepository.save(product);
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        // Один UPDATE вместо read-then-save, версия увеличивается в том же запросе
+        if (productJpaRepository.setStock(productId, quantity) == 0) {
+            throw new ProductNotFoundException("Product not found with id: " + productId);
+        }
+        inventoryLedger.onStockChanged(productId, quantity);
+        productEventPublisher.onStockChanged(Map.of(productId, quantity));
     }
 
 
-    // ✅ ИНВАЛИДАЦИЯ КЭША: При удалении товара
+    // ✅ ИНВАЛИДАЦИЯ КЭША: При удалении товара - только списки, где он был
     @Caching(evict = {
             @CacheEvict(value = "products", key = "#id"),
-            @CacheEvict(value = "products_cart", key = "#id"),
-            @CacheEvict(value = "search", allEntries = true),
-            @CacheEvict(value = {"category_products", "category_name_products"}, allEntries = true)
+            @CacheEvict(value = "products_cart", key = "#id")
     })
     @Transactional
     public void deleteProduct(UUID id) {
@@ -139,6 +224,9 @@ public class ProductService{
             throw new ProductNotFoundException("Product not found with id: " + id);
         }
         productJpaRepository.deleteById(id);
+        productCacheInvalidator.onProductDeleted(id);
+        productSearchIndexer.onProductDeleted(id);
+        productEventPublisher.onProductDeleted(id);
     }
 
 
@@ -146,7 +234,7 @@ public class ProductService{
 
 
     // ✅ ПОПУЛЯРНЫЕ ПОИСКИ: Только первая страница
-    @Cacheable(value = "search", key = "#name + ':page0'", condition = "#name.length() >= 3")
+    @Cacheable(value = "search", key = "#name + ':page0'", condition = "#name.length() >= 3", sync = true)
     public List<ProductResponse> searchProductsByName(String name) {
         return productJpaRepository.findByNameContainingIgnoreCase(name)
                 .stream().map(productMapper::toProductResponse).toList();
@@ -0,0 +1,160 @@
+package org.com.productservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.dto.stock.AvailabilityRequest;
+import org.com.productservice.dto.stock.AvailabilityResponse;
+import org.com.productservice.dto.stock.StockBatchResponse;
+import org.com.productservice.dto.stock.StockItemResult;
+import org.com.productservice.dto.stock.StockItemStatus;
+import org.com.productservice.dto.stock.StockUpdateRequest;
+import org.com.productservice.exception.InsufficientStockException;
+import org.com.productservice.exception.ProductNotFoundException;
+import org.com.productservice.kafka.producer.ProductEventPublisher;
+import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.com.productservice.repository.jpa.ProductStockView;
+import org.com.productservice.service.reservation.InventoryLedger;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетные операции со складом. Каждый пакет - один UPDATE и одна транзакция:
+ * либо списываются все позиции, либо ни одной.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StockService {
+
+    private static final List<String> STOCK_CACHES = List.of("products", "products_cart");
+
+    private final ProductJpaRepository productJpaRepository;
+    private final CacheManager cacheManager;
+    private final InventoryLedger inventoryLedger;
+    private final ProductEventPublisher productEventPublisher;
+
+    @Transactional
+    public StockBatchResponse reserveStockBatch(List<StockUpdateRequest> updates) {
+        Map<UUID, Integer> requested = aggregate(updates);
+        if (requested.isEmpty()) {
+            return new StockBatchResponse(true, List.of());
+        }
+
+        Map<UUID, Integer> updated = toStockMap(productJpaRepository.decrementStockIfAvailable(
+                ProductJpaRepository.toArrayLiteral(requested.keySet()), ProductJpaRepository.toArrayLiteral(requested.values())));
+
+        if (updated.size() != requested.size()) {
+            // UPDATE уже частично прошел - исключение откатит транзакцию целиком
+            Map<UUID, Integer> current = toStockMap(productJpaRepository.findStockByIdIn(requested.keySet()));
+            List<StockItemResult> items = new ArrayList<>(requested.size());
+            requested.forEach((productId, quantity) -> {
+                Integer stock = current.get(productId);
+                if (stock == null) {
+                    items.add(new StockItemResult(productId, quantity, 0, StockItemStatus.NOT_FOUND));
+                } else if (updated.containsKey(productId)) {
+                    items.add(new StockItemResult(productId, quantity, stock + quantity, StockItemStatus.AVAILABLE));
+                } else {
+                    items.add(new StockItemResult(productId, quantity, stock, StockItemStatus.INSUFFICIENT_STOCK));
+                }
+            });
+            log.warn("Stock batch rejected: {} of {} items could not be reserved",
+                    requested.size() - updated.size(), requested.size());
+            throw new InsufficientStockException("Insufficient stock for one or more products", items);
+        }
+
+        evictAfterCommit(requested.keySet());
+        updated.forEach(inventoryLedger::onStockChanged);
+        productEventPublisher.onStockChanged(updated);
+        return new StockBatchResponse(true, toResults(requested, updated));
+    }
+
+    @Transactional
+    public StockBatchResponse returnStockBatch(List<StockUpdateRequest> updates) {
+        Map<UUID, Integer> requested = aggregate(updates);
+        if (requested.isEmpty()) {
+            return new StockBatchResponse(true, List.of());
+        }
+
+        Map<UUID, Integer> updated = toStockMap(productJpaRepository.incrementStock(
+                ProductJpaRepository.toArrayLiteral(requested.keySet()), ProductJpaRepository.toArrayLiteral(requested.values())));
+
+        if (updated.size() != requested.size()) {
+            Set<UUID> missing = requested.keySet().stream()
+                    .filter(id -> !updated.containsKey(id))
+                    .collect(Collectors.toSet());
+            throw new ProductNotFoundException("Products not found: " + missing);
+        }
+
+        evictAfterCommit(requested.keySet());
+        updated.forEach(inventoryLedger::onStockChanged);
+        productEventPublisher.onStockChanged(updated);
+        return new StockBatchResponse(true, toResults(requested, updated));
+    }
+
+    @Transactional(readOnly = true)
+    public List<AvailabilityResponse> checkAvailabilityBatch(List<AvailabilityRequest> requests) {
+        Map<UUID, Integer> stock = toStockMap(productJpaRepository.findStockByIdIn(
+                requests.stream().map(AvailabilityRequest::productId).collect(Collectors.toSet())));
+
+        return requests.stream()
+                .map(request -> {
+                    int available = stock.getOrDefault(request.productId(), 0);
+                    return new AvailabilityResponse(request.productId(),
+                            available >= request.requiredQuantity(), available);
+                })
+                .toList();
+    }
+
+    // Одинаковые productId в одном пакете складываем, иначе один UPDATE увидит строку дважды
+    private Map<UUID, Integer> aggregate(List<StockUpdateRequest> updates) {
+        Map<UUID, Integer> requested = new LinkedHashMap<>();
+        for (StockUpdateRequest update : updates) {
+            if (update.productId() == null || update.quantity() <= 0) {
+                throw new IllegalArgumentException("Invalid stock update: " + update);
+            }
+            requested.merge(update.productId(), update.quantity(), Integer::sum);
+        }
+        return requested;
+    }
+
+    private List<StockItemResult> toResults(Map<UUID, Integer> requested, Map<UUID, Integer> updated) {
+        return requested.entrySet().stream()
+                .map(e -> new StockItemResult(e.getKey(), e.getValue(), updated.get(e.getKey()), StockItemStatus.UPDATED))
+                .toList();
+    }
+
+    private Map<UUID, Integer> toStockMap(List<ProductStockView> rows) {
+        return rows.stream().collect(Collectors.toMap(ProductStockView::getId, ProductStockView::getStock));
+    }
+
+    private void evictAfterCommit(Collection<UUID> productIds) {
+        Runnable evict = () -> STOCK_CACHES.stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(cache -> productIds.forEach(cache::evict));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package org.com.productservice.service.reservation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.dto.reservation.ReservationRequest;
+import org.com.productservice.dto.reservation.ReservationResponse;
+import org.com.productservice.dto.stock.StockItemResult;
+import org.com.productservice.dto.stock.StockItemStatus;
+import org.com.productservice.dto.stock.StockUpdateRequest;
+import org.com.productservice.exception.InsufficientStockException;
+import org.com.productservice.exception.ReservationNotFoundException;
+import org.com.productservice.model.StockConfirmation;
+import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.com.productservice.repository.jpa.ProductStockView;
+import org.com.productservice.repository.jpa.StockConfirmationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory ledger резервов для checkout.
+ * <p>
+ * Для каждого SKU держит available/reserved в lock-free счетчике ({@link SkuCounter})
+ * и выдает hold'ы с TTL: резерв не пишет в БД и не блокирует строку {@code products} горячего товара.
+ * Hold заказа один: повторный резерв того же orderId (ретрай saga) возвращает уже выданный hold.
+ * <p>
+ * Подтверждение пишется в БД до ответа: условный UPDATE остатков и строка {@link StockConfirmation}
+ * с PK orderId в одной транзакции, поэтому повтор подтверждения или возврата ничего не меняет.
+ * Если hold потерян (истек TTL, перезапуск узла), заказ подтверждается по переданным позициям.
+ * <p>
+ * Ledger локален для инстанса: резервирование конкретного SKU должно идти через один узел
+ * (или sticky routing по productId), иначе узлы будут видеть разные остатки.
+ */
+@Component
+@Slf4j
+public class InventoryLedger {
+
+    private static final List<String> STOCK_CACHES = List.of("products", "products_cart");
+
+    private final ProductJpaRepository productJpaRepository;
+    private final StockConfirmationRepository stockConfirmationRepository;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+
+    private final ConcurrentHashMap<UUID, SkuCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, ReservationHold> holds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, UUID> holdsByOrder = new ConcurrentHashMap<>();
+    private final DelayQueue<ReservationHold> expirations = new DelayQueue<>();
+
+    private final Counter createdCounter;
+    private final Counter replayedCounter;
+    private final Counter rejectedCounter;
+    private final Counter confirmedCounter;
+    private final Counter releasedCounter;
+    private final Counter returnedCounter;
+    private final Counter expiredCounter;
+
+    public InventoryLedger(ProductJpaRepository productJpaRepository,
+                           StockConfirmationRepository stockConfirmationRepository,
+                           CacheManager cacheManager,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${inventory.reservation.default-ttl:PT10M}") Duration defaultTtl,
+                           @Value("${inventory.reservation.max-ttl:PT30M}") Duration maxTtl) {
+        this.productJpaRepository = productJpaRepository;
+        this.stockConfirmationRepository = stockConfirmationRepository;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.createdCounter = meterRegistry.counter("inventory.reservations", "result", "created");
+        this.replayedCounter = meterRegistry.counter("inventory.reservations", "result", "replayed");
+        this.rejectedCounter = meterRegistry.counter("inventory.reservations", "result", "rejected");
+        this.confirmedCounter = meterRegistry.counter("inventory.reservations", "result", "confirmed");
+        this.releasedCounter = meterRegistry.counter("inventory.reservations", "result", "released");
+        this.returnedCounter = meterRegistry.counter("inventory.reservations", "result", "returned");
+        this.expiredCounter = meterRegistry.counter("inventory.reservations", "result", "expired");
+        meterRegistry.gaugeMapSize("inventory.reservations.active", List.of(), holds);
+    }
+
+    public ReservationResponse reserve(ReservationRequest request) {
+        Map<UUID, Integer> items = aggregate(request.items());
+        Instant expiresAt = Instant.now().plus(resolveTtl(request.ttlSeconds()));
+        loadCounters(items.keySet());
+
+        if (request.orderId() == null) {
+            return toResponse(createHold(null, items, expiresAt));
+        }
+        // compute держит ключ заказа: два параллельных резерва одного заказа не выдадут два hold'а
+        ReservationHold[] result = new ReservationHold[1];
+        holdsByOrder.compute(request.orderId(), (orderId, existingId) -> {
+            ReservationHold existing = existingId != null ? holds.get(existingId) : null;
+            if (existing != null) {
+                replayedCounter.increment();
+                result[0] = existing;
+            } else {
+                result[0] = createHold(orderId, items, expiresAt);
+            }
+            return result[0].id();
+        });
+        return toResponse(result[0]);
+    }
+
+    public ReservationResponse confirm(UUID reservationId) {
+        ReservationHold hold = holds.remove(reservationId);
+        if (hold == null) {
+            throw new ReservationNotFoundException("Reservation not found or expired: " + reservationId);
+        }
+        if (hold.orderId() != null) {
+            holdsByOrder.remove(hold.orderId(), hold.id());
+        }
+        persistConfirmation(hold, hold.orderId(), hold.items());
+        return toResponse(hold);
+    }
+
+    public void release(UUID reservationId) {
+        ReservationHold hold = holds.remove(reservationId);
+        if (hold == null) {
+            throw new ReservationNotFoundException("Reservation not found or expired: " + reservationId);
+        }
+        if (hold.orderId() != null) {
+            holdsByOrder.remove(hold.orderId(), hold.id());
+        }
+        releaseItems(hold);
+        releasedCounter.increment();
+    }
+
+    /**
+     * Подтверждает резерв заказа. Если hold уже нет, списываются {@code fallbackItems}
+     * (условным UPDATE, при нехватке - {@link InsufficientStockException}).
+     *
+     * @return true, если остатки заказа списаны - этим вызовом или одним из предыдущих
+     */
+    public boolean confirmByOrder(UUID orderId, List<StockUpdateRequest> fallbackItems) {
+        ReservationHold hold = claimByOrder(orderId);
+        Map<UUID, Integer> items = hold != null ? hold.items() : aggregate(fallbackItems);
+        if (items.isEmpty()) {
+            return stockConfirmationRepository.existsById(orderId);
+        }
+        if (hold == null) {
+            loadCounters(items.keySet());
+        }
+        persistConfirmation(hold, orderId, items);
+        return true;
+    }
+
+    /**
+     * Снимает hold заказа (заказ не оформлен). Подтвержденное списание не трогает.
+     */
+    public boolean releaseByOrder(UUID orderId) {
+        ReservationHold hold = claimByOrder(orderId);
+        if (hold == null) {
+            return false;
+        }
+        releaseItems(hold);
+        releasedCounter.increment();
+        return true;
+    }
+
+    /**
+     * Компенсация заказа: снимает hold, а если остатки уже списаны - возвращает их ровно один раз.
+     */
+    public boolean cancelByOrder(UUID orderId) {
+        if (releaseByOrder(orderId)) {
+            return true;
+        }
+        Map<UUID, Integer> stock = transactionTemplate.execute(status -> {
+            StockConfirmation confirmation = stockConfirmationRepository.findForUpdate(orderId).orElse(null);
+            if (confirmation == null || confirmation.getStatus() != StockConfirmation.Status.CONFIRMED) {
+                return null;
+            }
+            Map<UUID, Integer> returned = toStockMap(productJpaRepository.incrementStock(
+                    ProductJpaRepository.toArrayLiteral(confirmation.getItems().keySet()),
+                    ProductJpaRepository.toArrayLiteral(confirmation.getItems().values())));
+            confirmation.setStatus(StockConfirmation.Status.RETURNED);
+            confirmation.setUpdatedAt(Instant.now());
+            return returned;
+        });
+        if (stock == null) {
+            return false;
+        }
+        stock.forEach(this::resync);
+        evictCaches(stock.keySet());
+        returnedCounter.increment();
+        return true;
+    }
+
+    /**
+     * Остаток в БД изменен в обход ledger. Внутри транзакции применяется только после коммита.
+     */
+    public void onStockChanged(UUID productId, int databaseStock) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resync(productId, databaseStock);
+                }
+            });
+        } else {
+            resync(productId, databaseStock);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:1000}")
+    public void expireHolds() {
+        ReservationHold expired;
+        while ((expired = expirations.poll()) != null) {
+            // hold мог быть уже подтвержден или снят - тогда remove вернет false
+            if (holds.remove(expired.id(), expired)) {
+                if (expired.orderId() != null) {
+                    holdsByOrder.remove(expired.orderId(), expired.id());
+                }
+                releaseItems(expired);
+                expiredCounter.increment();
+            }
+        }
+    }
+
+    // Вызывается с уже снятым hold (или без него): при ошибке hold возвращается, и подтверждение можно повторить
+    private void persistConfirmation(ReservationHold hold, UUID orderId, Map<UUID, Integer> items) {
+        Map<UUID, Integer> stock;
+        try {
+            stock = transactionTemplate.execute(status -> decrementOnce(orderId, items));
+        } catch (RuntimeException e) {
+            if (hold != null) {
+                restoreHold(hold);
+            }
+            throw e;
+        }
+
+        if (stock == null) {
+            // Заказ уже подтвержден раньше - этот hold лишний, его единицы возвращаются в available
+            if (hold != null) {
+                releaseItems(hold);
+            }
+            return;
+        }
+        if (hold != null) {
+            hold.items().forEach((productId, quantity) -> counters.get(productId).confirm(quantity));
+        } else {
+            stock.forEach(this::resync);
+        }
+        evictCaches(items.keySet());
+        confirmedCounter.increment();
+    }
+
+    // null - заказ уже подтвержден. Параллельное подтверждение того же заказа упадет на PK и откатится целиком
+    private Map<UUID, Integer> decrementOnce(UUID orderId, Map<UUID, Integer> items) {
+        if (orderId != null) {
+            if (stockConfirmationRepository.existsById(orderId)) {
+                return null;
+            }
+            stockConfirmationRepository.saveAndFlush(StockConfirmation.confirmed(orderId, items, Instant.now()));
+        }
+        Map<UUID, Integer> stock = toStockMap(productJpaRepository.decrementStockIfAvailable(
+                ProductJpaRepository.toArrayLiteral(items.keySet()), ProductJpaRepository.toArrayLiteral(items.values())));
+        if (stock.size() != items.size()) {
+            rejectedCounter.increment();
+            throw new InsufficientStockException("Insufficient stock for one or more products", toResults(items));
+        }
+        return stock;
+    }
+
+    // Вызывается под ключом заказа в holdsByOrder.compute (или без заказа) - holdsByOrder здесь не трогаем
+    private ReservationHold createHold(UUID orderId, Map<UUID, Integer> items, Instant expiresAt) {
+        List<Map.Entry<UUID, Integer>> reserved = new ArrayList<>(items.size());
+        for (Map.Entry<UUID, Integer> item : items.entrySet()) {
+            SkuCounter counter = counters.get(item.getKey());
+            if (counter == null || !counter.tryReserve(item.getValue())) {
+                reserved.forEach(r -> counters.get(r.getKey()).release(r.getValue()));
+                rejectedCounter.increment();
+                throw new InsufficientStockException("Insufficient stock for one or more products", toResults(items));
+            }
+            reserved.add(item);
+        }
+
+        ReservationHold hold = new ReservationHold(UUID.randomUUID(), orderId,
+                Collections.unmodifiableMap(items), expiresAt);
+        holds.put(hold.id(), hold);
+        expirations.add(hold);
+        createdCounter.increment();
+        return hold;
+    }
+
+    private ReservationHold claimByOrder(UUID orderId) {
+        UUID reservationId = holdsByOrder.remove(orderId);
+        return reservationId != null ? holds.remove(reservationId) : null;
+    }
+
+    // hold остался в очереди expirations, поэтому TTL продолжает действовать
+    private void restoreHold(ReservationHold hold) {
+        holds.put(hold.id(), hold);
+        if (hold.orderId() != null) {
+            holdsByOrder.putIfAbsent(hold.orderId(), hold.id());
+        }
+    }
+
+    private Map<UUID, Integer> aggregate(List<StockUpdateRequest> requests) {
+        Map<UUID, Integer> items = new LinkedHashMap<>();
+        for (StockUpdateRequest item : requests) {
+            if (item.productId() == null || item.quantity() <= 0) {
+                throw new IllegalArgumentException("Invalid reservation item: " + item);
+            }
+            items.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+        return items;
+    }
+
+    private void loadCounters(Iterable<UUID> productIds) {
+        List<UUID> missing = new ArrayList<>();
+        productIds.forEach(id -> {
+            if (!counters.containsKey(id)) {
+                missing.add(id);
+            }
+        });
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (ProductStockView row : productJpaRepository.findStockByIdIn(missing)) {
+            counters.putIfAbsent(row.getId(), new SkuCounter(row.getStock()));
+        }
+    }
+
+    private void resync(UUID productId, int databaseStock) {
+        SkuCounter counter = counters.get(productId);
+        if (counter != null) {
+            counter.resync(databaseStock);
+        }
+    }
+
+    private void releaseItems(ReservationHold hold) {
+        hold.items().forEach((productId, quantity) -> counters.get(productId).release(quantity));
+    }
+
+    private Duration resolveTtl(Long ttlSeconds) {
+        if (ttlSeconds == null || ttlSeconds <= 0) {
+            return defaultTtl;
+        }
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    private List<StockItemResult> toResults(Map<UUID, Integer> items) {
+        List<StockItemResult> results = new ArrayList<>(items.size());
+        items.forEach((productId, quantity) -> {
+            SkuCounter counter = counters.get(productId);
+            if (counter == null) {
+                results.add(new StockItemResult(productId, quantity, 0, StockItemStatus.NOT_FOUND));
+            } else {
+                int available = counter.available();
+                results.add(new StockItemResult(productId, quantity, Math.max(available, 0),
+                        available >= quantity ? StockItemStatus.AVAILABLE : StockItemStatus.INSUFFICIENT_STOCK));
+            }
+        });
+        return results;
+    }
+
+    private Map<UUID, Integer> toStockMap(List<ProductStockView> rows) {
+        return rows.stream().collect(Collectors.toMap(ProductStockView::getId, ProductStockView::getStock));
+    }
+
+    private ReservationResponse toResponse(ReservationHold hold) {
+        return new ReservationResponse(hold.id(), hold.orderId(), hold.items(), hold.expiresAt());
+    }
+
+    private void evictCaches(Iterable<UUID> productIds) {
+        STOCK_CACHES.stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(cache -> productIds.forEach(cache::evict));
+    }
+}
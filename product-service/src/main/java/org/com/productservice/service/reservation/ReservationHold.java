@@ -0,0 +1,20 @@
+package org.com.productservice.service.reservation;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+record ReservationHold(UUID id, UUID orderId, Map<UUID, Integer> items, Instant expiresAt) implements Delayed {
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiresAt.toEpochMilli() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,82 @@
+package org.com.productservice.service.reservation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики одного SKU. available и reserved упакованы в один long,
+ * чтобы перенос единиц между ними был одним CAS без блокировок.
+ * Подтверждение списывается в БД сразу, поэтому остаток в БД = available + reserved.
+ */
+final class SkuCounter {
+
+    private final AtomicLong state;
+
+    SkuCounter(int available) {
+        this.state = new AtomicLong(pack(available, 0));
+    }
+
+    boolean tryReserve(int quantity) {
+        while (true) {
+            long current = state.get();
+            int available = available(current);
+            if (available < quantity) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(available - quantity, reserved(current) + quantity))) {
+                return true;
+            }
+        }
+    }
+
+    void release(int quantity) {
+        while (true) {
+            long current = state.get();
+            if (state.compareAndSet(current, pack(available(current) + quantity, reserved(current) - quantity))) {
+                return;
+            }
+        }
+    }
+
+    // Списание уже записано в БД: зарезервированные единицы просто уходят из счетчика
+    void confirm(int quantity) {
+        while (true) {
+            long current = state.get();
+            if (state.compareAndSet(current, pack(available(current), reserved(current) - quantity))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Остаток в БД изменился в обход ledger (админка, пакетные endpoint'ы).
+     */
+    void resync(int databaseStock) {
+        while (true) {
+            long current = state.get();
+            int available = databaseStock - reserved(current);
+            if (state.compareAndSet(current, pack(available, reserved(current)))) {
+                return;
+            }
+        }
+    }
+
+    int available() {
+        return available(state.get());
+    }
+
+    int reserved() {
+        return reserved(state.get());
+    }
+
+    private static long pack(int available, int reserved) {
+        return ((long) available << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int available(long state) {
+        return (int) (state >> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) state;
+    }
+}
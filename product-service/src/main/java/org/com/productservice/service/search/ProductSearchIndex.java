@@ -0,0 +1,372 @@
+package org.com.productservice.service.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.dto.search.CategoryFacet;
+import org.com.productservice.dto.search.PriceFacet;
+import org.com.productservice.dto.search.ProductSearchHit;
+import org.com.productservice.dto.search.ProductSearchResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс товаров в памяти узла: название, описание, категория.
+ * <p>
+ * Каждый токен запроса раскрывается в точный термин, термины с этим префиксом и термины
+ * в пределах 1-2 опечаток (кандидаты - по общим триграммам). Все токены запроса обязательны.
+ * Релевантность - сумма по токенам {@code idf токена * вес поля * tf * буст варианта}; точное совпадение весит больше префикса
+ * и опечатки. Стоимость запроса зависит от числа совпавших товаров, а не от размера каталога:
+ * выдача страницы - top-k по куче, без сортировки всех совпадений.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final double EXACT_BOOST = 1.0;
+    private static final double PREFIX_BOOST = 0.7;
+    private static final double TYPO_BOOST = 0.5;
+
+    // Сколько вариантов термина максимум берем на префикс/опечатки одного токена
+    private static final int MAX_EXPANSIONS = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Comparator<Match> RANKING = Comparator.comparingDouble(Match::score).reversed()
+            .thenComparing(Match::id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, IndexedProduct> documents = new HashMap<>();
+    private final NavigableMap<String, Map<UUID, Float>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> trigramTerms = new HashMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+    private final List<BigDecimal> priceBuckets;
+    private final Timer searchTimer;
+
+    public ProductSearchIndex(@Value("${search.price-buckets:0,100,500,1000,5000,10000}") List<BigDecimal> priceBuckets,
+                              MeterRegistry meterRegistry) {
+        this.priceBuckets = priceBuckets.stream().sorted().toList();
+        this.searchTimer = Timer.builder("product.search.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("product.search.documents", this, ProductSearchIndex::size)
+                .register(meterRegistry);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String categoryName(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            return categoryNames.get(categoryId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsert(ProductResponse product, String categoryName) {
+        lock.writeLock().lock();
+        try {
+            if (product.getCategoryId() != null && categoryName != null) {
+                categoryNames.put(product.getCategoryId(), categoryName);
+            }
+            removeInternal(product.getId());
+            IndexedProduct document = new IndexedProduct(product, termWeights(product, categoryName));
+            documents.put(product.getId(), document);
+            document.termWeights().forEach((term, weight) -> {
+                Map<UUID, Float> termPostings = postings.computeIfAbsent(term, t -> {
+                    TextAnalyzer.trigrams(t).forEach(trigram ->
+                            trigramTerms.computeIfAbsent(trigram, g -> new HashSet<>()).add(t));
+                    return new HashMap<>();
+                });
+                termPostings.put(product.getId(), weight);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Переиндексирует товары категории под новым названием.
+     */
+    public void renameCategory(Long categoryId, String name) {
+        List<ProductResponse> affected;
+        lock.readLock().lock();
+        try {
+            affected = documents.values().stream()
+                    .map(IndexedProduct::product)
+                    .filter(product -> categoryId.equals(product.getCategoryId()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            categoryNames.put(categoryId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        affected.forEach(product -> upsert(product, name));
+    }
+
+    public ProductSearchResponse search(ProductSearchQuery query) {
+        List<String> tokens = TextAnalyzer.tokenize(query.text());
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one word");
+        }
+        int limit = Math.clamp(query.limit(), 1, MAX_PAGE_SIZE);
+        SearchCursor cursor = query.cursor() != null && !query.cursor().isBlank()
+                ? SearchCursor.decode(query.cursor())
+                : null;
+
+        return searchTimer.record(() -> {
+            lock.readLock().lock();
+            try {
+                return searchInternal(tokens, query, limit, cursor);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private ProductSearchResponse searchInternal(List<String> tokens, ProductSearchQuery query,
+                                                 int limit, SearchCursor cursor) {
+        // idf первой страницы приходит в курсоре - score сравнимы между страницами
+        List<Double> idfs = new ArrayList<>(tokens.size());
+        boolean fixedIdf = cursor != null && cursor.idfs().size() == tokens.size();
+        Map<UUID, Double> scores = null;
+        for (String token : tokens) {
+            Map<UUID, Double> tokenScores = matchToken(token);
+            double idf = fixedIdf ? cursor.idfs().get(idfs.size()) : idf(tokenScores.size());
+            idfs.add(idf);
+            tokenScores.replaceAll((id, score) -> score * idf);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<UUID, Double> intersection = new HashMap<>();
+                for (Map.Entry<UUID, Double> entry : scores.entrySet()) {
+                    Double tokenScore = tokenScores.get(entry.getKey());
+                    if (tokenScore != null) {
+                        intersection.put(entry.getKey(), entry.getValue() + tokenScore);
+                    }
+                }
+                scores = intersection;
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        // Фасет по категориям учитывает фильтр цены, фасет по цене - фильтр категории,
+        // чтобы было видно, сколько даст переключение соседнего значения
+        Map<Long, Integer> categoryCounts = new LinkedHashMap<>();
+        int[] priceCounts = new int[priceBuckets.size()];
+        PriorityQueue<Match> page = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        int totalMatches = 0;
+
+        for (Map.Entry<UUID, Double> entry : scores.entrySet()) {
+            ProductResponse product = documents.get(entry.getKey()).product();
+            boolean categoryMatches = query.categoryId() == null || query.categoryId().equals(product.getCategoryId());
+            boolean priceMatches = priceInRange(product.getPrice(), query.minPrice(), query.maxPrice());
+            if (priceMatches && product.getCategoryId() != null) {
+                categoryCounts.merge(product.getCategoryId(), 1, Integer::sum);
+            }
+            if (categoryMatches) {
+                int bucket = priceBucket(product.getPrice());
+                if (bucket >= 0) {
+                    priceCounts[bucket]++;
+                }
+            }
+            if (!categoryMatches || !priceMatches) {
+                continue;
+            }
+            totalMatches++;
+            double score = entry.getValue();
+            if (cursor != null && !cursor.precedes(score, entry.getKey())) {
+                continue;
+            }
+            page.offer(new Match(entry.getKey(), score));
+            if (page.size() > limit + 1) {
+                page.poll();
+            }
+        }
+
+        List<Match> ordered = new ArrayList<>(page);
+        ordered.sort(RANKING);
+        String nextCursor = null;
+        if (ordered.size() > limit) {
+            ordered = ordered.subList(0, limit);
+            Match last = ordered.get(limit - 1);
+            nextCursor = new SearchCursor(last.score(), last.id(), List.copyOf(idfs)).encode();
+        }
+        List<ProductSearchHit> hits = ordered.stream()
+                .map(match -> new ProductSearchHit(documents.get(match.id()).product(), match.score()))
+                .toList();
+        return new ProductSearchResponse(hits, totalMatches, categoryFacets(categoryCounts),
+                priceFacets(priceCounts), nextCursor);
+    }
+
+    /**
+     * Лучший вариант термина для каждого товара: точный, префиксный или с опечаткой (без idf).
+     */
+    private Map<UUID, Double> matchToken(String token) {
+        Map<String, Double> variants = new HashMap<>();
+        if (postings.containsKey(token)) {
+            variants.put(token, EXACT_BOOST);
+        }
+        for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+            if (variants.size() >= MAX_EXPANSIONS) {
+                break;
+            }
+            variants.putIfAbsent(term, PREFIX_BOOST);
+        }
+        int typos = TextAnalyzer.allowedTypos(token);
+        if (typos > 0) {
+            Set<String> candidates = new HashSet<>();
+            for (String trigram : TextAnalyzer.trigrams(token)) {
+                candidates.addAll(trigramTerms.getOrDefault(trigram, Set.of()));
+            }
+            for (String candidate : candidates) {
+                if (variants.size() >= MAX_EXPANSIONS * 2) {
+                    break;
+                }
+                if (!variants.containsKey(candidate) && TextAnalyzer.editDistance(token, candidate, typos) <= typos) {
+                    variants.put(candidate, TYPO_BOOST);
+                }
+            }
+        }
+
+        Map<UUID, Double> scores = new HashMap<>();
+        variants.forEach((term, boost) -> postings.get(term)
+                .forEach((id, weight) -> scores.merge(id, weight * boost, Math::max)));
+        return scores;
+    }
+
+    // idf по всем вариантам токена: редкий префиксный термин не должен обгонять точное совпадение
+    private double idf(int matches) {
+        return Math.log(1 + (double) documents.size() / Math.max(1, matches));
+    }
+
+    private static Map<String, Float> termWeights(ProductResponse product, String categoryName) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, categoryName, CATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        return weights;
+    }
+
+    // Длинные поля размываются: вес термина делится на логарифм длины поля
+    private static void addField(Map<String, Float> weights, String text, float fieldWeight) {
+        List<String> tokens = TextAnalyzer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        float norm = (float) (1 + Math.log(tokens.size()));
+        for (String token : tokens) {
+            weights.merge(token, fieldWeight / norm, Float::sum);
+        }
+    }
+
+    private void removeInternal(UUID productId) {
+        IndexedProduct previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.termWeights().keySet()) {
+            Map<UUID, Float> termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            termPostings.remove(productId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+                for (String trigram : TextAnalyzer.trigrams(term)) {
+                    Set<String> terms = trigramTerms.get(trigram);
+                    if (terms != null) {
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            trigramTerms.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean priceInRange(BigDecimal price, BigDecimal min, BigDecimal max) {
+        if (price == null) {
+            return min == null && max == null;
+        }
+        return (min == null || price.compareTo(min) >= 0) && (max == null || price.compareTo(max) <= 0);
+    }
+
+    private int priceBucket(BigDecimal price) {
+        if (price == null) {
+            return -1;
+        }
+        int bucket = -1;
+        for (int i = 0; i < priceBuckets.size() && price.compareTo(priceBuckets.get(i)) >= 0; i++) {
+            bucket = i;
+        }
+        return bucket;
+    }
+
+    private List<CategoryFacet> categoryFacets(Map<Long, Integer> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+                .map(entry -> new CategoryFacet(entry.getKey(), categoryNames.get(entry.getKey()), entry.getValue()))
+                .toList();
+    }
+
+    private List<PriceFacet> priceFacets(int[] counts) {
+        List<PriceFacet> facets = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                BigDecimal to = i + 1 < priceBuckets.size() ? priceBuckets.get(i + 1) : null;
+                facets.add(new PriceFacet(priceBuckets.get(i), to, counts[i]));
+            }
+        }
+        return facets;
+    }
+
+    private record IndexedProduct(ProductResponse product, Map<String, Float> termWeights) {
+    }
+
+    private record Match(UUID id, double score) {
+    }
+}
@@ -0,0 +1,200 @@
+package org.com.productservice.service.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.mapper.ProductMapper;
+import org.com.productservice.model.Category;
+import org.com.productservice.model.Product;
+import org.com.productservice.repository.jpa.CategoryJpaRepository;
+import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Поддерживает {@link ProductSearchIndex} в актуальном состоянии.
+ * <p>
+ * При старте индекс строится пачками по id (keyset, без OFFSET). Изменения товаров применяются
+ * локально после коммита и рассылаются остальным узлам через Redis pub/sub
+ * ({@code P|node|productId}, {@code C|node|categoryId|name}); узел-получатель перечитывает товар из БД,
+ * поэтому сообщения идемпотентны и порядок доставки не важен.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndexer implements MessageListener {
+
+    private static final String PRODUCT = "P";
+    private static final String CATEGORY = "C";
+
+    private final ProductSearchIndex index;
+    private final ProductJpaRepository productJpaRepository;
+    private final CategoryJpaRepository categoryJpaRepository;
+    private final ProductMapper productMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ChannelTopic topic;
+    private final int rebuildBatchSize;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ProductSearchIndexer(ProductSearchIndex index,
+                                ProductJpaRepository productJpaRepository,
+                                CategoryJpaRepository categoryJpaRepository,
+                                ProductMapper productMapper,
+                                StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${search.index.channel:search:index-updates}") String channel,
+                                @Value("${search.index.rebuild-batch-size:500}") int rebuildBatchSize) {
+        this.index = index;
+        this.productJpaRepository = productJpaRepository;
+        this.categoryJpaRepository = categoryJpaRepository;
+        this.productMapper = productMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.topic = new ChannelTopic(channel);
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, topic);
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        listenerContainer.removeMessageListener(this, topic);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            categoryJpaRepository.findAll()
+                    .forEach(category -> index.renameCategory(category.getId(), category.getName()));
+            UUID after = null;
+            int indexed = 0;
+            while (true) {
+                UUID lastId = after;
+                List<Product> batch = readOnlyTransaction.execute(status -> {
+                    List<Product> products = lastId == null
+                            ? productJpaRepository.findAllByOrderByIdAsc(Limit.of(rebuildBatchSize))
+                            : productJpaRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(rebuildBatchSize));
+                    products.forEach(this::indexProduct);
+                    return products;
+                });
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                indexed += batch.size();
+                after = batch.get(batch.size() - 1).getId();
+            }
+            log.info("Product search index built: {} products in {} ms", indexed, System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            log.error("Failed to build product search index, search results will be incomplete", e);
+        }
+    }
+
+    public void onProductSaved(ProductResponse product) {
+        afterCommit(() -> {
+            index.upsert(product, categoryName(product.getCategoryId()));
+            publish(PRODUCT + "|" + nodeId + "|" + product.getId());
+        });
+    }
+
+    public void onProductDeleted(UUID productId) {
+        afterCommit(() -> {
+            index.remove(productId);
+            publish(PRODUCT + "|" + nodeId + "|" + productId);
+        });
+    }
+
+    public void onCategoryRenamed(Long categoryId, String name) {
+        afterCommit(() -> {
+            index.renameCategory(categoryId, name);
+            publish(CATEGORY + "|" + nodeId + "|" + categoryId + "|" + name);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 3 || nodeId.equals(parts[1])) {
+            return;
+        }
+        try {
+            if (PRODUCT.equals(parts[0])) {
+                reindexProduct(UUID.fromString(parts[2]));
+            } else if (CATEGORY.equals(parts[0]) && parts.length == 4) {
+                index.renameCategory(Long.valueOf(parts[2]), parts[3]);
+            } else {
+                log.warn("Unknown search index message: {}", String.join("|", parts));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to apply search index update {}: {}", String.join("|", parts), e.getMessage());
+        }
+    }
+
+    private void reindexProduct(UUID productId) {
+        readOnlyTransaction.executeWithoutResult(status -> productJpaRepository.findById(productId)
+                .ifPresentOrElse(this::indexProduct, () -> index.remove(productId)));
+    }
+
+    private void indexProduct(Product product) {
+        Category category = product.getCategory();
+        String categoryName = category != null ? category.getName() : null;
+        index.upsert(productMapper.toProductResponse(product), categoryName);
+    }
+
+    private String categoryName(Long categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        String name = index.categoryName(categoryId);
+        if (name != null) {
+            return name;
+        }
+        return categoryJpaRepository.findById(categoryId).map(Category::getName).orElse(null);
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(topic.getTopic(), message);
+        } catch (Exception e) {
+            // Остальные узлы увидят изменение после перезапуска; локальный индекс уже обновлен
+            log.warn("Failed to publish search index update: {}", e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.com.productservice.service.search;
+
+import java.math.BigDecimal;
+
+public record ProductSearchQuery(
+        String text,
+        Long categoryId,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        int limit,
+        String cursor
+) {
+}
@@ -0,0 +1,56 @@
+package org.com.productservice.service.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Позиция в выдаче: (score, id) последнего отданного товара. Порядок выдачи -
+ * score по убыванию, затем id по возрастанию, поэтому следующая страница - все, что строго "после".
+ * <p>
+ * idf зависит от размера индекса и меняется между страницами, если каталог успели изменить;
+ * тогда пересчитанные score не сравнимы с score в курсоре, и страницы теряют или повторяют товары.
+ * Поэтому курсор несет idf токенов первой страницы, и следующие страницы считают score с ними.
+ * Дрейф остается только у товаров, измененных между страницами.
+ * Для клиента курсор непрозрачен (base64url).
+ */
+record SearchCursor(double score, UUID id, List<Double> idfs) {
+
+    String encode() {
+        StringBuilder raw = new StringBuilder(hex(score)).append(':').append(id).append(':');
+        for (int i = 0; i < idfs.size(); i++) {
+            raw.append(i > 0 ? "," : "").append(hex(idfs.get(i)));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SearchCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            List<Double> idfs = new ArrayList<>();
+            if (parts.length == 3 && !parts[2].isEmpty()) {
+                for (String idf : parts[2].split(",")) {
+                    idfs.add(unhex(idf));
+                }
+            }
+            return new SearchCursor(unhex(parts[0]), UUID.fromString(parts[1]), List.copyOf(idfs));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+
+    boolean precedes(double otherScore, UUID otherId) {
+        int byScore = Double.compare(otherScore, score);
+        return byScore < 0 || (byScore == 0 && otherId.compareTo(id) > 0);
+    }
+
+    private static String hex(double value) {
+        return Long.toHexString(Double.doubleToLongBits(value));
+    }
+
+    private static double unhex(String value) {
+        return Double.longBitsToDouble(Long.parseUnsignedLong(value, 16));
+    }
+}
@@ -0,0 +1,128 @@
+package org.com.productservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.com.productservice.config.cache.serializer.CategoryResponseCodec;
+import org.com.productservice.config.cache.serializer.CompactCacheSerializer;
+import org.com.productservice.config.cache.serializer.ProductResponseCodec;
+import org.com.productservice.dto.product.ProductResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение JSON-сериализатора кеша (как в RedisConfig) и {@link CompactCacheSerializer}
+ * на одном ProductResponse и на странице категории из 50 товаров.
+ * <p>
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.com.productservice.benchmark.CacheSerializerBenchmark}
+ * или из IDE через {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializerBenchmark {
+
+    @Param({"json", "binary", "binary-lz4"})
+    public String format;
+
+    private RedisSerializer<Object> serializer;
+    private ProductResponse product;
+    private List<ProductResponse> categoryPage;
+    private byte[] productBytes;
+    private byte[] categoryPageBytes;
+
+    @Setup
+    public void setUp() {
+        RedisSerializer<Object> json = jsonSerializer();
+        serializer = switch (format) {
+            case "json" -> json;
+            case "binary" -> compact(json, 0);
+            default -> compact(json, 512);
+        };
+
+        product = product(0);
+        categoryPage = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            categoryPage.add(product(i));
+        }
+        productBytes = serializer.serialize(product);
+        categoryPageBytes = serializer.serialize(categoryPage);
+        System.out.printf("%n[%s] product=%d bytes, categoryPage(50)=%d bytes%n",
+                format, productBytes.length, categoryPageBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeProduct() {
+        return serializer.serialize(product);
+    }
+
+    @Benchmark
+    public Object decodeProduct() {
+        return serializer.deserialize(productBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeCategoryPage() {
+        return serializer.serialize(categoryPage);
+    }
+
+    @Benchmark
+    public Object decodeCategoryPage() {
+        return serializer.deserialize(categoryPageBytes);
+    }
+
+    private static RedisSerializer<Object> compact(RedisSerializer<Object> json, int threshold) {
+        return new CompactCacheSerializer(List.of(new ProductResponseCodec(), new CategoryResponseCodec()), json, threshold);
+    }
+
+    // Та же настройка ObjectMapper, что и в RedisConfig.cacheManager
+    private static RedisSerializer<Object> jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.activateDefaultTyping(BasicPolymorphicTypeValidator.builder()
+                .allowIfBaseType(Object.class)
+                .allowIfSubType(Object.class)
+                .build(), ObjectMapper.DefaultTyping.NON_FINAL);
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    private static ProductResponse product(int i) {
+        return ProductResponse.builder()
+                .id(UUID.randomUUID())
+                .name("Wireless headphones model " + i)
+                .description("Over-ear wireless headphones with active noise cancelling, 30h battery and fast charging")
+                .price(new BigDecimal("199.99"))
+                .mainImage("https://cdn.example.com/products/" + i + "/main.jpg")
+                .categoryId(12L)
+                .stock(100 + i)
+                .images(List.of("https://cdn.example.com/products/" + i + "/1.jpg",
+                        "https://cdn.example.com/products/" + i + "/2.jpg"))
+                .active(true)
+                .createdAt(LocalDateTime.now().minusDays(30))
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CacheSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
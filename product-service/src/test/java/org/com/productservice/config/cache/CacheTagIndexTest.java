@@ -0,0 +1,113 @@
+package org.com.productservice.config.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.doubleThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Теги - sorted set'ы со временем записи: каждая запись вырезает протухшие члены,
+ * чтение отдает только члены за последнее окно TTL.
+ */
+class CacheTagIndexTest {
+
+    private static final Duration TAG_TTL = Duration.ofMinutes(30);
+
+    private StringRedisTemplate redisTemplate;
+    private ZSetOperations<String, String> zSetOperations;
+    private CacheTagIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        index = new CacheTagIndex(redisTemplate, TAG_TTL);
+        index.registerExtractor("search", value -> List.of("p:1", "search-query"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordAddsScoredMemberAndTrimsExpiredOnes() {
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(call -> {
+            call.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+        long before = System.currentTimeMillis();
+
+        index.record("search", "phone:page0", List.of("value"));
+
+        long after = System.currentTimeMillis();
+        for (String key : List.of("cache-ztags:p:1", "cache-ztags:search-query")) {
+            verify(connection).zAdd(eq(key), doubleThat(score -> score >= before && score <= after), eq("search|phone:page0"));
+            verify(connection).zRemRangeByScore(eq(key), eq(Double.NEGATIVE_INFINITY),
+                    doubleThat(cutoff -> cutoff >= before - TAG_TTL.toMillis() && cutoff <= after - TAG_TTL.toMillis()));
+            verify(connection).expire(key, TAG_TTL.toSeconds());
+        }
+    }
+
+    @Test
+    void forEachMemberScansAndSkipsMembersOlderThanTtl() {
+        long now = System.currentTimeMillis();
+        Cursor<ZSetOperations.TypedTuple<String>> cursor = cursor(List.of(
+                new DefaultTypedTuple<>("search|phone:page0", (double) now),
+                new DefaultTypedTuple<>("search|old:page0", (double) (now - TAG_TTL.toMillis() - 1_000))));
+        when(zSetOperations.scan(eq("cache-ztags:search-query"), any(ScanOptions.class))).thenReturn(cursor);
+
+        List<String> members = new ArrayList<>();
+        index.forEachMember("search-query", members::add);
+
+        assertThat(members).containsExactly("search|phone:page0");
+        verify(cursor).close();
+    }
+
+    @Test
+    void evictTaggedEvictsLiveMembersAndDropsTags() {
+        when(zSetOperations.rangeByScore(eq("cache-ztags:p:1"), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(Set.of("search|phone:page0", "category_products|7"));
+        CacheManager cacheManager = mock(CacheManager.class);
+        Cache search = mock(Cache.class);
+        Cache category = mock(Cache.class);
+        when(cacheManager.getCache("search")).thenReturn(search);
+        when(cacheManager.getCache("category_products")).thenReturn(category);
+
+        assertThat(index.evictTagged(cacheManager, List.of("p:1"))).isEqualTo(2);
+
+        verify(search).evict("phone:page0");
+        verify(category).evict("7");
+        verify(redisTemplate).delete(List.of("cache-ztags:p:1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Cursor<T> cursor(List<T> items) {
+        Iterator<T> iterator = items.iterator();
+        Cursor<T> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(call -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(call -> iterator.next());
+        return cursor;
+    }
+}
@@ -0,0 +1,112 @@
+package org.com.productservice.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Раннее обновление: только через зарегистрированный загрузчик и без записи
+ * значения, если ключ сбросили, пока шла загрузка или запись.
+ */
+class TwoTierCacheTest {
+
+    private static final String KEY = "42";
+
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private Runnable afterL2Put = () -> { };
+    private final ConcurrentMapCache l2 = new ConcurrentMapCache("products") {
+        @Override
+        public void put(Object key, Object value) {
+            super.put(key, value);
+            afterL2Put.run();
+        }
+    };
+
+    @Test
+    void earlyRefreshUsesRegisteredLoaderInsteadOfCallerLoader() {
+        TwoTierCache cache = cache(Runnable::run);
+        AtomicInteger callerLoads = new AtomicInteger();
+        cache.setRefreshLoader(key -> "fresh");
+
+        assertThat(cache.get(KEY, () -> slowLoad(callerLoads, "initial"))).isEqualTo("initial");
+        assertThat(cache.get(KEY, () -> slowLoad(callerLoads, "caller"))).isEqualTo("initial");
+
+        assertThat(callerLoads).hasValue(1);
+        assertThat(l2.get(KEY).get()).isEqualTo("fresh");
+        assertThat(cache.get(KEY, () -> slowLoad(callerLoads, "caller"))).isEqualTo("fresh");
+    }
+
+    @Test
+    void withoutRegisteredLoaderThereIsNoEarlyRefresh() {
+        TwoTierCache cache = cache(refreshes::add);
+        AtomicInteger callerLoads = new AtomicInteger();
+
+        cache.get(KEY, () -> slowLoad(callerLoads, "initial"));
+        cache.get(KEY, () -> slowLoad(callerLoads, "caller"));
+
+        assertThat(callerLoads).hasValue(1);
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    void refreshStartedBeforeEvictDoesNotRestoreValue() {
+        TwoTierCache cache = cache(refreshes::add);
+        cache.setRefreshLoader(key -> "stale");
+        cache.get(KEY, () -> slowLoad(new AtomicInteger(), "initial"));
+        cache.get(KEY, () -> "caller");
+        assertThat(refreshes).hasSize(1);
+
+        cache.evict(KEY);
+        refreshes.get(0).run();
+
+        assertThat(l2.get(KEY)).isNull();
+        assertThat(cache.get(KEY)).isNull();
+        assertThat(cache.get(KEY, () -> "reloaded")).isEqualTo("reloaded");
+    }
+
+    @Test
+    void evictDuringWriteRollsBackLoadedValue() {
+        TwoTierCache cache = cache(refreshes::add);
+        // Запись в Redis идет вне блокировки inFlight, поэтому evict внутри нее не упирается в нее
+        afterL2Put = () -> {
+            afterL2Put = () -> { };
+            cache.evict(KEY);
+        };
+
+        assertThat(cache.get(KEY, () -> "stale")).isEqualTo("stale");
+
+        assertThat(l2.get(KEY)).isNull();
+        assertThat(cache.getLocalCache().getIfPresent(KEY)).isNull();
+        assertThat(cache.get(KEY, () -> "reloaded")).isEqualTo("reloaded");
+        assertThat(l2.get(KEY).get()).isEqualTo("reloaded");
+    }
+
+    // Огромный beta и загрузка не короче 1 мс - раннее обновление срабатывает на первом же чтении
+    private TwoTierCache cache(Executor refreshExecutor) {
+        return new TwoTierCache("products",
+                Caffeine.newBuilder().maximumSize(100).build(),
+                l2,
+                mock(CacheInvalidationPublisher.class),
+                mock(CacheTagIndex.class),
+                Duration.ofSeconds(1),
+                1e9,
+                refreshExecutor,
+                new SimpleMeterRegistry());
+    }
+
+    private static String slowLoad(AtomicInteger loads, String value) throws InterruptedException {
+        loads.incrementAndGet();
+        Thread.sleep(1);
+        return value;
+    }
+}
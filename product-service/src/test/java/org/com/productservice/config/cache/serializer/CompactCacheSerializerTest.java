@@ -0,0 +1,102 @@
+package org.com.productservice.config.cache.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.com.productservice.dto.category.CategoryResponse;
+import org.com.productservice.dto.product.ProductResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Круговая сериализация DTO с кодеками, порог LZ4 и совместимость с JSON-записями, уже лежащими в Redis.
+ */
+class CompactCacheSerializerTest {
+
+    private static final int THRESHOLD = 512;
+
+    private final RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer(
+            new ObjectMapper().registerModule(new JavaTimeModule()).activateDefaultTyping(
+                    new ObjectMapper().getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL));
+    private final CompactCacheSerializer serializer = new CompactCacheSerializer(
+            List.of(new ProductResponseCodec(), new CategoryResponseCodec()), json, THRESHOLD);
+
+    @Test
+    void productRoundTripKeepsAllFieldsIncludingNulls() {
+        ProductResponse full = product("Phone");
+        ProductResponse sparse = ProductResponse.builder().id(UUID.randomUUID()).name("Draft").build();
+
+        assertThat(serializer.deserialize(serializer.serialize(full))).isEqualTo(full);
+        assertThat(serializer.deserialize(serializer.serialize(sparse))).isEqualTo(sparse);
+    }
+
+    @Test
+    void categoryAndListsRoundTrip() {
+        CategoryResponse category = new CategoryResponse(7L, "Phones");
+        List<ProductResponse> page = List.of(product("A"), product("B"));
+
+        assertThat(serializer.deserialize(serializer.serialize(category))).isEqualTo(category);
+        assertThat(serializer.deserialize(serializer.serialize(page))).isEqualTo(page);
+        assertThat(serializer.deserialize(serializer.serialize(List.of()))).isEqualTo(List.of());
+    }
+
+    @Test
+    void payloadsFromThresholdAreCompressed() {
+        byte[] small = serializer.serialize(product("A"));
+        List<ProductResponse> large = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            large.add(product("Product " + i));
+        }
+        byte[] compressed = serializer.serialize(large);
+        byte[] uncompressed = new CompactCacheSerializer(
+                List.of(new ProductResponseCodec(), new CategoryResponseCodec()), json, 0).serialize(large);
+
+        assertThat(small.length).isLessThan(THRESHOLD);
+        assertThat(flags(small) & 2).isZero();
+        assertThat(flags(compressed) & 2).isEqualTo(2);
+        assertThat(compressed.length).isLessThan(uncompressed.length);
+        assertThat(serializer.deserialize(compressed)).isEqualTo(large);
+    }
+
+    @Test
+    void typesWithoutCodecAndExistingJsonEntriesGoThroughJson() {
+        Map<String, Object> other = new HashMap<>(Map.of("key", "value"));
+        ProductResponse product = product("Legacy");
+
+        byte[] otherBytes = serializer.serialize(other);
+        assertThat(otherBytes[0]).isNotEqualTo(CompactCacheSerializer.MAGIC);
+        assertThat(serializer.deserialize(otherBytes)).isEqualTo(other);
+        // Запись, сделанная до перехода на бинарный формат
+        assertThat(serializer.deserialize(json.serialize(product))).isEqualTo(product);
+    }
+
+    private static int flags(byte[] bytes) {
+        return bytes[2];
+    }
+
+    private static ProductResponse product(String name) {
+        return ProductResponse.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .description("Description of " + name)
+                .price(new BigDecimal("1299.90"))
+                .mainImage("https://cdn.example.com/" + name + ".png")
+                .categoryId(7L)
+                .stock(15)
+                .images(List.of("a.png", "b.png"))
+                .active(true)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 10, 0))
+                .updatedAt(LocalDateTime.of(2025, 1, 2, 11, 30, 15, 123_000_000))
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package org.com.productservice.service;
+
+import org.com.productservice.config.cache.CacheTagIndex;
+import org.com.productservice.dto.product.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Новый товар сбрасывает список своей категории и только те поисковые запросы,
+ * под которые попадает его название.
+ */
+class ProductCacheInvalidatorTest {
+
+    private CacheTagIndex cacheTagIndex;
+    private CacheManager cacheManager;
+    private ProductCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        cacheTagIndex = mock(CacheTagIndex.class);
+        cacheManager = mock(CacheManager.class);
+        invalidator = new ProductCacheInvalidator(cacheTagIndex, cacheManager);
+        doAnswer(call -> {
+            Consumer<String> action = call.getArgument(1);
+            List.of("search|Phone:page0", "search|laptop:page0", "search|one").forEach(action);
+            return null;
+        }).when(cacheTagIndex).forEachMember(eq("search-query"), any());
+    }
+
+    @Test
+    void createdProductEvictsCategoryAndMatchingSearchesOnly() {
+        ProductResponse created = new ProductResponse();
+        created.setId(UUID.randomUUID());
+        created.setName("Smartphone One");
+        created.setCategoryId(7L);
+
+        invalidator.onProductCreated(created);
+
+        verify(cacheTagIndex).evictTagged(cacheManager, List.of("c:7"));
+        verify(cacheTagIndex).evictMember(cacheManager, "search|Phone:page0");
+        verify(cacheTagIndex).removeMember("search-query", "search|Phone:page0");
+        verify(cacheTagIndex).evictMember(cacheManager, "search|one");
+        verify(cacheTagIndex, never()).evictMember(cacheManager, "search|laptop:page0");
+    }
+}
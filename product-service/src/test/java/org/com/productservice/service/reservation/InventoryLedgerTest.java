@@ -0,0 +1,204 @@
+package org.com.productservice.service.reservation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.com.productservice.dto.reservation.ReservationRequest;
+import org.com.productservice.dto.reservation.ReservationResponse;
+import org.com.productservice.dto.stock.StockUpdateRequest;
+import org.com.productservice.exception.InsufficientStockException;
+import org.com.productservice.model.StockConfirmation;
+import org.com.productservice.repository.jpa.ProductJpaRepository;
+import org.com.productservice.repository.jpa.ProductStockView;
+import org.com.productservice.repository.jpa.StockConfirmationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Резервы по заказу: повтор не резервирует дважды, подтверждение пишется в БД один раз,
+ * неудачное подтверждение возвращает hold.
+ */
+class InventoryLedgerTest {
+
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+    private static final int STOCK = 10;
+
+    private final Map<UUID, StockConfirmation> confirmations = new ConcurrentHashMap<>();
+    private ProductJpaRepository productJpaRepository;
+    private StockConfirmationRepository stockConfirmationRepository;
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        productJpaRepository = mock(ProductJpaRepository.class);
+        stockConfirmationRepository = mock(StockConfirmationRepository.class);
+        when(productJpaRepository.findStockByIdIn(any())).thenReturn(List.of(stock(PRODUCT_ID, STOCK)));
+        when(stockConfirmationRepository.existsById(any())).thenAnswer(call -> confirmations.containsKey(call.<UUID>getArgument(0)));
+        when(stockConfirmationRepository.saveAndFlush(any())).thenAnswer(call -> {
+            StockConfirmation confirmation = call.getArgument(0);
+            confirmations.put(confirmation.getOrderId(), confirmation);
+            return confirmation;
+        });
+        when(stockConfirmationRepository.findForUpdate(any()))
+                .thenAnswer(call -> Optional.ofNullable(confirmations.get(call.<UUID>getArgument(0))));
+
+        ledger = new InventoryLedger(productJpaRepository, stockConfirmationRepository, mock(CacheManager.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), Duration.ofMinutes(30));
+    }
+
+    @Test
+    void repeatedReserveOfSameOrderReturnsExistingHold() {
+        UUID orderId = UUID.randomUUID();
+
+        ReservationResponse first = ledger.reserve(request(orderId, 3));
+        ReservationResponse second = ledger.reserve(request(orderId, 3));
+
+        assertThat(second.reservationId()).isEqualTo(first.reservationId());
+        assertThat(availableAfterReserving(1)).isTrue();
+        assertThatThrownBy(() -> ledger.reserve(request(null, STOCK - 3 + 1)))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void concurrentReservesOfSameOrderCreateOneHold() throws Exception {
+        UUID orderId = UUID.randomUUID();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<UUID>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return ledger.reserve(request(orderId, 4)).reservationId();
+                }));
+            }
+            start.countDown();
+            Set<UUID> reservationIds = ConcurrentHashMap.newKeySet();
+            for (Future<UUID> result : results) {
+                reservationIds.add(result.get());
+            }
+            assertThat(reservationIds).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        // Зарезервировано 4 из 10 - еще 6 свободны, 7 уже нет
+        ledger.reserve(request(null, 6));
+        assertThatThrownBy(() -> ledger.reserve(request(null, 1))).isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void confirmIsWrittenOnceBeforeReturning() {
+        UUID orderId = UUID.randomUUID();
+        when(productJpaRepository.decrementStockIfAvailable(anyString(), anyString()))
+                .thenReturn(List.of(stock(PRODUCT_ID, STOCK - 3)));
+        ledger.reserve(request(orderId, 3));
+
+        assertThat(ledger.confirmByOrder(orderId, List.of())).isTrue();
+        assertThat(ledger.confirmByOrder(orderId, List.of(new StockUpdateRequest(PRODUCT_ID, 3)))).isTrue();
+
+        verify(productJpaRepository, times(1)).decrementStockIfAvailable(anyString(), anyString());
+        assertThat(confirmations.get(orderId).getItems()).containsEntry(PRODUCT_ID, 3);
+    }
+
+    @Test
+    void failedConfirmKeepsHoldForRetry() {
+        UUID orderId = UUID.randomUUID();
+        when(productJpaRepository.decrementStockIfAvailable(anyString(), anyString()))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(List.of(stock(PRODUCT_ID, STOCK - 3)));
+        ledger.reserve(request(orderId, 3));
+
+        assertThatThrownBy(() -> ledger.confirmByOrder(orderId, List.of())).isInstanceOf(IllegalStateException.class);
+        confirmations.clear(); // транзакция откатилась вместе со строкой подтверждения
+
+        // Без позиций в запросе подтвердить можно только по hold - значит, он вернулся
+        assertThat(ledger.confirmByOrder(orderId, List.of())).isTrue();
+    }
+
+    @Test
+    void confirmWithoutHoldUsesFallbackItems() {
+        UUID orderId = UUID.randomUUID();
+        when(productJpaRepository.decrementStockIfAvailable(anyString(), anyString()))
+                .thenReturn(List.of(stock(PRODUCT_ID, STOCK - 2)));
+
+        assertThat(ledger.confirmByOrder(orderId, List.of())).isFalse();
+        assertThat(ledger.confirmByOrder(orderId, List.of(new StockUpdateRequest(PRODUCT_ID, 2)))).isTrue();
+
+        verify(productJpaRepository).decrementStockIfAvailable("{" + PRODUCT_ID + "}", "{2}");
+    }
+
+    @Test
+    void cancelReleasesHoldOrReturnsConfirmedStockOnce() {
+        UUID heldOrder = UUID.randomUUID();
+        ledger.reserve(request(heldOrder, 5));
+        assertThat(ledger.cancelByOrder(heldOrder)).isTrue();
+        verify(productJpaRepository, never()).incrementStock(anyString(), anyString());
+        assertThat(availableAfterReserving(STOCK)).isTrue();
+
+        UUID confirmedOrder = UUID.randomUUID();
+        when(productJpaRepository.decrementStockIfAvailable(anyString(), anyString()))
+                .thenReturn(List.of(stock(PRODUCT_ID, STOCK - 2)));
+        when(productJpaRepository.incrementStock(anyString(), anyString()))
+                .thenReturn(List.of(stock(PRODUCT_ID, STOCK)));
+        ledger.confirmByOrder(confirmedOrder, List.of(new StockUpdateRequest(PRODUCT_ID, 2)));
+
+        assertThat(ledger.cancelByOrder(confirmedOrder)).isTrue();
+        assertThat(ledger.cancelByOrder(confirmedOrder)).isFalse();
+        verify(productJpaRepository, times(1)).incrementStock("{" + PRODUCT_ID + "}", "{2}");
+        assertThat(confirmations.get(confirmedOrder).getStatus()).isEqualTo(StockConfirmation.Status.RETURNED);
+    }
+
+    // Проверка остатка через резерв без заказа: удалось - снимаем обратно
+    private boolean availableAfterReserving(int quantity) {
+        try {
+            ReservationResponse probe = ledger.reserve(request(null, quantity));
+            ledger.release(probe.reservationId());
+            return true;
+        } catch (InsufficientStockException e) {
+            return false;
+        }
+    }
+
+    private static ReservationRequest request(UUID orderId, int quantity) {
+        return new ReservationRequest(orderId, List.of(new StockUpdateRequest(PRODUCT_ID, quantity)), null);
+    }
+
+    private static ProductStockView stock(UUID id, int stock) {
+        return new ProductStockView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getStock() {
+                return stock;
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package org.com.productservice.service.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.com.productservice.dto.product.ProductResponse;
+import org.com.productservice.dto.search.ProductSearchHit;
+import org.com.productservice.dto.search.ProductSearchResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Курсор выдачи: изменения каталога между страницами не должны терять или повторять товары,
+ * равные score упорядочиваются по id.
+ */
+class ProductSearchIndexTest {
+
+    private static final int PAGE = 3;
+
+    private ProductSearchIndex index;
+    private final List<UUID> phones = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(List.of(BigDecimal.ZERO, BigDecimal.valueOf(100)), new SimpleMeterRegistry());
+        // Разная длина названия - разный вес термина, значит и разный score
+        String[] names = {"phone", "phone case", "phone case red", "phone stand", "phone stand metal black",
+                "phone charger", "phone charger fast usb", "phone holder car", "phone"};
+        for (String name : names) {
+            phones.add(add(name));
+        }
+        add("laptop");
+    }
+
+    @Test
+    void pagesStayConsistentWhenIndexChangesBetweenPages() {
+        List<UUID> seen = new ArrayList<>();
+        ProductSearchResponse page = search(null);
+        page.items().forEach(hit -> seen.add(hit.product().getId()));
+
+        // idf "phone" меняется: каталог растет, совпадений становится больше
+        for (int i = 0; i < 50; i++) {
+            add("tablet " + i);
+        }
+        add("phone new arrival");
+        index.remove(add("phone temporary"));
+
+        while (page.nextCursor() != null) {
+            page = search(page.nextCursor());
+            page.items().forEach(hit -> seen.add(hit.product().getId()));
+        }
+
+        assertThat(seen).doesNotHaveDuplicates();
+        assertThat(seen).containsAll(phones);
+    }
+
+    @Test
+    void equalScoresAreOrderedByIdAcrossPages() {
+        List<ProductSearchHit> hits = new ArrayList<>();
+        ProductSearchResponse page = search(null);
+        hits.addAll(page.items());
+        while (page.nextCursor() != null) {
+            page = search(page.nextCursor());
+            hits.addAll(page.items());
+        }
+
+        assertThat(hits).hasSize(phones.size());
+        for (int i = 1; i < hits.size(); i++) {
+            ProductSearchHit previous = hits.get(i - 1);
+            ProductSearchHit current = hits.get(i);
+            assertThat(current.score()).isLessThanOrEqualTo(previous.score());
+            if (current.score() == previous.score()) {
+                assertThat(current.product().getId()).isGreaterThan(previous.product().getId());
+            }
+        }
+    }
+
+    @Test
+    void cursorRoundTripKeepsIdfs() {
+        SearchCursor cursor = new SearchCursor(1.25, UUID.randomUUID(), List.of(0.5, 2.75));
+
+        assertThat(SearchCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    private ProductSearchResponse search(String cursor) {
+        return index.search(new ProductSearchQuery("phone", null, null, null, PAGE, cursor));
+    }
+
+    private UUID add(String name) {
+        ProductResponse product = ProductResponse.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .price(BigDecimal.TEN)
+                .build();
+        index.upsert(product, null);
+        return product.getId();
+    }
+}
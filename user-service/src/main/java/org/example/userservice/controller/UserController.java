@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.userservice.dto.request.CreateUserRequest;
 import org.example.userservice.dto.request.UpdateUserRequest;
 import org.example.userservice.dto.request.UserSearchRequest;
+import org.example.userservice.dto.response.CursorPage;
 import org.example.userservice.dto.response.UserResponse;
 import org.example.userservice.model.Role;
 import org.example.userservice.model.UserStatus;
@@ -43,6 +44,17 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<CursorPage<UserResponse>> getUsersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) UserStatus status
+    ) {
+        log.info("Getting users page: cursor={}, limit={}, status={}", cursor, limit, status);
+        return ResponseEntity.ok(userService.getUsersPage(cursor, limit, status));
+    }
+
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<Page<UserResponse>> searchUsers(
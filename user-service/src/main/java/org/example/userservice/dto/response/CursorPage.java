@@ -0,0 +1,12 @@
+package org.example.userservice.dto.response;
+
+import java.util.List;
+
+/**
+ * Страница keyset-пагинации без COUNT(*). {@code nextCursor == null} - это последняя страница.
+ */
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor
+) {
+}
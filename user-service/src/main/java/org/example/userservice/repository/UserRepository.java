@@ -3,6 +3,7 @@ package org.example.userservice.repository;
 import org.example.userservice.model.Role;
 import org.example.userservice.model.User;
 import org.example.userservice.model.UserStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -22,6 +24,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Page<User> findByUsernameContainingOrEmailContainingIgnoreCase(@Param("search") String search, Pageable pageable);
     
     Page<User> findByStatus(UserStatus status, Pageable pageable);
+
+    // Keyset-пагинация по id (IDENTITY растет вместе с датой создания): WHERE id > :afterId LIMIT n
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    List<User> findByStatusAndIdGreaterThanOrderByIdAsc(UserStatus status, Long afterId, Limit limit);
     
     @Query("SELECT u FROM User u JOIN u.roles r WHERE r IN :roles")
     Page<User> findByRolesIn(@Param("roles") Set<Role> roles, Pageable pageable);
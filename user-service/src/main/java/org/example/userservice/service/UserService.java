@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.userservice.dto.request.CreateUserRequest;
 import org.example.userservice.dto.request.UpdateUserRequest;
 import org.example.userservice.dto.request.UserSearchRequest;
+import org.example.userservice.dto.response.CursorPage;
 import org.example.userservice.dto.response.ProfileResponse;
 import org.example.userservice.dto.response.UserResponse;
 import org.example.userservice.exception.UserNotFoundException;
@@ -16,17 +17,22 @@ import org.example.userservice.mapper.UserMapper;
 import org.example.userservice.model.User;
 import org.example.userservice.model.UserStatus;
 import org.example.userservice.repository.UserRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final KafkaProducerService kafkaProducerService;
     private final UserMapper userMapper;
@@ -36,6 +42,36 @@ public class UserService {
                 .map(userMapper::toUserResponse);
     }
 
+    // Keyset-пагинация: курсор - id последнего пользователя, без OFFSET и COUNT(*)
+    public CursorPage<UserResponse> getUsersPage(String cursor, int limit, UserStatus status) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        long afterId = decodeCursor(cursor);
+        List<User> users = status == null
+                ? userRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1))
+                : userRepository.findByStatusAndIdGreaterThanOrderByIdAsc(status, afterId, Limit.of(pageSize + 1));
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = encodeCursor(users.get(pageSize - 1).getId());
+        }
+        return new CursorPage<>(users.stream().map(userMapper::toUserResponse).toList(), nextCursor);
+    }
+
+    private static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+
     public List<UserResponse> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(userMapper::toUserResponse)